@@ -75,7 +75,7 @@ public class Admin
         final AtomicBoolean running = new AtomicBoolean(true);
         final IdleStrategy idleStrategy = new SleepingMillisIdleStrategy();
         final UnsafeBuffer adminClusterBuffer =
-            new UnsafeBuffer(BufferUtil.allocateDirectAligned(8192 + TRAILER_LENGTH, 8));
+            new UnsafeBuffer(BufferUtil.allocateDirectAligned(65536 + TRAILER_LENGTH, 8));
         final OneToOneRingBuffer adminClusterChannel = new OneToOneRingBuffer(adminClusterBuffer);
 
         final ClusterInteractionAgent clusterInteractionAgent = new ClusterInteractionAgent(adminClusterChannel,
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.aeron.samples.admin.cli;
+
+import io.aeron.samples.cluster.admin.protocol.AddProxyBidEncoder;
+import io.aeron.samples.cluster.admin.protocol.MessageHeaderEncoder;
+import org.agrona.ExpandableArrayBuffer;
+import picocli.CommandLine;
+
+import static io.aeron.samples.admin.util.EnvironmentUtil.tryGetParticipantId;
+
+/**
+ * Registers a proxy bid on an auction in the cluster
+ */
+@CommandLine.Command(name = "add-proxy-bid", mixinStandardHelpOptions = false,
+    description = "Registers a proxy bid, which bids on your behalf up to a maximum price")
+public class AddProxyBid implements Runnable
+{
+    @CommandLine.ParentCommand
+    CliCommands parent;
+
+    @SuppressWarnings("all")
+    @CommandLine.Option(names = "auction-id", description = "Auction ID")
+    private Long auctionId = Long.MIN_VALUE;
+
+    @SuppressWarnings("all")
+    @CommandLine.Option(names = "created-by", description = "Created by participant id")
+    private Integer participantId = tryGetParticipantId();
+
+    @SuppressWarnings("all")
+    @CommandLine.Option(names = "max-price", description = "Maximum bid price")
+    private Long maxPrice = 0L;
+
+    private final ExpandableArrayBuffer buffer = new ExpandableArrayBuffer(1024);
+    private final MessageHeaderEncoder messageHeaderEncoder = new MessageHeaderEncoder();
+    private final AddProxyBidEncoder addProxyBidEncoder = new AddProxyBidEncoder();
+
+    /**
+     * Registers the proxy bid
+     */
+    public void run()
+    {
+        addProxyBidEncoder.wrapAndApplyHeader(buffer, 0, messageHeaderEncoder);
+        addProxyBidEncoder.auctionId(auctionId);
+        addProxyBidEncoder.participantId(participantId);
+        addProxyBidEncoder.maxPrice(maxPrice);
+        parent.offerRingBufferMessage(buffer, 0, MessageHeaderEncoder.ENCODED_LENGTH +
+            addProxyBidEncoder.encodedLength());
+    }
+}
@@ -23,6 +23,8 @@ import picocli.CommandLine;
 import picocli.shell.jline3.PicocliCommands;
 
 import java.io.PrintWriter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Cli Command parent
@@ -36,7 +38,9 @@ import java.io.PrintWriter;
     subcommands = {
         AddParticipant.class, PicocliCommands.ClearScreen.class, CommandLine.HelpCommand.class,
         ConnectCluster.class, DisconnectCluster.class, AddAuction.class, AddAuctionBid.class,
-        ListAuctions.class, ListParticipants.class})
+        ListAuctions.class, ListParticipants.class, ListAuctionBids.class, AddProxyBid.class,
+        CancelProxyBid.class, LoadCatalog.class, ListAuctionChanges.class, SubscribeAuction.class,
+        UnsubscribeAuction.class})
 public class CliCommands implements Runnable
 {
     PrintWriter out;
@@ -93,4 +97,33 @@ public class CliCommands implements Runnable
         }
     }
 
+    /**
+     * Offers a message to the admin channel that will be passed straight to the cluster, retrying while the channel is
+     * full so that a long run of messages can be sent as fast as the cluster interaction agent drains them
+     *
+     * @param buffer        the buffer
+     * @param offset        the offset
+     * @param encodedLength the encoded length
+     * @param timeoutMs     how long to retry for, in milliseconds
+     * @return true if the message was written, false if the channel stayed full until the timeout
+     */
+    public boolean offerRingBufferMessage(
+        final ExpandableArrayBuffer buffer,
+        final int offset,
+        final int encodedLength,
+        final long timeoutMs)
+    {
+        final long deadlineMs = System.currentTimeMillis() + timeoutMs;
+        while (!adminChannel.write(10, buffer, offset, encodedLength))
+        {
+            if (System.currentTimeMillis() > deadlineMs)
+            {
+                out.println("Failed to send message to cluster interaction agent. Buffer is full.");
+                return false;
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        return true;
+    }
+
 }
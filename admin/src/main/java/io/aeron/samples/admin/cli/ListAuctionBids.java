@@ -0,0 +1,56 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.aeron.samples.admin.cli;
+
+import io.aeron.samples.cluster.admin.protocol.ListAuctionBidsEncoder;
+import io.aeron.samples.cluster.admin.protocol.MessageHeaderEncoder;
+import org.agrona.ExpandableArrayBuffer;
+import picocli.CommandLine;
+
+/**
+ * Lists the highest bids of an auction in the cluster
+ */
+@CommandLine.Command(name = "list-auction-bids", mixinStandardHelpOptions = false,
+    description = "Lists the highest bids of an auction in the cluster")
+public class ListAuctionBids implements Runnable
+{
+    @CommandLine.ParentCommand
+    CliCommands parent;
+
+    @SuppressWarnings("all")
+    @CommandLine.Option(names = "auction-id", description = "Auction ID")
+    private Long auctionId = Long.MIN_VALUE;
+
+    @SuppressWarnings("all")
+    @CommandLine.Option(names = "depth", description = "Maximum number of bids to list")
+    private Integer depth = 10;
+
+    private final ExpandableArrayBuffer buffer = new ExpandableArrayBuffer(1024);
+    private final MessageHeaderEncoder messageHeaderEncoder = new MessageHeaderEncoder(); //cluster protocol header
+    private final ListAuctionBidsEncoder listAuctionBidsEncoder = new ListAuctionBidsEncoder();
+    /**
+     * Requests the highest bids of the auction
+     */
+    public void run()
+    {
+        listAuctionBidsEncoder.wrapAndApplyHeader(buffer, 0, messageHeaderEncoder);
+        listAuctionBidsEncoder.auctionId(auctionId);
+        listAuctionBidsEncoder.depth(depth);
+        parent.offerRingBufferMessage(buffer, 0, MessageHeaderEncoder.ENCODED_LENGTH +
+            listAuctionBidsEncoder.encodedLength());
+    }
+}
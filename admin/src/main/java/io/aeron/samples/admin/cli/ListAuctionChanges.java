@@ -0,0 +1,52 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.aeron.samples.admin.cli;
+
+import io.aeron.samples.cluster.admin.protocol.ListAuctionChangesEncoder;
+import io.aeron.samples.cluster.admin.protocol.MessageHeaderEncoder;
+import org.agrona.ExpandableArrayBuffer;
+import picocli.CommandLine;
+
+/**
+ * Lists the auctions changed or removed in the cluster since a state version
+ */
+@CommandLine.Command(name = "list-auction-changes", mixinStandardHelpOptions = false,
+    description = "Lists the auctions changed or removed since a version, by default since the last changes listed")
+public class ListAuctionChanges implements Runnable
+{
+    @CommandLine.ParentCommand
+    CliCommands parent;
+
+    @SuppressWarnings("all")
+    @CommandLine.Option(names = "since", description = "State version, or 0 for every auction")
+    private Long sinceVersion = -1L;
+
+    private final ExpandableArrayBuffer buffer = new ExpandableArrayBuffer(1024);
+    private final MessageHeaderEncoder messageHeaderEncoder = new MessageHeaderEncoder();
+    private final ListAuctionChangesEncoder listAuctionChangesEncoder = new ListAuctionChangesEncoder();
+
+    /**
+     * Requests the changes
+     */
+    public void run()
+    {
+        listAuctionChangesEncoder.wrapAndApplyHeader(buffer, 0, messageHeaderEncoder);
+        listAuctionChangesEncoder.sinceVersion(sinceVersion);
+        parent.offerRingBufferMessage(buffer, 0, MessageHeaderEncoder.ENCODED_LENGTH +
+            listAuctionChangesEncoder.encodedLength());
+    }
+}
@@ -18,27 +18,65 @@ package io.aeron.samples.admin.cli;
 
 import io.aeron.samples.cluster.admin.protocol.ListAuctionsEncoder;
 import io.aeron.samples.cluster.admin.protocol.MessageHeaderEncoder;
+import io.aeron.samples.cluster.protocol.AuctionStatus;
 import org.agrona.ExpandableArrayBuffer;
 import picocli.CommandLine;
 
+import java.util.Locale;
+
 /**
- * Adds an auction to the cluster
+ * Lists the auctions in the cluster a page at a time
  */
 @CommandLine.Command(name = "list-auctions", mixinStandardHelpOptions = false,
-    description = "Lists all auctions in the cluster")
+    description = "Lists the first page of auctions in the cluster, or the next page with list-auctions next")
 public class ListAuctions implements Runnable
 {
     @CommandLine.ParentCommand
     CliCommands parent;
+
+    @SuppressWarnings("all")
+    @CommandLine.Option(names = "status", description = "Only list auctions in this state: PRE_OPEN, OPEN or CLOSED")
+    private String status;
+
+    @SuppressWarnings("all")
+    @CommandLine.Option(names = "created-by", description = "Only list auctions created by this participant id")
+    private Long createdBy = -1L;
+
+    @SuppressWarnings("all")
+    @CommandLine.Option(names = "page-size", description = "Maximum number of auctions per page")
+    private Integer pageSize = 20;
+
+    @SuppressWarnings("all")
+    @CommandLine.Option(names = "next", description = "List the next page of the last listing")
+    private boolean next;
+
     private final ExpandableArrayBuffer buffer = new ExpandableArrayBuffer(1024);
     private final MessageHeaderEncoder messageHeaderEncoder = new MessageHeaderEncoder(); //cluster protocol header
     private final ListAuctionsEncoder listAuctionsCommandEncoder = new ListAuctionsEncoder();
     /**
-     * Determines if a participant should be added
+     * Requests a page of auctions
      */
     public void run()
     {
+        int statusFilter = -1;
+        if (null != status)
+        {
+            try
+            {
+                statusFilter = AuctionStatus.valueOf(status.toUpperCase(Locale.ROOT)).value();
+            }
+            catch (final IllegalArgumentException ex)
+            {
+                parent.out.println("Unknown status " + status + "; use PRE_OPEN, OPEN or CLOSED");
+                return;
+            }
+        }
+
         listAuctionsCommandEncoder.wrapAndApplyHeader(buffer, 0, messageHeaderEncoder);
+        listAuctionsCommandEncoder.status(statusFilter);
+        listAuctionsCommandEncoder.createdByParticipantId(createdBy);
+        listAuctionsCommandEncoder.pageSize(pageSize);
+        listAuctionsCommandEncoder.next((short)(next ? 1 : 0));
         parent.offerRingBufferMessage(buffer, 0, MessageHeaderEncoder.ENCODED_LENGTH +
             listAuctionsCommandEncoder.encodedLength());
     }
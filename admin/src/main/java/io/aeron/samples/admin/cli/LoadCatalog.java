@@ -0,0 +1,196 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.aeron.samples.admin.cli;
+
+import io.aeron.samples.cluster.admin.protocol.AddAuctionBatchEncoder;
+import io.aeron.samples.cluster.admin.protocol.MessageHeaderEncoder;
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.concurrent.SystemEpochClock;
+import picocli.CommandLine;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static io.aeron.samples.admin.util.EnvironmentUtil.tryGetParticipantId;
+
+/**
+ * Loads a catalog file of auctions into the cluster, in batches
+ */
+@CommandLine.Command(name = "load-catalog", mixinStandardHelpOptions = false,
+    description = "Adds every auction in a catalog file to the cluster, in batches")
+public class LoadCatalog implements Runnable
+{
+    /**
+     * The maximum encoded length of a batch, which keeps it well within the cluster's ingress message limit
+     */
+    static final int MAX_BATCH_LENGTH = 4096;
+
+    private static final int ENTRY_FIXED_LENGTH = AddAuctionBatchEncoder.AuctionsEncoder.sbeBlockLength() +
+        2 * AddAuctionBatchEncoder.AuctionsEncoder.nameHeaderLength();
+    private static final int BATCH_FIXED_LENGTH = MessageHeaderEncoder.ENCODED_LENGTH +
+        AddAuctionBatchEncoder.BLOCK_LENGTH + AddAuctionBatchEncoder.AuctionsEncoder.sbeHeaderSize();
+    private static final long START_DELAY_MS = 100;
+    private static final long OFFER_TIMEOUT_MS = 5_000;
+
+    @CommandLine.ParentCommand
+    CliCommands parent;
+
+    @SuppressWarnings("all")
+    @CommandLine.Option(names = "file",
+        description = "Catalog file, with lines of start-delay-seconds,duration-seconds,name,description")
+    private String file;
+
+    @SuppressWarnings("all")
+    @CommandLine.Option(names = "created-by", description = "Created by participant id")
+    private Integer participantId = tryGetParticipantId();
+
+    private final ExpandableArrayBuffer buffer = new ExpandableArrayBuffer(MAX_BATCH_LENGTH);
+    private final MessageHeaderEncoder messageHeaderEncoder = new MessageHeaderEncoder();
+    private final AddAuctionBatchEncoder addAuctionBatchEncoder = new AddAuctionBatchEncoder();
+
+    /**
+     * Reads the whole catalog, then sends it in batches. Nothing is sent if any line is invalid.
+     */
+    public void run()
+    {
+        if (null == file)
+        {
+            parent.out.println("A catalog file is required: load-catalog file=<path>");
+            return;
+        }
+
+        final List<CatalogEntry> entries;
+        try
+        {
+            entries = readCatalog(Path.of(file));
+        }
+        catch (final IOException | IllegalArgumentException ex)
+        {
+            parent.out.println("Cannot load catalog " + file + ": " + ex.getMessage());
+            return;
+        }
+
+        //every auction is timed from the same instant, so auctions with the same delay share cluster timers
+        final long now = SystemEpochClock.INSTANCE.time() + START_DELAY_MS;
+        int batchCount = 0;
+        int first = 0;
+        while (first < entries.size())
+        {
+            int last = first;
+            int length = BATCH_FIXED_LENGTH + entries.get(first).encodedLength();
+            while (last + 1 < entries.size() && length + entries.get(last + 1).encodedLength() <= MAX_BATCH_LENGTH)
+            {
+                last++;
+                length += entries.get(last).encodedLength();
+            }
+
+            if (!offerBatch(entries, first, last, now))
+            {
+                parent.out.println("Stopped after " + first + " of " + entries.size() + " auctions");
+                return;
+            }
+            batchCount++;
+            first = last + 1;
+        }
+        parent.out.println("Sent " + entries.size() + " auctions in " + batchCount + " batches");
+    }
+
+    private boolean offerBatch(final List<CatalogEntry> entries, final int first, final int last, final long now)
+    {
+        addAuctionBatchEncoder.wrapAndApplyHeader(buffer, 0, messageHeaderEncoder);
+        addAuctionBatchEncoder.createdByParticipantId(participantId);
+        final AddAuctionBatchEncoder.AuctionsEncoder auctions = addAuctionBatchEncoder.auctionsCount(last - first + 1);
+        for (int i = first; i <= last; i++)
+        {
+            final CatalogEntry entry = entries.get(i);
+            final long startTime = now + entry.startDelayMs();
+            auctions.next()
+                .startTime(startTime)
+                .endTime(startTime + entry.durationMs())
+                .putName(entry.name(), 0, entry.name().length)
+                .putDescription(entry.description(), 0, entry.description().length);
+        }
+        return parent.offerRingBufferMessage(buffer, 0,
+            MessageHeaderEncoder.ENCODED_LENGTH + addAuctionBatchEncoder.encodedLength(), OFFER_TIMEOUT_MS);
+    }
+
+    /**
+     * Reads a catalog, skipping blank lines and lines starting with #. The description is the rest of the line after
+     * the third comma, so it may itself contain commas.
+     * @param path the catalog file
+     * @return the auctions in the catalog, in file order
+     * @throws IOException if the file cannot be read
+     */
+    static List<CatalogEntry> readCatalog(final Path path) throws IOException
+    {
+        final List<CatalogEntry> entries = new ArrayList<>();
+        final List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+        for (int i = 0; i < lines.size(); i++)
+        {
+            final String line = lines.get(i).strip();
+            if (line.isEmpty() || line.startsWith("#"))
+            {
+                continue;
+            }
+
+            final String[] fields = line.split(",", 4);
+            if (fields.length != 4)
+            {
+                throw new IllegalArgumentException("line " + (i + 1) + " does not have four fields");
+            }
+            final CatalogEntry entry;
+            try
+            {
+                entry = new CatalogEntry(
+                    TimeUnit.SECONDS.toMillis(Long.parseLong(fields[0].strip())),
+                    TimeUnit.SECONDS.toMillis(Long.parseLong(fields[1].strip())),
+                    fields[2].strip().getBytes(StandardCharsets.UTF_8),
+                    fields[3].strip().getBytes(StandardCharsets.UTF_8));
+            }
+            catch (final NumberFormatException ex)
+            {
+                throw new IllegalArgumentException("line " + (i + 1) + " has an invalid delay or duration");
+            }
+            if (BATCH_FIXED_LENGTH + entry.encodedLength() > MAX_BATCH_LENGTH)
+            {
+                throw new IllegalArgumentException("line " + (i + 1) + " is too long");
+            }
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    /**
+     * An auction in a catalog, with its UTF-8 encoded name and description
+     * @param startDelayMs the delay before the auction starts
+     * @param durationMs   the duration of the auction
+     * @param name         the name
+     * @param description  the description
+     */
+    record CatalogEntry(long startDelayMs, long durationMs, byte[] name, byte[] description)
+    {
+        int encodedLength()
+        {
+            return ENTRY_FIXED_LENGTH + name.length + description.length;
+        }
+    }
+}
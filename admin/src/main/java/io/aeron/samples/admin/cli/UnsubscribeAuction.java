@@ -0,0 +1,52 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.aeron.samples.admin.cli;
+
+import io.aeron.samples.cluster.admin.protocol.MessageHeaderEncoder;
+import io.aeron.samples.cluster.admin.protocol.UnsubscribeAuctionEncoder;
+import org.agrona.ExpandableArrayBuffer;
+import picocli.CommandLine;
+
+/**
+ * Unsubscribes from the updates of an auction in the cluster
+ */
+@CommandLine.Command(name = "unsubscribe-auction", mixinStandardHelpOptions = false,
+    description = "Unsubscribes from the updates of an auction, or of every auction if no auction id is given")
+public class UnsubscribeAuction implements Runnable
+{
+    @CommandLine.ParentCommand
+    CliCommands parent;
+
+    @SuppressWarnings("all")
+    @CommandLine.Option(names = "auction-id", description = "Auction ID, or -1 for every auction")
+    private Long auctionId = -1L;
+
+    private final ExpandableArrayBuffer buffer = new ExpandableArrayBuffer(1024);
+    private final MessageHeaderEncoder messageHeaderEncoder = new MessageHeaderEncoder();
+    private final UnsubscribeAuctionEncoder unsubscribeAuctionEncoder = new UnsubscribeAuctionEncoder();
+
+    /**
+     * Unsubscribes from the auction
+     */
+    public void run()
+    {
+        unsubscribeAuctionEncoder.wrapAndApplyHeader(buffer, 0, messageHeaderEncoder);
+        unsubscribeAuctionEncoder.auctionId(auctionId);
+        parent.offerRingBufferMessage(buffer, 0, MessageHeaderEncoder.ENCODED_LENGTH +
+            unsubscribeAuctionEncoder.encodedLength());
+    }
+}
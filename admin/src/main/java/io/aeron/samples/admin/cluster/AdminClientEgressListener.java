@@ -24,19 +24,31 @@ import io.aeron.samples.cluster.protocol.AddAuctionBidCommandResultDecoder;
 import io.aeron.samples.cluster.protocol.AddAuctionBidResult;
 import io.aeron.samples.cluster.protocol.AddAuctionResult;
 import io.aeron.samples.cluster.protocol.AddParticipantCommandResultDecoder;
+import io.aeron.samples.cluster.protocol.AuctionBidHistoryDecoder;
+import io.aeron.samples.cluster.protocol.AuctionChangesDecoder;
 import io.aeron.samples.cluster.protocol.AuctionListDecoder;
+import io.aeron.samples.cluster.protocol.AuctionPageDecoder;
 import io.aeron.samples.cluster.protocol.AuctionStatus;
+import io.aeron.samples.cluster.protocol.AuctionUpdateBatchEventDecoder;
 import io.aeron.samples.cluster.protocol.AuctionUpdateEventDecoder;
+import io.aeron.samples.cluster.protocol.BooleanType;
+import io.aeron.samples.cluster.protocol.AuctionSubscriptionResultDecoder;
+import io.aeron.samples.cluster.protocol.CancelProxyBidCommandResultDecoder;
+import io.aeron.samples.cluster.protocol.CreateAuctionBatchCommandResultDecoder;
 import io.aeron.samples.cluster.protocol.CreateAuctionCommandResultDecoder;
 import io.aeron.samples.cluster.protocol.MessageHeaderDecoder;
+import io.aeron.samples.cluster.protocol.NewAuctionBatchEventDecoder;
 import io.aeron.samples.cluster.protocol.NewAuctionEventDecoder;
 import io.aeron.samples.cluster.protocol.ParticipantListDecoder;
+import io.aeron.samples.cluster.protocol.RegisterProxyBidCommandResultDecoder;
+import io.aeron.samples.cluster.protocol.UuidDecoder;
 import org.agrona.DirectBuffer;
 import org.jline.reader.LineReader;
 import org.jline.utils.AttributedStyle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.UUID;
 
 /**
  * Admin client egress listener
@@ -46,15 +58,29 @@ public class AdminClientEgressListener implements EgressListener
     private static final Logger LOGGER = LoggerFactory.getLogger(AdminClientEgressListener.class);
     private final MessageHeaderDecoder messageHeaderDecoder = new MessageHeaderDecoder();
     private final AuctionUpdateEventDecoder auctionUpdateEventDecoder = new AuctionUpdateEventDecoder();
+    private final AuctionUpdateBatchEventDecoder auctionUpdateBatchEventDecoder = new AuctionUpdateBatchEventDecoder();
     private final AddParticipantCommandResultDecoder addParticipantDecoder = new AddParticipantCommandResultDecoder();
     private final CreateAuctionCommandResultDecoder createAuctionResultDecoder =
         new CreateAuctionCommandResultDecoder();
     private final NewAuctionEventDecoder newAuctionEventDecoder = new NewAuctionEventDecoder();
     private final AddAuctionBidCommandResultDecoder addBidResultDecoder = new AddAuctionBidCommandResultDecoder();
     private final AuctionListDecoder auctionListDecoder = new AuctionListDecoder();
+    private final AuctionPageDecoder auctionPageDecoder = new AuctionPageDecoder();
+    private final AuctionChangesDecoder auctionChangesDecoder = new AuctionChangesDecoder();
     private final ParticipantListDecoder participantListDecoder = new ParticipantListDecoder();
+    private final AuctionBidHistoryDecoder auctionBidHistoryDecoder = new AuctionBidHistoryDecoder();
+    private final RegisterProxyBidCommandResultDecoder registerProxyBidResultDecoder =
+        new RegisterProxyBidCommandResultDecoder();
+    private final CancelProxyBidCommandResultDecoder cancelProxyBidResultDecoder =
+        new CancelProxyBidCommandResultDecoder();
+    private final AuctionSubscriptionResultDecoder subscriptionResultDecoder = new AuctionSubscriptionResultDecoder();
+    private final CreateAuctionBatchCommandResultDecoder createAuctionBatchResultDecoder =
+        new CreateAuctionBatchCommandResultDecoder();
+    private final NewAuctionBatchEventDecoder newAuctionBatchEventDecoder = new NewAuctionBatchEventDecoder();
     private final PendingMessageManager pendingMessageManager;
     private LineReader lineReader;
+    private long nextStartAfterAuctionId = -1;
+    private long auctionChangesVersion;
 
     /**
      * Constructor
@@ -81,12 +107,20 @@ public class AdminClientEgressListener implements EgressListener
         }
         messageHeaderDecoder.wrap(buffer, offset);
 
+        if (MessageHeaderDecoder.SCHEMA_ID != messageHeaderDecoder.schemaId() ||
+            MessageHeaderDecoder.SCHEMA_VERSION != messageHeaderDecoder.version())
+        {
+            log("unsupported schema id " + messageHeaderDecoder.schemaId() + " version " +
+                messageHeaderDecoder.version(), AttributedStyle.RED);
+            return;
+        }
+
         switch (messageHeaderDecoder.templateId())
         {
             case AddParticipantCommandResultDecoder.TEMPLATE_ID ->
             {
                 addParticipantDecoder.wrapAndApplyHeader(buffer, offset, messageHeaderDecoder);
-                final String correlationId = addParticipantDecoder.correlationId();
+                final UUID correlationId = correlationId(addParticipantDecoder.correlationId());
                 final long addedId = addParticipantDecoder.participantId();
                 log("Participant added with id " + addedId, AttributedStyle.GREEN);
                 pendingMessageManager.markMessageAsReceived(correlationId);
@@ -96,7 +130,7 @@ public class AdminClientEgressListener implements EgressListener
                 createAuctionResultDecoder.wrapAndApplyHeader(buffer, offset, messageHeaderDecoder);
                 final long auctionId = createAuctionResultDecoder.auctionId();
                 final AddAuctionResult result = createAuctionResultDecoder.result();
-                final String correlationId = createAuctionResultDecoder.correlationId();
+                final UUID correlationId = correlationId(createAuctionResultDecoder.correlationId());
                 pendingMessageManager.markMessageAsReceived(correlationId);
                 if (result.equals(AddAuctionResult.SUCCESS))
                 {
@@ -120,7 +154,7 @@ public class AdminClientEgressListener implements EgressListener
                 addBidResultDecoder.wrapAndApplyHeader(buffer, offset, messageHeaderDecoder);
                 final long auctionId = addBidResultDecoder.auctionId();
                 final AddAuctionBidResult result = addBidResultDecoder.result();
-                final String correlationId = addBidResultDecoder.correlationId();
+                final UUID correlationId = correlationId(addBidResultDecoder.correlationId());
 
                 pendingMessageManager.markMessageAsReceived(correlationId);
                 if (result.equals(AddAuctionBidResult.SUCCESS))
@@ -132,13 +166,96 @@ public class AdminClientEgressListener implements EgressListener
                     log("Add bid rejected with reason: " + result.name(), AttributedStyle.RED);
                 }
             }
+            case RegisterProxyBidCommandResultDecoder.TEMPLATE_ID ->
+            {
+                registerProxyBidResultDecoder.wrapAndApplyHeader(buffer, offset, messageHeaderDecoder);
+                final long auctionId = registerProxyBidResultDecoder.auctionId();
+                final AddAuctionBidResult result = registerProxyBidResultDecoder.result();
+                final UUID correlationId = correlationId(registerProxyBidResultDecoder.correlationId());
+
+                pendingMessageManager.markMessageAsReceived(correlationId);
+                if (result.equals(AddAuctionBidResult.SUCCESS))
+                {
+                    log("Proxy bid registered on auction " + auctionId, AttributedStyle.GREEN);
+                }
+                else
+                {
+                    log("Proxy bid rejected with reason: " + result.name(), AttributedStyle.RED);
+                }
+            }
+            case CancelProxyBidCommandResultDecoder.TEMPLATE_ID ->
+            {
+                cancelProxyBidResultDecoder.wrapAndApplyHeader(buffer, offset, messageHeaderDecoder);
+                final long auctionId = cancelProxyBidResultDecoder.auctionId();
+                final AddAuctionBidResult result = cancelProxyBidResultDecoder.result();
+                final UUID correlationId = correlationId(cancelProxyBidResultDecoder.correlationId());
+
+                pendingMessageManager.markMessageAsReceived(correlationId);
+                if (result.equals(AddAuctionBidResult.SUCCESS))
+                {
+                    log("Proxy bid cancelled on auction " + auctionId, AttributedStyle.GREEN);
+                }
+                else
+                {
+                    log("Cancel proxy bid rejected with reason: " + result.name(), AttributedStyle.RED);
+                }
+            }
+            case AuctionSubscriptionResultDecoder.TEMPLATE_ID ->
+            {
+                subscriptionResultDecoder.wrapAndApplyHeader(buffer, offset, messageHeaderDecoder);
+                final long auctionId = subscriptionResultDecoder.auctionId();
+                final boolean subscribed = BooleanType.TRUE == subscriptionResultDecoder.subscribed();
+                final AddAuctionBidResult result = subscriptionResultDecoder.result();
+                final UUID correlationId = correlationId(subscriptionResultDecoder.correlationId());
+
+                pendingMessageManager.markMessageAsReceived(correlationId);
+                final String target = -1 == auctionId ? "every auction" : "auction " + auctionId;
+                if (result.equals(AddAuctionBidResult.SUCCESS))
+                {
+                    log((subscribed ? "Subscribed to " : "Unsubscribed from ") + target, AttributedStyle.GREEN);
+                }
+                else
+                {
+                    log("Subscription to " + target + " rejected with reason: " + result.name(),
+                        AttributedStyle.RED);
+                }
+            }
+            case CreateAuctionBatchCommandResultDecoder.TEMPLATE_ID -> displayAuctionBatchResult(buffer, offset);
+            case NewAuctionBatchEventDecoder.TEMPLATE_ID ->
+            {
+                newAuctionBatchEventDecoder.wrapAndApplyHeader(buffer, offset, messageHeaderDecoder);
+                final NewAuctionBatchEventDecoder.AuctionsDecoder auctions = newAuctionBatchEventDecoder.auctions();
+                final int count = auctions.count();
+                long firstId = -1;
+                long lastId = -1;
+                while (auctions.hasNext())
+                {
+                    auctions.next();
+                    lastId = auctions.auctionId();
+                    if (-1 == firstId)
+                    {
+                        firstId = lastId;
+                    }
+                    auctions.skipName();
+                }
+                log("New auctions: " + count + " (" + firstId + " to " + lastId + ")", AttributedStyle.CYAN);
+            }
             case AuctionUpdateEventDecoder.TEMPLATE_ID -> displayAuctionUpdate(buffer, offset);
+            case AuctionUpdateBatchEventDecoder.TEMPLATE_ID -> displayAuctionUpdateBatch(buffer, offset);
             case AuctionListDecoder.TEMPLATE_ID -> displayAuctions(buffer, offset);
+            case AuctionPageDecoder.TEMPLATE_ID -> displayAuctionPage(buffer, offset);
+            case AuctionChangesDecoder.TEMPLATE_ID -> displayAuctionChanges(buffer, offset);
             case ParticipantListDecoder.TEMPLATE_ID -> displayParticipants(buffer, offset);
+            case AuctionBidHistoryDecoder.TEMPLATE_ID -> displayAuctionBids(buffer, offset);
             default -> log("unknown message type: " + messageHeaderDecoder.templateId(), AttributedStyle.RED);
         }
     }
 
+    private static UUID correlationId(final UuidDecoder decoder)
+    {
+        return new UUID(decoder.mostSignificantBits(), decoder.leastSignificantBits());
+    }
+
     private void displayAuctionUpdate(final DirectBuffer buffer, final int offset)
     {
         auctionUpdateEventDecoder.wrapAndApplyHeader(buffer, offset, messageHeaderDecoder);
@@ -147,8 +264,28 @@ public class AdminClientEgressListener implements EgressListener
         final int bidCount = auctionUpdateEventDecoder.bidCount();
         final long currentPrice = auctionUpdateEventDecoder.currentPrice();
         final long winningParticipantId = auctionUpdateEventDecoder.winningParticipantId();
-        pendingMessageManager.markMessageAsReceived(auctionUpdateEventDecoder.correlationId());
+        displayAuctionUpdate(auctionId, auctionStatus, bidCount, currentPrice, winningParticipantId);
+    }
+
+    private void displayAuctionUpdateBatch(final DirectBuffer buffer, final int offset)
+    {
+        auctionUpdateBatchEventDecoder.wrapAndApplyHeader(buffer, offset, messageHeaderDecoder);
+        final AuctionUpdateBatchEventDecoder.UpdatesDecoder updates = auctionUpdateBatchEventDecoder.updates();
+        while (updates.hasNext())
+        {
+            updates.next();
+            displayAuctionUpdate(updates.auctionId(), updates.status(), updates.bidCount(), updates.currentPrice(),
+                updates.winningParticipantId());
+        }
+    }
 
+    private void displayAuctionUpdate(
+        final long auctionId,
+        final AuctionStatus auctionStatus,
+        final int bidCount,
+        final long currentPrice,
+        final long winningParticipantId)
+    {
         if (bidCount == 0)
         {
             if (auctionStatus.equals(AuctionStatus.CLOSED))
@@ -159,7 +296,7 @@ public class AdminClientEgressListener implements EgressListener
             {
                 log("Auction " + auctionId + " is now in state " +
                     auctionStatus.name() + ". There have been " +
-                    auctionUpdateEventDecoder.bidCount() + " bids.", AttributedStyle.YELLOW);
+                    bidCount + " bids.", AttributedStyle.YELLOW);
             }
         }
         else
@@ -191,7 +328,7 @@ public class AdminClientEgressListener implements EgressListener
     private void displayParticipants(final DirectBuffer buffer, final int offset)
     {
         participantListDecoder.wrapAndApplyHeader(buffer, offset, messageHeaderDecoder);
-        pendingMessageManager.markMessageAsReceived(participantListDecoder.correlationId());
+        pendingMessageManager.markMessageAsReceived(correlationId(participantListDecoder.correlationId()));
         final ParticipantListDecoder.ParticipantsDecoder participants = participantListDecoder.participants();
         final int count = participants.count();
         if (0 == count)
@@ -215,7 +352,7 @@ public class AdminClientEgressListener implements EgressListener
     private void displayAuctions(final DirectBuffer buffer, final int offset)
     {
         auctionListDecoder.wrapAndApplyHeader(buffer, offset, messageHeaderDecoder);
-        pendingMessageManager.markMessageAsReceived(auctionListDecoder.correlationId());
+        pendingMessageManager.markMessageAsReceived(correlationId(auctionListDecoder.correlationId()));
         final AuctionListDecoder.AuctionsDecoder auction = auctionListDecoder.auctions();
         final int count = auction.count();
         if (0 == count)
@@ -230,29 +367,168 @@ public class AdminClientEgressListener implements EgressListener
             {
                 auction.next();
 
-                final long auctionId = auction.auctionId();
-                final long createdBy = auction.createdByParticipantId();
-                final long startTime = auction.startTime();
-                final long endTime = auction.endTime();
-                final long winningParticipantId = auction.winningParticipantId();
-                final long currentPrice = auction.currentPrice();
-                final AuctionStatus status = auction.status();
-                final String name = auction.name();
+                displayAuction(auction.auctionId(), auction.createdByParticipantId(),
+                    auction.winningParticipantId(), auction.currentPrice(), auction.status(), auction.name());
+            }
+        }
+    }
 
-                log("Auction '" + name + "' with id " + auctionId + " created by " + createdBy +
-                    " is now in state " + status.name(), AttributedStyle.YELLOW);
+    private void displayAuctionPage(final DirectBuffer buffer, final int offset)
+    {
+        auctionPageDecoder.wrapAndApplyHeader(buffer, offset, messageHeaderDecoder);
+        pendingMessageManager.markMessageAsReceived(correlationId(auctionPageDecoder.correlationId()));
+        nextStartAfterAuctionId = auctionPageDecoder.nextStartAfterAuctionId();
+        final AuctionPageDecoder.AuctionsDecoder auction = auctionPageDecoder.auctions();
+        log("Auction count: " + auction.count(), AttributedStyle.YELLOW);
+        while (auction.hasNext())
+        {
+            auction.next();
+            displayAuction(auction.auctionId(), auction.createdByParticipantId(),
+                auction.winningParticipantId(), auction.currentPrice(), auction.status(), auction.name());
+        }
 
-                final int participantId = EnvironmentUtil.tryGetParticipantId();
-                if (participantId != 0 && winningParticipantId == participantId)
-                {
-                    log(" Winning auction with price " +
-                        currentPrice, AttributedStyle.YELLOW);
-                }
-                else if (winningParticipantId != -1)
-                {
-                    log(" Current winning participant " + winningParticipantId + " with price " +
-                        currentPrice, AttributedStyle.YELLOW);
-                }
+        if (-1 == nextStartAfterAuctionId)
+        {
+            log("End of auctions. Closed auctions are deleted automatically.", AttributedStyle.YELLOW);
+        }
+        else
+        {
+            log("More auctions after " + nextStartAfterAuctionId + "; use list-auctions next",
+                AttributedStyle.YELLOW);
+        }
+    }
+
+    private void displayAuctionChanges(final DirectBuffer buffer, final int offset)
+    {
+        auctionChangesDecoder.wrapAndApplyHeader(buffer, offset, messageHeaderDecoder);
+        pendingMessageManager.markMessageAsReceived(correlationId(auctionChangesDecoder.correlationId()));
+        final long toVersion = auctionChangesDecoder.toVersion();
+        if (BooleanType.TRUE == auctionChangesDecoder.resyncRequired())
+        {
+            auctionChangesVersion = toVersion;
+            log("Changes before version " + toVersion + " are no longer known; use list-auctions to list them all",
+                AttributedStyle.RED);
+            return;
+        }
+
+        final AuctionChangesDecoder.AuctionsDecoder auction = auctionChangesDecoder.auctions();
+        final int changedCount = auction.count();
+        while (auction.hasNext())
+        {
+            auction.next();
+            displayAuction(auction.auctionId(), auction.createdByParticipantId(),
+                auction.winningParticipantId(), auction.currentPrice(), auction.status(), auction.name());
+        }
+
+        final AuctionChangesDecoder.RemovedAuctionsDecoder removedAuction = auctionChangesDecoder.removedAuctions();
+        final int removedCount = removedAuction.count();
+        while (removedAuction.hasNext())
+        {
+            removedAuction.next();
+            log("Auction " + removedAuction.auctionId() + " has been removed", AttributedStyle.YELLOW);
+        }
+
+        log(changedCount + " changed and " + removedCount + " removed auctions, up to version " + toVersion,
+            AttributedStyle.YELLOW);
+        auctionChangesVersion = toVersion;
+    }
+
+    private void displayAuction(
+        final long auctionId,
+        final long createdBy,
+        final long winningParticipantId,
+        final long currentPrice,
+        final AuctionStatus status,
+        final String name)
+    {
+        log("Auction '" + name + "' with id " + auctionId + " created by " + createdBy +
+            " is now in state " + status.name(), AttributedStyle.YELLOW);
+
+        final int participantId = EnvironmentUtil.tryGetParticipantId();
+        if (participantId != 0 && winningParticipantId == participantId)
+        {
+            log(" Winning auction with price " +
+                currentPrice, AttributedStyle.YELLOW);
+        }
+        else if (winningParticipantId != -1)
+        {
+            log(" Current winning participant " + winningParticipantId + " with price " +
+                currentPrice, AttributedStyle.YELLOW);
+        }
+    }
+
+    /**
+     * Gets the state version the last auction changes received were complete to
+     *
+     * @return the state version, or 0 if no changes have been received
+     */
+    public long getAuctionChangesVersion()
+    {
+        return auctionChangesVersion;
+    }
+
+    /**
+     * Gets the cursor to continue the last paged auction listing from
+     *
+     * @return the auction id to start the next page after, or -1 if the listing is complete
+     */
+    public long getNextStartAfterAuctionId()
+    {
+        return nextStartAfterAuctionId;
+    }
+
+    private void displayAuctionBatchResult(final DirectBuffer buffer, final int offset)
+    {
+        createAuctionBatchResultDecoder.wrapAndApplyHeader(buffer, offset, messageHeaderDecoder);
+        pendingMessageManager.markMessageAsReceived(correlationId(createAuctionBatchResultDecoder.correlationId()));
+        final CreateAuctionBatchCommandResultDecoder.ResultsDecoder results = createAuctionBatchResultDecoder.results();
+        final int count = results.count();
+        int added = 0;
+        int index = 0;
+        while (results.hasNext())
+        {
+            results.next();
+            index++;
+            if (results.result().equals(AddAuctionResult.SUCCESS))
+            {
+                added++;
+            }
+            else
+            {
+                log("Auction " + index + " of batch rejected with reason: " + results.result().name(),
+                    AttributedStyle.RED);
+            }
+        }
+        log("Batch added " + added + " of " + count + " auctions",
+            added == count ? AttributedStyle.GREEN : AttributedStyle.YELLOW);
+    }
+
+    private void displayAuctionBids(final DirectBuffer buffer, final int offset)
+    {
+        auctionBidHistoryDecoder.wrapAndApplyHeader(buffer, offset, messageHeaderDecoder);
+        pendingMessageManager.markMessageAsReceived(correlationId(auctionBidHistoryDecoder.correlationId()));
+        final long auctionId = auctionBidHistoryDecoder.auctionId();
+        final AuctionStatus status = auctionBidHistoryDecoder.status();
+        final int bidCount = auctionBidHistoryDecoder.bidCount();
+        final AuctionBidHistoryDecoder.BidsDecoder bids = auctionBidHistoryDecoder.bids();
+        if (status.equals(AuctionStatus.UNKNOWN))
+        {
+            log("Auction " + auctionId + " does not exist in the cluster.", AttributedStyle.RED);
+        }
+        else if (0 == bids.count())
+        {
+            log("Auction " + auctionId + " is in state " + status.name() + " and has no bids.",
+                AttributedStyle.YELLOW);
+        }
+        else
+        {
+            log("Auction " + auctionId + " is in state " + status.name() + " with " + bidCount +
+                " bids. Highest " + bids.count() + ":", AttributedStyle.YELLOW);
+            while (bids.hasNext())
+            {
+                bids.next();
+                log(" Price " + bids.price() + " by participant " + bids.participantId() + " at " + bids.time(),
+                    AttributedStyle.YELLOW);
             }
         }
     }
@@ -16,25 +16,47 @@
 
 package io.aeron.samples.admin.cluster;
 
+import io.aeron.FragmentAssembler;
 import io.aeron.Publication;
+import io.aeron.Subscription;
 import io.aeron.cluster.client.AeronCluster;
 import io.aeron.driver.MediaDriver;
 import io.aeron.driver.ThreadingMode;
+import io.aeron.logbuffer.Header;
+import io.aeron.samples.admin.util.EnvironmentUtil;
 import io.aeron.samples.cluster.ClusterConfig;
+import io.aeron.samples.cluster.admin.protocol.AddAuctionBatchDecoder;
 import io.aeron.samples.cluster.admin.protocol.AddAuctionBidDecoder;
 import io.aeron.samples.cluster.admin.protocol.AddAuctionDecoder;
 import io.aeron.samples.cluster.admin.protocol.AddParticipantDecoder;
+import io.aeron.samples.cluster.admin.protocol.AddProxyBidDecoder;
+import io.aeron.samples.cluster.admin.protocol.CancelProxyBidDecoder;
 import io.aeron.samples.cluster.admin.protocol.ConnectClusterDecoder;
 import io.aeron.samples.cluster.admin.protocol.DisconnectClusterDecoder;
+import io.aeron.samples.cluster.admin.protocol.ListAuctionBidsDecoder;
+import io.aeron.samples.cluster.admin.protocol.ListAuctionChangesDecoder;
 import io.aeron.samples.cluster.admin.protocol.ListAuctionsDecoder;
 import io.aeron.samples.cluster.admin.protocol.ListParticipantsDecoder;
 import io.aeron.samples.cluster.admin.protocol.MessageHeaderDecoder;
+import io.aeron.samples.cluster.admin.protocol.SubscribeAuctionDecoder;
+import io.aeron.samples.cluster.admin.protocol.UnsubscribeAuctionDecoder;
 import io.aeron.samples.cluster.protocol.AddAuctionBidCommandEncoder;
 import io.aeron.samples.cluster.protocol.AddParticipantCommandEncoder;
+import io.aeron.samples.cluster.protocol.AuctionBidHistoryCommandEncoder;
+import io.aeron.samples.cluster.protocol.AuctionStatus;
+import io.aeron.samples.cluster.protocol.BooleanType;
+import io.aeron.samples.cluster.protocol.CancelProxyBidCommandEncoder;
+import io.aeron.samples.cluster.protocol.CreateAuctionBatchCommandEncoder;
 import io.aeron.samples.cluster.protocol.CreateAuctionCommandEncoder;
-import io.aeron.samples.cluster.protocol.ListAuctionsCommandEncoder;
+import io.aeron.samples.cluster.protocol.ListAuctionChangesCommandEncoder;
+import io.aeron.samples.cluster.protocol.ListAuctionsPageCommandEncoder;
 import io.aeron.samples.cluster.protocol.ListParticipantsCommandEncoder;
 import io.aeron.samples.cluster.protocol.MessageHeaderEncoder;
+import io.aeron.samples.cluster.protocol.RegisterProxyBidCommandEncoder;
+import io.aeron.samples.cluster.protocol.SubscribeAuctionCommandEncoder;
+import io.aeron.samples.cluster.protocol.UnsubscribeAuctionCommandEncoder;
+import io.aeron.samples.cluster.protocol.UuidEncoder;
+import org.agrona.CloseHelper;
 import org.agrona.DirectBuffer;
 import org.agrona.ExpandableDirectByteBuffer;
 import org.agrona.MutableDirectBuffer;
@@ -42,6 +64,7 @@ import org.agrona.concurrent.Agent;
 import org.agrona.concurrent.IdleStrategy;
 import org.agrona.concurrent.MessageHandler;
 import org.agrona.concurrent.SystemEpochClock;
+import org.agrona.concurrent.UnsafeBuffer;
 import org.agrona.concurrent.ringbuffer.OneToOneRingBuffer;
 import org.jline.reader.LineReader;
 import org.jline.utils.AttributedStyle;
@@ -59,6 +82,8 @@ public class ClusterInteractionAgent implements Agent, MessageHandler
     private static final long HEARTBEAT_INTERVAL = 250;
     private static final long RETRY_COUNT = 10;
     private static final String INGRESS_CHANNEL = "aeron:udp?term-length=64k";
+    private static final long ALL_AUCTIONS = -1;
+    private static final int MARKET_DATA_FRAGMENT_LIMIT = 10;
     private final MutableDirectBuffer sendBuffer = new ExpandableDirectByteBuffer(1024);
     private long lastHeartbeatTime = Long.MIN_VALUE;
     private final OneToOneRingBuffer adminClusterComms;
@@ -67,22 +92,50 @@ public class ClusterInteractionAgent implements Agent, MessageHandler
     private final PendingMessageManager pendingMessageManager;
     private AdminClientEgressListener adminClientEgressListener;
     private AeronCluster aeronCluster;
+    private Subscription marketDataSubscription;
+    private final FragmentAssembler marketDataAssembler = new FragmentAssembler(this::onMarketData);
     private ConnectionState connectionState = ConnectionState.NOT_CONNECTED;
     private LineReader lineReader;
     private MediaDriver mediaDriver;
+    private AuctionStatus listingStatus = AuctionStatus.UNKNOWN;
+    private long listingCreatedByParticipantId = -1;
+    private int listingPageSize;
 
     private final MessageHeaderDecoder messageHeaderDecoder = new MessageHeaderDecoder();
     private final ConnectClusterDecoder connectClusterDecoder = new ConnectClusterDecoder();
     private final AddAuctionDecoder addAuctionDecoder = new AddAuctionDecoder();
     private final AddParticipantDecoder addParticipantDecoder = new AddParticipantDecoder();
     private final AddAuctionBidDecoder addAuctionBidDecoder = new AddAuctionBidDecoder();
+    private final ListAuctionBidsDecoder listAuctionBidsDecoder = new ListAuctionBidsDecoder();
+    private final AddProxyBidDecoder addProxyBidDecoder = new AddProxyBidDecoder();
+    private final CancelProxyBidDecoder cancelProxyBidDecoder = new CancelProxyBidDecoder();
+    private final SubscribeAuctionDecoder subscribeAuctionDecoder = new SubscribeAuctionDecoder();
+    private final UnsubscribeAuctionDecoder unsubscribeAuctionDecoder = new UnsubscribeAuctionDecoder();
+    private final AddAuctionBatchDecoder addAuctionBatchDecoder = new AddAuctionBatchDecoder();
+    private final ListAuctionsDecoder listAuctionsDecoder = new ListAuctionsDecoder();
+    private final ListAuctionChangesDecoder listAuctionChangesDecoder = new ListAuctionChangesDecoder();
+    private final UnsafeBuffer name = new UnsafeBuffer(0, 0);
+    private final UnsafeBuffer description = new UnsafeBuffer(0, 0);
 
     private final MessageHeaderEncoder messageHeaderEncoder = new MessageHeaderEncoder();
     private final CreateAuctionCommandEncoder createAuctionCommandEncoder = new CreateAuctionCommandEncoder();
     private final AddParticipantCommandEncoder addParticipantCommandEncoder = new AddParticipantCommandEncoder();
     private final AddAuctionBidCommandEncoder addAuctionBidCommandEncoder = new AddAuctionBidCommandEncoder();
     private final ListParticipantsCommandEncoder listParticipantsCommandEncoder = new ListParticipantsCommandEncoder();
-    private final ListAuctionsCommandEncoder listAuctionsCommandEncoder = new ListAuctionsCommandEncoder();
+    private final ListAuctionsPageCommandEncoder listAuctionsPageCommandEncoder =
+        new ListAuctionsPageCommandEncoder();
+    private final ListAuctionChangesCommandEncoder listAuctionChangesCommandEncoder =
+        new ListAuctionChangesCommandEncoder();
+    private final AuctionBidHistoryCommandEncoder auctionBidHistoryCommandEncoder =
+        new AuctionBidHistoryCommandEncoder();
+    private final RegisterProxyBidCommandEncoder registerProxyBidCommandEncoder =
+        new RegisterProxyBidCommandEncoder();
+    private final CancelProxyBidCommandEncoder cancelProxyBidCommandEncoder = new CancelProxyBidCommandEncoder();
+    private final SubscribeAuctionCommandEncoder subscribeAuctionCommandEncoder = new SubscribeAuctionCommandEncoder();
+    private final UnsubscribeAuctionCommandEncoder unsubscribeAuctionCommandEncoder =
+        new UnsubscribeAuctionCommandEncoder();
+    private final CreateAuctionBatchCommandEncoder createAuctionBatchCommandEncoder =
+        new CreateAuctionBatchCommandEncoder();
 
     /**
      * Creates a new agent to interact with the cluster
@@ -124,6 +177,12 @@ public class ClusterInteractionAgent implements Agent, MessageHandler
             aeronCluster.pollEgress();
         }
 
+        //poll auction updates published once by the cluster leader, if subscribed
+        if (null != marketDataSubscription)
+        {
+            marketDataSubscription.poll(marketDataAssembler, MARKET_DATA_FRAGMENT_LIMIT);
+        }
+
         //check for timed-out messages
         pendingMessageManager.doWork();
 
@@ -148,8 +207,26 @@ public class ClusterInteractionAgent implements Agent, MessageHandler
             case AddAuctionDecoder.TEMPLATE_ID -> processAddAuction(messageHeaderDecoder, buffer, offset);
             case AddParticipantDecoder.TEMPLATE_ID -> processAddParticipant(messageHeaderDecoder, buffer, offset);
             case AddAuctionBidDecoder.TEMPLATE_ID -> processAddAuctionBid(messageHeaderDecoder, buffer, offset);
-            case ListAuctionsDecoder.TEMPLATE_ID -> processListAuctions();
+            case ListAuctionsDecoder.TEMPLATE_ID -> processListAuctions(messageHeaderDecoder, buffer, offset);
             case ListParticipantsDecoder.TEMPLATE_ID -> processListParticipants();
+            case ListAuctionBidsDecoder.TEMPLATE_ID -> processListAuctionBids(messageHeaderDecoder, buffer, offset);
+            case AddProxyBidDecoder.TEMPLATE_ID -> processAddProxyBid(messageHeaderDecoder, buffer, offset);
+            case CancelProxyBidDecoder.TEMPLATE_ID -> processCancelProxyBid(messageHeaderDecoder, buffer, offset);
+            case AddAuctionBatchDecoder.TEMPLATE_ID -> processAddAuctionBatch(messageHeaderDecoder, buffer, offset);
+            case ListAuctionChangesDecoder.TEMPLATE_ID ->
+            {
+                processListAuctionChanges(messageHeaderDecoder, buffer, offset);
+            }
+            case SubscribeAuctionDecoder.TEMPLATE_ID ->
+            {
+                subscribeAuctionDecoder.wrapAndApplyHeader(buffer, offset, messageHeaderDecoder);
+                sendSubscribeAuction(subscribeAuctionDecoder.auctionId(), 1 == subscribeAuctionDecoder.conflated());
+            }
+            case UnsubscribeAuctionDecoder.TEMPLATE_ID ->
+            {
+                unsubscribeAuctionDecoder.wrapAndApplyHeader(buffer, offset, messageHeaderDecoder);
+                sendUnsubscribeAuction(unsubscribeAuctionDecoder.auctionId());
+            }
             default -> log("Unknown message type: " + messageHeaderDecoder.templateId(), AttributedStyle.RED);
         }
     }
@@ -166,6 +243,12 @@ public class ClusterInteractionAgent implements Agent, MessageHandler
         connectCluster(connectClusterDecoder.baseport(), connectClusterDecoder.port(),
             connectClusterDecoder.clusterHosts(), connectClusterDecoder.localhostName());
         connectionState = ConnectionState.CONNECTED;
+        //updates are only sent to subscribers, so subscribe to every auction to keep seeing them all, unless they are
+        //received from the market data channel instead
+        if (null == marketDataSubscription)
+        {
+            sendSubscribeAuction(ALL_AUCTIONS, false);
+        }
     }
 
     /**
@@ -190,7 +273,7 @@ public class ClusterInteractionAgent implements Agent, MessageHandler
         final MutableDirectBuffer buffer,
         final int offset)
     {
-        final String correlationId = UUID.randomUUID().toString();
+        final UUID correlationId = UUID.randomUUID();
 
         addAuctionDecoder.wrapAndApplyHeader(buffer, offset, messageHeaderDecoder);
         createAuctionCommandEncoder.wrapAndApplyHeader(sendBuffer, 0, messageHeaderEncoder);
@@ -198,7 +281,7 @@ public class ClusterInteractionAgent implements Agent, MessageHandler
         createAuctionCommandEncoder.createdByParticipantId(addAuctionDecoder.createdByParticipantId());
         createAuctionCommandEncoder.startTime(addAuctionDecoder.startTime());
         createAuctionCommandEncoder.endTime(addAuctionDecoder.endTime());
-        createAuctionCommandEncoder.correlationId(correlationId);
+        putCorrelationId(createAuctionCommandEncoder.correlationId(), correlationId);
         createAuctionCommandEncoder.name(addAuctionDecoder.name());
         createAuctionCommandEncoder.description(addAuctionDecoder.description());
 
@@ -219,13 +302,13 @@ public class ClusterInteractionAgent implements Agent, MessageHandler
         final MutableDirectBuffer buffer,
         final int offset)
     {
-        final String correlationId = UUID.randomUUID().toString();
+        final UUID correlationId = UUID.randomUUID();
         addParticipantDecoder.wrapAndApplyHeader(buffer, offset, messageHeaderDecoder);
         addParticipantCommandEncoder.wrapAndApplyHeader(sendBuffer, 0, messageHeaderEncoder);
 
         pendingMessageManager.addMessage(correlationId, "add-participant");
         addParticipantCommandEncoder.participantId(addParticipantDecoder.participantId());
-        addParticipantCommandEncoder.correlationId(correlationId);
+        putCorrelationId(addParticipantCommandEncoder.correlationId(), correlationId);
         addParticipantCommandEncoder.name(addParticipantDecoder.name());
 
         retryingClusterOffer(sendBuffer, 0, MessageHeaderEncoder.ENCODED_LENGTH +
@@ -243,14 +326,14 @@ public class ClusterInteractionAgent implements Agent, MessageHandler
         final MutableDirectBuffer buffer,
         final int offset)
     {
-        final String correlationId = UUID.randomUUID().toString();
+        final UUID correlationId = UUID.randomUUID();
         addAuctionBidDecoder.wrapAndApplyHeader(buffer, offset, messageHeaderDecoder);
         addAuctionBidCommandEncoder.wrapAndApplyHeader(sendBuffer, 0, messageHeaderEncoder);
 
         addAuctionBidCommandEncoder.auctionId(addAuctionBidDecoder.auctionId());
         addAuctionBidCommandEncoder.addedByParticipantId(addAuctionBidDecoder.addedByParticipantId());
         addAuctionBidCommandEncoder.price(addAuctionBidDecoder.price());
-        addAuctionBidCommandEncoder.correlationId(correlationId);
+        putCorrelationId(addAuctionBidCommandEncoder.correlationId(), correlationId);
         pendingMessageManager.addMessage(correlationId, "add-auction-bid");
 
         retryingClusterOffer(sendBuffer, 0, MessageHeaderEncoder.ENCODED_LENGTH +
@@ -262,25 +345,239 @@ public class ClusterInteractionAgent implements Agent, MessageHandler
      */
     private void processListParticipants()
     {
-        final String correlationId = UUID.randomUUID().toString();
+        final UUID correlationId = UUID.randomUUID();
         listParticipantsCommandEncoder.wrapAndApplyHeader(sendBuffer, 0, messageHeaderEncoder);
-        listParticipantsCommandEncoder.correlationId(correlationId);
+        putCorrelationId(listParticipantsCommandEncoder.correlationId(), correlationId);
         pendingMessageManager.addMessage(correlationId, "list-participants");
         retryingClusterOffer(sendBuffer, 0, MessageHeaderEncoder.ENCODED_LENGTH +
             listParticipantsCommandEncoder.encodedLength());
     }
 
     /**
-     * Marshals the CLI protocol to cluster protocol for Listing all auctions
+     * Marshals the CLI protocol to cluster protocol for Listing a page of auctions. A new listing keeps its filters
+     * so that the next page can be requested with the cursor from the last page received.
+     * @param messageHeaderDecoder the message header decoder
+     * @param buffer the buffer containing the message
+     * @param offset the offset of the message
      */
-    private void processListAuctions()
+    private void processListAuctions(
+        final MessageHeaderDecoder messageHeaderDecoder,
+        final MutableDirectBuffer buffer,
+        final int offset)
     {
-        final String correlationId = UUID.randomUUID().toString();
-        listAuctionsCommandEncoder.wrapAndApplyHeader(sendBuffer, 0, messageHeaderEncoder);
-        listAuctionsCommandEncoder.correlationId(correlationId);
+        listAuctionsDecoder.wrapAndApplyHeader(buffer, offset, messageHeaderDecoder);
+        final long startAfterAuctionId;
+        if (1 == listAuctionsDecoder.next())
+        {
+            startAfterAuctionId = adminClientEgressListener.getNextStartAfterAuctionId();
+            if (-1 == startAfterAuctionId)
+            {
+                log("No more auctions to list", AttributedStyle.YELLOW);
+                return;
+            }
+        }
+        else
+        {
+            startAfterAuctionId = 0;
+            listingStatus = -1 == listAuctionsDecoder.status() ?
+                AuctionStatus.UNKNOWN : AuctionStatus.get(listAuctionsDecoder.status());
+            listingCreatedByParticipantId = listAuctionsDecoder.createdByParticipantId();
+            listingPageSize = listAuctionsDecoder.pageSize();
+        }
+
+        final UUID correlationId = UUID.randomUUID();
+        listAuctionsPageCommandEncoder.wrapAndApplyHeader(sendBuffer, 0, messageHeaderEncoder);
+        putCorrelationId(listAuctionsPageCommandEncoder.correlationId(), correlationId);
+        listAuctionsPageCommandEncoder.startAfterAuctionId(startAfterAuctionId);
+        listAuctionsPageCommandEncoder.pageSize(listingPageSize);
+        listAuctionsPageCommandEncoder.status(listingStatus);
+        listAuctionsPageCommandEncoder.createdByParticipantId(listingCreatedByParticipantId);
         pendingMessageManager.addMessage(correlationId, "list-auctions");
         retryingClusterOffer(sendBuffer, 0, MessageHeaderEncoder.ENCODED_LENGTH +
-            listAuctionsCommandEncoder.encodedLength());
+            listAuctionsPageCommandEncoder.encodedLength());
+    }
+
+    /**
+     * Marshals the CLI protocol to cluster protocol for Listing the auctions changed since a state version, which
+     * defaults to the version the last changes received were complete to
+     * @param messageHeaderDecoder the message header decoder
+     * @param buffer the buffer containing the message
+     * @param offset the offset of the message
+     */
+    private void processListAuctionChanges(
+        final MessageHeaderDecoder messageHeaderDecoder,
+        final MutableDirectBuffer buffer,
+        final int offset)
+    {
+        listAuctionChangesDecoder.wrapAndApplyHeader(buffer, offset, messageHeaderDecoder);
+        final long sinceVersion = -1 == listAuctionChangesDecoder.sinceVersion() ?
+            adminClientEgressListener.getAuctionChangesVersion() : listAuctionChangesDecoder.sinceVersion();
+
+        final UUID correlationId = UUID.randomUUID();
+        listAuctionChangesCommandEncoder.wrapAndApplyHeader(sendBuffer, 0, messageHeaderEncoder);
+        putCorrelationId(listAuctionChangesCommandEncoder.correlationId(), correlationId);
+        listAuctionChangesCommandEncoder.sinceVersion(sinceVersion);
+        pendingMessageManager.addMessage(correlationId, "list-auction-changes");
+        retryingClusterOffer(sendBuffer, 0, MessageHeaderEncoder.ENCODED_LENGTH +
+            listAuctionChangesCommandEncoder.encodedLength());
+    }
+
+    /**
+     * Marshals the CLI protocol to cluster protocol for Listing the highest bids of an auction
+     * @param messageHeaderDecoder the message header decoder
+     * @param buffer the buffer containing the message
+     * @param offset the offset of the message
+     */
+    private void processListAuctionBids(
+        final MessageHeaderDecoder messageHeaderDecoder,
+        final MutableDirectBuffer buffer,
+        final int offset)
+    {
+        final UUID correlationId = UUID.randomUUID();
+        listAuctionBidsDecoder.wrapAndApplyHeader(buffer, offset, messageHeaderDecoder);
+        auctionBidHistoryCommandEncoder.wrapAndApplyHeader(sendBuffer, 0, messageHeaderEncoder);
+
+        putCorrelationId(auctionBidHistoryCommandEncoder.correlationId(), correlationId);
+        auctionBidHistoryCommandEncoder.auctionId(listAuctionBidsDecoder.auctionId());
+        auctionBidHistoryCommandEncoder.depth(listAuctionBidsDecoder.depth());
+        pendingMessageManager.addMessage(correlationId, "list-auction-bids");
+
+        retryingClusterOffer(sendBuffer, 0, MessageHeaderEncoder.ENCODED_LENGTH +
+            auctionBidHistoryCommandEncoder.encodedLength());
+    }
+
+    /**
+     * Marshals the CLI protocol to cluster protocol for Registering a proxy bid on an auction
+     * @param messageHeaderDecoder the message header decoder
+     * @param buffer the buffer containing the message
+     * @param offset the offset of the message
+     */
+    private void processAddProxyBid(
+        final MessageHeaderDecoder messageHeaderDecoder,
+        final MutableDirectBuffer buffer,
+        final int offset)
+    {
+        final UUID correlationId = UUID.randomUUID();
+        addProxyBidDecoder.wrapAndApplyHeader(buffer, offset, messageHeaderDecoder);
+        registerProxyBidCommandEncoder.wrapAndApplyHeader(sendBuffer, 0, messageHeaderEncoder);
+
+        putCorrelationId(registerProxyBidCommandEncoder.correlationId(), correlationId);
+        registerProxyBidCommandEncoder.auctionId(addProxyBidDecoder.auctionId());
+        registerProxyBidCommandEncoder.participantId(addProxyBidDecoder.participantId());
+        registerProxyBidCommandEncoder.maxPrice(addProxyBidDecoder.maxPrice());
+        pendingMessageManager.addMessage(correlationId, "add-proxy-bid");
+
+        retryingClusterOffer(sendBuffer, 0, MessageHeaderEncoder.ENCODED_LENGTH +
+            registerProxyBidCommandEncoder.encodedLength());
+    }
+
+    /**
+     * Marshals the CLI protocol to cluster protocol for Cancelling a proxy bid on an auction
+     * @param messageHeaderDecoder the message header decoder
+     * @param buffer the buffer containing the message
+     * @param offset the offset of the message
+     */
+    private void processCancelProxyBid(
+        final MessageHeaderDecoder messageHeaderDecoder,
+        final MutableDirectBuffer buffer,
+        final int offset)
+    {
+        final UUID correlationId = UUID.randomUUID();
+        cancelProxyBidDecoder.wrapAndApplyHeader(buffer, offset, messageHeaderDecoder);
+        cancelProxyBidCommandEncoder.wrapAndApplyHeader(sendBuffer, 0, messageHeaderEncoder);
+
+        putCorrelationId(cancelProxyBidCommandEncoder.correlationId(), correlationId);
+        cancelProxyBidCommandEncoder.auctionId(cancelProxyBidDecoder.auctionId());
+        cancelProxyBidCommandEncoder.participantId(cancelProxyBidDecoder.participantId());
+        pendingMessageManager.addMessage(correlationId, "cancel-proxy-bid");
+
+        retryingClusterOffer(sendBuffer, 0, MessageHeaderEncoder.ENCODED_LENGTH +
+            cancelProxyBidCommandEncoder.encodedLength());
+    }
+
+    /**
+     * Subscribes this session to the updates of an auction
+     * @param auctionId the auction id, or -1 for every auction
+     * @param conflated true for conflated updates, false for every update
+     */
+    private void sendSubscribeAuction(final long auctionId, final boolean conflated)
+    {
+        final UUID correlationId = UUID.randomUUID();
+        subscribeAuctionCommandEncoder.wrapAndApplyHeader(sendBuffer, 0, messageHeaderEncoder);
+        putCorrelationId(subscribeAuctionCommandEncoder.correlationId(), correlationId);
+        subscribeAuctionCommandEncoder.auctionId(auctionId);
+        subscribeAuctionCommandEncoder.conflated(conflated ? BooleanType.TRUE : BooleanType.FALSE);
+        pendingMessageManager.addMessage(correlationId, "subscribe-auction");
+
+        retryingClusterOffer(sendBuffer, 0, MessageHeaderEncoder.ENCODED_LENGTH +
+            subscribeAuctionCommandEncoder.encodedLength());
+    }
+
+    /**
+     * Unsubscribes this session from the updates of an auction
+     * @param auctionId the auction id, or -1 for every auction
+     */
+    private void sendUnsubscribeAuction(final long auctionId)
+    {
+        final UUID correlationId = UUID.randomUUID();
+        unsubscribeAuctionCommandEncoder.wrapAndApplyHeader(sendBuffer, 0, messageHeaderEncoder);
+        putCorrelationId(unsubscribeAuctionCommandEncoder.correlationId(), correlationId);
+        unsubscribeAuctionCommandEncoder.auctionId(auctionId);
+        pendingMessageManager.addMessage(correlationId, "unsubscribe-auction");
+
+        retryingClusterOffer(sendBuffer, 0, MessageHeaderEncoder.ENCODED_LENGTH +
+            unsubscribeAuctionCommandEncoder.encodedLength());
+    }
+
+    /**
+     * Marshals the CLI protocol to cluster protocol for Adding a batch of auctions, with one correlation id for the
+     * whole batch
+     * @param messageHeaderDecoder the message header decoder
+     * @param buffer the buffer containing the message
+     * @param offset the offset of the message
+     */
+    private void processAddAuctionBatch(
+        final MessageHeaderDecoder messageHeaderDecoder,
+        final MutableDirectBuffer buffer,
+        final int offset)
+    {
+        final UUID correlationId = UUID.randomUUID();
+        addAuctionBatchDecoder.wrapAndApplyHeader(buffer, offset, messageHeaderDecoder);
+        createAuctionBatchCommandEncoder.wrapAndApplyHeader(sendBuffer, 0, messageHeaderEncoder);
+
+        putCorrelationId(createAuctionBatchCommandEncoder.correlationId(), correlationId);
+        createAuctionBatchCommandEncoder.createdByParticipantId(addAuctionBatchDecoder.createdByParticipantId());
+        final AddAuctionBatchDecoder.AuctionsDecoder auctions = addAuctionBatchDecoder.auctions();
+        final CreateAuctionBatchCommandEncoder.AuctionsEncoder auctionsEncoder =
+            createAuctionBatchCommandEncoder.auctionsCount(auctions.count());
+        while (auctions.hasNext())
+        {
+            auctions.next();
+            final long startTime = auctions.startTime();
+            final long endTime = auctions.endTime();
+            auctions.wrapName(name);
+            auctions.wrapDescription(description);
+            auctionsEncoder.next()
+                .startTime(startTime)
+                .endTime(endTime)
+                .putName(name, 0, name.capacity())
+                .putDescription(description, 0, description.capacity());
+        }
+        pendingMessageManager.addMessage(correlationId, "load-catalog");
+
+        retryingClusterOffer(sendBuffer, 0, MessageHeaderEncoder.ENCODED_LENGTH +
+            createAuctionBatchCommandEncoder.encodedLength());
+    }
+
+    /**
+     * Encodes a correlation id as the binary UUID used by the cluster protocol
+     * @param encoder       the encoder for the correlation id field
+     * @param correlationId the correlation id
+     */
+    private static void putCorrelationId(final UuidEncoder encoder, final UUID correlationId)
+    {
+        encoder.mostSignificantBits(correlationId.getMostSignificantBits())
+            .leastSignificantBits(correlationId.getLeastSignificantBits());
     }
 
     /**
@@ -288,6 +585,8 @@ public class ClusterInteractionAgent implements Agent, MessageHandler
      */
     private void disconnectCluster()
     {
+        CloseHelper.quietClose(marketDataSubscription);
+        marketDataSubscription = null;
         adminClientEgressListener = null;
         if (aeronCluster != null)
         {
@@ -334,6 +633,30 @@ public class ClusterInteractionAgent implements Agent, MessageHandler
                 .aeronDirectoryName(mediaDriver.aeronDirectoryName()));
 
         log("Connected to cluster leader, node " + aeronCluster.leaderMemberId(), AttributedStyle.GREEN);
+
+        final String marketDataChannel = EnvironmentUtil.tryGetMarketDataChannelFromEnv();
+        if (!marketDataChannel.isEmpty())
+        {
+            marketDataSubscription = aeronCluster.context().aeron()
+                .addSubscription(marketDataChannel, EnvironmentUtil.tryGetMarketDataStreamIdFromEnv());
+            log("Receiving auction updates from market data channel " + marketDataChannel, AttributedStyle.GREEN);
+        }
+    }
+
+    /**
+     * Passes a message from the market data channel to the egress listener, which decodes it as it would the same
+     * message received over egress
+     * @param buffer the buffer containing the message
+     * @param offset the offset of the message
+     * @param length the length of the message
+     * @param header the header of the message
+     */
+    private void onMarketData(final DirectBuffer buffer, final int offset, final int length, final Header header)
+    {
+        if (null != adminClientEgressListener)
+        {
+            adminClientEgressListener.onMessage(aeronCluster.clusterSessionId(), 0, buffer, offset, length, header);
+        }
     }
 
     private void logError(final Throwable throwable)
@@ -16,9 +16,11 @@
 
 package io.aeron.samples.admin.cluster;
 
+import java.util.UUID;
+
 /**
  * A message that has been sent to the cluster but has not yet been received by the client.
  */
-public record PendingMessage(long timeoutAt, String correlationId, String messageType)
+public record PendingMessage(long timeoutAt, UUID correlationId, String messageType)
 {
 }
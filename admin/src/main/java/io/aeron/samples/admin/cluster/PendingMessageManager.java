@@ -22,6 +22,7 @@ import org.jline.utils.AttributedStyle;
 
 import java.util.Deque;
 import java.util.LinkedList;
+import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -48,7 +49,7 @@ public class PendingMessageManager
      * @param correlationId the correlation id of the message
      * @param messageType  the type of message
      */
-    public void addMessage(final String correlationId, final String messageType)
+    public void addMessage(final UUID correlationId, final String messageType)
     {
         final long timeoutAt = current.time() + TIMEOUT_MS;
         trackedMessages.add(new PendingMessage(timeoutAt, correlationId, messageType));
@@ -58,7 +59,7 @@ public class PendingMessageManager
      * Mark a message as received
      * @param correlationId the correlation id of the message
      */
-    public void markMessageAsReceived(final String correlationId)
+    public void markMessageAsReceived(final UUID correlationId)
     {
         trackedMessages.removeIf(pendingMessage -> pendingMessage.correlationId().equals(correlationId));
     }
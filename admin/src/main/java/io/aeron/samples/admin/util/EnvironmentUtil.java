@@ -87,6 +87,39 @@ public final class EnvironmentUtil
         return parseInt(responsePort);
     }
 
+    /**
+     * Tries to get the market data channel from the environment variable MARKET_DATA_CHANNEL. If that is not set, it
+     * will try to get it from the system property market.data.channel. If that is not set, it will return an empty
+     * string, and auction updates are received over the cluster egress instead.
+     *
+     * @return the market data channel
+     */
+    public static String tryGetMarketDataChannelFromEnv()
+    {
+        String marketDataChannel = System.getenv("MARKET_DATA_CHANNEL");
+        if (null == marketDataChannel || marketDataChannel.isEmpty())
+        {
+            marketDataChannel = System.getProperty("market.data.channel", "");
+        }
+        return marketDataChannel;
+    }
+
+    /**
+     * Tries to get the market data stream id from the environment variable MARKET_DATA_STREAM_ID. If that is not set,
+     * it will try to get it from the system property market.data.stream.id. If that is not set, it will return 1001.
+     *
+     * @return the market data stream id
+     */
+    public static int tryGetMarketDataStreamIdFromEnv()
+    {
+        String marketDataStreamId = System.getenv("MARKET_DATA_STREAM_ID");
+        if (null == marketDataStreamId || marketDataStreamId.isEmpty())
+        {
+            marketDataStreamId = System.getProperty("market.data.stream.id", "1001");
+        }
+        return parseInt(marketDataStreamId);
+    }
+
     /**
      * Reads DUMB_TERMINAL from the environment variable DUMB_TERMINAL. If that is not set, it will return false
      *
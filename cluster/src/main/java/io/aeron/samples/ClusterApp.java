@@ -24,15 +24,22 @@ import java.net.UnknownHostException;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
+import org.agrona.concurrent.AgentRunner;
 import org.agrona.concurrent.ShutdownSignalBarrier;
+import org.agrona.concurrent.SleepingMillisIdleStrategy;
 import org.agrona.concurrent.SystemEpochClock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.aeron.archive.Archive;
+import io.aeron.archive.client.AeronArchive;
 import io.aeron.cluster.ClusteredMediaDriver;
 import io.aeron.cluster.service.ClusteredServiceContainer;
 import io.aeron.samples.cluster.ClusterConfig;
 import io.aeron.samples.infra.AppClusteredService;
+import io.aeron.samples.infra.ArchiveRetention;
+import io.aeron.samples.infra.SessionMessageContextImpl;
+import io.aeron.samples.infra.SlowConsumerPolicy;
 
 /**
  * Sample cluster application
@@ -53,7 +60,9 @@ public class ClusterApp
 
         final List<String> hostAddresses = List.of(hosts.split(","));
         final ClusterConfig clusterConfig = ClusterConfig.create(nodeId, hostAddresses, hostAddresses, portBase,
-            new AppClusteredService());
+            new AppClusteredService(TimeUnit.MILLISECONDS.toNanos(getConflationIntervalMs()), getMarketDataChannel(),
+            getMarketDataStreamId(), getSlowConsumerPolicy(), getEgressQueueCapacity(), getSnapshotLogThresholdBytes(),
+            TimeUnit.MILLISECONDS.toNanos(getSnapshotIntervalMs())));
         clusterConfig.consensusModuleContext().ingressChannel("aeron:udp");
         clusterConfig.baseDir(getBaseDir(nodeId));
 
@@ -70,7 +79,8 @@ public class ClusterApp
                 clusterConfig.archiveContext(),
                 clusterConfig.consensusModuleContext().terminationHook(barrier::signalAll));
             ClusteredServiceContainer ignored1 = ClusteredServiceContainer.launch(
-                clusterConfig.clusteredServiceContext().terminationHook(barrier::signalAll)))
+                clusterConfig.clusteredServiceContext().terminationHook(barrier::signalAll));
+            AgentRunner ignored2 = startArchiveRetention(clusterConfig, getRetainedSnapshots()))
         {
             LOGGER.info("Started Cluster Node...");
             barrier.await();
@@ -78,6 +88,37 @@ public class ClusterApp
         }
     }
 
+    /**
+     * Start purging the log segments behind the retained snapshots, once the node has launched
+     * @param clusterConfig     the launched node's configuration
+     * @param retainedSnapshots the number of latest snapshots to keep the log for, or 0 to purge nothing
+     * @return the runner of the archive retention agent, or null if nothing is purged
+     */
+    private static AgentRunner startArchiveRetention(final ClusterConfig clusterConfig, final int retainedSnapshots)
+    {
+        if (retainedSnapshots <= 0)
+        {
+            return null;
+        }
+
+        final Archive.Context archiveContext = clusterConfig.archiveContext();
+        final AeronArchive.Context aeronArchiveContext = new AeronArchive.Context()
+            .aeronDirectoryName(clusterConfig.mediaDriverContext().aeronDirectoryName())
+            .controlRequestChannel(archiveContext.localControlChannel())
+            .controlRequestStreamId(archiveContext.localControlStreamId())
+            .controlResponseChannel(archiveContext.localControlChannel());
+        final ArchiveRetention archiveRetention = new ArchiveRetention(
+            clusterConfig.consensusModuleContext().clusterDir(),
+            archiveContext.archiveDir(),
+            aeronArchiveContext,
+            clusterConfig.consensusModuleContext().snapshotCounter(),
+            retainedSnapshots);
+        final AgentRunner runner = new AgentRunner(new SleepingMillisIdleStrategy(1000),
+            throwable -> LOGGER.warn("Archive retention failed", throwable), null, archiveRetention);
+        AgentRunner.startOnThread(runner);
+        return runner;
+    }
+
     /***
      * Get the base directory for the cluster configuration
      * @param nodeId node id
@@ -137,6 +178,120 @@ public class ClusterApp
         return parseInt(portBaseString);
     }
 
+    /**
+     * Get the least time between flushes of conflated auction updates
+     * @return conflation interval in milliseconds, default 0 to flush after each message
+     */
+    private static long getConflationIntervalMs()
+    {
+        String conflationInterval = System.getenv("CONFLATION_INTERVAL_MS");
+        if (null == conflationInterval || conflationInterval.isEmpty())
+        {
+            conflationInterval = System.getProperty("conflation.interval.ms", "0");
+        }
+        return Long.parseLong(conflationInterval);
+    }
+
+    /**
+     * Get the channel the leader publishes auction updates to once, for clients to subscribe to directly
+     * @return market data channel, such as a multicast UDP channel, default empty for none
+     */
+    private static String getMarketDataChannel()
+    {
+        String marketDataChannel = System.getenv("MARKET_DATA_CHANNEL");
+        if (null == marketDataChannel || marketDataChannel.isEmpty())
+        {
+            marketDataChannel = System.getProperty("market.data.channel", "");
+        }
+        return marketDataChannel;
+    }
+
+    /**
+     * Get the stream id of the market data channel
+     * @return market data stream id, default 1001
+     */
+    private static int getMarketDataStreamId()
+    {
+        String marketDataStreamId = System.getenv("MARKET_DATA_STREAM_ID");
+        if (null == marketDataStreamId || marketDataStreamId.isEmpty())
+        {
+            marketDataStreamId = System.getProperty("market.data.stream.id", "1001");
+        }
+        return parseInt(marketDataStreamId);
+    }
+
+    /**
+     * Get what is done with a session whose egress queue is full
+     * @return slow consumer policy, one of CONFLATE, DROP_OLDEST or DISCONNECT, default DISCONNECT
+     */
+    private static SlowConsumerPolicy getSlowConsumerPolicy()
+    {
+        String slowConsumerPolicy = System.getenv("SLOW_CONSUMER_POLICY");
+        if (null == slowConsumerPolicy || slowConsumerPolicy.isEmpty())
+        {
+            slowConsumerPolicy = System.getProperty("slow.consumer.policy",
+                SessionMessageContextImpl.DEFAULT_SLOW_CONSUMER_POLICY.name());
+        }
+        return SlowConsumerPolicy.valueOf(slowConsumerPolicy);
+    }
+
+    /**
+     * Get the capacity of the egress queue of a back pressured session
+     * @return egress queue capacity in bytes, default 1MB
+     */
+    private static int getEgressQueueCapacity()
+    {
+        String egressQueueCapacity = System.getenv("EGRESS_QUEUE_CAPACITY");
+        if (null == egressQueueCapacity || egressQueueCapacity.isEmpty())
+        {
+            egressQueueCapacity = System.getProperty("egress.queue.capacity",
+                Integer.toString(SessionMessageContextImpl.DEFAULT_EGRESS_QUEUE_CAPACITY));
+        }
+        return parseInt(egressQueueCapacity);
+    }
+
+    /**
+     * Get the log growth since the last snapshot at which the leader requests another
+     * @return snapshot log threshold in bytes, default 1GB, or 0 for none
+     */
+    private static long getSnapshotLogThresholdBytes()
+    {
+        String snapshotLogThreshold = System.getenv("SNAPSHOT_LOG_THRESHOLD_BYTES");
+        if (null == snapshotLogThreshold || snapshotLogThreshold.isEmpty())
+        {
+            snapshotLogThreshold = System.getProperty("snapshot.log.threshold.bytes", "1073741824");
+        }
+        return Long.parseLong(snapshotLogThreshold);
+    }
+
+    /**
+     * Get the time since the last snapshot after which the leader requests another, if the log has grown
+     * @return snapshot interval in milliseconds, default 1 hour, or 0 for none
+     */
+    private static long getSnapshotIntervalMs()
+    {
+        String snapshotInterval = System.getenv("SNAPSHOT_INTERVAL_MS");
+        if (null == snapshotInterval || snapshotInterval.isEmpty())
+        {
+            snapshotInterval = System.getProperty("snapshot.interval.ms", "3600000");
+        }
+        return Long.parseLong(snapshotInterval);
+    }
+
+    /**
+     * Get the number of latest snapshots whose log is kept in the archive, purging the log before them
+     * @return retained snapshots, default 0 to purge nothing
+     */
+    private static int getRetainedSnapshots()
+    {
+        String retainedSnapshots = System.getenv("RETAINED_SNAPSHOTS");
+        if (null == retainedSnapshots || retainedSnapshots.isEmpty())
+        {
+            retainedSnapshots = System.getProperty("retained.snapshots", "0");
+        }
+        return parseInt(retainedSnapshots);
+    }
+
     /**
      * Await DNS resolution of the given host. Under Kubernetes, this can take a while.
      * @param host of the node to resolve
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.aeron.samples.domain;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * A list of entities which is kept in ascending id order as entities are added with {@link #put(long, Object)} and
+ * removed with {@link #removeById(long)}. The other {@link java.util.List} mutators are not supported.
+ * <p>
+ * Ids issued by a monotonic generator are always greater than the last id held, so the common insert is an append.
+ * Removal leaves a tombstone in place, and tombstones are squeezed out by an in-place compaction once they make up
+ * half of the slots in use, or before the next indexed read. Indexed iteration therefore never sorts or allocates.
+ *
+ * @param <T> the type of entity held
+ */
+public final class IdOrderedList<T> extends AbstractList<T> implements RandomAccess
+{
+    private static final int MIN_CAPACITY = 16;
+    private long[] ids;
+    private Object[] values;
+    private int limit;
+    private int tombstones;
+
+    /**
+     * Constructor with a default initial capacity
+     */
+    public IdOrderedList()
+    {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Constructor
+     * @param initialCapacity the number of entities that can be held before the backing arrays grow
+     */
+    public IdOrderedList(final int initialCapacity)
+    {
+        final int capacity = Math.max(MIN_CAPACITY, initialCapacity);
+        ids = new long[capacity];
+        values = new Object[capacity];
+    }
+
+    /**
+     * Adds an entity, or replaces the entity already held for the id
+     * @param id    the id of the entity
+     * @param value the entity, which must not be null
+     */
+    public void put(final long id, final T value)
+    {
+        Objects.requireNonNull(value, "value");
+
+        if (0 == limit || id > ids[limit - 1])
+        {
+            ensureCapacity(limit + 1);
+            ids[limit] = id;
+            values[limit] = value;
+            limit++;
+            return;
+        }
+
+        int index = Arrays.binarySearch(ids, 0, limit, id);
+        if (index >= 0)
+        {
+            if (null == values[index])
+            {
+                tombstones--;
+            }
+            values[index] = value;
+            return;
+        }
+
+        if (tombstones > 0)
+        {
+            compact();
+            index = Arrays.binarySearch(ids, 0, limit, id);
+        }
+
+        final int insertAt = -(index + 1);
+        ensureCapacity(limit + 1);
+        System.arraycopy(ids, insertAt, ids, insertAt + 1, limit - insertAt);
+        System.arraycopy(values, insertAt, values, insertAt + 1, limit - insertAt);
+        ids[insertAt] = id;
+        values[insertAt] = value;
+        limit++;
+    }
+
+    /**
+     * Removes the entity held for the id, if any
+     * @param id the id of the entity
+     * @return the entity removed, or null if the id was unknown
+     */
+    @SuppressWarnings("unchecked")
+    public T removeById(final long id)
+    {
+        final int index = Arrays.binarySearch(ids, 0, limit, id);
+        if (index < 0 || null == values[index])
+        {
+            return null;
+        }
+
+        final T removed = (T)values[index];
+        values[index] = null;
+        tombstones++;
+
+        if (tombstones >= (limit >>> 1))
+        {
+            compact();
+        }
+
+        return removed;
+    }
+
+    /**
+     * Gets the entity at the given position in id order
+     * @param index the position in id order
+     * @return the entity
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(final int index)
+    {
+        if (tombstones > 0)
+        {
+            compact();
+        }
+        Objects.checkIndex(index, limit);
+        return (T)values[index];
+    }
+
+    /**
+     * Gets the number of entities held
+     * @return the number of entities
+     */
+    @Override
+    public int size()
+    {
+        return limit - tombstones;
+    }
+
+    /**
+     * Removes all entities
+     */
+    @Override
+    public void clear()
+    {
+        Arrays.fill(values, 0, limit, null);
+        limit = 0;
+        tombstones = 0;
+    }
+
+    private void compact()
+    {
+        int writeIndex = 0;
+        for (int readIndex = 0; readIndex < limit; readIndex++)
+        {
+            final Object value = values[readIndex];
+            if (null != value)
+            {
+                ids[writeIndex] = ids[readIndex];
+                values[writeIndex] = value;
+                writeIndex++;
+            }
+        }
+        Arrays.fill(values, writeIndex, limit, null);
+        limit = writeIndex;
+        tombstones = 0;
+    }
+
+    /**
+     * Grows the backing arrays, if needed, so they can hold the given number of entities without growing again
+     * @param required the number of entities to hold
+     */
+    public void ensureCapacity(final int required)
+    {
+        if (required > ids.length)
+        {
+            final int newCapacity = Math.max(required, ids.length << 1);
+            ids = Arrays.copyOf(ids, newCapacity);
+            values = Arrays.copyOf(values, newCapacity);
+        }
+    }
+}
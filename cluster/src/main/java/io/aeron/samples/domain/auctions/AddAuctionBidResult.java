@@ -27,5 +27,6 @@ public enum AddAuctionBidResult
     UNKNOWN_AUCTION,
     UNKNOWN_PARTICIPANT,
     AUCTION_NOT_OPEN,
-    CANNOT_SELF_BID
+    CANNOT_SELF_BID,
+    NO_PROXY_BID
 }
@@ -16,53 +16,51 @@
 
 package io.aeron.samples.domain.auctions;
 
+import org.agrona.DirectBuffer;
+
 /**
- * Represents an auction in the cluster
+ * Represents an auction in the cluster.
+ * <p>
+ * This is a reusable flyweight over a fixed length record held off-heap by the {@link AuctionStore}. A flyweight is
+ * only valid until the next auction is added to or removed from the store, since either may move records.
  */
 public class Auction
 {
-    private final long auctionId;
-    private final long createdByParticipantId;
-    private final long startTime;
-    private final long endTime;
-    private final String name;
-    private final String description;
-    private long currentPrice = 0;
-    private long winningParticipantId;
-    private long lastUpdateTime = Long.MIN_VALUE;
-    private int bidCount = 0;
-    private AuctionStatus auctionStatus = AuctionStatus.PRE_OPEN;
-
-    private long startTimerCorrelationId = Long.MIN_VALUE;
-    private long endTimerCorrelationId = Long.MIN_VALUE;
-    private long removalTimerCorrelationId = Long.MIN_VALUE;
-
-    /**
-     * Constructor
-     * @param auctionId the id of the auction
-     * @param createdByParticipantId the id of the participant that created the auction
-     * @param startTime the start time of the auction
-     * @param endTime the end time of the auction
-     * @param name the name of the auction
-     * @param description the description of the auction
-     * @param winningParticipantId the id of the winning participant
-     */
-    public Auction(
-        final long auctionId,
-        final long createdByParticipantId,
-        final long startTime,
-        final long endTime,
-        final String name,
-        final String description,
-        final long winningParticipantId)
-    {
-        this.auctionId = auctionId;
-        this.createdByParticipantId = createdByParticipantId;
-        this.startTime = startTime;
-        this.endTime = endTime;
-        this.name = name;
-        this.description = description;
-        this.winningParticipantId = winningParticipantId;
+    static final int AUCTION_ID_OFFSET = 0;
+    static final int CREATED_BY_PARTICIPANT_ID_OFFSET = 8;
+    static final int START_TIME_OFFSET = 16;
+    static final int END_TIME_OFFSET = 24;
+    static final int CURRENT_PRICE_OFFSET = 32;
+    static final int WINNING_PARTICIPANT_ID_OFFSET = 40;
+    static final int LAST_UPDATE_TIME_OFFSET = 48;
+    static final int START_TIMER_CORRELATION_ID_OFFSET = 56;
+    static final int END_TIMER_CORRELATION_ID_OFFSET = 64;
+    static final int REMOVAL_TIMER_CORRELATION_ID_OFFSET = 72;
+    static final int NAME_OFFSET_OFFSET = 80;
+    static final int NAME_LENGTH_OFFSET = 84;
+    static final int DESCRIPTION_OFFSET_OFFSET = 88;
+    static final int DESCRIPTION_LENGTH_OFFSET = 92;
+    static final int BID_COUNT_OFFSET = 96;
+    static final int STATUS_OFFSET = 100;
+    static final int BID_HISTORY_SLOT_OFFSET = 104;
+    static final int LAST_MODIFIED_VERSION_OFFSET = 112;
+    static final int RECORD_LENGTH = 128;
+    static final int NULL_BID_HISTORY_SLOT = -1;
+
+    private static final AuctionStatus[] STATUSES = AuctionStatus.values();
+
+    private AuctionStore store;
+    private int offset;
+
+    /**
+     * Wraps this flyweight over a record in the store
+     * @param store  the store holding the record
+     * @param offset the offset of the record within the store's record buffer
+     */
+    void wrap(final AuctionStore store, final int offset)
+    {
+        this.store = store;
+        this.offset = offset;
     }
 
     /**
@@ -71,7 +69,7 @@ public class Auction
      */
     public long currentPrice()
     {
-        return currentPrice;
+        return getCurrentPrice();
     }
 
     /**
@@ -80,7 +78,7 @@ public class Auction
      */
     public long getAuctionId()
     {
-        return auctionId;
+        return store.records().getLong(offset + AUCTION_ID_OFFSET);
     }
 
     /**
@@ -89,7 +87,7 @@ public class Auction
      */
     public long getCreatedByParticipantId()
     {
-        return createdByParticipantId;
+        return store.records().getLong(offset + CREATED_BY_PARTICIPANT_ID_OFFSET);
     }
 
     /**
@@ -98,7 +96,7 @@ public class Auction
      */
     public long getStartTime()
     {
-        return startTime;
+        return store.records().getLong(offset + START_TIME_OFFSET);
     }
 
     /**
@@ -107,25 +105,72 @@ public class Auction
      */
     public long getEndTime()
     {
-        return endTime;
+        return store.records().getLong(offset + END_TIME_OFFSET);
     }
 
     /**
-     * Returns the name of the auction
+     * Returns the name of the auction. This allocates; use {@link #getStringBuffer()} with {@link #getNameOffset()}
+     * and {@link #getNameLength()} to copy the UTF-8 bytes without allocation.
      * @return the name
      */
     public String getName()
     {
-        return name;
+        return store.strings().getStringWithoutLengthUtf8(getNameOffset(), getNameLength());
     }
 
     /**
-     * Returns the description of the auction
+     * Returns the description of the auction. This allocates; use {@link #getStringBuffer()} with
+     * {@link #getDescriptionOffset()} and {@link #getDescriptionLength()} to copy the UTF-8 bytes without allocation.
      * @return the description
      */
     public String getDescription()
     {
-        return description;
+        return store.strings().getStringWithoutLengthUtf8(getDescriptionOffset(), getDescriptionLength());
+    }
+
+    /**
+     * Returns the buffer holding the UTF-8 encoded name and description
+     * @return the string buffer
+     */
+    public DirectBuffer getStringBuffer()
+    {
+        return store.strings();
+    }
+
+    /**
+     * Returns the offset of the UTF-8 encoded name within the string buffer
+     * @return the name offset
+     */
+    public int getNameOffset()
+    {
+        return store.records().getInt(offset + NAME_OFFSET_OFFSET);
+    }
+
+    /**
+     * Returns the length of the UTF-8 encoded name in bytes
+     * @return the name length
+     */
+    public int getNameLength()
+    {
+        return store.records().getInt(offset + NAME_LENGTH_OFFSET);
+    }
+
+    /**
+     * Returns the offset of the UTF-8 encoded description within the string buffer
+     * @return the description offset
+     */
+    public int getDescriptionOffset()
+    {
+        return store.records().getInt(offset + DESCRIPTION_OFFSET_OFFSET);
+    }
+
+    /**
+     * Returns the length of the UTF-8 encoded description in bytes
+     * @return the description length
+     */
+    public int getDescriptionLength()
+    {
+        return store.records().getInt(offset + DESCRIPTION_LENGTH_OFFSET);
     }
 
     /**
@@ -134,7 +179,7 @@ public class Auction
      */
     public long getCurrentPrice()
     {
-        return currentPrice;
+        return store.records().getLong(offset + CURRENT_PRICE_OFFSET);
     }
 
     /**
@@ -143,7 +188,7 @@ public class Auction
      */
     public long getWinningParticipantId()
     {
-        return winningParticipantId;
+        return store.records().getLong(offset + WINNING_PARTICIPANT_ID_OFFSET);
     }
 
     /**
@@ -155,10 +200,23 @@ public class Auction
      */
     public void setWinningBid(final long participantId, final long price, final long time)
     {
-        winningParticipantId = participantId;
-        currentPrice = price;
-        lastUpdateTime = time;
-        bidCount++;
+        store.records().putLong(offset + WINNING_PARTICIPANT_ID_OFFSET, participantId);
+        store.records().putLong(offset + CURRENT_PRICE_OFFSET, price);
+        store.records().putLong(offset + LAST_UPDATE_TIME_OFFSET, time);
+        store.records().putInt(offset + BID_COUNT_OFFSET, getBidCount() + 1);
+    }
+
+    /**
+     * Sets the current price, number of bids and last update time together, as they were when the snapshot was taken
+     * @param price      the current price
+     * @param bidCount   the number of bids
+     * @param updateTime the time the winning bid was added
+     */
+    void setBidState(final long price, final int bidCount, final long updateTime)
+    {
+        store.records().putLong(offset + CURRENT_PRICE_OFFSET, price);
+        store.records().putInt(offset + BID_COUNT_OFFSET, bidCount);
+        store.records().putLong(offset + LAST_UPDATE_TIME_OFFSET, updateTime);
     }
 
     /**
@@ -167,7 +225,7 @@ public class Auction
      */
     public long getLastUpdateTime()
     {
-        return lastUpdateTime;
+        return store.records().getLong(offset + LAST_UPDATE_TIME_OFFSET);
     }
 
     /**
@@ -176,7 +234,7 @@ public class Auction
      */
     public int getBidCount()
     {
-        return bidCount;
+        return store.records().getInt(offset + BID_COUNT_OFFSET);
     }
 
     /**
@@ -185,7 +243,7 @@ public class Auction
      */
     public AuctionStatus getAuctionStatus()
     {
-        return auctionStatus;
+        return STATUSES[store.records().getInt(offset + STATUS_OFFSET)];
     }
 
     /**
@@ -194,7 +252,43 @@ public class Auction
      */
     public void setAuctionStatus(final AuctionStatus newStatus)
     {
-        auctionStatus = newStatus;
+        store.records().putInt(offset + STATUS_OFFSET, newStatus.ordinal());
+    }
+
+    /**
+     * Gets the slot of this auction's bid history ring in the {@link BidHistoryStore}
+     * @return the slot, or {@link #NULL_BID_HISTORY_SLOT} if no bid has been recorded
+     */
+    int getBidHistorySlot()
+    {
+        return store.records().getInt(offset + BID_HISTORY_SLOT_OFFSET);
+    }
+
+    /**
+     * Sets the slot of this auction's bid history ring in the {@link BidHistoryStore}
+     * @param slot the slot, or {@link #NULL_BID_HISTORY_SLOT} once the ring is freed
+     */
+    void setBidHistorySlot(final int slot)
+    {
+        store.records().putInt(offset + BID_HISTORY_SLOT_OFFSET, slot);
+    }
+
+    /**
+     * Gets the state version at which this auction was last added or changed
+     * @return the last modified version
+     */
+    public long getLastModifiedVersion()
+    {
+        return store.records().getLong(offset + LAST_MODIFIED_VERSION_OFFSET);
+    }
+
+    /**
+     * Sets the state version at which this auction was last added or changed
+     * @param version the last modified version
+     */
+    void setLastModifiedVersion(final long version)
+    {
+        store.records().putLong(offset + LAST_MODIFIED_VERSION_OFFSET, version);
     }
 
     /**
@@ -203,7 +297,7 @@ public class Auction
      */
     public long getStartTimerCorrelationId()
     {
-        return startTimerCorrelationId;
+        return store.records().getLong(offset + START_TIMER_CORRELATION_ID_OFFSET);
     }
 
     /**
@@ -212,7 +306,7 @@ public class Auction
      */
     public void setStartTimerCorrelationId(final long startTimerCorrelationId)
     {
-        this.startTimerCorrelationId = startTimerCorrelationId;
+        store.records().putLong(offset + START_TIMER_CORRELATION_ID_OFFSET, startTimerCorrelationId);
     }
 
     /**
@@ -221,7 +315,7 @@ public class Auction
      */
     public long getEndTimerCorrelationId()
     {
-        return endTimerCorrelationId;
+        return store.records().getLong(offset + END_TIMER_CORRELATION_ID_OFFSET);
     }
 
     /**
@@ -230,7 +324,7 @@ public class Auction
      */
     public void setEndTimerCorrelationId(final long endTimerCorrelationId)
     {
-        this.endTimerCorrelationId = endTimerCorrelationId;
+        store.records().putLong(offset + END_TIMER_CORRELATION_ID_OFFSET, endTimerCorrelationId);
     }
 
     /**
@@ -239,7 +333,7 @@ public class Auction
      */
     public long getRemovalTimerCorrelationId()
     {
-        return removalTimerCorrelationId;
+        return store.records().getLong(offset + REMOVAL_TIMER_CORRELATION_ID_OFFSET);
     }
 
     /**
@@ -248,6 +342,6 @@ public class Auction
      */
     public void setRemovalTimerCorrelationId(final long removalTimerCorrelationId)
     {
-        this.removalTimerCorrelationId = removalTimerCorrelationId;
+        store.records().putLong(offset + REMOVAL_TIMER_CORRELATION_ID_OFFSET, removalTimerCorrelationId);
     }
 }
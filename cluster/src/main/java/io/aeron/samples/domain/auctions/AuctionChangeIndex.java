@@ -0,0 +1,213 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.aeron.samples.domain.auctions;
+
+import org.agrona.collections.Long2LongHashMap;
+
+import java.util.Arrays;
+
+/**
+ * Index of auction changes in state version order, so that the changes since a version can be read without scanning
+ * every auction.
+ * <p>
+ * Each change appends an entry of version and auction id to parallel primitive arrays, which stay sorted because
+ * versions only increase. An entry is current if it is the latest for its auction; older entries are skipped when read
+ * and squeezed out by an in-place compaction when the arrays fill. Removals are entries too, since auction ids are not
+ * reused, and only the most recent {@link #MAX_RETAINED_REMOVALS} are kept. Changes at or below the
+ * {@link #floorVersion()} are no longer known, and a reader that has not seen them must list the auctions afresh.
+ */
+final class AuctionChangeIndex
+{
+    static final int MAX_RETAINED_REMOVALS = 4096;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final long NULL_VERSION = -1;
+
+    private final Long2LongHashMap versionByAuctionId = new Long2LongHashMap(NULL_VERSION);
+    private long[] versions = new long[INITIAL_CAPACITY];
+    private long[] auctionIds = new long[INITIAL_CAPACITY];
+    private boolean[] removals = new boolean[INITIAL_CAPACITY];
+    private int size;
+    private long floorVersion;
+
+    /**
+     * Records that an auction was added or changed
+     * @param version   the state version of the change
+     * @param auctionId the auction id
+     */
+    void onChanged(final long version, final long auctionId)
+    {
+        append(version, auctionId, false);
+    }
+
+    /**
+     * Records that an auction was removed
+     * @param version   the state version of the removal
+     * @param auctionId the auction id
+     */
+    void onRemoved(final long version, final long auctionId)
+    {
+        append(version, auctionId, true);
+    }
+
+    /**
+     * Forgets every change, as after a snapshot is loaded, so changes up to the given version are no longer known
+     * @param floorVersion the state version the index starts from
+     */
+    void reset(final long floorVersion)
+    {
+        versionByAuctionId.clear();
+        size = 0;
+        this.floorVersion = floorVersion;
+    }
+
+    /**
+     * Gets the version at or below which changes are no longer known
+     * @return the floor version
+     */
+    long floorVersion()
+    {
+        return floorVersion;
+    }
+
+    /**
+     * Gets the number of entries, including those superseded by a later change
+     * @return the number of entries
+     */
+    int size()
+    {
+        return size;
+    }
+
+    /**
+     * Gets the index of the first entry with a version greater than the one given
+     * @param version the version to start after
+     * @return the index, which is {@link #size()} if there are no later entries
+     */
+    int indexAfter(final long version)
+    {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high)
+        {
+            final int mid = (low + high) >>> 1;
+            if (versions[mid] <= version)
+            {
+                low = mid + 1;
+            }
+            else
+            {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Determines if an entry is the latest change to its auction
+     * @param index the index of the entry
+     * @return true if current, false if superseded by a later change
+     */
+    boolean isCurrent(final int index)
+    {
+        return versionByAuctionId.get(auctionIds[index]) == versions[index];
+    }
+
+    /**
+     * Gets the version of an entry
+     * @param index the index of the entry
+     * @return the state version of the change
+     */
+    long version(final int index)
+    {
+        return versions[index];
+    }
+
+    /**
+     * Gets the auction of an entry
+     * @param index the index of the entry
+     * @return the auction id
+     */
+    long auctionId(final int index)
+    {
+        return auctionIds[index];
+    }
+
+    /**
+     * Determines if an entry is a removal
+     * @param index the index of the entry
+     * @return true if the auction was removed, false if it was added or changed
+     */
+    boolean isRemoval(final int index)
+    {
+        return removals[index];
+    }
+
+    private void append(final long version, final long auctionId, final boolean removal)
+    {
+        if (size == versions.length)
+        {
+            compact();
+            if (size > versions.length >> 1)
+            {
+                versions = Arrays.copyOf(versions, versions.length << 1);
+                auctionIds = Arrays.copyOf(auctionIds, auctionIds.length << 1);
+                removals = Arrays.copyOf(removals, removals.length << 1);
+            }
+        }
+
+        versions[size] = version;
+        auctionIds[size] = auctionId;
+        removals[size] = removal;
+        size++;
+        versionByAuctionId.put(auctionId, version);
+    }
+
+    private void compact()
+    {
+        int removalCount = 0;
+        for (int i = 0; i < size; i++)
+        {
+            if (removals[i] && isCurrent(i))
+            {
+                removalCount++;
+            }
+        }
+
+        //the oldest removals beyond the retained count are dropped, and the floor raised past them
+        int removalsToDrop = Math.max(0, removalCount - MAX_RETAINED_REMOVALS);
+        int writeIndex = 0;
+        for (int readIndex = 0; readIndex < size; readIndex++)
+        {
+            if (!isCurrent(readIndex))
+            {
+                continue;
+            }
+            if (removals[readIndex] && removalsToDrop > 0)
+            {
+                removalsToDrop--;
+                floorVersion = Math.max(floorVersion, versions[readIndex]);
+                versionByAuctionId.remove(auctionIds[readIndex]);
+                continue;
+            }
+            versions[writeIndex] = versions[readIndex];
+            auctionIds[writeIndex] = auctionIds[readIndex];
+            removals[writeIndex] = removals[readIndex];
+            writeIndex++;
+        }
+        size = writeIndex;
+    }
+}
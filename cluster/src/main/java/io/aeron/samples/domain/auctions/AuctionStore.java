@@ -0,0 +1,576 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.aeron.samples.domain.auctions;
+
+import org.agrona.BitUtil;
+import org.agrona.BufferUtil;
+import org.agrona.DirectBuffer;
+import org.agrona.collections.Hashing;
+import org.agrona.collections.Long2LongHashMap;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+import static io.aeron.samples.domain.auctions.Auction.AUCTION_ID_OFFSET;
+import static io.aeron.samples.domain.auctions.Auction.BID_COUNT_OFFSET;
+import static io.aeron.samples.domain.auctions.Auction.BID_HISTORY_SLOT_OFFSET;
+import static io.aeron.samples.domain.auctions.Auction.CREATED_BY_PARTICIPANT_ID_OFFSET;
+import static io.aeron.samples.domain.auctions.Auction.CURRENT_PRICE_OFFSET;
+import static io.aeron.samples.domain.auctions.Auction.DESCRIPTION_LENGTH_OFFSET;
+import static io.aeron.samples.domain.auctions.Auction.DESCRIPTION_OFFSET_OFFSET;
+import static io.aeron.samples.domain.auctions.Auction.END_TIMER_CORRELATION_ID_OFFSET;
+import static io.aeron.samples.domain.auctions.Auction.END_TIME_OFFSET;
+import static io.aeron.samples.domain.auctions.Auction.LAST_MODIFIED_VERSION_OFFSET;
+import static io.aeron.samples.domain.auctions.Auction.LAST_UPDATE_TIME_OFFSET;
+import static io.aeron.samples.domain.auctions.Auction.NAME_LENGTH_OFFSET;
+import static io.aeron.samples.domain.auctions.Auction.NAME_OFFSET_OFFSET;
+import static io.aeron.samples.domain.auctions.Auction.NULL_BID_HISTORY_SLOT;
+import static io.aeron.samples.domain.auctions.Auction.RECORD_LENGTH;
+import static io.aeron.samples.domain.auctions.Auction.REMOVAL_TIMER_CORRELATION_ID_OFFSET;
+import static io.aeron.samples.domain.auctions.Auction.START_TIMER_CORRELATION_ID_OFFSET;
+import static io.aeron.samples.domain.auctions.Auction.START_TIME_OFFSET;
+import static io.aeron.samples.domain.auctions.Auction.STATUS_OFFSET;
+import static io.aeron.samples.domain.auctions.Auction.WINNING_PARTICIPANT_ID_OFFSET;
+
+/**
+ * Off-heap store of auctions, which holds each auction as a fixed length record in a slab of direct memory and the
+ * UTF-8 encoded names and descriptions in a separate direct memory arena. Apart from the id to slot index, which is a
+ * primitive map, no per-auction objects are held on the heap.
+ * <p>
+ * Records are kept in ascending auction id order, in the same way as {@link io.aeron.samples.domain.IdOrderedList}:
+ * auction ids are monotonic so the common insert is an append, removed records are marked {@link AuctionStatus#REMOVED}
+ * and squeezed out by an in-place compaction once they make up half of the slab, or before the next indexed read.
+ * The string arena is compacted whenever it needs to grow.
+ * <p>
+ * As a {@link java.util.List}, this store returns a single reusable {@link Auction} flyweight from {@link #get(int)}.
+ */
+public final class AuctionStore extends AbstractList<Auction> implements RandomAccess
+{
+    /**
+     * The most auctions the record slab, a single direct buffer, can hold
+     */
+    public static final int MAX_RECORD_CAPACITY = (Integer.MAX_VALUE - 8) / RECORD_LENGTH;
+    private static final int NULL_SLOT = -1;
+    private static final int INITIAL_RECORD_CAPACITY = 1024;
+    private static final int INITIAL_STRING_CAPACITY = 64 * 1024;
+    private static final int MAX_UTF8_BYTES_PER_CHAR = 3;
+    private static final int MAX_BUFFER_CAPACITY = Integer.MAX_VALUE - 8;
+
+    private Long2LongHashMap slotByAuctionId = new Long2LongHashMap(NULL_SLOT);
+    private final Auction listFlyweight = new Auction();
+    private UnsafeBuffer records;
+    private UnsafeBuffer strings;
+    private int recordLimit;
+    private int tombstones;
+    private int stringLimit;
+    private int stringGarbage;
+
+    /**
+     * Constructor with default initial capacities
+     */
+    public AuctionStore()
+    {
+        this(INITIAL_RECORD_CAPACITY, INITIAL_STRING_CAPACITY);
+    }
+
+    /**
+     * Constructor
+     * @param initialRecordCapacity the number of auctions which can be held before the record slab grows
+     * @param initialStringCapacity the number of bytes of names and descriptions held before the arena grows
+     */
+    public AuctionStore(final int initialRecordCapacity, final int initialStringCapacity)
+    {
+        records = allocate(recordBytes(Math.max(1, initialRecordCapacity)));
+        strings = allocate(Math.max(1, initialStringCapacity));
+    }
+
+    /**
+     * Adds an auction in the PRE_OPEN state with no bids, and wraps the flyweight over it
+     * @param auctionId              the auction id
+     * @param createdByParticipantId the participant who created the auction
+     * @param startTime              the start time of the auction
+     * @param endTime                the end time of the auction
+     * @param name                   the name of the auction
+     * @param description            the description
+     * @param winningParticipantId   the winning participant id
+     * @param auction                the flyweight to wrap over the new auction
+     */
+    public void add(
+        final long auctionId,
+        final long createdByParticipantId,
+        final long startTime,
+        final long endTime,
+        final String name,
+        final String description,
+        final long winningParticipantId,
+        final Auction auction)
+    {
+        Objects.requireNonNull(name, "name");
+        Objects.requireNonNull(description, "description");
+
+        final int offset = addRecord(auctionId, createdByParticipantId, startTime, endTime, winningParticipantId);
+        appendString(offset, NAME_OFFSET_OFFSET, NAME_LENGTH_OFFSET, name);
+        appendString(offset, DESCRIPTION_OFFSET_OFFSET, DESCRIPTION_LENGTH_OFFSET, description);
+        auction.wrap(this, offset);
+    }
+
+    /**
+     * Adds an auction in the PRE_OPEN state with no bids, copying the UTF-8 encoded name and description from
+     * buffers which hold only those bytes, and wraps the flyweight over it
+     * @param auctionId              the auction id
+     * @param createdByParticipantId the participant who created the auction
+     * @param startTime              the start time of the auction
+     * @param endTime                the end time of the auction
+     * @param name                   the UTF-8 encoded name of the auction
+     * @param description            the UTF-8 encoded description
+     * @param winningParticipantId   the winning participant id
+     * @param auction                the flyweight to wrap over the new auction
+     */
+    public void add(
+        final long auctionId,
+        final long createdByParticipantId,
+        final long startTime,
+        final long endTime,
+        final DirectBuffer name,
+        final DirectBuffer description,
+        final long winningParticipantId,
+        final Auction auction)
+    {
+        Objects.requireNonNull(name, "name");
+        Objects.requireNonNull(description, "description");
+
+        final int offset = addRecord(auctionId, createdByParticipantId, startTime, endTime, winningParticipantId);
+        appendString(offset, NAME_OFFSET_OFFSET, NAME_LENGTH_OFFSET, name);
+        appendString(offset, DESCRIPTION_OFFSET_OFFSET, DESCRIPTION_LENGTH_OFFSET, description);
+        auction.wrap(this, offset);
+    }
+
+    /**
+     * Grows the record slab, string arena and id index so they can hold the given number of auctions and bytes of
+     * names and descriptions without growing again, as when a snapshot is loaded
+     * @param auctionCount the number of auctions to hold
+     * @param stringLength the number of bytes of UTF-8 encoded names and descriptions to hold
+     */
+    public void ensureCapacity(final int auctionCount, final int stringLength)
+    {
+        ensureRecordCapacity(auctionCount);
+        if (stringLength > strings.capacity())
+        {
+            reallocateStrings(Math.max(stringLimit - stringGarbage, stringLength));
+        }
+        if (auctionCount > slotByAuctionId.resizeThreshold())
+        {
+            final Long2LongHashMap newSlotByAuctionId = new Long2LongHashMap(
+                (int)Math.min(1 << 30, (long)(auctionCount / Hashing.DEFAULT_LOAD_FACTOR) + 1),
+                Hashing.DEFAULT_LOAD_FACTOR, NULL_SLOT);
+            for (int slot = 0; slot < recordLimit; slot++)
+            {
+                if (!isRemoved(slot))
+                {
+                    newSlotByAuctionId.put(auctionIdAt(slot), slot);
+                }
+            }
+            slotByAuctionId = newSlotByAuctionId;
+        }
+    }
+
+    /**
+     * Gets the number of bytes of UTF-8 encoded names and descriptions held for the auctions
+     * @return the string length in bytes
+     */
+    public int stringLength()
+    {
+        return stringLimit - stringGarbage;
+    }
+
+    /**
+     * Wraps the flyweight over an auction, if known
+     * @param auctionId the auction id
+     * @param auction   the flyweight to wrap
+     * @return true if the auction is known, false otherwise
+     */
+    public boolean wrap(final long auctionId, final Auction auction)
+    {
+        final long slot = slotByAuctionId.get(auctionId);
+        if (NULL_SLOT == slot)
+        {
+            return false;
+        }
+
+        auction.wrap(this, (int)slot * RECORD_LENGTH);
+        return true;
+    }
+
+    /**
+     * Determines if an auction is known
+     * @param auctionId the auction id
+     * @return true if the auction is known, false otherwise
+     */
+    public boolean contains(final long auctionId)
+    {
+        return slotByAuctionId.containsKey(auctionId);
+    }
+
+    /**
+     * Removes an auction, if known
+     * @param auctionId the auction id
+     * @return true if the auction was removed, false if it was unknown
+     */
+    public boolean remove(final long auctionId)
+    {
+        final long slot = slotByAuctionId.remove(auctionId);
+        if (NULL_SLOT == slot)
+        {
+            return false;
+        }
+
+        final int offset = (int)slot * RECORD_LENGTH;
+        stringGarbage += records.getInt(offset + NAME_LENGTH_OFFSET) +
+            records.getInt(offset + DESCRIPTION_LENGTH_OFFSET);
+        records.putInt(offset + STATUS_OFFSET, AuctionStatus.REMOVED.ordinal());
+        tombstones++;
+
+        if (tombstones >= (recordLimit >>> 1))
+        {
+            compactRecords();
+        }
+
+        return true;
+    }
+
+    /**
+     * Gets the auction at the given position in auction id order, as a reusable flyweight
+     * @param index the position in auction id order
+     * @return the auction flyweight, valid until the next call or change to the store
+     */
+    @Override
+    public Auction get(final int index)
+    {
+        if (tombstones > 0)
+        {
+            compactRecords();
+        }
+        Objects.checkIndex(index, recordLimit);
+        listFlyweight.wrap(this, index * RECORD_LENGTH);
+        return listFlyweight;
+    }
+
+    /**
+     * Gets the position in auction id order of the first auction with an id greater than the one given, so a paged
+     * read can resume after the last auction it returned even if that auction has since been removed
+     * @param auctionId the auction id to start after
+     * @return the position, which is {@link #size()} if there is no later auction
+     */
+    public int indexAfter(final long auctionId)
+    {
+        if (tombstones > 0)
+        {
+            compactRecords();
+        }
+
+        int low = 0;
+        int high = recordLimit - 1;
+        while (low <= high)
+        {
+            final int mid = (low + high) >>> 1;
+            if (auctionIdAt(mid) <= auctionId)
+            {
+                low = mid + 1;
+            }
+            else
+            {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Gets the number of auctions held
+     * @return the number of auctions
+     */
+    @Override
+    public int size()
+    {
+        return recordLimit - tombstones;
+    }
+
+    /**
+     * Gets the number of bytes of direct memory reserved for auction records and strings
+     * @return the reserved direct memory in bytes
+     */
+    public long capacityInBytes()
+    {
+        return (long)records.capacity() + strings.capacity();
+    }
+
+    UnsafeBuffer records()
+    {
+        return records;
+    }
+
+    UnsafeBuffer strings()
+    {
+        return strings;
+    }
+
+    /**
+     * Writes the fixed length fields of a new auction record, replacing any auction already held with the same id
+     * @param auctionId              the auction id
+     * @param createdByParticipantId the participant who created the auction
+     * @param startTime              the start time of the auction
+     * @param endTime                the end time of the auction
+     * @param winningParticipantId   the winning participant id
+     * @return the offset of the new record
+     */
+    private int addRecord(
+        final long auctionId,
+        final long createdByParticipantId,
+        final long startTime,
+        final long endTime,
+        final long winningParticipantId)
+    {
+        remove(auctionId);
+
+        final int slot;
+        if (0 == recordLimit || auctionId > auctionIdAt(recordLimit - 1))
+        {
+            ensureRecordCapacity(recordLimit + 1);
+            slot = recordLimit++;
+        }
+        else
+        {
+            slot = insertSlot(auctionId);
+        }
+
+        final int offset = slot * RECORD_LENGTH;
+        records.setMemory(offset, RECORD_LENGTH, (byte)0);
+        records.putLong(offset + AUCTION_ID_OFFSET, auctionId);
+        records.putLong(offset + CREATED_BY_PARTICIPANT_ID_OFFSET, createdByParticipantId);
+        records.putLong(offset + START_TIME_OFFSET, startTime);
+        records.putLong(offset + END_TIME_OFFSET, endTime);
+        records.putLong(offset + CURRENT_PRICE_OFFSET, 0);
+        records.putLong(offset + WINNING_PARTICIPANT_ID_OFFSET, winningParticipantId);
+        records.putLong(offset + LAST_UPDATE_TIME_OFFSET, Long.MIN_VALUE);
+        records.putLong(offset + START_TIMER_CORRELATION_ID_OFFSET, Long.MIN_VALUE);
+        records.putLong(offset + END_TIMER_CORRELATION_ID_OFFSET, Long.MIN_VALUE);
+        records.putLong(offset + REMOVAL_TIMER_CORRELATION_ID_OFFSET, Long.MIN_VALUE);
+        records.putInt(offset + BID_COUNT_OFFSET, 0);
+        records.putInt(offset + STATUS_OFFSET, AuctionStatus.PRE_OPEN.ordinal());
+        records.putInt(offset + BID_HISTORY_SLOT_OFFSET, NULL_BID_HISTORY_SLOT);
+        records.putLong(offset + LAST_MODIFIED_VERSION_OFFSET, 0);
+
+        slotByAuctionId.put(auctionId, slot);
+        return offset;
+    }
+
+    private long auctionIdAt(final int slot)
+    {
+        return records.getLong(slot * RECORD_LENGTH + AUCTION_ID_OFFSET);
+    }
+
+    private boolean isRemoved(final int slot)
+    {
+        return AuctionStatus.REMOVED.ordinal() == records.getInt(slot * RECORD_LENGTH + STATUS_OFFSET);
+    }
+
+    private int insertSlot(final long auctionId)
+    {
+        if (tombstones > 0)
+        {
+            compactRecords();
+        }
+        ensureRecordCapacity(recordLimit + 1);
+
+        int low = 0;
+        int high = recordLimit - 1;
+        while (low <= high)
+        {
+            final int mid = (low + high) >>> 1;
+            if (auctionIdAt(mid) < auctionId)
+            {
+                low = mid + 1;
+            }
+            else
+            {
+                high = mid - 1;
+            }
+        }
+
+        for (int slot = recordLimit - 1; slot >= low; slot--)
+        {
+            records.putBytes((slot + 1) * RECORD_LENGTH, records, slot * RECORD_LENGTH, RECORD_LENGTH);
+            slotByAuctionId.put(auctionIdAt(slot + 1), slot + 1);
+        }
+        recordLimit++;
+
+        return low;
+    }
+
+    private void compactRecords()
+    {
+        int writeSlot = 0;
+        for (int readSlot = 0; readSlot < recordLimit; readSlot++)
+        {
+            if (!isRemoved(readSlot))
+            {
+                if (writeSlot != readSlot)
+                {
+                    records.putBytes(writeSlot * RECORD_LENGTH, records, readSlot * RECORD_LENGTH, RECORD_LENGTH);
+                    slotByAuctionId.put(auctionIdAt(writeSlot), writeSlot);
+                }
+                writeSlot++;
+            }
+        }
+        recordLimit = writeSlot;
+        tombstones = 0;
+    }
+
+    private void ensureRecordCapacity(final int requiredSlots)
+    {
+        final int capacitySlots = records.capacity() / RECORD_LENGTH;
+        if (requiredSlots > capacitySlots)
+        {
+            final long newSlots = Math.max(requiredSlots, Math.min((long)capacitySlots << 1, MAX_RECORD_CAPACITY));
+            final UnsafeBuffer newRecords = allocate(recordBytes(newSlots));
+            newRecords.putBytes(0, records, 0, recordLimit * RECORD_LENGTH);
+            free(records);
+            records = newRecords;
+        }
+    }
+
+    private void appendString(
+        final int recordOffset,
+        final int offsetFieldOffset,
+        final int lengthFieldOffset,
+        final String value)
+    {
+        ensureStringCapacity(value.length() * MAX_UTF8_BYTES_PER_CHAR);
+        final int length = strings.putStringWithoutLengthUtf8(stringLimit, value);
+        records.putInt(recordOffset + offsetFieldOffset, stringLimit);
+        records.putInt(recordOffset + lengthFieldOffset, length);
+        stringLimit += length;
+    }
+
+    private void appendString(
+        final int recordOffset,
+        final int offsetFieldOffset,
+        final int lengthFieldOffset,
+        final DirectBuffer value)
+    {
+        final int length = value.capacity();
+        ensureStringCapacity(length);
+        strings.putBytes(stringLimit, value, 0, length);
+        records.putInt(recordOffset + offsetFieldOffset, stringLimit);
+        records.putInt(recordOffset + lengthFieldOffset, length);
+        stringLimit += length;
+    }
+
+    /**
+     * Ensures there is room to append the required bytes to the string arena. When the arena is full it is
+     * reallocated with only the strings of live auctions copied across, sized so at least half is free afterwards.
+     *
+     * @param required the number of bytes to be appended
+     */
+    private void ensureStringCapacity(final int required)
+    {
+        if ((long)stringLimit + required <= strings.capacity())
+        {
+            return;
+        }
+
+        final long requiredLength = (long)stringLimit - stringGarbage + required;
+        if (requiredLength > MAX_BUFFER_CAPACITY)
+        {
+            throw new IllegalStateException("auction names and descriptions cannot exceed " + MAX_BUFFER_CAPACITY +
+                " bytes: required=" + requiredLength);
+        }
+        final long newCapacity =
+            Math.min(BitUtil.findNextPositivePowerOfTwo(requiredLength << 1), MAX_BUFFER_CAPACITY);
+        reallocateStrings((int)Math.max(INITIAL_STRING_CAPACITY, newCapacity));
+    }
+
+    /**
+     * Reallocates the string arena with only the strings of live auctions copied across
+     *
+     * @param newCapacity the capacity of the new arena, which must hold the live strings
+     */
+    private void reallocateStrings(final int newCapacity)
+    {
+        final UnsafeBuffer newStrings = allocate(newCapacity);
+
+        int newLimit = 0;
+        for (int slot = 0; slot < recordLimit; slot++)
+        {
+            if (!isRemoved(slot))
+            {
+                final int recordOffset = slot * RECORD_LENGTH;
+                newLimit = copyString(newStrings, newLimit, recordOffset, NAME_OFFSET_OFFSET, NAME_LENGTH_OFFSET);
+                newLimit = copyString(
+                    newStrings, newLimit, recordOffset, DESCRIPTION_OFFSET_OFFSET, DESCRIPTION_LENGTH_OFFSET);
+            }
+        }
+
+        free(strings);
+        strings = newStrings;
+        stringLimit = newLimit;
+        stringGarbage = 0;
+    }
+
+    private int copyString(
+        final UnsafeBuffer newStrings,
+        final int newLimit,
+        final int recordOffset,
+        final int offsetFieldOffset,
+        final int lengthFieldOffset)
+    {
+        final int length = records.getInt(recordOffset + lengthFieldOffset);
+        newStrings.putBytes(newLimit, strings, records.getInt(recordOffset + offsetFieldOffset), length);
+        records.putInt(recordOffset + offsetFieldOffset, newLimit);
+        return newLimit + length;
+    }
+
+    /**
+     * Gets the length in bytes of a record slab of the given number of slots
+     *
+     * @param slots the number of records
+     * @return the slab length
+     * @throws IllegalStateException if the slab would exceed the capacity of a direct buffer
+     */
+    private static int recordBytes(final long slots)
+    {
+        if (slots > MAX_RECORD_CAPACITY)
+        {
+            throw new IllegalStateException(
+                "auction store cannot hold more than " + MAX_RECORD_CAPACITY + " auctions: required=" + slots);
+        }
+        return (int)slots * RECORD_LENGTH;
+    }
+
+    private static UnsafeBuffer allocate(final int capacity)
+    {
+        return new UnsafeBuffer(ByteBuffer.allocateDirect(capacity));
+    }
+
+    private static void free(final UnsafeBuffer buffer)
+    {
+        BufferUtil.free(buffer.byteBuffer());
+    }
+}
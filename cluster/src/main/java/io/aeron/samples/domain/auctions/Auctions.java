@@ -17,17 +17,20 @@
 package io.aeron.samples.domain.auctions;
 
 import io.aeron.samples.domain.participants.Participants;
+import io.aeron.samples.infra.AuctionSubscriptions;
 import io.aeron.samples.infra.ClusterClientResponder;
 import io.aeron.samples.infra.SessionMessageContext;
+import io.aeron.samples.infra.TimerAction;
 import io.aeron.samples.infra.TimerManager;
+import org.agrona.DirectBuffer;
+import org.agrona.collections.IntArrayList;
+import org.agrona.collections.Long2ObjectHashMap;
+import org.agrona.collections.LongArrayList;
 import org.agrona.collections.MutableLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
-import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -35,15 +38,30 @@ import java.util.concurrent.TimeUnit;
  */
 public class Auctions
 {
+    /**
+     * The time after an auction ends at which it is removed
+     */
+    public static final long REMOVAL_TIMER_DURATION = TimeUnit.SECONDS.toMillis(60);
     private static final Logger LOGGER = LoggerFactory.getLogger(Auctions.class);
     private static final long MINIMUM_DURATION = TimeUnit.SECONDS.toMillis(20);
-    private static final long REMOVAL_TIMER_DURATION = TimeUnit.SECONDS.toMillis(60);
+    private static final long PROXY_BID_INCREMENT = 1;
+    private static final int MAX_PAGE_SIZE = 50;
+    private static final int MAX_SCANNED_PER_PAGE = 1_000;
     private final SessionMessageContext context;
     private final ClusterClientResponder clusterClientResponder;
     private final TimerManager timerManager;
     private final Participants participants;
-    private final List<Auction> auctionList;
+    private final AuctionStore auctionStore = new AuctionStore();
+    private final Auction auction = new Auction();
+    private final BidHistoryStore bidHistoryStore = new BidHistoryStore();
+    private final BidHistory bidHistory = new BidHistory();
+    private final Long2ObjectHashMap<ProxyBids> proxyBidsByAuctionId = new Long2ObjectHashMap<>();
+    private final LongArrayList batchUpdatedAuctionIds = new LongArrayList();
+    private final LongArrayList batchAddedAuctionIds = new LongArrayList();
+    private final IntArrayList pageIndexes = new IntArrayList();
+    private final AuctionChangeIndex changeIndex = new AuctionChangeIndex();
     private final MutableLong idGenerator = new MutableLong(0);
+    private long stateVersion;
 
     /**
      * Constructor
@@ -62,7 +80,6 @@ public class Auctions
         this.context = context;
         this.clusterClientResponder = clusterClientResponder;
         this.timerManager = timerManager;
-        this.auctionList = new ArrayList<>();
         this.participants = participants;
     }
 
@@ -74,16 +91,16 @@ public class Auctions
      * @param startTime              the start time of the auction. Bids cannot be added before this time.
      * @param endTime                the end time of the auction, at which time no more bids can be added and the result
      *                               is computed
-     * @param name                   the name of the auction
-     * @param description            the description
+     * @param name                   the UTF-8 encoded name of the auction
+     * @param description            the UTF-8 encoded description
      */
     public void addAuction(
         final long createdByParticipantId,
         final long startTime,
         final long endTime,
-        final String correlationId,
-        final String name,
-        final String description)
+        final DirectBuffer correlationId,
+        final DirectBuffer name,
+        final DirectBuffer description)
     {
         final var result = validate(createdByParticipantId, startTime, endTime, name, description);
 
@@ -93,24 +110,77 @@ public class Auctions
             return;
         }
 
-        final var auctionId = idGenerator.incrementAndGet();
-
-        LOGGER.info("Creating new auction '{}' with id {}", name, auctionId);
+        final var auctionId = insertAuction(createdByParticipantId, startTime, endTime, name, description);
 
-        final var auction = new Auction(auctionId, createdByParticipantId, startTime, endTime, name, description,
-            -1L);
-        auctionList.add(auction);
+        LOGGER.info("Creating new auction with id {}", auctionId);
 
         clusterClientResponder.onAuctionAdded(correlationId, auctionId, result, startTime, endTime, name, description);
+    }
+
+    /**
+     * Starts a batch of auctions submitted as a single command. Each auction is then added with
+     * {@link #addBatchedAuction(long, long, long, DirectBuffer, DirectBuffer)} and the batch completed with
+     * {@link #endAuctionBatch()}.
+     *
+     * @param correlationId the correlation id for this request
+     * @param auctionCount  the number of auctions in the batch
+     */
+    public void beginAuctionBatch(final DirectBuffer correlationId, final int auctionCount)
+    {
+        batchAddedAuctionIds.clear();
+        clusterClientResponder.beginAddAuctionBatch(correlationId, auctionCount);
+    }
+
+    /**
+     * Validates and adds the next auction of a batch, exactly as a single auction would be. The result is added to the
+     * batch result rather than sent, and the new auction is broadcast with the others at the end of the batch.
+     *
+     * @param createdByParticipantId the participant who created the auction
+     * @param startTime              the start time of the auction
+     * @param endTime                the end time of the auction
+     * @param name                   the UTF-8 encoded name of the auction
+     * @param description            the UTF-8 encoded description
+     */
+    public void addBatchedAuction(
+        final long createdByParticipantId,
+        final long startTime,
+        final long endTime,
+        final DirectBuffer name,
+        final DirectBuffer description)
+    {
+        final var result = validate(createdByParticipantId, startTime, endTime, name, description);
+        if (result != AddAuctionResult.SUCCESS)
+        {
+            clusterClientResponder.onBatchedAuctionResult(-1L, result);
+            return;
+        }
 
-        final var startCorrelationId = timerManager.scheduleTimer(startTime, () -> openAuction(auctionId));
-        final var endCorrelationId = timerManager.scheduleTimer(endTime, () -> closeAuction(auctionId));
-        final var removeCorrelationId = timerManager.scheduleTimer(
-            endTime + REMOVAL_TIMER_DURATION, () -> removeAuction(auctionId));
+        final var auctionId = insertAuction(createdByParticipantId, startTime, endTime, name, description);
+        batchAddedAuctionIds.addLong(auctionId);
+        clusterClientResponder.onBatchedAuctionResult(auctionId, result);
+    }
 
-        auction.setStartTimerCorrelationId(startCorrelationId);
-        auction.setEndTimerCorrelationId(endCorrelationId);
-        auction.setRemovalTimerCorrelationId(removeCorrelationId);
+    /**
+     * Completes a batch of auctions, replying with the result of every auction in one message, then broadcasting the
+     * auctions added in a single event
+     */
+    public void endAuctionBatch()
+    {
+        clusterClientResponder.endAddAuctionBatch();
+        final int addedCount = batchAddedAuctionIds.size();
+        if (addedCount > 0)
+        {
+            LOGGER.info("Created {} auctions with ids {} to {}", addedCount, batchAddedAuctionIds.getLong(0),
+                batchAddedAuctionIds.getLong(addedCount - 1));
+            clusterClientResponder.beginNewAuctionBatch(addedCount);
+            for (int i = 0; i < addedCount; i++)
+            {
+                auctionStore.wrap(batchAddedAuctionIds.getLong(i), auction);
+                clusterClientResponder.onBatchedNewAuction(auction);
+            }
+            clusterClientResponder.endNewAuctionBatch();
+        }
+        batchAddedAuctionIds.clear();
     }
 
     /**
@@ -139,15 +209,103 @@ public class Auctions
         final String name,
         final String description)
     {
-        final var auction = new Auction(
-            auctionId, createdByParticipantId, startTime, endTime, name, description, winningParticipantId);
-        auctionList.add(auction);
+        freeBidHistory(auctionId);
+        auctionStore.add(
+            auctionId, createdByParticipantId, startTime, endTime, name, description, winningParticipantId, auction);
+        restoreTimerCorrelationIds(startTimerTimerCorrelationId, endTimerTimerCorrelationId,
+            removeTimerTimerCorrelationId);
+    }
+
+    /**
+     * Loads an auction from the snapshot, copying the UTF-8 encoded name and description straight from buffers which
+     * hold only those bytes, such as ones wrapped over the snapshot message, so no strings are decoded
+     *
+     * @param auctionId                     the auction id
+     * @param createdByParticipantId        the participant who created the auction
+     * @param startTime                     the start time of the auction
+     * @param startTimerTimerCorrelationId  the timer correlation id for the start timer
+     * @param endTime                       the end time of the auction
+     * @param endTimerTimerCorrelationId    the timer correlation id for the end timer
+     * @param removeTimerTimerCorrelationId the timer correlation id for the removal timer
+     * @param winningParticipantId          the winning participant id
+     * @param name                          the UTF-8 encoded name of the auction
+     * @param description                   the UTF-8 encoded description
+     */
+    public void restoreAuction(
+        final long auctionId,
+        final long createdByParticipantId,
+        final long startTime,
+        final long startTimerTimerCorrelationId,
+        final long endTime,
+        final long endTimerTimerCorrelationId,
+        final long removeTimerTimerCorrelationId,
+        final long winningParticipantId,
+        final DirectBuffer name,
+        final DirectBuffer description)
+    {
+        freeBidHistory(auctionId);
+        auctionStore.add(
+            auctionId, createdByParticipantId, startTime, endTime, name, description, winningParticipantId, auction);
+        restoreTimerCorrelationIds(startTimerTimerCorrelationId, endTimerTimerCorrelationId,
+            removeTimerTimerCorrelationId);
+    }
+
+    /**
+     * Grows the auction and bid history stores so that a snapshot of the given size loads without growing them again
+     *
+     * @param auctionCount    the number of auctions
+     * @param stringLength    the number of bytes of UTF-8 encoded auction names and descriptions
+     * @param bidHistoryCount the number of auctions with a bid history
+     */
+    public void ensureCapacity(final int auctionCount, final int stringLength, final int bidHistoryCount)
+    {
+        auctionStore.ensureCapacity(auctionCount, stringLength);
+        bidHistoryStore.ensureCapacity(bidHistoryCount);
+    }
+
+    /**
+     * Gets the number of bytes of UTF-8 encoded auction names and descriptions held; used for snapshotting
+     * @return the string length in bytes
+     */
+    public int getAuctionStringLength()
+    {
+        return auctionStore.stringLength();
+    }
 
-        //Aeron Cluster is already snapshotting the cluster timer state, so we just need to rehydrate the internal
-        //state of the TimerManager on snapshot restore.
-        timerManager.restoreTimer(startTimerTimerCorrelationId, () -> openAuction(auctionId));
-        timerManager.restoreTimer(endTimerTimerCorrelationId, () -> closeAuction(auctionId));
-        timerManager.restoreTimer(removeTimerTimerCorrelationId, () -> removeAuction(auctionId));
+    /**
+     * Gets the number of auctions with a bid history; used for snapshotting
+     * @return the number of bid histories
+     */
+    public int getBidHistoryCount()
+    {
+        return bidHistoryStore.ringCount();
+    }
+
+    /**
+     * Restores the status and bidding state of an auction loaded with {@link #restoreAuction}, from a snapshot which
+     * holds the complete auction state, so an auction which had already opened or closed carries on from where it was
+     *
+     * @param auctionId           the auction id
+     * @param status              the auction status
+     * @param currentPrice        the current price
+     * @param bidCount            the number of bids
+     * @param lastUpdateTime      the time the winning bid was added
+     * @param lastModifiedVersion the state version at which the auction was last added or changed
+     */
+    public void restoreAuctionState(
+        final long auctionId,
+        final AuctionStatus status,
+        final long currentPrice,
+        final int bidCount,
+        final long lastUpdateTime,
+        final long lastModifiedVersion)
+    {
+        if (auctionStore.wrap(auctionId, auction))
+        {
+            auction.setAuctionStatus(status);
+            auction.setBidState(currentPrice, bidCount, lastUpdateTime);
+            auction.setLastModifiedVersion(lastModifiedVersion);
+        }
     }
 
     /**
@@ -170,21 +328,56 @@ public class Auctions
         return idGenerator.get();
     }
 
+    /**
+     * Restores the state version from snapshot. Auctions already restored are treated as last modified at this version,
+     * and the changes before it are not known, so a client which has seen an earlier version must list the auctions
+     * again. Snapshots holding the complete auction state restore the version first, and then each auction's own.
+     *
+     * @param version the state version
+     */
+    public void restoreStateVersion(final long version)
+    {
+        LOGGER.info("State version restored to {}", version);
+        stateVersion = version;
+        changeIndex.reset(version);
+        for (int i = 0; i < auctionStore.size(); i++)
+        {
+            auctionStore.get(i).setLastModifiedVersion(version);
+        }
+    }
+
+    /**
+     * Gets the current state version, which is moved on whenever an auction is added, bid on, transitioned or
+     * removed; used for snapshotting
+     * @return the state version
+     */
+    public long getStateVersion()
+    {
+        return stateVersion;
+    }
+
+    /**
+     * Determines if an auction is known
+     * @param auctionId the auction id
+     * @return true if known, false if not
+     */
+    public boolean isKnownAuction(final long auctionId)
+    {
+        return auctionStore.contains(auctionId);
+    }
+
     /**
      * Opens an auction if it was in the PRE_OPEN state and is known.
      * @param auctionId the auction id
      */
     public void openAuction(final long auctionId)
     {
-        final var optionalAuction = getAuctionById(auctionId);
-        if (optionalAuction.isEmpty())
+        if (!auctionStore.wrap(auctionId, auction))
         {
             LOGGER.error("Unknown auction id {}, cannot transition from PRE_OPEN to OPEN", auctionId);
             return;
         }
 
-        final var auction = optionalAuction.get();
-
         if (auction.getStartTime() > context.getClusterTime())
         {
             LOGGER.error("Auction {} start time is not yet reached, cannot transition to closed", auctionId);
@@ -194,7 +387,7 @@ public class Auctions
         if (transitionAuction(auction, AuctionStatus.PRE_OPEN, AuctionStatus.OPEN))
         {
             LOGGER.info("Opening auction with id {}", auctionId);
-            broadcastStateUpdate(auctionId);
+            broadcastStateUpdate(auction);
         }
     }
 
@@ -204,15 +397,12 @@ public class Auctions
      */
     public void closeAuction(final long auctionId)
     {
-        final var optionalAuction = getAuctionById(auctionId);
-        if (optionalAuction.isEmpty())
+        if (!auctionStore.wrap(auctionId, auction))
         {
             LOGGER.error("Unknown auction id {}, cannot transition from OPEN to CLOSED", auctionId);
             return;
         }
 
-        final var auction = optionalAuction.get();
-
         if (auction.getEndTime() > context.getClusterTime())
         {
             LOGGER.error("Auction {} end time is not yet reached, cannot transition to closed", auctionId);
@@ -222,7 +412,8 @@ public class Auctions
         if (transitionAuction(auction, AuctionStatus.OPEN, AuctionStatus.CLOSED))
         {
             LOGGER.info("Closing auction with id {}", auctionId);
-            broadcastStateUpdate(auctionId);
+            proxyBidsByAuctionId.remove(auctionId);
+            broadcastStateUpdate(auction);
         }
 
     }
@@ -234,7 +425,66 @@ public class Auctions
     public void removeAuction(final long auctionId)
     {
         LOGGER.info("Removing auction with id {}", auctionId);
-        auctionList.removeIf(auction -> auction.getAuctionId() == auctionId);
+        freeBidHistory(auctionId);
+        proxyBidsByAuctionId.remove(auctionId);
+        context.removeSubscriptions(auctionId);
+        if (auctionStore.remove(auctionId))
+        {
+            changeIndex.onRemoved(++stateVersion, auctionId);
+        }
+    }
+
+    /**
+     * Restores a retained bid of an auction from the snapshot, oldest first. The auction's current price and winning
+     * participant are not changed.
+     * @param auctionId     the auction id
+     * @param participantId the participant who made the bid
+     * @param price         the price of the bid
+     * @param time          the cluster time of the bid
+     */
+    public void restoreBid(final long auctionId, final long participantId, final long price, final long time)
+    {
+        if (auctionStore.wrap(auctionId, auction))
+        {
+            recordBid(auction, participantId, price, time);
+        }
+    }
+
+    /**
+     * Returns the highest bids of an auction to the requesting client. Since a bid must improve on the current price,
+     * these are the most recent retained bids.
+     * @param auctionId     the auction id
+     * @param depth         the maximum number of bids to return
+     * @param correlationId the correlation id for this request
+     */
+    public void returnBidHistory(final long auctionId, final int depth, final DirectBuffer correlationId)
+    {
+        if (!auctionStore.wrap(auctionId, auction))
+        {
+            clusterClientResponder.rejectAuctionBidHistory(correlationId, auctionId);
+            return;
+        }
+        clusterClientResponder.returnAuctionBidHistory(correlationId, auction, getBidHistory(auction), depth);
+    }
+
+    /**
+     * Gets the retained bids of an auction, most recent and highest first. The history is a reusable flyweight, so it
+     * is only valid until the next bid is recorded or the history of another auction is read.
+     * @param auction the auction
+     * @return the bid history
+     */
+    public BidHistory getBidHistory(final Auction auction)
+    {
+        final int slot = auction.getBidHistorySlot();
+        if (Auction.NULL_BID_HISTORY_SLOT == slot)
+        {
+            bidHistory.wrapEmpty();
+        }
+        else
+        {
+            bidHistory.wrap(bidHistoryStore, slot);
+        }
+        return bidHistory;
     }
 
     /**
@@ -258,6 +508,7 @@ public class Auctions
             return false;
         }
         auction.setAuctionStatus(newStatus);
+        markChanged(auction);
         return true;
     }
 
@@ -269,42 +520,330 @@ public class Auctions
      * @param price         the price of the bid, in whole cents
      * @param correlationId the correlation id for this request
      */
-    public void addBid(final long auctionId, final long participantId, final long price, final String correlationId)
+    public void addBid(
+        final long auctionId,
+        final long participantId,
+        final long price,
+        final DirectBuffer correlationId)
     {
-        final var optionalAuction = getAuctionById(auctionId);
-        if (optionalAuction.isEmpty())
+        final var result = applyBid(auctionId, participantId, price);
+        if (result != AddAuctionBidResult.SUCCESS)
         {
-            clusterClientResponder.rejectAddBid(correlationId, auctionId, AddAuctionBidResult.UNKNOWN_AUCTION);
+            clusterClientResponder.rejectAddBid(correlationId, auctionId, result);
             return;
         }
 
-        final var auction = optionalAuction.get();
-        final var validationResult = validateBid(auction, participantId, price);
+        clusterClientResponder.onAuctionUpdated(
+            correlationId, auction.getAuctionId(), auction.getAuctionStatus(), auction.getCurrentPrice(),
+            auction.getBidCount(), auction.getLastUpdateTime(), auction.getWinningParticipantId());
+    }
+
+    /**
+     * Starts a batch of bids submitted as a single command. Each bid is then added with
+     * {@link #addBatchedBid(long, long, long)} and the batch completed with {@link #endBidBatch()}.
+     *
+     * @param correlationId the correlation id for this request
+     * @param bidCount      the number of bids in the batch
+     */
+    public void beginBidBatch(final DirectBuffer correlationId, final int bidCount)
+    {
+        batchUpdatedAuctionIds.clear();
+        clusterClientResponder.beginAddBidBatch(correlationId, bidCount);
+    }
+
+    /**
+     * Adds the next bid of a batch, validated and applied exactly as a single bid would be. The result is added to the
+     * batch result rather than sent, and the state update of the auction is deferred to the end of the batch.
+     *
+     * @param auctionId     the auction id
+     * @param participantId the participant who is bidding
+     * @param price         the price of the bid, in whole cents
+     */
+    public void addBatchedBid(final long auctionId, final long participantId, final long price)
+    {
+        final var result = applyBid(auctionId, participantId, price);
+        if (result == AddAuctionBidResult.SUCCESS && !batchUpdatedAuctionIds.containsLong(auctionId))
+        {
+            batchUpdatedAuctionIds.addLong(auctionId);
+        }
+        clusterClientResponder.onBatchedBidResult(auctionId, result);
+    }
+
+    /**
+     * Completes a batch of bids, replying with the result of every bid in one message, then broadcasting one state
+     * update for each auction the batch changed, with its final state, in the order the auctions were first bid on.
+     */
+    public void endBidBatch()
+    {
+        clusterClientResponder.endAddBidBatch();
+        for (int i = 0; i < batchUpdatedAuctionIds.size(); i++)
+        {
+            if (auctionStore.wrap(batchUpdatedAuctionIds.getLong(i), auction))
+            {
+                broadcastStateUpdate(auction);
+            }
+        }
+        batchUpdatedAuctionIds.clear();
+    }
+
+    /**
+     * Registers a standing proxy bid, which bids on behalf of the participant up to a maximum price, replacing any
+     * proxy bid the participant already holds on the auction. The proxy bids of the auction are then resolved at once,
+     * so a bidding war between proxies costs a single command rather than one bid per price step.
+     *
+     * @param auctionId     the auction id
+     * @param participantId the participant who is bidding
+     * @param maxPrice      the maximum price the participant will pay, in whole cents
+     * @param correlationId the correlation id for this request
+     */
+    public void registerProxyBid(
+        final long auctionId,
+        final long participantId,
+        final long maxPrice,
+        final DirectBuffer correlationId)
+    {
+        if (!auctionStore.wrap(auctionId, auction))
+        {
+            clusterClientResponder.onProxyBidRegistered(correlationId, auctionId, AddAuctionBidResult.UNKNOWN_AUCTION);
+            return;
+        }
+        final var validationResult = validateBid(auction, participantId, maxPrice);
         if (validationResult != AddAuctionBidResult.SUCCESS)
         {
-            logValidationResult(auctionId, participantId, price, validationResult);
-            clusterClientResponder.rejectAddBid(correlationId, auctionId, validationResult);
+            logValidationResult(auctionId, participantId, maxPrice, validationResult);
+            clusterClientResponder.onProxyBidRegistered(correlationId, auctionId, validationResult);
             return;
         }
 
-        LOGGER.info("Price improvement bid of {} is now winning auction with id {}", price, auctionId);
-        auction.setWinningBid(participantId, price, context.getClusterTime());
+        ProxyBids proxyBids = proxyBidsByAuctionId.get(auctionId);
+        if (null == proxyBids)
+        {
+            proxyBids = new ProxyBids();
+            proxyBidsByAuctionId.put(auctionId, proxyBids);
+        }
+        proxyBids.put(participantId, maxPrice);
 
-        clusterClientResponder.onAuctionUpdated(
-            correlationId, auction.getAuctionId(), auction.getAuctionStatus(), auction.getCurrentPrice(),
-            auction.getBidCount(), auction.getLastUpdateTime(), auction.getWinningParticipantId());
+        final boolean updated = resolveProxyBids(auction);
+        clusterClientResponder.onProxyBidRegistered(correlationId, auctionId, AddAuctionBidResult.SUCCESS);
+        if (updated)
+        {
+            markChanged(auction);
+            broadcastStateUpdate(auction);
+        }
+    }
+
+    /**
+     * Cancels the standing proxy bid of a participant. Bids the proxy has already made stand.
+     *
+     * @param auctionId     the auction id
+     * @param participantId the participant whose proxy bid is cancelled
+     * @param correlationId the correlation id for this request
+     */
+    public void cancelProxyBid(final long auctionId, final long participantId, final DirectBuffer correlationId)
+    {
+        if (!auctionStore.contains(auctionId))
+        {
+            clusterClientResponder.onProxyBidCancelled(correlationId, auctionId, AddAuctionBidResult.UNKNOWN_AUCTION);
+            return;
+        }
+
+        final ProxyBids proxyBids = proxyBidsByAuctionId.get(auctionId);
+        if (null == proxyBids || !proxyBids.remove(participantId))
+        {
+            clusterClientResponder.onProxyBidCancelled(correlationId, auctionId, AddAuctionBidResult.NO_PROXY_BID);
+            return;
+        }
+        if (0 == proxyBids.size())
+        {
+            proxyBidsByAuctionId.remove(auctionId);
+        }
+        clusterClientResponder.onProxyBidCancelled(correlationId, auctionId, AddAuctionBidResult.SUCCESS);
+    }
+
+    /**
+     * Subscribes the requesting session to the updates of an auction, or of every auction. Subscribing again is not
+     * an error, and sets whether the session receives every update or conflated updates.
+     *
+     * @param auctionId     the auction id, or {@link AuctionSubscriptions#ALL_AUCTIONS} for every auction
+     * @param conflated     true for the latest state of the session's auctions at a bounded rate, false for every
+     *                      update
+     * @param correlationId the correlation id for this request
+     */
+    public void subscribe(final long auctionId, final boolean conflated, final DirectBuffer correlationId)
+    {
+        if (AuctionSubscriptions.ALL_AUCTIONS != auctionId && !auctionStore.contains(auctionId))
+        {
+            clusterClientResponder.onSubscriptionChanged(
+                correlationId, auctionId, false, AddAuctionBidResult.UNKNOWN_AUCTION);
+            return;
+        }
+
+        context.subscribe(auctionId, conflated);
+        clusterClientResponder.onSubscriptionChanged(correlationId, auctionId, true, AddAuctionBidResult.SUCCESS);
+    }
+
+    /**
+     * Unsubscribes the requesting session from the updates of an auction, or of every auction. Since the
+     * subscriptions to an auction end when it is removed, unsubscribing from an unknown auction is not an error.
+     *
+     * @param auctionId     the auction id, or {@link AuctionSubscriptions#ALL_AUCTIONS} for every auction
+     * @param correlationId the correlation id for this request
+     */
+    public void unsubscribe(final long auctionId, final DirectBuffer correlationId)
+    {
+        context.unsubscribe(auctionId);
+        clusterClientResponder.onSubscriptionChanged(correlationId, auctionId, false, AddAuctionBidResult.SUCCESS);
+    }
+
+    /**
+     * Gets the standing proxy bids of an auction; used for snapshotting
+     * @param auctionId the auction id
+     * @return the proxy bids, or null if the auction has none
+     */
+    public ProxyBids getProxyBids(final long auctionId)
+    {
+        return proxyBidsByAuctionId.get(auctionId);
     }
 
+    /**
+     * Restores a standing proxy bid from the snapshot, in registration order. The auction's current price and winning
+     * participant are not changed.
+     * @param auctionId     the auction id
+     * @param participantId the participant who registered the proxy bid
+     * @param maxPrice      the maximum price of the proxy bid
+     */
+    public void restoreProxyBid(final long auctionId, final long participantId, final long maxPrice)
+    {
+        if (!auctionStore.contains(auctionId))
+        {
+            return;
+        }
+        ProxyBids proxyBids = proxyBidsByAuctionId.get(auctionId);
+        if (null == proxyBids)
+        {
+            proxyBids = new ProxyBids();
+            proxyBidsByAuctionId.put(auctionId, proxyBids);
+        }
+        proxyBids.put(participantId, maxPrice);
+    }
 
     /**
-     * Gets the list of auctions after sorting it by auction id
+     * Gets the list of auctions, which is kept sorted by auction id as auctions are added and removed.
+     * The list returns a reusable {@link Auction} flyweight, so each element is only valid until the next is read.
      *
      * @return the list of auctions
      */
     public List<Auction> getAuctionList()
     {
-        auctionList.sort(Comparator.comparingLong(Auction::getAuctionId));
-        return auctionList;
+        return auctionStore;
+    }
+
+    /**
+     * Replies with a page of auctions in auction id order, starting after the given auction id. A page holds at most
+     * {@value #MAX_PAGE_SIZE} auctions and examines at most {@value #MAX_SCANNED_PER_PAGE}, so a selective filter
+     * over a large store may return a short or empty page along with a cursor to continue from.
+     *
+     * @param startAfterAuctionId    the auction id to start after, from the previous page or 0 for the first page
+     * @param pageSize               the requested number of auctions
+     * @param status                 the status to filter by, or null for any status
+     * @param createdByParticipantId the creator to filter by, or -1 for any creator
+     * @param correlationId          the correlation id
+     */
+    public void listAuctionPage(
+        final long startAfterAuctionId,
+        final int pageSize,
+        final AuctionStatus status,
+        final long createdByParticipantId,
+        final DirectBuffer correlationId)
+    {
+        final int pageLimit = Math.max(1, Math.min(pageSize, MAX_PAGE_SIZE));
+        final int size = auctionStore.size();
+        int index = auctionStore.indexAfter(startAfterAuctionId);
+        final int scanLimit = (int)Math.min(size, (long)index + MAX_SCANNED_PER_PAGE);
+
+        pageIndexes.clear();
+        while (index < scanLimit && pageIndexes.size() < pageLimit)
+        {
+            final Auction listed = auctionStore.get(index);
+            if ((null == status || status == listed.getAuctionStatus()) &&
+                (-1 == createdByParticipantId || createdByParticipantId == listed.getCreatedByParticipantId()))
+            {
+                pageIndexes.addInt(index);
+            }
+            index++;
+        }
+
+        //the cursor is the last auction examined, which need not have matched the filters
+        final long nextStartAfterAuctionId = index < size ? auctionStore.get(index - 1).getAuctionId() : -1L;
+
+        clusterClientResponder.beginAuctionPage(correlationId, pageIndexes.size(), nextStartAfterAuctionId);
+        for (int i = 0; i < pageIndexes.size(); i++)
+        {
+            clusterClientResponder.onPagedAuction(auctionStore.get(pageIndexes.getInt(i)));
+        }
+        clusterClientResponder.endAuctionPage();
+    }
+
+    /**
+     * Replies with the auctions added or changed, and the ids of those removed, since the given state version, in the
+     * order of the changes. The cost is in proportion to the number of changes rather than the number of auctions.
+     * A reply holds at most {@value #MAX_PAGE_SIZE} changes and examines at most {@value #MAX_SCANNED_PER_PAGE}, and
+     * carries the version it is complete to, from which the client asks again. If the changes since the version are
+     * no longer known, the reply is empty and asks the client to list the auctions afresh.
+     *
+     * @param sinceVersion  the version the client has seen, or 0 for every auction
+     * @param correlationId the correlation id
+     */
+    public void listAuctionChanges(final long sinceVersion, final DirectBuffer correlationId)
+    {
+        if (sinceVersion < changeIndex.floorVersion())
+        {
+            clusterClientResponder.beginAuctionChanges(correlationId, stateVersion, true, 0, 0);
+            clusterClientResponder.endAuctionChanges();
+            return;
+        }
+
+        final int size = changeIndex.size();
+        int index = changeIndex.indexAfter(sinceVersion);
+        final int scanLimit = (int)Math.min(size, (long)index + MAX_SCANNED_PER_PAGE);
+        int removedCount = 0;
+
+        pageIndexes.clear();
+        while (index < scanLimit && pageIndexes.size() < MAX_PAGE_SIZE)
+        {
+            if (changeIndex.isCurrent(index))
+            {
+                pageIndexes.addInt(index);
+                if (changeIndex.isRemoval(index))
+                {
+                    removedCount++;
+                }
+            }
+            index++;
+        }
+
+        final long toVersion = index < size ? changeIndex.version(index - 1) : stateVersion;
+        clusterClientResponder.beginAuctionChanges(
+            correlationId, toVersion, false, pageIndexes.size() - removedCount, removedCount);
+        for (int i = 0; i < pageIndexes.size(); i++)
+        {
+            final int entry = pageIndexes.getInt(i);
+            if (!changeIndex.isRemoval(entry) &&
+                auctionStore.wrap(changeIndex.auctionId(entry), auction))
+            {
+                clusterClientResponder.onChangedAuction(auction);
+            }
+        }
+        for (int i = 0; i < pageIndexes.size(); i++)
+        {
+            final int entry = pageIndexes.getInt(i);
+            if (changeIndex.isRemoval(entry))
+            {
+                clusterClientResponder.onRemovedAuction(
+                    changeIndex.auctionId(entry), changeIndex.version(entry));
+            }
+        }
+        clusterClientResponder.endAuctionChanges();
     }
 
     /**
@@ -320,8 +859,8 @@ public class Auctions
         final long createdByParticipantId,
         final long startTime,
         final long endTime,
-        final String name,
-        final String description)
+        final DirectBuffer name,
+        final DirectBuffer description)
     {
         if (startTime <= context.getClusterTime())
         {
@@ -339,11 +878,11 @@ public class Auctions
         {
             return AddAuctionResult.UNKNOWN_PARTICIPANT;
         }
-        if (name == null || name.isBlank())
+        if (name == null || isBlank(name))
         {
             return AddAuctionResult.INVALID_NAME;
         }
-        if (description == null || description.isBlank())
+        if (description == null || isBlank(description))
         {
             return AddAuctionResult.INVALID_DESCRIPTION;
         }
@@ -387,31 +926,207 @@ public class Auctions
     }
 
     /**
-     * Gets an auction by id
-     * @param auctionId the auction id
-     * @return the auction within an Optional
+     * Inserts a validated auction with the next auction id and schedules its open, close and removal timers, which the
+     * timer manager coalesces with those of any other auction due at the same time. The auction flyweight is left
+     * wrapped over the new auction.
+     *
+     * @param createdByParticipantId the participant who created the auction
+     * @param startTime              the start time of the auction
+     * @param endTime                the end time of the auction
+     * @param name                   the UTF-8 encoded name of the auction
+     * @param description            the UTF-8 encoded description
+     * @return the auction id
      */
-    private Optional<Auction> getAuctionById(final long auctionId)
+    private long insertAuction(
+        final long createdByParticipantId,
+        final long startTime,
+        final long endTime,
+        final DirectBuffer name,
+        final DirectBuffer description)
     {
-        return auctionList.stream().filter(a -> a.getAuctionId() == auctionId).findFirst();
+        final var auctionId = idGenerator.incrementAndGet();
+        auctionStore.add(auctionId, createdByParticipantId, startTime, endTime, name, description, -1L, auction);
+
+        auction.setStartTimerCorrelationId(timerManager.scheduleTimer(startTime, TimerAction.OPEN_AUCTION, auctionId));
+        auction.setEndTimerCorrelationId(timerManager.scheduleTimer(endTime, TimerAction.CLOSE_AUCTION, auctionId));
+        auction.setRemovalTimerCorrelationId(timerManager.scheduleTimer(
+            endTime + REMOVAL_TIMER_DURATION, TimerAction.REMOVE_AUCTION, auctionId));
+        markChanged(auction);
+        return auctionId;
     }
 
     /**
-     * Broadcasts the state update to all cluster clients
+     * Moves the state version on and records that the auction changed at the new version
+     * @param auction the auction which was added or changed
+     */
+    private void markChanged(final Auction auction)
+    {
+        auction.setLastModifiedVersion(++stateVersion);
+        changeIndex.onChanged(stateVersion, auction.getAuctionId());
+    }
+
+    /**
+     * Validates a bid and, if valid, makes it the winning bid and resolves any proxy bids against it. The auction
+     * flyweight is left wrapped over the auction, if known.
+     *
+     * @param auctionId     the auction id
+     * @param participantId the participant who is bidding
+     * @param price         the price of the bid
+     * @return the result of the bid
+     */
+    private AddAuctionBidResult applyBid(final long auctionId, final long participantId, final long price)
+    {
+        if (!auctionStore.wrap(auctionId, auction))
+        {
+            return AddAuctionBidResult.UNKNOWN_AUCTION;
+        }
+        final var validationResult = validateBid(auction, participantId, price);
+        if (validationResult != AddAuctionBidResult.SUCCESS)
+        {
+            logValidationResult(auctionId, participantId, price, validationResult);
+            return validationResult;
+        }
+
+        if (LOGGER.isDebugEnabled())
+        {
+            LOGGER.debug("Price improvement bid of {} is now winning auction with id {}", price, auctionId);
+        }
+        auction.setWinningBid(participantId, price, context.getClusterTime());
+        recordBid(auction, participantId, price, auction.getLastUpdateTime());
+        resolveProxyBids(auction);
+        markChanged(auction);
+        return AddAuctionBidResult.SUCCESS;
+    }
+
+    /**
+     * Records a bid in the auction's history ring, allocating the ring on the first bid
+     * @param auction       the auction
+     * @param participantId the participant who made the bid
+     * @param price         the price of the bid
+     * @param time          the cluster time of the bid
+     */
+    private void recordBid(final Auction auction, final long participantId, final long price, final long time)
+    {
+        int slot = auction.getBidHistorySlot();
+        if (Auction.NULL_BID_HISTORY_SLOT == slot)
+        {
+            slot = bidHistoryStore.allocate();
+            auction.setBidHistorySlot(slot);
+        }
+        bidHistoryStore.record(slot, participantId, price, time);
+    }
+
+    /**
+     * Resolves the standing proxy bids of an auction in a single step, as if each proxy had bid up in increments until
+     * all but one reached its maximum. The proxy with the highest maximum, the earliest registered winning a tie, wins
+     * at one increment over the second highest maximum or the current price, capped at its own maximum. The runner-up
+     * proxy's final bid at its maximum is recorded first, so the bid history still reads as a sequence of rising bids.
+     * Proxies which can no longer beat the current price are then dropped.
+     *
+     * @param auction the auction, which must be open
+     * @return true if the current price or winning participant changed, false otherwise
+     */
+    private boolean resolveProxyBids(final Auction auction)
+    {
+        final ProxyBids proxyBids = proxyBidsByAuctionId.get(auction.getAuctionId());
+        if (null == proxyBids)
+        {
+            return false;
+        }
+
+        final int highest = proxyBids.highestIndex();
+        final long highestParticipantId = proxyBids.participantId(highest);
+        final long highestMaxPrice = proxyBids.maxPrice(highest);
+        final int second = proxyBids.highestIndexExcluding(highest);
+        final long secondMaxPrice = second < 0 ? 0 : proxyBids.maxPrice(second);
+        final long time = context.getClusterTime();
+        boolean updated = false;
+
+        if (secondMaxPrice > auction.getCurrentPrice() && secondMaxPrice < highestMaxPrice)
+        {
+            final long secondParticipantId = proxyBids.participantId(second);
+            auction.setWinningBid(secondParticipantId, secondMaxPrice, time);
+            recordBid(auction, secondParticipantId, secondMaxPrice, time);
+            updated = true;
+        }
+
+        final long competingPrice = highestParticipantId == auction.getWinningParticipantId() ?
+            secondMaxPrice : Math.max(secondMaxPrice, auction.getCurrentPrice());
+        final long price = Math.min(highestMaxPrice, competingPrice + PROXY_BID_INCREMENT);
+        if (price > auction.getCurrentPrice())
+        {
+            auction.setWinningBid(highestParticipantId, price, time);
+            recordBid(auction, highestParticipantId, price, time);
+            updated = true;
+        }
+
+        proxyBids.removeExhausted(auction.getCurrentPrice(), auction.getWinningParticipantId());
+        if (0 == proxyBids.size())
+        {
+            proxyBidsByAuctionId.remove(auction.getAuctionId());
+        }
+        return updated;
+    }
+
+    /**
+     * Sets the timer correlation ids of the auction just restored into the flyweight, without scheduling any timers
+     * @param startTimerCorrelationId   the correlation id of the timer which opens the auction
+     * @param endTimerCorrelationId     the correlation id of the timer which closes the auction
+     * @param removalTimerCorrelationId the correlation id of the timer which removes the auction
+     */
+    private void restoreTimerCorrelationIds(
+        final long startTimerCorrelationId,
+        final long endTimerCorrelationId,
+        final long removalTimerCorrelationId)
+    {
+        //The TimerManager restores its own timer table from the snapshot, so only the correlation ids are kept here.
+        auction.setStartTimerCorrelationId(startTimerCorrelationId);
+        auction.setEndTimerCorrelationId(endTimerCorrelationId);
+        auction.setRemovalTimerCorrelationId(removalTimerCorrelationId);
+    }
+
+    /**
+     * Frees the bid history ring of an auction, if it is known and has one
      * @param auctionId the auction id
      */
-    private void broadcastStateUpdate(final long auctionId)
+    private void freeBidHistory(final long auctionId)
     {
-        final var optionalAuction = getAuctionById(auctionId);
-        if (optionalAuction.isPresent())
+        if (auctionStore.wrap(auctionId, auction) && Auction.NULL_BID_HISTORY_SLOT != auction.getBidHistorySlot())
         {
-            final var auction = optionalAuction.get();
-            clusterClientResponder.onAuctionStateUpdate(
-                auction.getAuctionId(), auction.getAuctionStatus(), auction.getCurrentPrice(), auction.getBidCount(),
-                auction.getLastUpdateTime(), auction.getWinningParticipantId());
+            bidHistoryStore.free(auction.getBidHistorySlot());
+            auction.setBidHistorySlot(Auction.NULL_BID_HISTORY_SLOT);
         }
     }
 
+    /**
+     * Determines if UTF-8 encoded text is empty or only whitespace, without decoding it to a String. Multibyte
+     * characters are never treated as whitespace.
+     * @param text the buffer holding only the encoded text
+     * @return true if blank, false otherwise
+     */
+    private static boolean isBlank(final DirectBuffer text)
+    {
+        for (int i = 0, length = text.capacity(); i < length; i++)
+        {
+            if (!Character.isWhitespace(text.getByte(i)))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Broadcasts the state update to all cluster clients
+     * @param auction the auction
+     */
+    private void broadcastStateUpdate(final Auction auction)
+    {
+        clusterClientResponder.onAuctionStateUpdate(
+            auction.getAuctionId(), auction.getAuctionStatus(), auction.getCurrentPrice(), auction.getBidCount(),
+            auction.getLastUpdateTime(), auction.getWinningParticipantId());
+    }
+
     /**
      * Logs the validation result
      * @param auctionId the auction id
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.aeron.samples.domain.auctions;
+
+import static io.aeron.samples.domain.auctions.BidHistoryStore.PARTICIPANT_ID_OFFSET;
+import static io.aeron.samples.domain.auctions.BidHistoryStore.PRICE_OFFSET;
+import static io.aeron.samples.domain.auctions.BidHistoryStore.TIME_OFFSET;
+
+/**
+ * The retained bids of an auction, most recent first.
+ * <p>
+ * A bid is only accepted if it improves on the current price, so the most recent bids are also the highest and the
+ * first N bids are the top N. This is a reusable flyweight over a ring held off-heap by the {@link BidHistoryStore},
+ * and is only valid until the next bid is recorded or auction is removed.
+ */
+public class BidHistory
+{
+    private BidHistoryStore store;
+    private int slot;
+    private int size;
+
+    /**
+     * Wraps this flyweight over a ring in the store
+     * @param store the store holding the ring
+     * @param slot  the slot of the ring
+     */
+    void wrap(final BidHistoryStore store, final int slot)
+    {
+        this.store = store;
+        this.slot = slot;
+        this.size = (int)Math.min(store.bidCount(slot), store.bidsPerAuction());
+    }
+
+    /**
+     * Wraps this flyweight as an empty history, for an auction with no bids
+     */
+    void wrapEmpty()
+    {
+        this.store = null;
+        this.slot = Auction.NULL_BID_HISTORY_SLOT;
+        this.size = 0;
+    }
+
+    /**
+     * Gets the number of retained bids
+     * @return the number of retained bids
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Gets the participant who made a retained bid
+     * @param index the index of the bid, where 0 is the most recent and highest
+     * @return the participant id
+     */
+    public long participantId(final int index)
+    {
+        return store.rings().getLong(bidOffset(index) + PARTICIPANT_ID_OFFSET);
+    }
+
+    /**
+     * Gets the price of a retained bid
+     * @param index the index of the bid, where 0 is the most recent and highest
+     * @return the price
+     */
+    public long price(final int index)
+    {
+        return store.rings().getLong(bidOffset(index) + PRICE_OFFSET);
+    }
+
+    /**
+     * Gets the cluster time of a retained bid
+     * @param index the index of the bid, where 0 is the most recent and highest
+     * @return the cluster time
+     */
+    public long time(final int index)
+    {
+        return store.rings().getLong(bidOffset(index) + TIME_OFFSET);
+    }
+
+    private int bidOffset(final int index)
+    {
+        if (index < 0 || index >= size)
+        {
+            throw new IndexOutOfBoundsException("index=" + index + " size=" + size);
+        }
+        return store.bidOffset(slot, index);
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.aeron.samples.domain.auctions;
+
+import org.agrona.BufferUtil;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Off-heap store of per-auction bid history, which holds the most recent bids of each auction in a fixed capacity ring
+ * within a slab of direct memory. Each ring is a bid counter followed by the participant, price and cluster time of
+ * each retained bid; once a ring is full the oldest bid is overwritten.
+ * <p>
+ * Rings are identified by slot, which the owning auction record holds. Slots of removed auctions are reused before the
+ * slab grows, so recording a bid never allocates once the slab has reached its working size.
+ */
+public final class BidHistoryStore
+{
+    /**
+     * The default number of bids retained for each auction
+     */
+    public static final int DEFAULT_BIDS_PER_AUCTION = 16;
+
+    static final int PARTICIPANT_ID_OFFSET = 0;
+    static final int PRICE_OFFSET = 8;
+    static final int TIME_OFFSET = 16;
+    static final int BID_LENGTH = 24;
+
+    private static final int BID_COUNT_OFFSET = 0;
+    private static final int HEADER_LENGTH = 8;
+    private static final int INITIAL_RING_CAPACITY = 64;
+
+    private final int bidsPerAuction;
+    private final int ringLength;
+    private UnsafeBuffer rings;
+    private int ringLimit;
+    private int[] freeSlots = new int[INITIAL_RING_CAPACITY];
+    private int freeSlotCount;
+
+    /**
+     * Constructor with default capacities
+     */
+    public BidHistoryStore()
+    {
+        this(DEFAULT_BIDS_PER_AUCTION, INITIAL_RING_CAPACITY);
+    }
+
+    /**
+     * Constructor
+     * @param bidsPerAuction      the number of bids retained for each auction
+     * @param initialRingCapacity the number of auctions with bids which can be held before the slab grows
+     */
+    public BidHistoryStore(final int bidsPerAuction, final int initialRingCapacity)
+    {
+        if (bidsPerAuction < 1)
+        {
+            throw new IllegalArgumentException("Bids per auction must be positive: " + bidsPerAuction);
+        }
+        this.bidsPerAuction = bidsPerAuction;
+        this.ringLength = HEADER_LENGTH + bidsPerAuction * BID_LENGTH;
+        rings = allocate(Math.max(1, initialRingCapacity) * ringLength);
+    }
+
+    /**
+     * Allocates an empty ring
+     * @return the slot of the ring
+     */
+    public int allocate()
+    {
+        final int slot;
+        if (freeSlotCount > 0)
+        {
+            slot = freeSlots[--freeSlotCount];
+        }
+        else
+        {
+            ensureCapacity(ringLimit + 1);
+            slot = ringLimit++;
+        }
+        rings.putLong(slot * ringLength + BID_COUNT_OFFSET, 0);
+        return slot;
+    }
+
+    /**
+     * Frees a ring so that its slot can be reused
+     * @param slot the slot of the ring
+     */
+    public void free(final int slot)
+    {
+        if (freeSlotCount == freeSlots.length)
+        {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlotCount << 1);
+        }
+        freeSlots[freeSlotCount++] = slot;
+    }
+
+    /**
+     * Records a bid, overwriting the oldest retained bid if the ring is full
+     * @param slot          the slot of the ring
+     * @param participantId the participant who made the bid
+     * @param price         the price of the bid
+     * @param time          the cluster time of the bid
+     */
+    public void record(final int slot, final long participantId, final long price, final long time)
+    {
+        final int ringOffset = slot * ringLength;
+        final long bidCount = rings.getLong(ringOffset + BID_COUNT_OFFSET);
+        final int bidOffset = ringOffset + HEADER_LENGTH + (int)(bidCount % bidsPerAuction) * BID_LENGTH;
+        rings.putLong(bidOffset + PARTICIPANT_ID_OFFSET, participantId);
+        rings.putLong(bidOffset + PRICE_OFFSET, price);
+        rings.putLong(bidOffset + TIME_OFFSET, time);
+        rings.putLong(ringOffset + BID_COUNT_OFFSET, bidCount + 1);
+    }
+
+    /**
+     * Gets the number of bids recorded in a ring, including those since overwritten
+     * @param slot the slot of the ring
+     * @return the number of bids recorded
+     */
+    public long bidCount(final int slot)
+    {
+        return rings.getLong(slot * ringLength + BID_COUNT_OFFSET);
+    }
+
+    /**
+     * Gets the number of bids retained for each auction
+     * @return the number of bids retained
+     */
+    public int bidsPerAuction()
+    {
+        return bidsPerAuction;
+    }
+
+    /**
+     * Gets the number of rings allocated and not freed
+     * @return the number of rings in use
+     */
+    public int ringCount()
+    {
+        return ringLimit - freeSlotCount;
+    }
+
+    /**
+     * Gets the direct memory reserved by this store
+     * @return the reserved direct memory in bytes
+     */
+    public long capacityInBytes()
+    {
+        return rings.capacity();
+    }
+
+    UnsafeBuffer rings()
+    {
+        return rings;
+    }
+
+    /**
+     * Gets the offset of a retained bid
+     * @param slot  the slot of the ring
+     * @param index the index of the bid, where 0 is the most recent
+     * @return the offset of the bid within the ring buffer
+     */
+    int bidOffset(final int slot, final int index)
+    {
+        final int ringOffset = slot * ringLength;
+        final long position = rings.getLong(ringOffset + BID_COUNT_OFFSET) - 1 - index;
+        return ringOffset + HEADER_LENGTH + (int)(position % bidsPerAuction) * BID_LENGTH;
+    }
+
+    /**
+     * Grows the slab, if needed, so it can hold the given number of rings without growing again
+     * @param requiredSlots the number of rings to hold
+     */
+    public void ensureCapacity(final int requiredSlots)
+    {
+        final int capacitySlots = rings.capacity() / ringLength;
+        if (requiredSlots > capacitySlots)
+        {
+            final UnsafeBuffer newRings = allocate(Math.max(requiredSlots, capacitySlots << 1) * ringLength);
+            newRings.putBytes(0, rings, 0, ringLimit * ringLength);
+            BufferUtil.free(rings.byteBuffer());
+            rings = newRings;
+        }
+    }
+
+    private static UnsafeBuffer allocate(final int capacity)
+    {
+        return new UnsafeBuffer(ByteBuffer.allocateDirect(capacity));
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.aeron.samples.domain.auctions;
+
+import java.util.Arrays;
+
+/**
+ * The standing proxy bids of a single auction, held in registration order in parallel primitive arrays. Each
+ * participant has at most one proxy bid; registering again replaces it and moves it to the back of the order, so an
+ * earlier registration wins a tie on maximum price.
+ */
+public final class ProxyBids
+{
+    private static final int INITIAL_CAPACITY = 4;
+
+    private long[] participantIds = new long[INITIAL_CAPACITY];
+    private long[] maxPrices = new long[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Registers a proxy bid, replacing any held for the participant
+     * @param participantId the participant
+     * @param maxPrice      the maximum price the participant will pay
+     */
+    void put(final long participantId, final long maxPrice)
+    {
+        remove(participantId);
+        if (size == participantIds.length)
+        {
+            participantIds = Arrays.copyOf(participantIds, size << 1);
+            maxPrices = Arrays.copyOf(maxPrices, size << 1);
+        }
+        participantIds[size] = participantId;
+        maxPrices[size] = maxPrice;
+        size++;
+    }
+
+    /**
+     * Removes the proxy bid of a participant
+     * @param participantId the participant
+     * @return true if a proxy bid was removed, false if the participant had none
+     */
+    boolean remove(final long participantId)
+    {
+        final int index = indexOf(participantId);
+        if (index < 0)
+        {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    /**
+     * Removes every proxy bid, other than that of the winning participant, whose maximum price can no longer beat the
+     * current price
+     * @param currentPrice         the current price of the auction
+     * @param winningParticipantId the participant currently winning the auction
+     */
+    void removeExhausted(final long currentPrice, final long winningParticipantId)
+    {
+        for (int i = size - 1; i >= 0; i--)
+        {
+            if (maxPrices[i] <= currentPrice && participantIds[i] != winningParticipantId)
+            {
+                removeAt(i);
+            }
+        }
+    }
+
+    /**
+     * Gets the index of the proxy bid with the highest maximum price, the earliest registered winning a tie
+     * @return the index, or -1 if there are no proxy bids
+     */
+    int highestIndex()
+    {
+        int highest = -1;
+        for (int i = 0; i < size; i++)
+        {
+            if (highest < 0 || maxPrices[i] > maxPrices[highest])
+            {
+                highest = i;
+            }
+        }
+        return highest;
+    }
+
+    /**
+     * Gets the index of the proxy bid with the highest maximum price other than the one given, the earliest
+     * registered winning a tie
+     * @param excludedIndex the index to skip
+     * @return the index, or -1 if there are no other proxy bids
+     */
+    int highestIndexExcluding(final int excludedIndex)
+    {
+        int highest = -1;
+        for (int i = 0; i < size; i++)
+        {
+            if (i != excludedIndex && (highest < 0 || maxPrices[i] > maxPrices[highest]))
+            {
+                highest = i;
+            }
+        }
+        return highest;
+    }
+
+    /**
+     * Gets the number of proxy bids
+     * @return the number of proxy bids
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Gets the participant of a proxy bid
+     * @param index the index of the proxy bid, in registration order
+     * @return the participant id
+     */
+    public long participantId(final int index)
+    {
+        return participantIds[index];
+    }
+
+    /**
+     * Gets the maximum price of a proxy bid
+     * @param index the index of the proxy bid, in registration order
+     * @return the maximum price
+     */
+    public long maxPrice(final int index)
+    {
+        return maxPrices[index];
+    }
+
+    private int indexOf(final long participantId)
+    {
+        for (int i = 0; i < size; i++)
+        {
+            if (participantIds[i] == participantId)
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void removeAt(final int index)
+    {
+        final int moved = size - index - 1;
+        System.arraycopy(participantIds, index + 1, participantIds, index, moved);
+        System.arraycopy(maxPrices, index + 1, maxPrices, index, moved);
+        size--;
+    }
+}
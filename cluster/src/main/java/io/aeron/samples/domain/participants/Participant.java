@@ -16,11 +16,23 @@
 
 package io.aeron.samples.domain.participants;
 
+import java.nio.charset.StandardCharsets;
+
 /**
  * Represents a participant in the cluster
  * @param participantId the id of the participant
  * @param name the name of the participant
+ * @param nameLength the length in bytes of the UTF-8 encoded name, kept so snapshots are sized without encoding it
  */
-public record Participant(long participantId, String name)
+public record Participant(long participantId, String name, int nameLength)
 {
+    /**
+     * Constructor, encoding the name once to find its length
+     * @param participantId the id of the participant
+     * @param name the name of the participant
+     */
+    public Participant(final long participantId, final String name)
+    {
+        this(participantId, name, name.getBytes(StandardCharsets.UTF_8).length);
+    }
 }
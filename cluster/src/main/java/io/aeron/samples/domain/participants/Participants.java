@@ -16,12 +16,14 @@
 
 package io.aeron.samples.domain.participants;
 
+import io.aeron.samples.domain.IdOrderedList;
 import io.aeron.samples.infra.ClusterClientResponder;
+import org.agrona.DirectBuffer;
+import org.agrona.collections.Hashing;
 import org.agrona.collections.Long2ObjectHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -30,7 +32,8 @@ import java.util.List;
 public class Participants
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(Participants.class);
-    private final Long2ObjectHashMap<Participant> participantMap = new Long2ObjectHashMap<>();
+    private Long2ObjectHashMap<Participant> participantMap = new Long2ObjectHashMap<>();
+    private final IdOrderedList<Participant> participantList = new IdOrderedList<>();
     private final ClusterClientResponder clusterClientResponder;
 
     /**
@@ -46,14 +49,15 @@ public class Participants
     /**
      * Adds a participant to the cluster
      * @param participantId the id of the participant
-     * @param name the name of the participant
      * @param correlationId the correlation id of the request
+     * @param name the UTF-8 encoded name of the participant
      */
-    public void addParticipant(final long participantId, final String correlationId, final String name)
+    public void addParticipant(final long participantId, final DirectBuffer correlationId, final DirectBuffer name)
     {
-        LOGGER.info("Adding participant {} with name {}", participantId, name);
-        final var participant = new Participant(participantId, name);
-        participantMap.put(participantId, participant);
+        final Participant participant = new Participant(
+            participantId, name.getStringWithoutLengthUtf8(0, name.capacity()), name.capacity());
+        LOGGER.info("Adding participant {} with name {}", participantId, participant.name());
+        putParticipant(participant);
         clusterClientResponder.acknowledgeParticipantAdded(participantId, correlationId);
     }
 
@@ -64,22 +68,39 @@ public class Participants
      */
     public void restoreParticipant(final long participantId, final String name)
     {
-        LOGGER.info("Restoring participant {} with name {}", participantId, name);
-        final var participant = new Participant(participantId, name);
-        participantMap.put(participantId, participant);
+        LOGGER.debug("Restoring participant {} with name {}", participantId, name);
+        putParticipant(new Participant(participantId, name));
+    }
+
+    /**
+     * Grows the participant index and list so that a snapshot of the given number of participants loads without
+     * growing them again
+     * @param participantCount the number of participants
+     */
+    public void ensureCapacity(final int participantCount)
+    {
+        participantList.ensureCapacity(participantCount);
+        if (participantCount > participantMap.resizeThreshold())
+        {
+            final Long2ObjectHashMap<Participant> newParticipantMap = new Long2ObjectHashMap<>(
+                (int)Math.min(1 << 30, (long)(participantCount / Hashing.DEFAULT_LOAD_FACTOR) + 1),
+                Hashing.DEFAULT_LOAD_FACTOR);
+            for (int i = 0; i < participantList.size(); i++)
+            {
+                final Participant participant = participantList.get(i);
+                newParticipantMap.put(participant.participantId(), participant);
+            }
+            participantMap = newParticipantMap;
+        }
     }
 
     /**
-     * Lists all participants in the cluster, after sorting by participant id
+     * Lists all participants in the cluster, which is kept sorted by participant id
      * @return the list of participants
      */
     public List<Participant> getParticipantList()
     {
-        return participantMap
-            .values()
-            .stream()
-            .sorted(Comparator.comparingLong(Participant::participantId))
-            .toList();
+        return participantList;
     }
 
     /**
@@ -97,10 +118,17 @@ public class Participants
      */
     private void addDefaultParticipants()
     {
-        final var initiator = new Participant(500, "initiator");
-        participantMap.put(500, initiator);
+        putParticipant(new Participant(500, "initiator"));
+        putParticipant(new Participant(501, "responder"));
+    }
 
-        final var responder = new Participant(501, "responder");
-        participantMap.put(501, responder);
+    /**
+     * Adds or replaces a participant in both the id index and the ordered list
+     * @param participant the participant
+     */
+    private void putParticipant(final Participant participant)
+    {
+        participantMap.put(participant.participantId(), participant);
+        participantList.put(participant.participantId(), participant);
     }
 }
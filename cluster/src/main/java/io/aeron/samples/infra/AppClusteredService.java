@@ -36,25 +36,112 @@ public class AppClusteredService implements ClusteredService
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(AppClusteredService.class);
     private final ClientSessions clientSessions = new ClientSessions();
-    private final SessionMessageContextImpl context = new SessionMessageContextImpl(clientSessions);
+    private final AuctionSubscriptions subscriptions = new AuctionSubscriptions();
+    private final SessionMessageContextImpl context = new SessionMessageContextImpl(clientSessions, subscriptions);
+    private final MarketDataPublisher marketDataPublisher = new MarketDataPublisher();
     private final ClusterClientResponder clusterClientResponder = new ClusterClientResponderImpl(context);
     private final TimerManager timerManager = new TimerManager(context);
     private final Participants participants = new Participants(clusterClientResponder);
     private final Auctions auctions = new Auctions(context, participants, clusterClientResponder,
         timerManager);
-    private final SnapshotManager snapshotManager = new SnapshotManager(auctions, participants, context);
+    private final SnapshotManager snapshotManager =
+        new SnapshotManager(auctions, participants, timerManager, subscriptions, context);
     private final SbeDemuxer sbeDemuxer = new SbeDemuxer(participants, auctions, clusterClientResponder);
+    private final SnapshotScheduler snapshotScheduler;
+    private final String marketDataChannel;
+    private final int marketDataStreamId;
+
+    /**
+     * Constructor, flushing conflated auction updates at the end of the callback which produced them
+     */
+    public AppClusteredService()
+    {
+        this(0);
+    }
+
+    /**
+     * Constructor
+     * @param conflationIntervalNs the least time between flushes of conflated auction updates, or zero to flush them
+     *                             at the end of the callback which produced them
+     */
+    public AppClusteredService(final long conflationIntervalNs)
+    {
+        this(conflationIntervalNs, null, 0, SessionMessageContextImpl.DEFAULT_SLOW_CONSUMER_POLICY,
+            SessionMessageContextImpl.DEFAULT_EGRESS_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Constructor, taking snapshots only when requested by an operator
+     * @param conflationIntervalNs the least time between flushes of conflated auction updates, or zero to flush them
+     *                             at the end of the callback which produced them
+     * @param marketDataChannel    the channel the leader publishes every broadcast to once, or null or empty for none
+     * @param marketDataStreamId   the stream id of the market data channel
+     * @param slowConsumerPolicy   what is done with a session whose egress queue is full
+     * @param egressQueueCapacity  the capacity in bytes of the egress queue of a back pressured session
+     */
+    public AppClusteredService(
+        final long conflationIntervalNs,
+        final String marketDataChannel,
+        final int marketDataStreamId,
+        final SlowConsumerPolicy slowConsumerPolicy,
+        final int egressQueueCapacity)
+    {
+        this(conflationIntervalNs, marketDataChannel, marketDataStreamId, slowConsumerPolicy, egressQueueCapacity,
+            0, 0);
+    }
+
+    /**
+     * Constructor
+     * @param conflationIntervalNs      the least time between flushes of conflated auction updates, or zero to flush
+     *                                  them at the end of the callback which produced them
+     * @param marketDataChannel         the channel the leader publishes every broadcast to once, or null or empty for
+     *                                  none
+     * @param marketDataStreamId        the stream id of the market data channel
+     * @param slowConsumerPolicy        what is done with a session whose egress queue is full
+     * @param egressQueueCapacity       the capacity in bytes of the egress queue of a back pressured session
+     * @param snapshotLogThresholdBytes the log growth in bytes since the last snapshot which triggers another, or zero
+     *                                  for none
+     * @param snapshotIntervalNs        the time since the last snapshot after which another is triggered if the log
+     *                                  has grown, or zero for none
+     */
+    public AppClusteredService(
+        final long conflationIntervalNs,
+        final String marketDataChannel,
+        final int marketDataStreamId,
+        final SlowConsumerPolicy slowConsumerPolicy,
+        final int egressQueueCapacity,
+        final long snapshotLogThresholdBytes,
+        final long snapshotIntervalNs)
+    {
+        this.snapshotScheduler = new SnapshotScheduler(snapshotLogThresholdBytes, snapshotIntervalNs);
+        this.marketDataChannel = marketDataChannel;
+        this.marketDataStreamId = marketDataStreamId;
+        context.setConflationInterval(conflationIntervalNs);
+        context.setMarketDataPublisher(marketDataPublisher);
+        context.setSlowConsumerPolicy(slowConsumerPolicy);
+        context.setEgressQueueCapacity(egressQueueCapacity);
+    }
 
     @Override
     public void onStart(final Cluster cluster, final Image snapshotImage)
     {
         snapshotManager.setIdleStrategy(cluster.idleStrategy());
-        context.setIdleStrategy(cluster.idleStrategy());
+        context.setAeron(cluster.aeron());
+        context.setCluster(cluster);
         timerManager.setCluster(cluster);
+        timerManager.setAuctions(auctions);
+        if (null != marketDataChannel && !marketDataChannel.isEmpty())
+        {
+            marketDataPublisher.setPublication(
+                cluster.aeron().addExclusivePublication(marketDataChannel, marketDataStreamId));
+        }
         if (snapshotImage != null)
         {
             snapshotManager.loadSnapshot(snapshotImage);
+            //sessions restored with the snapshot are not opened again, so are added here for broadcasts to reach them
+            cluster.forEachClientSession(clientSessions::addSession);
         }
+        snapshotScheduler.setCluster(cluster);
     }
 
     @Override
@@ -62,14 +149,20 @@ public class AppClusteredService implements ClusteredService
     {
         LOGGER.info("Client session opened");
         context.setClusterTime(timestamp);
+        context.drainEgressQueues();
         clientSessions.addSession(session);
+        context.flushEgress();
     }
 
     @Override
     public void onSessionClose(final ClientSession session, final long timestamp, final CloseReason closeReason)
     {
         context.setClusterTime(timestamp);
+        context.drainEgressQueues();
         clientSessions.removeSession(session);
+        subscriptions.removeSession(session.id());
+        context.onSessionClosed(session.id());
+        context.flushEgress();
     }
 
     @Override
@@ -82,31 +175,72 @@ public class AppClusteredService implements ClusteredService
         final Header header)
     {
         context.setSessionContext(session, timestamp);
-        sbeDemuxer.dispatch(buffer, offset, length);
+        //queued egress is drained on every message, including those which are ignored, as no timer drains it
+        context.drainEgressQueues();
+        clusterClientResponder.beginStateUpdates();
+        try
+        {
+            sbeDemuxer.dispatch(buffer, offset, length);
+        }
+        finally
+        {
+            clusterClientResponder.endStateUpdates();
+            context.flushEgress();
+        }
     }
 
     @Override
     public void onTimerEvent(final long correlationId, final long timestamp)
     {
         context.setClusterTime(timestamp);
-        timerManager.onTimerEvent(correlationId, timestamp);
+        context.drainEgressQueues();
+        clusterClientResponder.beginStateUpdates();
+        try
+        {
+            if (SessionMessageContextImpl.isEgressTimer(correlationId))
+            {
+                context.onEgressTimer(timestamp);
+            }
+            else
+            {
+                timerManager.onTimerEvent(correlationId, timestamp);
+            }
+        }
+        finally
+        {
+            clusterClientResponder.endStateUpdates();
+            context.flushEgress();
+        }
+    }
+
+    @Override
+    public int doBackgroundWork(final long nowNs)
+    {
+        //the cluster does not allow sessions to be sent to from here, so egress goes from the log callbacks
+        return snapshotScheduler.doWork(nowNs);
     }
 
     @Override
     public void onTakeSnapshot(final ExclusivePublication snapshotPublication)
     {
+        final long startNs = System.nanoTime();
         snapshotManager.takeSnapshot(snapshotPublication);
+        snapshotScheduler.onSnapshotTaken(System.nanoTime() - startNs);
     }
 
     @Override
     public void onRoleChange(final Cluster.Role newRole)
     {
         LOGGER.info("Role change: {}", newRole);
+        marketDataPublisher.onRoleChange(newRole);
+        snapshotScheduler.onRoleChange(newRole);
     }
 
     @Override
     public void onTerminate(final Cluster cluster)
     {
         LOGGER.info("Terminating");
+        marketDataPublisher.close();
+        snapshotScheduler.close();
     }
 }
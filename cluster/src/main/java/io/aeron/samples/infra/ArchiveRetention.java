@@ -0,0 +1,258 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.aeron.samples.infra;
+
+import io.aeron.Aeron;
+import io.aeron.Counter;
+import io.aeron.archive.client.AeronArchive;
+import io.aeron.archive.client.RecordingDescriptorConsumer;
+import io.aeron.cluster.ConsensusModule;
+import io.aeron.cluster.RecordingLog;
+import org.agrona.CloseHelper;
+import org.agrona.collections.LongArrayList;
+import org.agrona.concurrent.Agent;
+import org.agrona.concurrent.status.AtomicCounter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.Arrays;
+
+/**
+ * Purges the segments of the cluster log recording which no retained snapshot needs, so the archive of a node does not
+ * grow without limit. It runs on its own thread, since archive requests are blocking, and checks once the consensus
+ * module has completed a snapshot.
+ * <p>
+ * The latest {@code retainedSnapshots} snapshots in the recording log are kept, along with the log from the oldest of
+ * them on, so the node can still recover from any of them. Segments wholly before that position are purged through the
+ * archive, which also moves the start of the log recording. Only the node's own snapshots are considered, so a member
+ * behind the oldest of them can no longer catch up from this node's log. The snapshot recordings themselves are left
+ * in place, as the recording log that refers to them belongs to the running consensus module. The bytes reclaimed and
+ * the size of the archive directory are kept in Aeron counters, where they can be read with AeronStat.
+ */
+public final class ArchiveRetention implements Agent, RecordingDescriptorConsumer
+{
+    /**
+     * The counter type id of the bytes of log segments purged since the node started
+     */
+    static final int RECLAIMED_BYTES_COUNTER_TYPE_ID = 1005;
+    /**
+     * The counter type id of the size in bytes of the archive directory
+     */
+    static final int ARCHIVE_SIZE_COUNTER_TYPE_ID = 1006;
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArchiveRetention.class);
+
+    private final File clusterDir;
+    private final File archiveDir;
+    private final AeronArchive.Context archiveContext;
+    private final AtomicCounter snapshotCounter;
+    private final int retainedSnapshots;
+    private final LongArrayList snapshotPositions = new LongArrayList();
+    private AeronArchive archive;
+    private Counter reclaimedBytesCounter;
+    private Counter archiveSizeCounter;
+    private long lastSnapshotCount = Long.MIN_VALUE;
+    private long reclaimedBytes;
+    private int termBufferLength;
+    private int segmentFileLength;
+
+    /**
+     * Constructor
+     * @param clusterDir        the cluster directory holding the recording log
+     * @param archiveDir        the archive directory, whose size is reported
+     * @param archiveContext    the context to connect to the node's archive with
+     * @param snapshotCounter   the consensus module's count of snapshots taken
+     * @param retainedSnapshots the number of latest snapshots to keep the log for
+     */
+    public ArchiveRetention(
+        final File clusterDir,
+        final File archiveDir,
+        final AeronArchive.Context archiveContext,
+        final AtomicCounter snapshotCounter,
+        final int retainedSnapshots)
+    {
+        if (retainedSnapshots < 1)
+        {
+            throw new IllegalArgumentException("at least one snapshot must be retained: " + retainedSnapshots);
+        }
+        this.clusterDir = clusterDir;
+        this.archiveDir = archiveDir;
+        this.archiveContext = archiveContext;
+        this.snapshotCounter = snapshotCounter;
+        this.retainedSnapshots = retainedSnapshots;
+    }
+
+    @Override
+    public void onStart()
+    {
+        archive = AeronArchive.connect(archiveContext);
+        final Aeron aeron = archive.context().aeron();
+        reclaimedBytesCounter = aeron.addCounter(RECLAIMED_BYTES_COUNTER_TYPE_ID,
+            "Archive reclaimed bytes: retainedSnapshots=" + retainedSnapshots);
+        archiveSizeCounter = aeron.addCounter(ARCHIVE_SIZE_COUNTER_TYPE_ID,
+            "Archive size bytes: dir=" + archiveDir.getAbsolutePath());
+    }
+
+    @Override
+    public int doWork()
+    {
+        int workCount = 0;
+        //the first check also purges whatever the node was started with
+        final long snapshotCount = snapshotCounter.get();
+        if (snapshotCount != lastSnapshotCount)
+        {
+            lastSnapshotCount = snapshotCount;
+            workCount += purgeLogSegments();
+        }
+        archiveSizeCounter.setRelease(archiveSize());
+        return workCount;
+    }
+
+    @Override
+    public void onClose()
+    {
+        CloseHelper.quietCloseAll(reclaimedBytesCounter, archiveSizeCounter, archive);
+    }
+
+    @Override
+    public String roleName()
+    {
+        return "archive-retention";
+    }
+
+    @Override
+    public void onRecordingDescriptor(
+        final long controlSessionId,
+        final long correlationId,
+        final long recordingId,
+        final long startTimestamp,
+        final long stopTimestamp,
+        final long startPosition,
+        final long stopPosition,
+        final int initialTermId,
+        final int segmentFileLength,
+        final int termBufferLength,
+        final int mtuLength,
+        final int sessionId,
+        final int streamId,
+        final String strippedChannel,
+        final String originalChannel,
+        final String sourceIdentity)
+    {
+        this.termBufferLength = termBufferLength;
+        this.segmentFileLength = segmentFileLength;
+    }
+
+    /**
+     * Gets the bytes of log segments purged since the node started
+     * @return the reclaimed bytes
+     */
+    public long getReclaimedBytes()
+    {
+        return reclaimedBytes;
+    }
+
+    private int purgeLogSegments()
+    {
+        final long recordingId;
+        final long retainedPosition;
+        try (RecordingLog recordingLog = new RecordingLog(clusterDir, false))
+        {
+            recordingId = recordingLog.findLastTermRecordingId();
+            retainedPosition = retainedLogPosition(recordingLog);
+        }
+        if (Aeron.NULL_VALUE == recordingId || AeronArchive.NULL_POSITION == retainedPosition ||
+            0 == archive.listRecording(recordingId, this))
+        {
+            return 0;
+        }
+
+        final long newStartPosition = purgePosition(
+            archive.getStartPosition(recordingId), retainedPosition, termBufferLength, segmentFileLength);
+        if (AeronArchive.NULL_POSITION == newStartPosition)
+        {
+            return 0;
+        }
+
+        final long purgedSegments = archive.purgeSegments(recordingId, newStartPosition);
+        reclaimedBytes += purgedSegments * segmentFileLength;
+        reclaimedBytesCounter.setRelease(reclaimedBytes);
+        LOGGER.info("Purged {} log segments of recording {} before position {}, retaining {} snapshots",
+            purgedSegments, recordingId, newStartPosition, retainedSnapshots);
+        return 1;
+    }
+
+    /**
+     * Finds the log position of the oldest retained snapshot, the position the log must be kept from
+     * @param recordingLog the recording log of the node
+     * @return the log position, or {@link AeronArchive#NULL_POSITION} if fewer snapshots than are retained are valid
+     */
+    long retainedLogPosition(final RecordingLog recordingLog)
+    {
+        //every snapshot has an entry per service and one for the consensus module, which is written last
+        snapshotPositions.clear();
+        for (final RecordingLog.Entry entry : recordingLog.entries())
+        {
+            if (RecordingLog.ENTRY_TYPE_SNAPSHOT == entry.type && entry.isValid &&
+                ConsensusModule.Configuration.SERVICE_ID == entry.serviceId)
+            {
+                snapshotPositions.addLong(entry.logPosition);
+            }
+        }
+        if (snapshotPositions.size() < retainedSnapshots)
+        {
+            return AeronArchive.NULL_POSITION;
+        }
+        final long[] positions = snapshotPositions.toLongArray();
+        Arrays.sort(positions);
+        return positions[positions.length - retainedSnapshots];
+    }
+
+    /**
+     * Finds the position the log recording can be purged up to. Only whole segment files are purged, so this is the
+     * base of the segment holding the retained position.
+     * @param startPosition     the current start position of the log recording
+     * @param retainedPosition  the position the log must be kept from
+     * @param termBufferLength  the term buffer length of the log recording
+     * @param segmentFileLength the segment file length of the log recording
+     * @return the new start position, or {@link AeronArchive#NULL_POSITION} if no whole segment lies before it
+     */
+    static long purgePosition(
+        final long startPosition,
+        final long retainedPosition,
+        final int termBufferLength,
+        final int segmentFileLength)
+    {
+        final long newStartPosition = AeronArchive.segmentFileBasePosition(
+            startPosition, retainedPosition, termBufferLength, segmentFileLength);
+        return newStartPosition > startPosition ? newStartPosition : AeronArchive.NULL_POSITION;
+    }
+
+    private long archiveSize()
+    {
+        final File[] files = archiveDir.listFiles();
+        long size = 0;
+        if (null != files)
+        {
+            for (final File file : files)
+            {
+                size += file.length();
+            }
+        }
+        return size;
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.aeron.samples.infra;
+
+import org.agrona.collections.Long2ObjectHashMap;
+import org.agrona.collections.LongArrayList;
+import org.agrona.collections.LongHashSet;
+
+/**
+ * Index of which client sessions are subscribed to the updates of which auctions.
+ * <p>
+ * Sessions are held by cluster session id, per auction and in a reverse index per session so that a closing session
+ * or a removed auction is cleaned up without scanning every subscription. A session subscribed to
+ * {@link #ALL_AUCTIONS} receives the updates of every auction; it is held apart, and skipped in the per auction lists
+ * when routing, so that it receives each update once. A session may also be conflated, in which case it receives the
+ * latest state of its auctions at a bounded rate rather than every update.
+ */
+public class AuctionSubscriptions
+{
+    /**
+     * The auction id used to subscribe to every auction, including auctions added later
+     */
+    public static final long ALL_AUCTIONS = -1;
+
+    private final Long2ObjectHashMap<LongArrayList> sessionIdsByAuctionId = new Long2ObjectHashMap<>();
+    private final Long2ObjectHashMap<LongArrayList> auctionIdsBySessionId = new Long2ObjectHashMap<>();
+    private final LongArrayList allAuctionsSessionIds = new LongArrayList();
+    private final LongHashSet allAuctionsSessionIdSet = new LongHashSet();
+    private final LongHashSet conflatedSessionIds = new LongHashSet();
+
+    /**
+     * Subscribes a session to an auction, or to every auction
+     * @param sessionId the cluster session id
+     * @param auctionId the auction id, or {@link #ALL_AUCTIONS}
+     * @return true if subscribed, false if the session was already subscribed
+     */
+    public boolean subscribe(final long sessionId, final long auctionId)
+    {
+        LongArrayList auctionIds = auctionIdsBySessionId.get(sessionId);
+        if (null != auctionIds && auctionIds.containsLong(auctionId))
+        {
+            return false;
+        }
+        if (null == auctionIds)
+        {
+            auctionIds = new LongArrayList();
+            auctionIdsBySessionId.put(sessionId, auctionIds);
+        }
+        auctionIds.addLong(auctionId);
+
+        if (ALL_AUCTIONS == auctionId)
+        {
+            allAuctionsSessionIds.addLong(sessionId);
+            allAuctionsSessionIdSet.add(sessionId);
+        }
+        else
+        {
+            LongArrayList sessionIds = sessionIdsByAuctionId.get(auctionId);
+            if (null == sessionIds)
+            {
+                sessionIds = new LongArrayList();
+                sessionIdsByAuctionId.put(auctionId, sessionIds);
+            }
+            sessionIds.addLong(sessionId);
+        }
+        return true;
+    }
+
+    /**
+     * Unsubscribes a session from an auction, or from every auction. Unsubscribing from every auction leaves the
+     * subscriptions to individual auctions in place.
+     * @param sessionId the cluster session id
+     * @param auctionId the auction id, or {@link #ALL_AUCTIONS}
+     * @return true if unsubscribed, false if the session was not subscribed
+     */
+    public boolean unsubscribe(final long sessionId, final long auctionId)
+    {
+        final LongArrayList auctionIds = auctionIdsBySessionId.get(sessionId);
+        if (null == auctionIds || !auctionIds.removeLong(auctionId))
+        {
+            return false;
+        }
+        if (auctionIds.isEmpty())
+        {
+            auctionIdsBySessionId.remove(sessionId);
+            conflatedSessionIds.remove(sessionId);
+        }
+        removeFromAuction(sessionId, auctionId);
+        return true;
+    }
+
+    /**
+     * Removes every subscription of a session, as when it closes
+     * @param sessionId the cluster session id
+     */
+    public void removeSession(final long sessionId)
+    {
+        conflatedSessionIds.remove(sessionId);
+        final LongArrayList auctionIds = auctionIdsBySessionId.remove(sessionId);
+        if (null == auctionIds)
+        {
+            return;
+        }
+        for (int i = 0; i < auctionIds.size(); i++)
+        {
+            removeFromAuction(sessionId, auctionIds.getLong(i));
+        }
+    }
+
+    /**
+     * Removes every subscription to an auction, as when it is removed
+     * @param auctionId the auction id
+     */
+    public void removeAuction(final long auctionId)
+    {
+        final LongArrayList sessionIds = sessionIdsByAuctionId.remove(auctionId);
+        if (null == sessionIds)
+        {
+            return;
+        }
+        for (int i = 0; i < sessionIds.size(); i++)
+        {
+            final long sessionId = sessionIds.getLong(i);
+            final LongArrayList auctionIds = auctionIdsBySessionId.get(sessionId);
+            auctionIds.removeLong(auctionId);
+            if (auctionIds.isEmpty())
+            {
+                auctionIdsBySessionId.remove(sessionId);
+                conflatedSessionIds.remove(sessionId);
+            }
+        }
+    }
+
+    /**
+     * Sets whether a subscribed session receives conflated updates, which hold the latest state of each of its
+     * auctions at a bounded rate, or every update as it happens
+     * @param sessionId the cluster session id
+     * @param conflated true for conflated updates, false for every update
+     */
+    public void setConflated(final long sessionId, final boolean conflated)
+    {
+        if (conflated && auctionIdsBySessionId.containsKey(sessionId))
+        {
+            conflatedSessionIds.add(sessionId);
+        }
+        else
+        {
+            conflatedSessionIds.remove(sessionId);
+        }
+    }
+
+    /**
+     * Determines if a session receives conflated updates
+     * @param sessionId the cluster session id
+     * @return true if conflated, false if the session receives every update
+     */
+    public boolean isConflated(final long sessionId)
+    {
+        return conflatedSessionIds.contains(sessionId);
+    }
+
+    /**
+     * Determines if any session receives conflated updates
+     * @return true if at least one session is conflated
+     */
+    public boolean hasConflatedSessions()
+    {
+        return !conflatedSessionIds.isEmpty();
+    }
+
+    /**
+     * Gets the sessions subscribed to an auction alone, which may include sessions also subscribed to every auction
+     * @param auctionId the auction id
+     * @return the cluster session ids, or null if there are none
+     */
+    public LongArrayList getSubscribers(final long auctionId)
+    {
+        return sessionIdsByAuctionId.get(auctionId);
+    }
+
+    /**
+     * Gets the sessions subscribed to every auction
+     * @return the cluster session ids
+     */
+    public LongArrayList getAllAuctionsSubscribers()
+    {
+        return allAuctionsSessionIds;
+    }
+
+    /**
+     * Determines if a session is subscribed to every auction
+     * @param sessionId the cluster session id
+     * @return true if subscribed to every auction
+     */
+    public boolean isSubscribedToAll(final long sessionId)
+    {
+        return allAuctionsSessionIdSet.contains(sessionId);
+    }
+
+    /**
+     * Visits the subscriptions of each session; used for snapshotting
+     * @param consumer receives the cluster session id and its auction ids, which include {@link #ALL_AUCTIONS} for a
+     *                 subscription to every auction
+     */
+    public void forEachSession(final SessionSubscriptionsConsumer consumer)
+    {
+        final Long2ObjectHashMap<LongArrayList>.EntryIterator iterator = auctionIdsBySessionId.entrySet().iterator();
+        while (iterator.hasNext())
+        {
+            iterator.next();
+            consumer.accept(iterator.getLongKey(), iterator.getValue());
+        }
+    }
+
+    private void removeFromAuction(final long sessionId, final long auctionId)
+    {
+        if (ALL_AUCTIONS == auctionId)
+        {
+            allAuctionsSessionIds.removeLong(sessionId);
+            allAuctionsSessionIdSet.remove(sessionId);
+            return;
+        }
+
+        final LongArrayList sessionIds = sessionIdsByAuctionId.get(auctionId);
+        if (null != sessionIds)
+        {
+            sessionIds.removeLong(sessionId);
+            if (sessionIds.isEmpty())
+            {
+                sessionIdsByAuctionId.remove(auctionId);
+            }
+        }
+    }
+
+    /**
+     * Receives the subscriptions of a session
+     */
+    @FunctionalInterface
+    public interface SessionSubscriptionsConsumer
+    {
+        /**
+         * Accepts the subscriptions of a session
+         * @param sessionId  the cluster session id
+         * @param auctionIds the subscribed auction ids
+         */
+        void accept(long sessionId, LongArrayList auctionIds);
+    }
+}
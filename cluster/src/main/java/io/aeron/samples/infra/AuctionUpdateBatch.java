@@ -0,0 +1,173 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.aeron.samples.infra;
+
+import io.aeron.samples.cluster.protocol.AuctionStatus;
+import io.aeron.samples.cluster.protocol.AuctionUpdateBatchEventEncoder;
+import io.aeron.samples.cluster.protocol.AuctionUpdateEventEncoder;
+import io.aeron.samples.cluster.protocol.MessageHeaderEncoder;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.collections.IntArrayList;
+import org.agrona.collections.LongArrayList;
+
+/**
+ * The auction state updates produced by a single command or timer event, held in parallel primitive lists so they can
+ * be sent together once the callback completes.
+ * <p>
+ * The updates can be encoded as one {@code AuctionUpdateBatchEvent}, holding all of them or the subset a session is
+ * subscribed to, or one at a time as an {@code AuctionUpdateEvent}. The lists are cleared rather than replaced, so once
+ * they have grown to the largest batch no further allocation occurs.
+ */
+public final class AuctionUpdateBatch
+{
+    /**
+     * The encoded length of a single update event, including the message header
+     */
+    public static final int UPDATE_LENGTH =
+        MessageHeaderEncoder.ENCODED_LENGTH + AuctionUpdateEventEncoder.BLOCK_LENGTH;
+    private final LongArrayList auctionIds = new LongArrayList();
+    private final IntArrayList statuses = new IntArrayList();
+    private final LongArrayList currentPrices = new LongArrayList();
+    private final IntArrayList bidCounts = new IntArrayList();
+    private final LongArrayList lastUpdateTimes = new LongArrayList();
+    private final LongArrayList winningParticipantIds = new LongArrayList();
+    private final MessageHeaderEncoder messageHeaderEncoder = new MessageHeaderEncoder();
+    private final AuctionUpdateBatchEventEncoder batchEncoder = new AuctionUpdateBatchEventEncoder();
+    private final AuctionUpdateEventEncoder updateEncoder = new AuctionUpdateEventEncoder();
+
+    /**
+     * Adds an auction state update
+     * @param auctionId            the auction id
+     * @param status               the auction status
+     * @param currentPrice         the current price
+     * @param bidCount             the number of bids
+     * @param lastUpdateTime       the time of the last update
+     * @param winningParticipantId the winning participant, or -1 if there are no bids
+     */
+    void add(
+        final long auctionId,
+        final AuctionStatus status,
+        final long currentPrice,
+        final int bidCount,
+        final long lastUpdateTime,
+        final long winningParticipantId)
+    {
+        auctionIds.addLong(auctionId);
+        statuses.addInt(status.value());
+        currentPrices.addLong(currentPrice);
+        bidCounts.addInt(bidCount);
+        lastUpdateTimes.addLong(lastUpdateTime);
+        winningParticipantIds.addLong(winningParticipantId);
+    }
+
+    /**
+     * Gets the number of updates
+     * @return the number of updates
+     */
+    public int size()
+    {
+        return auctionIds.size();
+    }
+
+    /**
+     * Gets the auction of an update
+     * @param index the index of the update, in the order added
+     * @return the auction id
+     */
+    public long auctionId(final int index)
+    {
+        return auctionIds.getLong(index);
+    }
+
+    /**
+     * Encodes every update as one AuctionUpdateBatchEvent
+     * @param buffer the buffer to encode into
+     * @param offset the offset to encode at
+     * @return the encoded length, including the message header
+     */
+    public int encodeBatch(final MutableDirectBuffer buffer, final int offset)
+    {
+        final int size = size();
+        final AuctionUpdateBatchEventEncoder.UpdatesEncoder updates =
+            batchEncoder.wrapAndApplyHeader(buffer, offset, messageHeaderEncoder).updatesCount(size);
+        for (int i = 0; i < size; i++)
+        {
+            encodeEntry(updates.next(), i);
+        }
+        return MessageHeaderEncoder.ENCODED_LENGTH + batchEncoder.encodedLength();
+    }
+
+    /**
+     * Encodes some of the updates as one AuctionUpdateBatchEvent
+     * @param buffer  the buffer to encode into
+     * @param offset  the offset to encode at
+     * @param indexes the indexes of the updates to include, in order
+     * @return the encoded length, including the message header
+     */
+    public int encodeBatch(final MutableDirectBuffer buffer, final int offset, final IntArrayList indexes)
+    {
+        final AuctionUpdateBatchEventEncoder.UpdatesEncoder updates =
+            batchEncoder.wrapAndApplyHeader(buffer, offset, messageHeaderEncoder).updatesCount(indexes.size());
+        for (int i = 0; i < indexes.size(); i++)
+        {
+            encodeEntry(updates.next(), indexes.getInt(i));
+        }
+        return MessageHeaderEncoder.ENCODED_LENGTH + batchEncoder.encodedLength();
+    }
+
+    /**
+     * Encodes a single update as an AuctionUpdateEvent
+     * @param buffer the buffer to encode into
+     * @param offset the offset to encode at
+     * @param index  the index of the update
+     * @return the encoded length, including the message header
+     */
+    public int encodeUpdate(final MutableDirectBuffer buffer, final int offset, final int index)
+    {
+        updateEncoder.wrapAndApplyHeader(buffer, offset, messageHeaderEncoder)
+            .auctionId(auctionIds.getLong(index))
+            .status(AuctionStatus.get(statuses.getInt(index)))
+            .currentPrice(currentPrices.getLong(index))
+            .bidCount(bidCounts.getInt(index))
+            .lastUpdate(lastUpdateTimes.getLong(index))
+            .winningParticipantId(winningParticipantIds.getLong(index));
+        return MessageHeaderEncoder.ENCODED_LENGTH + updateEncoder.encodedLength();
+    }
+
+    /**
+     * Discards every update, once sent
+     */
+    void clear()
+    {
+        auctionIds.clear();
+        statuses.clear();
+        currentPrices.clear();
+        bidCounts.clear();
+        lastUpdateTimes.clear();
+        winningParticipantIds.clear();
+    }
+
+    private void encodeEntry(final AuctionUpdateBatchEventEncoder.UpdatesEncoder entry, final int index)
+    {
+        entry.auctionId(auctionIds.getLong(index))
+            .status(AuctionStatus.get(statuses.getInt(index)))
+            .currentPrice(currentPrices.getLong(index))
+            .bidCount(bidCounts.getInt(index))
+            .lastUpdate(lastUpdateTimes.getLong(index))
+            .winningParticipantId(winningParticipantIds.getLong(index));
+    }
+}
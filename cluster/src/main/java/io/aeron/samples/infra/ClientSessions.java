@@ -17,24 +17,44 @@
 package io.aeron.samples.infra;
 
 import io.aeron.cluster.service.ClientSession;
+import org.agrona.collections.Long2LongHashMap;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 /**
- * Manages client sessions within the cluster
+ * Manages client sessions within the cluster.
+ * <p>
+ * Sessions are held in a dense array, for iteration by index without allocation, and their indexes in a primitive map
+ * keyed by cluster session id, for lookup. A removed session is replaced by the last one in the array, so adding and
+ * removing are constant time; the order of iteration is therefore not the order in which sessions were added.
  */
 public class ClientSessions
 {
-    private final List<ClientSession> allSessions = new ArrayList<>();
+    private static final int INITIAL_CAPACITY = 16;
+    private static final long MISSING_INDEX = -1L;
+    private final Long2LongHashMap indexById = new Long2LongHashMap(MISSING_INDEX);
+    private ClientSession[] sessions = new ClientSession[INITIAL_CAPACITY];
+    private int sessionCount;
 
     /**
-     * Adds a client session
+     * Adds a client session, replacing any session with the same cluster session id
      * @param session the session to add
      */
     public void addSession(final ClientSession session)
     {
-        allSessions.add(session);
+        final long index = indexById.get(session.id());
+        if (MISSING_INDEX != index)
+        {
+            sessions[(int)index] = session;
+            return;
+        }
+        if (sessionCount == sessions.length)
+        {
+            sessions = Arrays.copyOf(sessions, sessionCount * 2);
+        }
+        sessions[sessionCount] = session;
+        indexById.put(session.id(), sessionCount);
+        sessionCount++;
     }
 
     /**
@@ -43,15 +63,76 @@ public class ClientSessions
      */
     public void removeSession(final ClientSession session)
     {
-        allSessions.remove(session);
+        removeSession(session.id());
     }
 
     /**
-     * Gets all client sessions known
-     * @return the list of client sessions
+     * Removes a client session by its cluster session id, moving the last session into its place
+     * @param sessionId the cluster session id
+     * @return the removed session, or null if it is not known
      */
-    public List<ClientSession> getAllSessions()
+    public ClientSession removeSession(final long sessionId)
     {
-        return allSessions;
+        final long index = indexById.remove(sessionId);
+        if (MISSING_INDEX == index)
+        {
+            return null;
+        }
+        final int removedIndex = (int)index;
+        final ClientSession removed = sessions[removedIndex];
+        final int lastIndex = --sessionCount;
+        if (removedIndex != lastIndex)
+        {
+            final ClientSession last = sessions[lastIndex];
+            sessions[removedIndex] = last;
+            indexById.put(last.id(), removedIndex);
+        }
+        sessions[lastIndex] = null;
+        return removed;
+    }
+
+    /**
+     * Gets a client session by its cluster session id
+     * @param sessionId the cluster session id
+     * @return the session, or null if it is not known
+     */
+    public ClientSession getSession(final long sessionId)
+    {
+        final long index = indexById.get(sessionId);
+        return MISSING_INDEX == index ? null : sessions[(int)index];
+    }
+
+    /**
+     * Determines if a session is known
+     * @param sessionId the cluster session id
+     * @return true if the session has been added and not removed
+     */
+    public boolean containsSession(final long sessionId)
+    {
+        return indexById.containsKey(sessionId);
+    }
+
+    /**
+     * Gets the number of client sessions known
+     * @return the session count
+     */
+    public int getSessionCount()
+    {
+        return sessionCount;
+    }
+
+    /**
+     * Gets a client session by its position, for iterating over every session without allocating; the position of a
+     * session can change when another is removed
+     * @param index the index, from zero to one less than {@link #getSessionCount()}
+     * @return the session
+     */
+    public ClientSession getSessionAt(final int index)
+    {
+        if (index < 0 || index >= sessionCount)
+        {
+            throw new IndexOutOfBoundsException("index=" + index + " sessionCount=" + sessionCount);
+        }
+        return sessions[index];
     }
 }
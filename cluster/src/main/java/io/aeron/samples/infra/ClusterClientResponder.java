@@ -20,12 +20,17 @@ import io.aeron.samples.domain.auctions.AddAuctionBidResult;
 import io.aeron.samples.domain.auctions.AddAuctionResult;
 import io.aeron.samples.domain.auctions.Auction;
 import io.aeron.samples.domain.auctions.AuctionStatus;
+import io.aeron.samples.domain.auctions.BidHistory;
 import io.aeron.samples.domain.participants.Participant;
+import org.agrona.DirectBuffer;
 
 import java.util.List;
 
 /**
- * Interface for responding to auction requests, encapsulating the SBE encoding and Aeron interactions
+ * Interface for responding to auction requests, encapsulating the SBE encoding and Aeron interactions.
+ * <p>
+ * Correlation ids, names and descriptions are passed as views over the inbound message buffer, so they are only valid
+ * for the duration of the call and must be copied if retained.
  */
 public interface ClusterClientResponder
 {
@@ -42,20 +47,20 @@ public interface ClusterClientResponder
      * @param description the description
      */
     void onAuctionAdded(
-        String correlationId,
+        DirectBuffer correlationId,
         long auctionId,
         AddAuctionResult result,
         long startTime,
         long endTime,
-        String name,
-        String description);
+        DirectBuffer name,
+        DirectBuffer description);
 
     /**
      * Responds to the client that an auction has not been added with a result code
      * @param correlationId the correlation id for this request
      * @param result the result code
      */
-    void rejectAddAuction(String correlationId, AddAuctionResult result);
+    void rejectAddAuction(DirectBuffer correlationId, AddAuctionResult result);
 
     /**
      * Responds to the client that a bid has been rejected with a result code and the auction id
@@ -63,7 +68,7 @@ public interface ClusterClientResponder
      * @param auctionId the id of the auction provided in the original request
      * @param resultCode the result code
      */
-    void rejectAddBid(String correlationId, long auctionId, AddAuctionBidResult resultCode);
+    void rejectAddBid(DirectBuffer correlationId, long auctionId, AddAuctionBidResult resultCode);
 
     /**
      * Pushes an update to the state of an auction
@@ -76,7 +81,7 @@ public interface ClusterClientResponder
      * @param winningParticipantId the id of the winning participant
      */
     void onAuctionUpdated(
-        String correlationId,
+        DirectBuffer correlationId,
         long auctionId,
         AuctionStatus auctionStatus,
         long currentPrice,
@@ -101,26 +106,208 @@ public interface ClusterClientResponder
         long lastUpdateTime,
         long winningParticipantId);
 
+    /**
+     * Starts holding back the auction state updates of the current command or timer event, so that they can be
+     * broadcast together; a mass open or close of auctions then costs one message per session rather than one per
+     * auction
+     */
+    void beginStateUpdates();
+
+    /**
+     * Broadcasts the auction state updates held back since {@link #beginStateUpdates()}, a single update as an
+     * AuctionUpdateEvent and several as one AuctionUpdateBatchEvent per session, holding the updates it subscribes to
+     */
+    void endStateUpdates();
+
     /**
      * Acknowledges that a participant has been added to the client using the correlation they provided
      * @param participantId the id of the participant added
      * @param correlationId the correlation id provided by the client
      */
-    void acknowledgeParticipantAdded(long participantId, String correlationId);
+    void acknowledgeParticipantAdded(long participantId, DirectBuffer correlationId);
 
     /**
      * Lists all auctions in the cluster
      *
      * @param auctionList   the list of auctions to return
-     * @param correlationId
+     * @param correlationId the correlation id provided by the client
      */
-    void returnAuctionList(List<Auction> auctionList, String correlationId);
+    void returnAuctionList(List<Auction> auctionList, DirectBuffer correlationId);
 
     /**
      * Lists all participants in the cluster
      *
      * @param participantList the list of participants to return
-     * @param correlationId
+     * @param correlationId   the correlation id provided by the client
+     */
+    void returnParticipantList(List<Participant> participantList, DirectBuffer correlationId);
+
+    /**
+     * Returns the highest bids of an auction
+     *
+     * @param correlationId the correlation id provided by the client
+     * @param auction       the auction
+     * @param bidHistory    the retained bids of the auction, highest first
+     * @param depth         the maximum number of bids to return
+     */
+    void returnAuctionBidHistory(DirectBuffer correlationId, Auction auction, BidHistory bidHistory, int depth);
+
+    /**
+     * Responds to the client that the bid history of an unknown auction was requested
+     *
+     * @param correlationId the correlation id provided by the client
+     * @param auctionId     the id of the auction provided in the original request
+     */
+    void rejectAuctionBidHistory(DirectBuffer correlationId, long auctionId);
+
+    /**
+     * Responds to the client with the result of registering a proxy bid
+     *
+     * @param correlationId the correlation id provided by the client
+     * @param auctionId     the id of the auction provided in the original request
+     * @param result        the result code
+     */
+    void onProxyBidRegistered(DirectBuffer correlationId, long auctionId, AddAuctionBidResult result);
+
+    /**
+     * Responds to the client with the result of cancelling a proxy bid
+     *
+     * @param correlationId the correlation id provided by the client
+     * @param auctionId     the id of the auction provided in the original request
+     * @param result        the result code
+     */
+    void onProxyBidCancelled(DirectBuffer correlationId, long auctionId, AddAuctionBidResult result);
+
+    /**
+     * Responds to the client with the result of subscribing to or unsubscribing from an auction
+     *
+     * @param correlationId the correlation id provided by the client
+     * @param auctionId     the id of the auction provided in the original request
+     * @param subscribed    true if the client is now subscribed, false if it is not
+     * @param result        the result code
+     */
+    void onSubscriptionChanged(
+        DirectBuffer correlationId,
+        long auctionId,
+        boolean subscribed,
+        AddAuctionBidResult result);
+
+    /**
+     * Starts the single result message for a batch of bids, which holds the result of each bid in submission order
+     *
+     * @param correlationId the correlation id provided by the client, which is copied
+     * @param bidCount      the number of bids in the batch
+     */
+    void beginAddBidBatch(DirectBuffer correlationId, int bidCount);
+
+    /**
+     * Adds the result of the next bid in the batch to the result message
+     *
+     * @param auctionId the id of the auction provided for the bid
+     * @param result    the result code
+     */
+    void onBatchedBidResult(long auctionId, AddAuctionBidResult result);
+
+    /**
+     * Responds to the client with the result message for the batch once every bid result has been added
+     */
+    void endAddBidBatch();
+
+    /**
+     * Starts the single result message for a batch of new auctions, which holds the result of each in submission order
+     *
+     * @param correlationId the correlation id provided by the client, which is copied
+     * @param auctionCount  the number of auctions in the batch
+     */
+    void beginAddAuctionBatch(DirectBuffer correlationId, int auctionCount);
+
+    /**
+     * Adds the result of the next auction in the batch to the result message
+     *
+     * @param auctionId the id of the auction added, or -1 if rejected
+     * @param result    the result code
+     */
+    void onBatchedAuctionResult(long auctionId, AddAuctionResult result);
+
+    /**
+     * Responds to the client with the result message for the batch once every auction result has been added
+     */
+    void endAddAuctionBatch();
+
+    /**
+     * Starts the single event broadcasting the auctions added by a batch
+     *
+     * @param auctionCount the number of auctions added
+     */
+    void beginNewAuctionBatch(int auctionCount);
+
+    /**
+     * Adds the next auction to the new auction batch event
+     *
+     * @param auction the auction added
+     */
+    void onBatchedNewAuction(Auction auction);
+
+    /**
+     * Broadcasts the new auction batch event to all clients once every auction has been added
+     */
+    void endNewAuctionBatch();
+
+    /**
+     * Starts the reply holding a page of auctions
+     *
+     * @param correlationId           the correlation id of the page request
+     * @param auctionCount            the number of auctions in the page
+     * @param nextStartAfterAuctionId the auction id to start the next page after, or -1 if there are no more
+     */
+    void beginAuctionPage(DirectBuffer correlationId, int auctionCount, long nextStartAfterAuctionId);
+
+    /**
+     * Adds the next auction to the page
+     *
+     * @param auction the auction
+     */
+    void onPagedAuction(Auction auction);
+
+    /**
+     * Responds to the client with the page once every auction has been added
+     */
+    void endAuctionPage();
+
+    /**
+     * Starts the reply holding the auctions changed and removed since a state version. Every changed auction is added
+     * before any removed auction.
+     *
+     * @param correlationId  the correlation id of the request
+     * @param toVersion      the state version the changes are complete to
+     * @param resyncRequired true if the changes are no longer known and the client must list the auctions again
+     * @param changedCount   the number of changed auctions to be added
+     * @param removedCount   the number of removed auctions to be added
+     */
+    void beginAuctionChanges(
+        DirectBuffer correlationId,
+        long toVersion,
+        boolean resyncRequired,
+        int changedCount,
+        int removedCount);
+
+    /**
+     * Adds the next changed auction to the reply
+     *
+     * @param auction the auction, with its last modified version
+     */
+    void onChangedAuction(Auction auction);
+
+    /**
+     * Adds the next removed auction to the reply
+     *
+     * @param auctionId the auction id
+     * @param version   the state version at which it was removed
+     */
+    void onRemovedAuction(long auctionId, long version);
+
+    /**
+     * Responds to the client with the changes once every changed and removed auction has been added
      */
-    void returnParticipantList(List<Participant> participantList, String correlationId);
+    void endAuctionChanges();
 }
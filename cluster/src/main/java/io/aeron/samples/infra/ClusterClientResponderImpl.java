@@ -16,20 +16,33 @@
 
 package io.aeron.samples.infra;
 
+import io.aeron.samples.cluster.protocol.AddAuctionBidBatchCommandResultEncoder;
 import io.aeron.samples.cluster.protocol.AddAuctionBidCommandResultEncoder;
 import io.aeron.samples.cluster.protocol.AddParticipantCommandResultEncoder;
+import io.aeron.samples.cluster.protocol.AuctionBidHistoryEncoder;
+import io.aeron.samples.cluster.protocol.AuctionChangesEncoder;
 import io.aeron.samples.cluster.protocol.AuctionListEncoder;
-import io.aeron.samples.cluster.protocol.AuctionUpdateEventEncoder;
+import io.aeron.samples.cluster.protocol.AuctionPageEncoder;
+import io.aeron.samples.cluster.protocol.AuctionSubscriptionResultEncoder;
+import io.aeron.samples.cluster.protocol.BooleanType;
+import io.aeron.samples.cluster.protocol.CancelProxyBidCommandResultEncoder;
+import io.aeron.samples.cluster.protocol.CreateAuctionBatchCommandResultEncoder;
 import io.aeron.samples.cluster.protocol.CreateAuctionCommandResultEncoder;
 import io.aeron.samples.cluster.protocol.MessageHeaderEncoder;
+import io.aeron.samples.cluster.protocol.NewAuctionBatchEventEncoder;
 import io.aeron.samples.cluster.protocol.NewAuctionEventEncoder;
 import io.aeron.samples.cluster.protocol.ParticipantListEncoder;
+import io.aeron.samples.cluster.protocol.RegisterProxyBidCommandResultEncoder;
+import io.aeron.samples.cluster.protocol.UuidEncoder;
 import io.aeron.samples.domain.auctions.AddAuctionBidResult;
 import io.aeron.samples.domain.auctions.AddAuctionResult;
 import io.aeron.samples.domain.auctions.Auction;
 import io.aeron.samples.domain.auctions.AuctionStatus;
+import io.aeron.samples.domain.auctions.BidHistory;
 import io.aeron.samples.domain.participants.Participant;
+import org.agrona.DirectBuffer;
 import org.agrona.ExpandableDirectByteBuffer;
+import org.agrona.MutableDirectBuffer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -41,7 +54,10 @@ import java.util.List;
 public class ClusterClientResponderImpl implements ClusterClientResponder
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(ClusterClientResponderImpl.class);
-    private final SessionMessageContextImpl context;
+    private static final int CORRELATION_ID_LENGTH = UuidEncoder.ENCODED_LENGTH;
+    private static final int BID_RESULT_LENGTH =
+        MessageHeaderEncoder.ENCODED_LENGTH + AddAuctionBidCommandResultEncoder.BLOCK_LENGTH;
+    private final SessionMessageContext context;
     private final CreateAuctionCommandResultEncoder createAuctionResultEncoder =
         new CreateAuctionCommandResultEncoder();
     private final NewAuctionEventEncoder newAuctionEventEncoder = new NewAuctionEventEncoder();
@@ -49,24 +65,52 @@ public class ClusterClientResponderImpl implements ClusterClientResponder
         new AddAuctionBidCommandResultEncoder();
     private final AddParticipantCommandResultEncoder addParticipantResultEncoder =
         new AddParticipantCommandResultEncoder();
-    private final AuctionUpdateEventEncoder auctionUpdateEncoder = new AuctionUpdateEventEncoder();
     private final MessageHeaderEncoder messageHeaderEncoder = new MessageHeaderEncoder();
     private final ExpandableDirectByteBuffer buffer = new ExpandableDirectByteBuffer(1024);
     private final AuctionListEncoder auctionListEncoder = new AuctionListEncoder();
     private final ParticipantListEncoder participantListEncoder = new ParticipantListEncoder();
+    private final AuctionBidHistoryEncoder auctionBidHistoryEncoder = new AuctionBidHistoryEncoder();
+    private final RegisterProxyBidCommandResultEncoder registerProxyBidResultEncoder =
+        new RegisterProxyBidCommandResultEncoder();
+    private final CancelProxyBidCommandResultEncoder cancelProxyBidResultEncoder =
+        new CancelProxyBidCommandResultEncoder();
+    private final AuctionSubscriptionResultEncoder subscriptionResultEncoder =
+        new AuctionSubscriptionResultEncoder();
+    private final ExpandableDirectByteBuffer batchBuffer = new ExpandableDirectByteBuffer(1024);
+    private final AddAuctionBidBatchCommandResultEncoder addBidBatchResultEncoder =
+        new AddAuctionBidBatchCommandResultEncoder();
+    private AddAuctionBidBatchCommandResultEncoder.ResultsEncoder batchResultsEncoder;
+    private final CreateAuctionBatchCommandResultEncoder createAuctionBatchResultEncoder =
+        new CreateAuctionBatchCommandResultEncoder();
+    private CreateAuctionBatchCommandResultEncoder.ResultsEncoder auctionBatchResultsEncoder;
+    private final NewAuctionBatchEventEncoder newAuctionBatchEventEncoder = new NewAuctionBatchEventEncoder();
+    private NewAuctionBatchEventEncoder.AuctionsEncoder newAuctionsEncoder;
+    private final AuctionPageEncoder auctionPageEncoder = new AuctionPageEncoder();
+    private AuctionPageEncoder.AuctionsEncoder pagedAuctionsEncoder;
+    private final AuctionChangesEncoder auctionChangesEncoder = new AuctionChangesEncoder();
+    private AuctionChangesEncoder.AuctionsEncoder changedAuctionsEncoder;
+    private AuctionChangesEncoder.RemovedAuctionsEncoder removedAuctionsEncoder;
+    private int removedAuctionCount;
+    private final AuctionUpdateBatch stateUpdates = new AuctionUpdateBatch();
+    private boolean batchingStateUpdates;
+    private final SessionMessageContext.MessageEncoder bidResultWriter = this::encodeBidResult;
+    private final SessionMessageContext.MessageEncoder stateUpdateWriter = this::encodeStateUpdate;
+    private DirectBuffer bidResultCorrelationId;
+    private long bidResultAuctionId;
+    private AddAuctionBidResult bidResult;
     /**
      * Constructor
      *
      * @param context the context to use in order to interact with clients
      */
-    public ClusterClientResponderImpl(final SessionMessageContextImpl context)
+    public ClusterClientResponderImpl(final SessionMessageContext context)
     {
         this.context = context;
     }
 
     /**
      * Responds to the client that an auction has been added with a result code and the auction id
-     * and broadcasts the new auction to all clients
+     * and broadcasts the new auction to the clients subscribed to every auction
      * @param auctionId the id of the auction
      * @param result the result code
      * @param startTime the start time of the auction
@@ -76,18 +120,20 @@ public class ClusterClientResponderImpl implements ClusterClientResponder
      */
     @Override
     public void onAuctionAdded(
-        final String correlationId,
+        final DirectBuffer correlationId,
         final long auctionId,
         final AddAuctionResult result,
         final long startTime,
         final long endTime,
-        final String name,
-        final String description)
+        final DirectBuffer name,
+        final DirectBuffer description)
     {
         createAuctionResultEncoder.wrapAndApplyHeader(buffer, 0, messageHeaderEncoder)
             .auctionId(auctionId)
-            .result(mapAddAuctionResult(result))
-            .correlationId(correlationId);
+            .result(mapAddAuctionResult(result));
+        putCorrelationId(
+            createAuctionResultEncoder.offset() + CreateAuctionCommandResultEncoder.correlationIdEncodingOffset(),
+            correlationId);
 
         context.reply(buffer, 0, MessageHeaderEncoder.ENCODED_LENGTH + createAuctionResultEncoder.encodedLength());
 
@@ -95,8 +141,8 @@ public class ClusterClientResponderImpl implements ClusterClientResponder
             .auctionId(auctionId)
             .startTime(startTime)
             .endTime(endTime)
-            .name(name)
-            .description(description);
+            .putName(name, 0, name.capacity())
+            .putDescription(description, 0, description.capacity());
 
         context.broadcast(buffer, 0, MessageHeaderEncoder.ENCODED_LENGTH + newAuctionEventEncoder.encodedLength());
     }
@@ -106,12 +152,14 @@ public class ClusterClientResponderImpl implements ClusterClientResponder
      * @param result the result code
      */
     @Override
-    public void rejectAddAuction(final String correlationId, final AddAuctionResult result)
+    public void rejectAddAuction(final DirectBuffer correlationId, final AddAuctionResult result)
     {
         createAuctionResultEncoder.wrapAndApplyHeader(buffer, 0, messageHeaderEncoder)
             .auctionId(-1)
-            .result(mapAddAuctionResult(result))
-            .correlationId(correlationId);
+            .result(mapAddAuctionResult(result));
+        putCorrelationId(
+            createAuctionResultEncoder.offset() + CreateAuctionCommandResultEncoder.correlationIdEncodingOffset(),
+            correlationId);
         context.reply(buffer, 0, MessageHeaderEncoder.ENCODED_LENGTH + createAuctionResultEncoder.encodedLength());
     }
 
@@ -122,18 +170,17 @@ public class ClusterClientResponderImpl implements ClusterClientResponder
      * @param resultCode the result code
      */
     @Override
-    public void rejectAddBid(final String correlationId, final long auctionId, final AddAuctionBidResult resultCode)
+    public void rejectAddBid(
+        final DirectBuffer correlationId,
+        final long auctionId,
+        final AddAuctionBidResult resultCode)
     {
-        addAuctionBidResultEncoder.wrapAndApplyHeader(buffer, 0, messageHeaderEncoder);
-        addAuctionBidResultEncoder.auctionId(auctionId);
-        addAuctionBidResultEncoder.result(mapAddAuctionBidResult(resultCode));
-        addAuctionBidResultEncoder.correlationId(correlationId);
-        context.reply(buffer, 0, MessageHeaderEncoder.ENCODED_LENGTH + addAuctionBidResultEncoder.encodedLength());
+        replyBidResult(correlationId, auctionId, resultCode);
     }
 
     @Override
     public void onAuctionUpdated(
-        final String correlationId,
+        final DirectBuffer correlationId,
         final long auctionId,
         final AuctionStatus auctionStatus,
         final long currentPrice,
@@ -141,11 +188,7 @@ public class ClusterClientResponderImpl implements ClusterClientResponder
         final long lastUpdateTime,
         final long winningParticipantId)
     {
-        addAuctionBidResultEncoder.wrapAndApplyHeader(buffer, 0, messageHeaderEncoder);
-        addAuctionBidResultEncoder.auctionId(auctionId);
-        addAuctionBidResultEncoder.result(mapAddAuctionBidResult(AddAuctionBidResult.SUCCESS));
-        addAuctionBidResultEncoder.correlationId(correlationId);
-        context.reply(buffer, 0, MessageHeaderEncoder.ENCODED_LENGTH + addAuctionBidResultEncoder.encodedLength());
+        replyBidResult(correlationId, auctionId, AddAuctionBidResult.SUCCESS);
 
         onAuctionStateUpdate(auctionId, auctionStatus, currentPrice, bidCount, lastUpdateTime, winningParticipantId);
     }
@@ -159,30 +202,43 @@ public class ClusterClientResponderImpl implements ClusterClientResponder
         final long lastUpdateTime,
         final long winningParticipantId)
     {
-        auctionUpdateEncoder.wrapAndApplyHeader(buffer, 0, messageHeaderEncoder);
-        auctionUpdateEncoder.auctionId(auctionId);
-        auctionUpdateEncoder.status(mapAuctionStatus(auctionStatus));
-        auctionUpdateEncoder.currentPrice(currentPrice);
-        auctionUpdateEncoder.bidCount(bidCount);
-        auctionUpdateEncoder.lastUpdate(lastUpdateTime);
-        auctionUpdateEncoder.winningParticipantId(winningParticipantId);
-        context.broadcast(buffer, 0, MessageHeaderEncoder.ENCODED_LENGTH + auctionUpdateEncoder.encodedLength());
+        stateUpdates.add(auctionId, mapAuctionStatus(auctionStatus), currentPrice, bidCount, lastUpdateTime,
+            winningParticipantId);
+        if (!batchingStateUpdates)
+        {
+            sendStateUpdates();
+        }
+    }
+
+    @Override
+    public void beginStateUpdates()
+    {
+        batchingStateUpdates = true;
     }
 
     @Override
-    public void acknowledgeParticipantAdded(final long participantId, final String correlationId)
+    public void endStateUpdates()
+    {
+        batchingStateUpdates = false;
+        sendStateUpdates();
+    }
+
+    @Override
+    public void acknowledgeParticipantAdded(final long participantId, final DirectBuffer correlationId)
     {
         addParticipantResultEncoder.wrapAndApplyHeader(buffer, 0, messageHeaderEncoder);
-        addParticipantResultEncoder.correlationId(correlationId);
+        putCorrelationId(
+            addParticipantResultEncoder.offset() + AddParticipantCommandResultEncoder.correlationIdEncodingOffset(),
+            correlationId);
         addParticipantResultEncoder.participantId(participantId);
         context.reply(buffer, 0, MessageHeaderEncoder.ENCODED_LENGTH + addParticipantResultEncoder.encodedLength());
     }
 
     @Override
-    public void returnAuctionList(final List<Auction> auctionList, final String correlationId)
+    public void returnAuctionList(final List<Auction> auctionList, final DirectBuffer correlationId)
     {
         auctionListEncoder.wrapAndApplyHeader(buffer, 0, messageHeaderEncoder);
-        auctionListEncoder.correlationId(correlationId);
+        putCorrelationId(auctionListEncoder.offset() + AuctionListEncoder.correlationIdEncodingOffset(), correlationId);
 
         final AuctionListEncoder.AuctionsEncoder auctionsEncoder =
             auctionListEncoder.auctionsCount(auctionList.size());
@@ -198,17 +254,18 @@ public class ClusterClientResponderImpl implements ClusterClientResponder
                 .winningParticipantId(auction.getWinningParticipantId())
                 .currentPrice(auction.getCurrentPrice())
                 .status(mapAuctionStatus(auction.getAuctionStatus()))
-                .name(auction.getName());
+                .putName(auction.getStringBuffer(), auction.getNameOffset(), auction.getNameLength());
         }
 
         context.reply(buffer, 0, MessageHeaderEncoder.ENCODED_LENGTH + auctionListEncoder.encodedLength());
     }
 
     @Override
-    public void returnParticipantList(final List<Participant> participants, final String correlationId)
+    public void returnParticipantList(final List<Participant> participants, final DirectBuffer correlationId)
     {
         participantListEncoder.wrapAndApplyHeader(buffer, 0, messageHeaderEncoder);
-        participantListEncoder.correlationId(correlationId);
+        putCorrelationId(
+            participantListEncoder.offset() + ParticipantListEncoder.correlationIdEncodingOffset(), correlationId);
 
         final ParticipantListEncoder.ParticipantsEncoder participantsEncoder =
             participantListEncoder.participantsCount(participants.size());
@@ -225,6 +282,341 @@ public class ClusterClientResponderImpl implements ClusterClientResponder
             participantListEncoder.encodedLength());
     }
 
+    @Override
+    public void returnAuctionBidHistory(
+        final DirectBuffer correlationId,
+        final Auction auction,
+        final BidHistory bidHistory,
+        final int depth)
+    {
+        auctionBidHistoryEncoder.wrapAndApplyHeader(buffer, 0, messageHeaderEncoder);
+        putCorrelationId(
+            auctionBidHistoryEncoder.offset() + AuctionBidHistoryEncoder.correlationIdEncodingOffset(), correlationId);
+        auctionBidHistoryEncoder.auctionId(auction.getAuctionId())
+            .status(mapAuctionStatus(auction.getAuctionStatus()))
+            .bidCount(auction.getBidCount());
+
+        final int count = Math.max(0, Math.min(depth, bidHistory.size()));
+        final AuctionBidHistoryEncoder.BidsEncoder bidsEncoder = auctionBidHistoryEncoder.bidsCount(count);
+        for (int i = 0; i < count; i++)
+        {
+            bidsEncoder.next()
+                .participantId(bidHistory.participantId(i))
+                .price(bidHistory.price(i))
+                .time(bidHistory.time(i));
+        }
+
+        context.reply(buffer, 0, MessageHeaderEncoder.ENCODED_LENGTH + auctionBidHistoryEncoder.encodedLength());
+    }
+
+    @Override
+    public void rejectAuctionBidHistory(final DirectBuffer correlationId, final long auctionId)
+    {
+        auctionBidHistoryEncoder.wrapAndApplyHeader(buffer, 0, messageHeaderEncoder);
+        putCorrelationId(
+            auctionBidHistoryEncoder.offset() + AuctionBidHistoryEncoder.correlationIdEncodingOffset(), correlationId);
+        auctionBidHistoryEncoder.auctionId(auctionId)
+            .status(io.aeron.samples.cluster.protocol.AuctionStatus.UNKNOWN)
+            .bidCount(0)
+            .bidsCount(0);
+
+        context.reply(buffer, 0, MessageHeaderEncoder.ENCODED_LENGTH + auctionBidHistoryEncoder.encodedLength());
+    }
+
+    @Override
+    public void onProxyBidRegistered(
+        final DirectBuffer correlationId,
+        final long auctionId,
+        final AddAuctionBidResult result)
+    {
+        registerProxyBidResultEncoder.wrapAndApplyHeader(buffer, 0, messageHeaderEncoder)
+            .auctionId(auctionId)
+            .result(mapAddAuctionBidResult(result));
+        putCorrelationId(
+            registerProxyBidResultEncoder.offset() + RegisterProxyBidCommandResultEncoder.correlationIdEncodingOffset(),
+            correlationId);
+        context.reply(buffer, 0, MessageHeaderEncoder.ENCODED_LENGTH + registerProxyBidResultEncoder.encodedLength());
+    }
+
+    @Override
+    public void onProxyBidCancelled(
+        final DirectBuffer correlationId,
+        final long auctionId,
+        final AddAuctionBidResult result)
+    {
+        cancelProxyBidResultEncoder.wrapAndApplyHeader(buffer, 0, messageHeaderEncoder)
+            .auctionId(auctionId)
+            .result(mapAddAuctionBidResult(result));
+        putCorrelationId(
+            cancelProxyBidResultEncoder.offset() + CancelProxyBidCommandResultEncoder.correlationIdEncodingOffset(),
+            correlationId);
+        context.reply(buffer, 0, MessageHeaderEncoder.ENCODED_LENGTH + cancelProxyBidResultEncoder.encodedLength());
+    }
+
+    @Override
+    public void onSubscriptionChanged(
+        final DirectBuffer correlationId,
+        final long auctionId,
+        final boolean subscribed,
+        final AddAuctionBidResult result)
+    {
+        subscriptionResultEncoder.wrapAndApplyHeader(buffer, 0, messageHeaderEncoder)
+            .auctionId(auctionId)
+            .subscribed(subscribed ? BooleanType.TRUE : BooleanType.FALSE)
+            .result(mapAddAuctionBidResult(result));
+        putCorrelationId(
+            subscriptionResultEncoder.offset() + AuctionSubscriptionResultEncoder.correlationIdEncodingOffset(),
+            correlationId);
+        context.reply(buffer, 0, MessageHeaderEncoder.ENCODED_LENGTH + subscriptionResultEncoder.encodedLength());
+    }
+
+    /**
+     * Starts the batch result in its own buffer, so that any other response sent while the batch is being processed
+     * cannot overwrite it
+     * @param correlationId the correlation id provided by the client
+     * @param bidCount      the number of bids in the batch
+     */
+    @Override
+    public void beginAddBidBatch(final DirectBuffer correlationId, final int bidCount)
+    {
+        addBidBatchResultEncoder.wrapAndApplyHeader(batchBuffer, 0, messageHeaderEncoder);
+        putCorrelationId(batchBuffer,
+            addBidBatchResultEncoder.offset() + AddAuctionBidBatchCommandResultEncoder.correlationIdEncodingOffset(),
+            correlationId);
+        batchResultsEncoder = addBidBatchResultEncoder.resultsCount(bidCount);
+    }
+
+    @Override
+    public void onBatchedBidResult(final long auctionId, final AddAuctionBidResult result)
+    {
+        batchResultsEncoder.next()
+            .auctionId(auctionId)
+            .result(mapAddAuctionBidResult(result));
+    }
+
+    @Override
+    public void endAddBidBatch()
+    {
+        batchResultsEncoder = null;
+        context.reply(batchBuffer, 0, MessageHeaderEncoder.ENCODED_LENGTH + addBidBatchResultEncoder.encodedLength());
+    }
+
+    @Override
+    public void beginAddAuctionBatch(final DirectBuffer correlationId, final int auctionCount)
+    {
+        createAuctionBatchResultEncoder.wrapAndApplyHeader(batchBuffer, 0, messageHeaderEncoder);
+        putCorrelationId(batchBuffer,
+            createAuctionBatchResultEncoder.offset() +
+            CreateAuctionBatchCommandResultEncoder.correlationIdEncodingOffset(),
+            correlationId);
+        auctionBatchResultsEncoder = createAuctionBatchResultEncoder.resultsCount(auctionCount);
+    }
+
+    @Override
+    public void onBatchedAuctionResult(final long auctionId, final AddAuctionResult result)
+    {
+        auctionBatchResultsEncoder.next()
+            .auctionId(auctionId)
+            .result(mapAddAuctionResult(result));
+    }
+
+    @Override
+    public void endAddAuctionBatch()
+    {
+        auctionBatchResultsEncoder = null;
+        context.reply(batchBuffer, 0,
+            MessageHeaderEncoder.ENCODED_LENGTH + createAuctionBatchResultEncoder.encodedLength());
+    }
+
+    @Override
+    public void beginNewAuctionBatch(final int auctionCount)
+    {
+        newAuctionBatchEventEncoder.wrapAndApplyHeader(batchBuffer, 0, messageHeaderEncoder);
+        newAuctionsEncoder = newAuctionBatchEventEncoder.auctionsCount(auctionCount);
+    }
+
+    @Override
+    public void onBatchedNewAuction(final Auction auction)
+    {
+        newAuctionsEncoder.next()
+            .auctionId(auction.getAuctionId())
+            .startTime(auction.getStartTime())
+            .endTime(auction.getEndTime())
+            .putName(auction.getStringBuffer(), auction.getNameOffset(), auction.getNameLength());
+    }
+
+    @Override
+    public void endNewAuctionBatch()
+    {
+        newAuctionsEncoder = null;
+        context.broadcast(batchBuffer, 0,
+            MessageHeaderEncoder.ENCODED_LENGTH + newAuctionBatchEventEncoder.encodedLength());
+    }
+
+    @Override
+    public void beginAuctionPage(
+        final DirectBuffer correlationId,
+        final int auctionCount,
+        final long nextStartAfterAuctionId)
+    {
+        auctionPageEncoder.wrapAndApplyHeader(batchBuffer, 0, messageHeaderEncoder);
+        putCorrelationId(batchBuffer,
+            auctionPageEncoder.offset() + AuctionPageEncoder.correlationIdEncodingOffset(), correlationId);
+        auctionPageEncoder.nextStartAfterAuctionId(nextStartAfterAuctionId);
+        pagedAuctionsEncoder = auctionPageEncoder.auctionsCount(auctionCount);
+    }
+
+    @Override
+    public void onPagedAuction(final Auction auction)
+    {
+        pagedAuctionsEncoder.next()
+            .auctionId(auction.getAuctionId())
+            .createdByParticipantId(auction.getCreatedByParticipantId())
+            .startTime(auction.getStartTime())
+            .endTime(auction.getEndTime())
+            .winningParticipantId(auction.getWinningParticipantId())
+            .currentPrice(auction.getCurrentPrice())
+            .status(mapAuctionStatus(auction.getAuctionStatus()))
+            .putName(auction.getStringBuffer(), auction.getNameOffset(), auction.getNameLength());
+    }
+
+    @Override
+    public void endAuctionPage()
+    {
+        pagedAuctionsEncoder = null;
+        context.reply(batchBuffer, 0, MessageHeaderEncoder.ENCODED_LENGTH + auctionPageEncoder.encodedLength());
+    }
+
+    @Override
+    public void beginAuctionChanges(
+        final DirectBuffer correlationId,
+        final long toVersion,
+        final boolean resyncRequired,
+        final int changedCount,
+        final int removedCount)
+    {
+        auctionChangesEncoder.wrapAndApplyHeader(batchBuffer, 0, messageHeaderEncoder);
+        putCorrelationId(batchBuffer,
+            auctionChangesEncoder.offset() + AuctionChangesEncoder.correlationIdEncodingOffset(), correlationId);
+        auctionChangesEncoder.toVersion(toVersion);
+        auctionChangesEncoder.resyncRequired(resyncRequired ? BooleanType.TRUE : BooleanType.FALSE);
+        changedAuctionsEncoder = auctionChangesEncoder.auctionsCount(changedCount);
+        removedAuctionCount = removedCount;
+    }
+
+    @Override
+    public void onChangedAuction(final Auction auction)
+    {
+        changedAuctionsEncoder.next()
+            .auctionId(auction.getAuctionId())
+            .version(auction.getLastModifiedVersion())
+            .createdByParticipantId(auction.getCreatedByParticipantId())
+            .startTime(auction.getStartTime())
+            .endTime(auction.getEndTime())
+            .winningParticipantId(auction.getWinningParticipantId())
+            .currentPrice(auction.getCurrentPrice())
+            .bidCount(auction.getBidCount())
+            .status(mapAuctionStatus(auction.getAuctionStatus()))
+            .putName(auction.getStringBuffer(), auction.getNameOffset(), auction.getNameLength());
+    }
+
+    @Override
+    public void onRemovedAuction(final long auctionId, final long version)
+    {
+        //the removed group follows the changed group, so its header is only written once the changes are complete
+        if (null == removedAuctionsEncoder)
+        {
+            removedAuctionsEncoder = auctionChangesEncoder.removedAuctionsCount(removedAuctionCount);
+        }
+        removedAuctionsEncoder.next()
+            .auctionId(auctionId)
+            .version(version);
+    }
+
+    @Override
+    public void endAuctionChanges()
+    {
+        if (null == removedAuctionsEncoder)
+        {
+            auctionChangesEncoder.removedAuctionsCount(0);
+        }
+        changedAuctionsEncoder = null;
+        removedAuctionsEncoder = null;
+        context.reply(batchBuffer, 0, MessageHeaderEncoder.ENCODED_LENGTH + auctionChangesEncoder.encodedLength());
+    }
+
+    /**
+     * Replies with an AddAuctionBidCommandResult, which is encoded straight into the caller's egress where it can be
+     * claimed there
+     * @param correlationId the correlation id for the original request
+     * @param auctionId     the id of the auction provided in the original request
+     * @param result        the result code
+     */
+    private void replyBidResult(
+        final DirectBuffer correlationId,
+        final long auctionId,
+        final AddAuctionBidResult result)
+    {
+        bidResultCorrelationId = correlationId;
+        bidResultAuctionId = auctionId;
+        bidResult = result;
+        context.reply(BID_RESULT_LENGTH, bidResultWriter);
+    }
+
+    private void encodeBidResult(final MutableDirectBuffer target, final int offset)
+    {
+        addAuctionBidResultEncoder.wrapAndApplyHeader(target, offset, messageHeaderEncoder)
+            .auctionId(bidResultAuctionId)
+            .result(mapAddAuctionBidResult(bidResult));
+        putCorrelationId(target,
+            addAuctionBidResultEncoder.offset() + AddAuctionBidCommandResultEncoder.correlationIdEncodingOffset(),
+            bidResultCorrelationId);
+    }
+
+    /**
+     * Sends the state updates collected so far: a single update is encoded straight into each subscriber's egress
+     * where it can be claimed there, while several go as batches
+     */
+    private void sendStateUpdates()
+    {
+        final int size = stateUpdates.size();
+        if (1 == size)
+        {
+            context.broadcast(stateUpdates.auctionId(0), AuctionUpdateBatch.UPDATE_LENGTH, stateUpdateWriter);
+        }
+        else if (size > 1)
+        {
+            context.broadcast(stateUpdates);
+        }
+        stateUpdates.clear();
+    }
+
+    private void encodeStateUpdate(final MutableDirectBuffer target, final int offset)
+    {
+        stateUpdates.encodeUpdate(target, offset, 0);
+    }
+
+    /**
+     * Copies a correlation id into the fixed length correlation id field of the message being encoded, padding with
+     * zeros if the id is shorter than the field
+     * @param offset        the offset of the correlation id field in the buffer
+     * @param correlationId the correlation id
+     */
+    private void putCorrelationId(final int offset, final DirectBuffer correlationId)
+    {
+        putCorrelationId(buffer, offset, correlationId);
+    }
+
+    private static void putCorrelationId(
+        final MutableDirectBuffer target,
+        final int offset,
+        final DirectBuffer correlationId)
+    {
+        final int length = Math.min(correlationId.capacity(), CORRELATION_ID_LENGTH);
+        target.putBytes(offset, correlationId, 0, length);
+        target.setMemory(offset + length, CORRELATION_ID_LENGTH - length, (byte)0);
+    }
+
     private io.aeron.samples.cluster.protocol.AuctionStatus mapAuctionStatus(final AuctionStatus status)
     {
         switch (status)
@@ -280,6 +672,10 @@ public class ClusterClientResponderImpl implements ClusterClientResponder
             {
                 return io.aeron.samples.cluster.protocol.AddAuctionBidResult.CANNOT_SELF_BID;
             }
+            case NO_PROXY_BID ->
+            {
+                return io.aeron.samples.cluster.protocol.AddAuctionBidResult.NO_PROXY_BID;
+            }
             default -> LOGGER.error("Unknown AddAuctionBidResult: {}", result);
         }
         return io.aeron.samples.cluster.protocol.AddAuctionBidResult.UNKNOWN;
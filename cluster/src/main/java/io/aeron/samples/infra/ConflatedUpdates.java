@@ -0,0 +1,129 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.aeron.samples.infra;
+
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableDirectByteBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.collections.IntArrayList;
+import org.agrona.collections.Long2LongHashMap;
+import org.agrona.collections.LongArrayList;
+
+/**
+ * The latest pending update message of each auction, waiting to be flushed to the sessions which receive conflated
+ * updates.
+ * <p>
+ * Each auction with a pending update holds a fixed size slot in a single buffer, assigned in the order the auctions
+ * were first updated since the last flush. A later update of the same auction overwrites its slot, so however many
+ * updates an auction has between flushes, one message is sent for it. Slots are reused after each flush, so once the
+ * buffer has grown to the busiest interval no further allocation occurs.
+ */
+final class ConflatedUpdates
+{
+    /**
+     * The longest update message which can be conflated
+     */
+    static final int MAX_MESSAGE_LENGTH = 128;
+    private static final long NO_SLOT = -1;
+
+    private final Long2LongHashMap slotByAuctionId = new Long2LongHashMap(NO_SLOT);
+    private final LongArrayList auctionIds = new LongArrayList();
+    private final IntArrayList lengths = new IntArrayList();
+    private final ExpandableDirectByteBuffer slots = new ExpandableDirectByteBuffer(64 * MAX_MESSAGE_LENGTH);
+
+    /**
+     * Records the latest update message of an auction, replacing any pending update
+     * @param auctionId the auction id
+     * @param buffer    the buffer holding the message
+     * @param offset    the offset of the message
+     * @param length    the length of the message, at most {@link #MAX_MESSAGE_LENGTH}
+     */
+    void onUpdate(final long auctionId, final DirectBuffer buffer, final int offset, final int length)
+    {
+        int slot = (int)slotByAuctionId.get(auctionId);
+        if (NO_SLOT == slot)
+        {
+            slot = auctionIds.size();
+            auctionIds.addLong(auctionId);
+            lengths.addInt(length);
+            slotByAuctionId.put(auctionId, slot);
+        }
+        else
+        {
+            lengths.setInt(slot, length);
+        }
+        slots.putBytes(slot * MAX_MESSAGE_LENGTH, buffer, offset, length);
+    }
+
+    /**
+     * Gets the number of auctions with a pending update
+     * @return the number of pending updates
+     */
+    int size()
+    {
+        return auctionIds.size();
+    }
+
+    /**
+     * Gets the auction of a pending update
+     * @param slot the slot, from zero to {@link #size()}
+     * @return the auction id
+     */
+    long auctionId(final int slot)
+    {
+        return auctionIds.getLong(slot);
+    }
+
+    /**
+     * Gets the buffer holding every pending update message
+     * @return the buffer, to be read with {@link #offset(int)} and {@link #length(int)}
+     */
+    MutableDirectBuffer buffer()
+    {
+        return slots;
+    }
+
+    /**
+     * Gets the offset of a pending update message
+     * @param slot the slot, from zero to {@link #size()}
+     * @return the offset within {@link #buffer()}
+     */
+    int offset(final int slot)
+    {
+        return slot * MAX_MESSAGE_LENGTH;
+    }
+
+    /**
+     * Gets the length of a pending update message
+     * @param slot the slot, from zero to {@link #size()}
+     * @return the length of the message
+     */
+    int length(final int slot)
+    {
+        return lengths.getInt(slot);
+    }
+
+    /**
+     * Discards every pending update, once flushed
+     */
+    void clear()
+    {
+        slotByAuctionId.clear();
+        auctionIds.clear();
+        lengths.clear();
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.aeron.samples.infra;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A binary min-heap of timer entries held in parallel primitive arrays, ordered by deadline and then by id.
+ * <p>
+ * Ordering ties on the id keeps the order in which entries with equal deadlines are taken deterministic, which is
+ * required for every cluster member to apply them identically.
+ */
+final class DeadlineQueue
+{
+    private static final int INITIAL_CAPACITY = 64;
+
+    private long[] deadlines = new long[INITIAL_CAPACITY];
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private long[] values = new long[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Adds an entry to the queue
+     * @param deadline the deadline of the entry
+     * @param id       the unique id of the entry
+     * @param value    the value held against the entry
+     */
+    void add(final long deadline, final long id, final long value)
+    {
+        if (size == deadlines.length)
+        {
+            ensureCapacity(deadlines.length << 1);
+        }
+
+        int index = size++;
+        while (index > 0)
+        {
+            final int parent = (index - 1) >>> 1;
+            if (!isBefore(deadline, id, deadlines[parent], ids[parent]))
+            {
+                break;
+            }
+            set(index, deadlines[parent], ids[parent], values[parent]);
+            index = parent;
+        }
+        set(index, deadline, id, value);
+    }
+
+    /**
+     * Grows the queue, if needed, so it can hold the given number of entries without growing again
+     * @param capacity the number of entries to hold
+     */
+    void ensureCapacity(final int capacity)
+    {
+        if (capacity > deadlines.length)
+        {
+            deadlines = Arrays.copyOf(deadlines, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+    }
+
+    /**
+     * Removes the entry with the earliest deadline; the entry should be read with the peek methods first
+     */
+    void removeFirst()
+    {
+        if (size == 0)
+        {
+            throw new NoSuchElementException("Deadline queue is empty");
+        }
+
+        final int last = --size;
+        final long deadline = deadlines[last];
+        final long id = ids[last];
+        final long value = values[last];
+
+        int index = 0;
+        final int half = size >>> 1;
+        while (index < half)
+        {
+            int child = (index << 1) + 1;
+            final int right = child + 1;
+            if (right < size && isBefore(deadlines[right], ids[right], deadlines[child], ids[child]))
+            {
+                child = right;
+            }
+            if (!isBefore(deadlines[child], ids[child], deadline, id))
+            {
+                break;
+            }
+            set(index, deadlines[child], ids[child], values[child]);
+            index = child;
+        }
+        set(index, deadline, id, value);
+    }
+
+    /**
+     * Determines if the queue is empty
+     * @return true if there are no entries
+     */
+    boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /**
+     * Gets the number of entries in the queue
+     * @return the number of entries
+     */
+    int size()
+    {
+        return size;
+    }
+
+    /**
+     * Gets the deadline of the entry with the earliest deadline
+     * @return the earliest deadline
+     */
+    long peekDeadline()
+    {
+        return deadlines[0];
+    }
+
+    /**
+     * Gets the id of the entry with the earliest deadline
+     * @return the id
+     */
+    long peekId()
+    {
+        return ids[0];
+    }
+
+    /**
+     * Gets the value of the entry with the earliest deadline
+     * @return the value
+     */
+    long peekValue()
+    {
+        return values[0];
+    }
+
+    /**
+     * Gets the deadline of the entry at a position in heap order; used for iteration
+     * @param index the position, less than {@link #size()}
+     * @return the deadline
+     */
+    long deadlineAt(final int index)
+    {
+        return deadlines[index];
+    }
+
+    /**
+     * Gets the id of the entry at a position in heap order; used for iteration
+     * @param index the position, less than {@link #size()}
+     * @return the id
+     */
+    long idAt(final int index)
+    {
+        return ids[index];
+    }
+
+    /**
+     * Gets the value of the entry at a position in heap order; used for iteration
+     * @param index the position, less than {@link #size()}
+     * @return the value
+     */
+    long valueAt(final int index)
+    {
+        return values[index];
+    }
+
+    private void set(final int index, final long deadline, final long id, final long value)
+    {
+        deadlines[index] = deadline;
+        ids[index] = id;
+        values[index] = value;
+    }
+
+    private static boolean isBefore(final long deadline, final long id, final long otherDeadline, final long otherId)
+    {
+        return deadline < otherDeadline || (deadline == otherDeadline && id < otherId);
+    }
+}
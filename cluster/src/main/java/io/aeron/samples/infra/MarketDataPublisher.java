@@ -0,0 +1,121 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.aeron.samples.infra;
+
+import io.aeron.ExclusivePublication;
+import io.aeron.cluster.service.Cluster;
+import org.agrona.CloseHelper;
+import org.agrona.DirectBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Publishes each broadcast once to a market data channel, which clients subscribe to directly rather than receiving
+ * auction updates over their session egress.
+ * <p>
+ * The service thread makes one offer per broadcast, whatever the number of clients. Delivery to each client is then
+ * done outside the clustered service: by the media driver's sender for a UDP multicast or multi-destination channel,
+ * or by the subscribers themselves reading the log buffers of an IPC channel. Only the leader publishes, so that
+ * clients see each update once. Offers are never retried, so a slow subscriber cannot stall the service thread; a
+ * client which misses updates can catch up with a {@code ListAuctionChangesCommand}.
+ */
+public class MarketDataPublisher
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(MarketDataPublisher.class);
+    private ExclusivePublication publication;
+    private boolean leader;
+    private long publishedCount;
+    private long droppedCount;
+
+    /**
+     * Sets the publication to the market data channel; without one, nothing is published
+     * @param publication the market data publication
+     */
+    public void setPublication(final ExclusivePublication publication)
+    {
+        this.publication = publication;
+    }
+
+    /**
+     * Publishes only while this node is the leader
+     * @param role the new role of this node
+     */
+    public void onRoleChange(final Cluster.Role role)
+    {
+        leader = Cluster.Role.LEADER == role;
+    }
+
+    /**
+     * Determines if broadcasts are currently published
+     * @return true if there is a publication and this node is the leader
+     */
+    public boolean isEnabled()
+    {
+        return null != publication && leader;
+    }
+
+    /**
+     * Offers a message to the market data channel once, dropping it if the publication is back pressured or not
+     * connected
+     * @param buffer the buffer to read data from
+     * @param offset the offset to read from
+     * @param length the length to read
+     */
+    public void publish(final DirectBuffer buffer, final int offset, final int length)
+    {
+        final long result = publication.offer(buffer, offset, length);
+        if (result > 0L)
+        {
+            publishedCount++;
+        }
+        else
+        {
+            if (0 == droppedCount)
+            {
+                LOGGER.warn("market data offer failed with {}; dropping, further drops are counted only", result);
+            }
+            droppedCount++;
+        }
+    }
+
+    /**
+     * Gets the number of messages published to the market data channel
+     * @return the published count
+     */
+    public long getPublishedCount()
+    {
+        return publishedCount;
+    }
+
+    /**
+     * Gets the number of messages dropped because the market data publication could not take them
+     * @return the dropped count
+     */
+    public long getDroppedCount()
+    {
+        return droppedCount;
+    }
+
+    /**
+     * Closes the market data publication
+     */
+    public void close()
+    {
+        CloseHelper.quietClose(publication);
+        publication = null;
+    }
+}
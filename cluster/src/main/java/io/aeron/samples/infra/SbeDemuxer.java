@@ -16,28 +16,55 @@
 
 package io.aeron.samples.infra;
 
+import io.aeron.samples.cluster.protocol.AddAuctionBidBatchCommandDecoder;
 import io.aeron.samples.cluster.protocol.AddAuctionBidCommandDecoder;
 import io.aeron.samples.cluster.protocol.AddParticipantCommandDecoder;
+import io.aeron.samples.cluster.protocol.AuctionBidHistoryCommandDecoder;
+import io.aeron.samples.cluster.protocol.BooleanType;
+import io.aeron.samples.cluster.protocol.CancelProxyBidCommandDecoder;
+import io.aeron.samples.cluster.protocol.CreateAuctionBatchCommandDecoder;
 import io.aeron.samples.cluster.protocol.CreateAuctionCommandDecoder;
+import io.aeron.samples.cluster.protocol.ListAuctionChangesCommandDecoder;
 import io.aeron.samples.cluster.protocol.ListAuctionsCommandDecoder;
+import io.aeron.samples.cluster.protocol.ListAuctionsPageCommandDecoder;
 import io.aeron.samples.cluster.protocol.ListParticipantsCommandDecoder;
 import io.aeron.samples.cluster.protocol.MessageHeaderDecoder;
+import io.aeron.samples.cluster.protocol.RegisterProxyBidCommandDecoder;
+import io.aeron.samples.cluster.protocol.SubscribeAuctionCommandDecoder;
+import io.aeron.samples.cluster.protocol.UnsubscribeAuctionCommandDecoder;
+import io.aeron.samples.cluster.protocol.UuidDecoder;
 import io.aeron.samples.domain.auctions.Auction;
+import io.aeron.samples.domain.auctions.AuctionStatus;
 import io.aeron.samples.domain.auctions.Auctions;
 import io.aeron.samples.domain.participants.Participant;
 import io.aeron.samples.domain.participants.Participants;
 import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
 
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+import static org.agrona.BitUtil.SIZE_OF_INT;
+import static org.agrona.BitUtil.SIZE_OF_LONG;
+
 /**
  * Demultiplexes messages from the ingress stream to the appropriate domain handler.
  */
 public class SbeDemuxer
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(SbeDemuxer.class);
+    private static final int CORRELATION_ID_LENGTH = UuidDecoder.ENCODED_LENGTH;
+    /**
+     * The schema version before correlation ids became binary UUIDs, still found in logs written by older nodes
+     */
+    static final int LEGACY_SCHEMA_VERSION = 1;
+    private static final int LEGACY_CORRELATION_ID_LENGTH = 36;
+    private static final int LEGACY_PARTICIPANT_CORRELATION_ID_OFFSET = 8;
+    private static final int LEGACY_AUCTION_CORRELATION_ID_OFFSET = 24;
+    private static final int LEGACY_BID_CORRELATION_ID_OFFSET = 24;
+    private static final int VAR_DATA_LENGTH_SIZE = SIZE_OF_INT;
     private final Participants participants;
     private final Auctions auctions;
     private final ClusterClientResponder responder;
@@ -46,9 +73,23 @@ public class SbeDemuxer
 
     private final AddParticipantCommandDecoder addParticipantDecoder = new AddParticipantCommandDecoder();
     private final AddAuctionBidCommandDecoder addAuctionBidDecoder = new AddAuctionBidCommandDecoder();
+    private final AddAuctionBidBatchCommandDecoder addAuctionBidBatchDecoder = new AddAuctionBidBatchCommandDecoder();
     private final CreateAuctionCommandDecoder createAuctionDecoder = new CreateAuctionCommandDecoder();
+    private final CreateAuctionBatchCommandDecoder createAuctionBatchDecoder = new CreateAuctionBatchCommandDecoder();
     private final ListAuctionsCommandDecoder listAuctionsDecoder = new ListAuctionsCommandDecoder();
+    private final ListAuctionsPageCommandDecoder listAuctionsPageDecoder = new ListAuctionsPageCommandDecoder();
+    private final ListAuctionChangesCommandDecoder listAuctionChangesDecoder = new ListAuctionChangesCommandDecoder();
     private final ListParticipantsCommandDecoder listParticipantsDecoder = new ListParticipantsCommandDecoder();
+    private final AuctionBidHistoryCommandDecoder auctionBidHistoryDecoder = new AuctionBidHistoryCommandDecoder();
+    private final RegisterProxyBidCommandDecoder registerProxyBidDecoder = new RegisterProxyBidCommandDecoder();
+    private final CancelProxyBidCommandDecoder cancelProxyBidDecoder = new CancelProxyBidCommandDecoder();
+    private final SubscribeAuctionCommandDecoder subscribeAuctionDecoder = new SubscribeAuctionCommandDecoder();
+    private final UnsubscribeAuctionCommandDecoder unsubscribeAuctionDecoder = new UnsubscribeAuctionCommandDecoder();
+
+    private final UnsafeBuffer correlationId = new UnsafeBuffer(0, 0);
+    private final UnsafeBuffer legacyCorrelationId = new UnsafeBuffer(new byte[CORRELATION_ID_LENGTH]);
+    private final UnsafeBuffer name = new UnsafeBuffer(0, 0);
+    private final UnsafeBuffer description = new UnsafeBuffer(0, 0);
 
 
     /**
@@ -69,7 +110,8 @@ public class SbeDemuxer
     }
 
     /**
-     * Dispatch a message to the appropriate domain handler.
+     * Dispatch a message to the appropriate domain handler. Correlation ids and var-data fields are passed on as views
+     * over the inbound buffer, so no objects are allocated while decoding.
      *
      * @param buffer the buffer containing the inbound message, including a header
      * @param offset the offset to apply
@@ -84,45 +126,298 @@ public class SbeDemuxer
         }
         headerDecoder.wrap(buffer, offset);
 
+        if (MessageHeaderDecoder.SCHEMA_ID == headerDecoder.schemaId() &&
+            LEGACY_SCHEMA_VERSION == headerDecoder.version())
+        {
+            dispatchLegacy(buffer, offset);
+            return;
+        }
+        if (MessageHeaderDecoder.SCHEMA_ID != headerDecoder.schemaId() ||
+            MessageHeaderDecoder.SCHEMA_VERSION != headerDecoder.version())
+        {
+            LOGGER.error("Unsupported schema id {} version {}, ignored.", headerDecoder.schemaId(),
+                headerDecoder.version());
+            return;
+        }
+
         switch (headerDecoder.templateId())
         {
             case AddParticipantCommandDecoder.TEMPLATE_ID ->
             {
                 addParticipantDecoder.wrapAndApplyHeader(buffer, offset, headerDecoder);
-                participants.addParticipant(addParticipantDecoder.participantId(),
-                    addParticipantDecoder.correlationId(), addParticipantDecoder.name());
+                wrapCorrelationId(buffer, addParticipantDecoder.offset() +
+                    AddParticipantCommandDecoder.correlationIdEncodingOffset());
+                addParticipantDecoder.wrapName(name);
+                participants.addParticipant(addParticipantDecoder.participantId(), correlationId, name);
             }
             case CreateAuctionCommandDecoder.TEMPLATE_ID ->
             {
                 createAuctionDecoder.wrapAndApplyHeader(buffer, offset, headerDecoder);
+                wrapCorrelationId(buffer, createAuctionDecoder.offset() +
+                    CreateAuctionCommandDecoder.correlationIdEncodingOffset());
+                createAuctionDecoder.wrapName(name);
+                createAuctionDecoder.wrapDescription(description);
                 auctions.addAuction(createAuctionDecoder.createdByParticipantId(),
                     createAuctionDecoder.startTime(),
                     createAuctionDecoder.endTime(),
-                    createAuctionDecoder.correlationId(),
-                    createAuctionDecoder.name(),
-                    createAuctionDecoder.description());
+                    correlationId,
+                    name,
+                    description);
+            }
+            case CreateAuctionBatchCommandDecoder.TEMPLATE_ID ->
+            {
+                createAuctionBatchDecoder.wrapAndApplyHeader(buffer, offset, headerDecoder);
+                wrapCorrelationId(buffer, createAuctionBatchDecoder.offset() +
+                    CreateAuctionBatchCommandDecoder.correlationIdEncodingOffset());
+                final long createdByParticipantId = createAuctionBatchDecoder.createdByParticipantId();
+                final CreateAuctionBatchCommandDecoder.AuctionsDecoder batch = createAuctionBatchDecoder.auctions();
+                auctions.beginAuctionBatch(correlationId, batch.count());
+                while (batch.hasNext())
+                {
+                    batch.next();
+                    final long startTime = batch.startTime();
+                    final long endTime = batch.endTime();
+                    batch.wrapName(name);
+                    batch.wrapDescription(description);
+                    auctions.addBatchedAuction(createdByParticipantId, startTime, endTime, name, description);
+                }
+                auctions.endAuctionBatch();
             }
             case AddAuctionBidCommandDecoder.TEMPLATE_ID ->
             {
                 addAuctionBidDecoder.wrapAndApplyHeader(buffer, offset, headerDecoder);
+                wrapCorrelationId(buffer, addAuctionBidDecoder.offset() +
+                    AddAuctionBidCommandDecoder.correlationIdEncodingOffset());
                 auctions.addBid(addAuctionBidDecoder.auctionId(),
                     addAuctionBidDecoder.addedByParticipantId(),
                     addAuctionBidDecoder.price(),
-                    addAuctionBidDecoder.correlationId());
+                    correlationId);
+            }
+            case AddAuctionBidBatchCommandDecoder.TEMPLATE_ID ->
+            {
+                addAuctionBidBatchDecoder.wrapAndApplyHeader(buffer, offset, headerDecoder);
+                wrapCorrelationId(buffer, addAuctionBidBatchDecoder.offset() +
+                    AddAuctionBidBatchCommandDecoder.correlationIdEncodingOffset());
+                final long participantId = addAuctionBidBatchDecoder.addedByParticipantId();
+                final AddAuctionBidBatchCommandDecoder.BidsDecoder bids = addAuctionBidBatchDecoder.bids();
+                auctions.beginBidBatch(correlationId, bids.count());
+                while (bids.hasNext())
+                {
+                    bids.next();
+                    auctions.addBatchedBid(bids.auctionId(), participantId, bids.price());
+                }
+                auctions.endBidBatch();
             }
             case ListAuctionsCommandDecoder.TEMPLATE_ID ->
             {
                 listAuctionsDecoder.wrapAndApplyHeader(buffer, offset, headerDecoder);
+                wrapCorrelationId(buffer, listAuctionsDecoder.offset() +
+                    ListAuctionsCommandDecoder.correlationIdEncodingOffset());
                 final List<Auction> auctionList = auctions.getAuctionList();
-                responder.returnAuctionList(auctionList, listAuctionsDecoder.correlationId());
+                responder.returnAuctionList(auctionList, correlationId);
+            }
+            case ListAuctionsPageCommandDecoder.TEMPLATE_ID ->
+            {
+                listAuctionsPageDecoder.wrapAndApplyHeader(buffer, offset, headerDecoder);
+                wrapCorrelationId(buffer, listAuctionsPageDecoder.offset() +
+                    ListAuctionsPageCommandDecoder.correlationIdEncodingOffset());
+                auctions.listAuctionPage(listAuctionsPageDecoder.startAfterAuctionId(),
+                    listAuctionsPageDecoder.pageSize(),
+                    toDomainStatusFilter(listAuctionsPageDecoder.status()),
+                    listAuctionsPageDecoder.createdByParticipantId(),
+                    correlationId);
+            }
+            case ListAuctionChangesCommandDecoder.TEMPLATE_ID ->
+            {
+                listAuctionChangesDecoder.wrapAndApplyHeader(buffer, offset, headerDecoder);
+                wrapCorrelationId(buffer, listAuctionChangesDecoder.offset() +
+                    ListAuctionChangesCommandDecoder.correlationIdEncodingOffset());
+                auctions.listAuctionChanges(listAuctionChangesDecoder.sinceVersion(), correlationId);
             }
             case ListParticipantsCommandDecoder.TEMPLATE_ID ->
             {
                 listParticipantsDecoder.wrapAndApplyHeader(buffer, offset, headerDecoder);
+                wrapCorrelationId(buffer, listParticipantsDecoder.offset() +
+                    ListParticipantsCommandDecoder.correlationIdEncodingOffset());
                 final List<Participant> participantList = participants.getParticipantList();
-                responder.returnParticipantList(participantList, listParticipantsDecoder.correlationId());
+                responder.returnParticipantList(participantList, correlationId);
+            }
+            case AuctionBidHistoryCommandDecoder.TEMPLATE_ID ->
+            {
+                auctionBidHistoryDecoder.wrapAndApplyHeader(buffer, offset, headerDecoder);
+                wrapCorrelationId(buffer, auctionBidHistoryDecoder.offset() +
+                    AuctionBidHistoryCommandDecoder.correlationIdEncodingOffset());
+                auctions.returnBidHistory(auctionBidHistoryDecoder.auctionId(),
+                    auctionBidHistoryDecoder.depth(),
+                    correlationId);
+            }
+            case RegisterProxyBidCommandDecoder.TEMPLATE_ID ->
+            {
+                registerProxyBidDecoder.wrapAndApplyHeader(buffer, offset, headerDecoder);
+                wrapCorrelationId(buffer, registerProxyBidDecoder.offset() +
+                    RegisterProxyBidCommandDecoder.correlationIdEncodingOffset());
+                auctions.registerProxyBid(registerProxyBidDecoder.auctionId(),
+                    registerProxyBidDecoder.participantId(),
+                    registerProxyBidDecoder.maxPrice(),
+                    correlationId);
+            }
+            case CancelProxyBidCommandDecoder.TEMPLATE_ID ->
+            {
+                cancelProxyBidDecoder.wrapAndApplyHeader(buffer, offset, headerDecoder);
+                wrapCorrelationId(buffer, cancelProxyBidDecoder.offset() +
+                    CancelProxyBidCommandDecoder.correlationIdEncodingOffset());
+                auctions.cancelProxyBid(cancelProxyBidDecoder.auctionId(),
+                    cancelProxyBidDecoder.participantId(),
+                    correlationId);
+            }
+            case SubscribeAuctionCommandDecoder.TEMPLATE_ID ->
+            {
+                subscribeAuctionDecoder.wrapAndApplyHeader(buffer, offset, headerDecoder);
+                wrapCorrelationId(buffer, subscribeAuctionDecoder.offset() +
+                    SubscribeAuctionCommandDecoder.correlationIdEncodingOffset());
+                auctions.subscribe(subscribeAuctionDecoder.auctionId(),
+                    BooleanType.TRUE == subscribeAuctionDecoder.conflated(),
+                    correlationId);
+            }
+            case UnsubscribeAuctionCommandDecoder.TEMPLATE_ID ->
+            {
+                unsubscribeAuctionDecoder.wrapAndApplyHeader(buffer, offset, headerDecoder);
+                wrapCorrelationId(buffer, unsubscribeAuctionDecoder.offset() +
+                    UnsubscribeAuctionCommandDecoder.correlationIdEncodingOffset());
+                auctions.unsubscribe(unsubscribeAuctionDecoder.auctionId(), correlationId);
             }
             default -> LOGGER.error("Unknown message template {}, ignored.", headerDecoder.templateId());
         }
     }
+
+    /**
+     * Applies a command encoded with version 1 of the schema, whose correlation ids are 36 character UUID strings.
+     * A log written before the move to version 2 still holds these, so the commands which change state are applied
+     * as they were when the log is replayed. Queries change nothing and are not answered, as replies are encoded
+     * with version 2.
+     *
+     * @param buffer the buffer containing the inbound message, including a header
+     * @param offset the offset of the header
+     */
+    private void dispatchLegacy(final DirectBuffer buffer, final int offset)
+    {
+        final int blockOffset = offset + MessageHeaderDecoder.ENCODED_LENGTH;
+        final int varDataOffset = blockOffset + headerDecoder.blockLength();
+        switch (headerDecoder.templateId())
+        {
+            case AddParticipantCommandDecoder.TEMPLATE_ID ->
+            {
+                wrapLegacyCorrelationId(buffer, blockOffset + LEGACY_PARTICIPANT_CORRELATION_ID_OFFSET);
+                wrapVarData(name, buffer, varDataOffset);
+                participants.addParticipant(buffer.getLong(blockOffset, LITTLE_ENDIAN), correlationId, name);
+            }
+            case CreateAuctionCommandDecoder.TEMPLATE_ID ->
+            {
+                wrapLegacyCorrelationId(buffer, blockOffset + LEGACY_AUCTION_CORRELATION_ID_OFFSET);
+                wrapVarData(description, buffer, wrapVarData(name, buffer, varDataOffset));
+                auctions.addAuction(buffer.getLong(blockOffset, LITTLE_ENDIAN),
+                    buffer.getLong(blockOffset + SIZE_OF_LONG, LITTLE_ENDIAN),
+                    buffer.getLong(blockOffset + 2 * SIZE_OF_LONG, LITTLE_ENDIAN),
+                    correlationId,
+                    name,
+                    description);
+            }
+            case AddAuctionBidCommandDecoder.TEMPLATE_ID ->
+            {
+                wrapLegacyCorrelationId(buffer, blockOffset + LEGACY_BID_CORRELATION_ID_OFFSET);
+                auctions.addBid(buffer.getLong(blockOffset, LITTLE_ENDIAN),
+                    buffer.getLong(blockOffset + SIZE_OF_LONG, LITTLE_ENDIAN),
+                    buffer.getLong(blockOffset + 2 * SIZE_OF_LONG, LITTLE_ENDIAN),
+                    correlationId);
+            }
+            default -> LOGGER.warn("Version 1 message template {} changes no state, ignored.",
+                headerDecoder.templateId());
+        }
+    }
+
+    /**
+     * Converts a 36 character version 1 correlation id to the two int64 values of a version 2 one, and wraps the
+     * correlation id view over them. Characters other than hex digits, such as the dashes, are skipped.
+     *
+     * @param buffer the buffer containing the inbound message
+     * @param offset the offset of the correlation id field
+     */
+    private void wrapLegacyCorrelationId(final DirectBuffer buffer, final int offset)
+    {
+        long mostSignificantBits = 0;
+        long leastSignificantBits = 0;
+        int digitCount = 0;
+        for (int i = 0; i < LEGACY_CORRELATION_ID_LENGTH; i++)
+        {
+            final int digit = Character.digit(buffer.getByte(offset + i), 16);
+            if (digit >= 0)
+            {
+                if (digitCount < 16)
+                {
+                    mostSignificantBits = (mostSignificantBits << 4) | digit;
+                }
+                else
+                {
+                    leastSignificantBits = (leastSignificantBits << 4) | digit;
+                }
+                digitCount++;
+            }
+        }
+        legacyCorrelationId.putLong(0, mostSignificantBits, LITTLE_ENDIAN);
+        legacyCorrelationId.putLong(SIZE_OF_LONG, leastSignificantBits, LITTLE_ENDIAN);
+        correlationId.wrap(legacyCorrelationId, 0, CORRELATION_ID_LENGTH);
+    }
+
+    /**
+     * Wraps a view over a var-data field, held as a uint32 length followed by the bytes
+     *
+     * @param view   the view to wrap
+     * @param buffer the buffer containing the inbound message
+     * @param offset the offset of the field's length
+     * @return the offset of the field that follows
+     */
+    private static int wrapVarData(final UnsafeBuffer view, final DirectBuffer buffer, final int offset)
+    {
+        final int length = buffer.getInt(offset, LITTLE_ENDIAN);
+        view.wrap(buffer, offset + VAR_DATA_LENGTH_SIZE, length);
+        return offset + VAR_DATA_LENGTH_SIZE + length;
+    }
+
+    /**
+     * Wraps the correlation id view over the fixed length correlation id field of the inbound message
+     * @param buffer the buffer containing the inbound message
+     * @param offset the offset of the correlation id field
+     */
+    private void wrapCorrelationId(final DirectBuffer buffer, final int offset)
+    {
+        correlationId.wrap(buffer, offset, CORRELATION_ID_LENGTH);
+    }
+
+    /**
+     * Maps the status filter of a page request to the domain status, where UNKNOWN matches any status
+     * @param status the protocol status
+     * @return the domain status, or null to match any status
+     */
+    private static AuctionStatus toDomainStatusFilter(final io.aeron.samples.cluster.protocol.AuctionStatus status)
+    {
+        switch (status)
+        {
+            case PRE_OPEN ->
+            {
+                return AuctionStatus.PRE_OPEN;
+            }
+            case OPEN ->
+            {
+                return AuctionStatus.OPEN;
+            }
+            case CLOSED ->
+            {
+                return AuctionStatus.CLOSED;
+            }
+            default ->
+            {
+                return null;
+            }
+        }
+    }
 }
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.aeron.samples.infra;
+
+import io.aeron.Publication;
+import io.aeron.cluster.service.ClientSession;
+import org.agrona.BitUtil;
+import org.agrona.CloseHelper;
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.AtomicBuffer;
+import org.agrona.concurrent.ControlledMessageHandler;
+import org.agrona.concurrent.MessageHandler;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.ringbuffer.OneToOneRingBuffer;
+import org.agrona.concurrent.ringbuffer.RingBufferDescriptor;
+import org.agrona.concurrent.status.AtomicCounter;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A bounded queue, held off heap, of the egress messages waiting for a back pressured session.
+ * <p>
+ * Messages are queued in a ring buffer written and read only by the service thread, and drained to the session after
+ * each message and timer until its publication pushes back again, so the service thread never waits on a slow client.
+ * Messages sent while any are queued join the back of the queue, keeping them in order. The number of queued messages
+ * and the number dropped are kept here and, if counters are given, in Aeron counters, where they can be read with
+ * AeronStat.
+ */
+final class SessionEgressQueue
+{
+    /**
+     * The counter type id of the number of messages queued for a session
+     */
+    static final int QUEUE_DEPTH_COUNTER_TYPE_ID = 1001;
+    /**
+     * The counter type id of the number of messages dropped for a session
+     */
+    static final int DROPPED_COUNTER_TYPE_ID = 1002;
+    private static final int MESSAGE_TYPE_ID = 1;
+
+    private final long sessionId;
+    private final OneToOneRingBuffer ringBuffer;
+    private final AtomicCounter queueDepthCounter;
+    private final AtomicCounter droppedCounter;
+    private final ControlledMessageHandler drainHandler = this::onDrain;
+    private final MessageHandler dropHandler = this::onDrop;
+    private ClientSession drainSession;
+    private int queueDepth;
+    private long droppedCount;
+    private boolean conflated;
+
+    /**
+     * Constructor
+     * @param sessionId         the cluster session id
+     * @param capacity          the capacity in bytes, rounded up to a power of two
+     * @param queueDepthCounter the counter to hold the number of queued messages, or null for none
+     * @param droppedCounter    the counter to hold the number of dropped messages, or null for none
+     */
+    SessionEgressQueue(
+        final long sessionId,
+        final int capacity,
+        final AtomicCounter queueDepthCounter,
+        final AtomicCounter droppedCounter)
+    {
+        this.sessionId = sessionId;
+        final int length = BitUtil.findNextPositivePowerOfTwo(capacity) + RingBufferDescriptor.TRAILER_LENGTH;
+        final AtomicBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(length));
+        this.ringBuffer = new OneToOneRingBuffer(buffer);
+        this.queueDepthCounter = queueDepthCounter;
+        this.droppedCounter = droppedCounter;
+    }
+
+    /**
+     * Gets the cluster session id
+     * @return the cluster session id
+     */
+    long sessionId()
+    {
+        return sessionId;
+    }
+
+    /**
+     * Queues a message
+     * @param buffer the buffer to read data from
+     * @param offset the offset to read from
+     * @param length the length to read
+     * @return true if queued, false if there is not room for it
+     */
+    boolean offer(final DirectBuffer buffer, final int offset, final int length)
+    {
+        if (length > ringBuffer.maxMsgLength() || !ringBuffer.write(MESSAGE_TYPE_ID, buffer, offset, length))
+        {
+            return false;
+        }
+        queueDepth++;
+        updateQueueDepthCounter();
+        return true;
+    }
+
+    /**
+     * Determines if a message could ever be queued, once every queued message has been dropped
+     * @param length the length of the message
+     * @return true if the message fits in an empty queue
+     */
+    boolean canHold(final int length)
+    {
+        return length <= ringBuffer.maxMsgLength();
+    }
+
+    /**
+     * Offers the queued messages to the session, oldest first, until they are all sent or the session pushes back
+     * @param session the session to offer to
+     * @return the number of messages removed from the queue
+     */
+    int drain(final ClientSession session)
+    {
+        if (0 == queueDepth)
+        {
+            return 0;
+        }
+        drainSession = session;
+        final int drained = ringBuffer.controlledRead(drainHandler);
+        drainSession = null;
+        updateQueueDepthCounter();
+        return drained;
+    }
+
+    /**
+     * Drops the oldest queued message
+     * @return true if a message was dropped, false if the queue is empty
+     */
+    boolean dropOldest()
+    {
+        if (0 == queueDepth)
+        {
+            return false;
+        }
+        ringBuffer.read(dropHandler, 1);
+        onDropped();
+        updateQueueDepthCounter();
+        return true;
+    }
+
+    /**
+     * Drops every queued message
+     */
+    void dropAll()
+    {
+        while (dropOldest())
+        {
+            //dropped and counted
+        }
+    }
+
+    /**
+     * Counts a message dropped without having been queued
+     */
+    void onDropped()
+    {
+        droppedCount++;
+        if (null != droppedCounter)
+        {
+            droppedCounter.setRelease(droppedCount);
+        }
+    }
+
+    /**
+     * Switches the session to conflated auction updates for as long as it stays open. The switch is egress state of
+     * the node alone, so it is neither replicated nor snapshotted.
+     */
+    void conflate()
+    {
+        conflated = true;
+    }
+
+    /**
+     * Determines if the session has been switched to conflated auction updates because its queue was full
+     * @return true if the session receives conflated updates
+     */
+    boolean isConflated()
+    {
+        return conflated;
+    }
+
+    /**
+     * Gets the number of queued messages
+     * @return the queue depth
+     */
+    int queueDepth()
+    {
+        return queueDepth;
+    }
+
+    /**
+     * Gets the number of messages dropped, queued or not
+     * @return the dropped count
+     */
+    long droppedCount()
+    {
+        return droppedCount;
+    }
+
+    /**
+     * Closes the counters, once the session has closed
+     */
+    void close()
+    {
+        CloseHelper.quietCloseAll(queueDepthCounter, droppedCounter);
+    }
+
+    private ControlledMessageHandler.Action onDrain(
+        final int msgTypeId,
+        final MutableDirectBuffer buffer,
+        final int index,
+        final int length)
+    {
+        final long result = drainSession.offer(buffer, index, length);
+        if (result == Publication.BACK_PRESSURED || result == Publication.ADMIN_ACTION)
+        {
+            return ControlledMessageHandler.Action.ABORT;
+        }
+        if (result < 0L)
+        {
+            onDropped();
+        }
+        queueDepth--;
+        return ControlledMessageHandler.Action.COMMIT;
+    }
+
+    private void onDrop(final int msgTypeId, final MutableDirectBuffer buffer, final int index, final int length)
+    {
+        queueDepth--;
+    }
+
+    private void updateQueueDepthCounter()
+    {
+        if (null != queueDepthCounter)
+        {
+            queueDepthCounter.setRelease(queueDepth);
+        }
+    }
+}
@@ -17,6 +17,7 @@
 package io.aeron.samples.infra;
 
 import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
 
 /**
  * Interface to session context data
@@ -38,11 +39,77 @@ public interface SessionMessageContext
     void reply(DirectBuffer buffer, int offset, int length);
 
     /**
-     * Broadcast a message to all connected sessions
+     * Replies to the caller with a message of a known length, encoded by the encoder directly into the egress
+     * publication where possible rather than being copied there
+     * @param length  the encoded length of the message, including the message header
+     * @param encoder writes the message
+     */
+    void reply(int length, MessageEncoder encoder);
+
+    /**
+     * Broadcast a message to the sessions subscribed to every auction
      * @param buffer the buffer to read data from
      * @param offset the offset to read from
      * @param length the length to read
      */
     void broadcast(DirectBuffer buffer, int offset, int length);
+
+    /**
+     * Broadcast a message about an auction to the sessions subscribed to it, or to every auction
+     * @param auctionId the auction id
+     * @param buffer    the buffer to read data from
+     * @param offset    the offset to read from
+     * @param length    the length to read
+     */
+    void broadcast(long auctionId, DirectBuffer buffer, int offset, int length);
+
+    /**
+     * Broadcast a message of a known length about an auction to the sessions subscribed to it, or to every auction,
+     * encoded by the encoder directly into the egress publication of each session where possible
+     * @param auctionId the auction id
+     * @param length    the encoded length of the message, including the message header
+     * @param encoder   writes the message, once for each session
+     */
+    void broadcast(long auctionId, int length, MessageEncoder encoder);
+
+    /**
+     * Broadcast a batch of auction updates, sending each session the updates of the auctions it is subscribed to
+     * @param batch the auction updates
+     */
+    void broadcast(AuctionUpdateBatch batch);
+
+    /**
+     * Subscribes the caller to the updates of an auction, and sets whether the caller receives every update or the
+     * latest state of its auctions at a bounded rate
+     * @param auctionId the auction id, or {@link AuctionSubscriptions#ALL_AUCTIONS} for every auction
+     * @param conflated true for conflated updates of all the caller's subscriptions, false for every update
+     */
+    void subscribe(long auctionId, boolean conflated);
+
+    /**
+     * Unsubscribes the caller from the updates of an auction
+     * @param auctionId the auction id, or {@link AuctionSubscriptions#ALL_AUCTIONS} for every auction
+     */
+    void unsubscribe(long auctionId);
+
+    /**
+     * Removes every subscription to an auction, as when it is removed
+     * @param auctionId the auction id
+     */
+    void removeSubscriptions(long auctionId);
+
+    /**
+     * Writes a message of a known length into a buffer, which may be the term buffer of a publication
+     */
+    @FunctionalInterface
+    interface MessageEncoder
+    {
+        /**
+         * Encodes the message
+         * @param buffer the buffer to encode into
+         * @param offset the offset at which to encode the message header
+         */
+        void encode(MutableDirectBuffer buffer, int offset);
+    }
 }
 
@@ -16,14 +16,24 @@
 
 package io.aeron.samples.infra;
 
+import io.aeron.Aeron;
 import io.aeron.Publication;
+import io.aeron.cluster.client.AeronCluster;
 import io.aeron.cluster.service.ClientSession;
+import io.aeron.cluster.service.Cluster;
+import io.aeron.logbuffer.BufferClaim;
 import org.agrona.DirectBuffer;
-import org.agrona.concurrent.IdleStrategy;
+import org.agrona.ExpandableDirectByteBuffer;
+import org.agrona.collections.IntArrayList;
+import org.agrona.collections.Long2ObjectHashMap;
+import org.agrona.collections.LongArrayList;
+import org.agrona.concurrent.status.AtomicCounter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Objects;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The context for a single cluster session message
@@ -31,19 +41,58 @@ import java.util.Objects;
 public class SessionMessageContextImpl implements SessionMessageContext
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(SessionMessageContextImpl.class);
-    private static final long RETRY_COUNT = 3;
-    private IdleStrategy idleStrategy;
+    /**
+     * The default capacity in bytes of the egress queue of a back pressured session
+     */
+    public static final int DEFAULT_EGRESS_QUEUE_CAPACITY = 1024 * 1024;
+    /**
+     * The default policy for a session whose egress queue is full
+     */
+    public static final SlowConsumerPolicy DEFAULT_SLOW_CONSUMER_POLICY = SlowConsumerPolicy.DISCONNECT;
+    /**
+     * The default longest message encoded straight into a session's egress publication, well within the largest claim
+     * allowed by the default MTU once the frame and session headers are taken off
+     */
+    public static final int DEFAULT_MAX_CLAIM_LENGTH = 1024;
+    /**
+     * The correlation id of the cluster timer which ends the first conflation interval; the timer of each later
+     * interval takes the next lower id, and the timer manager issues only positive ids
+     */
+    public static final long EGRESS_TIMER_CORRELATION_ID = -1L;
     private final ClientSessions clientSessions;
+    private final AuctionSubscriptions subscriptions;
+    private final ConflatedUpdates conflatedUpdates = new ConflatedUpdates();
+    private final ExpandableDirectByteBuffer batchBuffer = new ExpandableDirectByteBuffer(1024);
+    private final Long2ObjectHashMap<IntArrayList> batchIndexesBySessionId = new Long2ObjectHashMap<>();
+    private final LongArrayList batchSessionIds = new LongArrayList();
+    private final List<IntArrayList> freeBatchIndexes = new ArrayList<>();
+    private final BufferClaim bufferClaim = new BufferClaim();
+    private final ExpandableDirectByteBuffer encodedBuffer = new ExpandableDirectByteBuffer(DEFAULT_MAX_CLAIM_LENGTH);
+    private boolean encoded;
+    private int maxClaimLength = DEFAULT_MAX_CLAIM_LENGTH;
+    private long claimedCount;
+    private final Long2ObjectHashMap<SessionEgressQueue> egressQueuesBySessionId = new Long2ObjectHashMap<>();
+    private SlowConsumerPolicy slowConsumerPolicy = DEFAULT_SLOW_CONSUMER_POLICY;
+    private int conflatedQueueCount;
+    private int egressQueueCapacity = DEFAULT_EGRESS_QUEUE_CAPACITY;
+    private Aeron aeron;
+    private MarketDataPublisher marketDataPublisher;
+    private Cluster cluster;
+    private long conflationIntervalNs;
+    private long egressTimerDeadline;
+    private long conflatedFlushDeadline;
     private long timestamp;
     private ClientSession session;
 
     /**
      * Constructor
      * @param clientSessions the client session store
+     * @param subscriptions  the auction subscriptions used to route broadcasts
      */
-    public SessionMessageContextImpl(final ClientSessions clientSessions)
+    public SessionMessageContextImpl(final ClientSessions clientSessions, final AuctionSubscriptions subscriptions)
     {
         this.clientSessions = clientSessions;
+        this.subscriptions = subscriptions;
     }
 
     /**
@@ -79,16 +128,84 @@ public class SessionMessageContextImpl implements SessionMessageContext
     }
 
     /**
-     * Sets the idle strategy to be used during offers
-     * @param idleStrategy the idle strategy to be used
+     * Sets the least time between flushes of conflated updates, where zero flushes them at the end of the callback
+     * which produced them
+     * @param conflationIntervalNs the conflation interval in nanoseconds
+     */
+    public void setConflationInterval(final long conflationIntervalNs)
+    {
+        this.conflationIntervalNs = conflationIntervalNs;
+    }
+
+    /**
+     * Sets the publisher which publishes each broadcast once to the market data channel, in addition to the sessions
+     * subscribed over egress
+     * @param marketDataPublisher the market data publisher
+     */
+    public void setMarketDataPublisher(final MarketDataPublisher marketDataPublisher)
+    {
+        this.marketDataPublisher = marketDataPublisher;
+    }
+
+    /**
+     * Sets what is done with a session whose egress queue is full
+     * @param slowConsumerPolicy the slow consumer policy
+     */
+    public void setSlowConsumerPolicy(final SlowConsumerPolicy slowConsumerPolicy)
+    {
+        this.slowConsumerPolicy = slowConsumerPolicy;
+    }
+
+    /**
+     * Sets the capacity of the egress queue given to each session once it is back pressured
+     * @param egressQueueCapacity the capacity in bytes, rounded up to a power of two; the longest message which can
+     *                            be queued is an eighth of it
+     */
+    public void setEgressQueueCapacity(final int egressQueueCapacity)
+    {
+        this.egressQueueCapacity = egressQueueCapacity;
+    }
+
+    /**
+     * Sets the longest message encoded straight into a session's egress publication with a claim; longer messages
+     * are encoded once and copied in with an offer
+     * @param maxClaimLength the longest message to claim, which must fit the MTU of the egress channel less the frame
+     *                       and session headers, or zero to always offer
+     */
+    public void setMaxClaimLength(final int maxClaimLength)
+    {
+        this.maxClaimLength = maxClaimLength;
+    }
+
+    /**
+     * Gets the number of messages encoded straight into an egress publication, each saving a copy
+     * @return the claimed message count
+     */
+    public long getClaimedCount()
+    {
+        return claimedCount;
+    }
+
+    /**
+     * Sets the cluster used to schedule the egress timer
+     * @param cluster the cluster object
+     */
+    public void setCluster(final Cluster cluster)
+    {
+        this.cluster = cluster;
+    }
+
+    /**
+     * Sets the Aeron client used to add the queue depth and dropped message counters of each egress queue
+     * @param aeron the Aeron client, or null for no counters
      */
-    public void setIdleStrategy(final IdleStrategy idleStrategy)
+    public void setAeron(final Aeron aeron)
     {
-        this.idleStrategy = idleStrategy;
+        this.aeron = aeron;
     }
 
     /**
-     * Replies to the sender of the current session message, with retry. Disconnects a client that failed to offer
+     * Replies to the sender of the current session message, queueing the reply if the sender is back pressured
      * @param buffer the buffer to read data from
      * @param offset the offset to read from
      * @param length the length to read
@@ -96,12 +213,25 @@ public class SessionMessageContextImpl implements SessionMessageContext
     @Override
     public void reply(final DirectBuffer buffer, final int offset, final int length)
     {
-        offerToSession(session, buffer, offset, length);
+        offerToSession(session, false, buffer, offset, length);
     }
 
     /**
-     * Broadcasts a message to all connected sessions. If the offer fails to any session after a number of retries,
-     * then that session is disconnected.
+     * Replies to the sender of the current session message, encoding the reply into the sender's egress publication if
+     * it can be claimed, and otherwise encoding it once to offer or queue
+     * @param length  the encoded length of the message, including the message header
+     * @param encoder writes the message
+     */
+    @Override
+    public void reply(final int length, final MessageEncoder encoder)
+    {
+        encoded = false;
+        claimToSession(session, false, length, encoder);
+    }
+
+    /**
+     * Broadcasts a message to the sessions subscribed to every auction, and publishes it once to the market data
+     * channel if there is one. A back pressured session has the message queued.
      * @param buffer the buffer to read data from
      * @param offset the offset to read from
      * @param length the length to read
@@ -109,47 +239,687 @@ public class SessionMessageContextImpl implements SessionMessageContext
     @Override
     public void broadcast(final DirectBuffer buffer, final int offset, final int length)
     {
-        clientSessions.getAllSessions().forEach(clientSession -> offerToSession(clientSession, buffer, offset, length));
+        publishMarketData(buffer, offset, length);
+        offerToSessions(subscriptions.getAllAuctionsSubscribers(), buffer, offset, length);
+    }
+
+    /**
+     * Broadcasts a message about an auction as {@link #broadcast(long, DirectBuffer, int, int)} does, but encodes it
+     * into the egress publication of each session which can be claimed rather than copying it there. The message is
+     * encoded once into a buffer only if it is needed for the market data channel, conflation, or a session which must
+     * be offered to or queued for.
+     * @param auctionId the auction id
+     * @param length    the encoded length of the message, including the message header
+     * @param encoder   writes the message
+     */
+    @Override
+    public void broadcast(final long auctionId, final int length, final MessageEncoder encoder)
+    {
+        encoded = false;
+        if (isMarketDataEnabled())
+        {
+            marketDataPublisher.publish(encodedMessage(encoder), 0, length);
+        }
+        offerToAuctionSubscribers(auctionId, false, null, 0, length, encoder);
+        if (hasConflatedSessions())
+        {
+            if (length <= ConflatedUpdates.MAX_MESSAGE_LENGTH)
+            {
+                onConflatedUpdate(auctionId, encodedMessage(encoder), 0, length);
+            }
+            else
+            {
+                offerToAuctionSubscribers(auctionId, true, null, 0, length, encoder);
+            }
+        }
     }
 
     /**
-     * Offers a message to a session, with retry. Disconnects a client that failed to offer after RETRY_COUNT retries
+     * Broadcasts a message about an auction to the sessions subscribed to it and to those subscribed to every auction,
+     * once to each. Sessions which receive conflated updates are sent the latest message of the auction when the
+     * conflated updates are next flushed instead. The message is also published once to the market data channel, if
+     * there is one. A back pressured session has the message queued.
+     * @param auctionId the auction id
+     * @param buffer    the buffer to read data from
+     * @param offset    the offset to read from
+     * @param length    the length to read
+     */
+    @Override
+    public void broadcast(final long auctionId, final DirectBuffer buffer, final int offset, final int length)
+    {
+        publishMarketData(buffer, offset, length);
+        offerToAuctionSubscribers(auctionId, false, buffer, offset, length, null);
+        if (hasConflatedSessions())
+        {
+            if (length <= ConflatedUpdates.MAX_MESSAGE_LENGTH)
+            {
+                onConflatedUpdate(auctionId, buffer, offset, length);
+            }
+            else
+            {
+                offerToAuctionSubscribers(auctionId, true, buffer, offset, length, null);
+            }
+        }
+    }
+
+    /**
+     * Broadcasts a batch of auction updates. Sessions subscribed to every auction are sent the whole batch, encoded
+     * once; sessions subscribed to individual auctions are sent a batch of the updates to their auctions, or a single
+     * update event if there is only one. Sessions which receive conflated updates have each update recorded for the
+     * next flush instead. The whole batch is also published once to the market data channel, if there is one. A back
+     * pressured session has its message queued.
+     * @param batch the auction updates
+     */
+    @Override
+    public void broadcast(final AuctionUpdateBatch batch)
+    {
+        final int size = batch.size();
+        int batchLength = 0;
+        if (isMarketDataEnabled())
+        {
+            batchLength = batch.encodeBatch(batchBuffer, 0);
+            marketDataPublisher.publish(batchBuffer, 0, batchLength);
+        }
+
+        final LongArrayList allAuctionsSessionIds = subscriptions.getAllAuctionsSubscribers();
+        for (int i = 0; i < allAuctionsSessionIds.size(); i++)
+        {
+            final long sessionId = allAuctionsSessionIds.getLong(i);
+            if (!isConflated(sessionId))
+            {
+                if (0 == batchLength)
+                {
+                    batchLength = batch.encodeBatch(batchBuffer, 0);
+                }
+                offerToSessionId(sessionId, true, batchBuffer, 0, batchLength, null);
+            }
+        }
+
+        for (int index = 0; index < size; index++)
+        {
+            addToSessionBatches(batch.auctionId(index), index);
+        }
+        for (int i = 0; i < batchSessionIds.size(); i++)
+        {
+            final long sessionId = batchSessionIds.getLong(i);
+            final IntArrayList indexes = batchIndexesBySessionId.remove(sessionId);
+            final int length = 1 == indexes.size() ?
+                batch.encodeUpdate(batchBuffer, 0, indexes.getInt(0)) : batch.encodeBatch(batchBuffer, 0, indexes);
+            offerToSessionId(sessionId, true, batchBuffer, 0, length, null);
+            indexes.clear();
+            freeBatchIndexes.add(indexes);
+        }
+        batchSessionIds.clear();
+
+        if (hasConflatedSessions())
+        {
+            for (int index = 0; index < size; index++)
+            {
+                final int length = batch.encodeUpdate(batchBuffer, 0, index);
+                onConflatedUpdate(batch.auctionId(index), batchBuffer, 0, length);
+            }
+        }
+    }
+
+    /**
+     * Sends the latest update of each auction updated since the last flush to the sessions which receive conflated
+     * updates, if no conflation interval is set or the interval they were recorded in has ended. Called at the end of
+     * each callback delivered from the log, since the cluster only allows sessions to be sent to from those. This is
+     * what carries the updates of sessions switched to conflation by the slow consumer policy, which is egress state
+     * of the leader and so never schedules the egress timer.
+     * @return the number of auctions flushed
+     */
+    public int flushConflatedUpdates()
+    {
+        if (0 == conflatedUpdates.size() || (0 != conflationIntervalNs && timestamp < conflatedFlushDeadline))
+        {
+            return 0;
+        }
+        return sendConflatedUpdates();
+    }
+
+    /**
+     * Determines if a cluster timer is an egress timer
+     * @param correlationId the correlation id of the timer
+     * @return true if the timer ends a conflation interval
+     */
+    public static boolean isEgressTimer(final long correlationId)
+    {
+        return correlationId <= EGRESS_TIMER_CORRELATION_ID;
+    }
+
+    /**
+     * Sends the egress held back during a callback: conflated updates if no conflation interval is set, then the
+     * queued messages of back pressured sessions. Called at the end of every callback delivered from the log, since
+     * the cluster only allows sessions to be sent to from those. Messages which stay queued are sent by the callbacks
+     * which follow rather than by a timer: only the leader is back pressured, and a timer scheduled from its egress
+     * would not be scheduled by the other nodes replaying the same log.
+     * @return the number of auctions flushed and queued messages sent
+     */
+    public int flushEgress()
+    {
+        return flushConflatedUpdates() + drainEgressQueues();
+    }
+
+    /**
+     * Called when the egress timer fires; sends the latest update of each auction updated since the last flush to
+     * the sessions which receive conflated updates
+     * @param timestamp the timestamp the timer was fired at
+     * @return the number of auctions flushed
+     */
+    public int onEgressTimer(final long timestamp)
+    {
+        this.timestamp = timestamp;
+        return sendConflatedUpdates();
+    }
+
+    /**
+     * Offers the queued messages of each back pressured session, oldest first, until its queue is empty or it pushes
+     * back again. Called at the start of every callback delivered from the log, so queued messages go ahead of those
+     * it produces, and from {@link #flushEgress()} at its end.
+     * @return the number of messages removed from the queues
+     */
+    public int drainEgressQueues()
+    {
+        if (egressQueuesBySessionId.isEmpty())
+        {
+            return 0;
+        }
+        int drained = 0;
+        for (final SessionEgressQueue queue : egressQueuesBySessionId.values())
+        {
+            final ClientSession targetSession = clientSessions.getSession(queue.sessionId());
+            if (null != targetSession)
+            {
+                drained += queue.drain(targetSession);
+            }
+        }
+        return drained;
+    }
+
+    /**
+     * Releases the egress queue and counters of a closed session
+     * @param sessionId the cluster session id
+     */
+    public void onSessionClosed(final long sessionId)
+    {
+        final SessionEgressQueue queue = egressQueuesBySessionId.remove(sessionId);
+        if (null != queue)
+        {
+            if (queue.isConflated())
+            {
+                conflatedQueueCount--;
+            }
+            queue.close();
+        }
+    }
+
+    /**
+     * Gets the number of messages queued for a session
+     * @param sessionId the cluster session id
+     * @return the queue depth, zero if the session has never been back pressured
+     */
+    public int getEgressQueueDepth(final long sessionId)
+    {
+        final SessionEgressQueue queue = egressQueuesBySessionId.get(sessionId);
+        return null == queue ? 0 : queue.queueDepth();
+    }
+
+    /**
+     * Gets the number of messages dropped for a session because its egress queue was full
+     * @param sessionId the cluster session id
+     * @return the dropped count, zero if the session has never been back pressured
+     */
+    public long getEgressDroppedCount(final long sessionId)
+    {
+        final SessionEgressQueue queue = egressQueuesBySessionId.get(sessionId);
+        return null == queue ? 0 : queue.droppedCount();
+    }
+
+    /**
+     * Subscribes the session of the current message to the updates of an auction
+     * @param auctionId the auction id, or {@link AuctionSubscriptions#ALL_AUCTIONS} for every auction
+     * @param conflated true for conflated updates of all the session's subscriptions, false for every update
+     */
+    @Override
+    public void subscribe(final long auctionId, final boolean conflated)
+    {
+        subscriptions.subscribe(session.id(), auctionId);
+        subscriptions.setConflated(session.id(), conflated);
+    }
+
+    /**
+     * Unsubscribes the session of the current message from the updates of an auction
+     * @param auctionId the auction id, or {@link AuctionSubscriptions#ALL_AUCTIONS} for every auction
+     */
+    @Override
+    public void unsubscribe(final long auctionId)
+    {
+        subscriptions.unsubscribe(session.id(), auctionId);
+    }
+
+    /**
+     * Removes every subscription to an auction
+     * @param auctionId the auction id
+     */
+    @Override
+    public void removeSubscriptions(final long auctionId)
+    {
+        subscriptions.removeAuction(auctionId);
+    }
+
+    /**
+     * Determines if a session receives conflated updates, either because it subscribed for them or because the slow
+     * consumer policy switched it to them on this node
+     * @param sessionId the cluster session id
+     * @return true if the session receives conflated updates
+     */
+    private boolean isConflated(final long sessionId)
+    {
+        if (subscriptions.isConflated(sessionId))
+        {
+            return true;
+        }
+        if (0 == conflatedQueueCount)
+        {
+            return false;
+        }
+        final SessionEgressQueue queue = egressQueuesBySessionId.get(sessionId);
+        return null != queue && queue.isConflated();
+    }
+
+    private boolean hasConflatedSessions()
+    {
+        return 0 != conflatedQueueCount || subscriptions.hasConflatedSessions();
+    }
+
+    private void onConflatedUpdate(
+        final long auctionId,
+        final DirectBuffer buffer,
+        final int offset,
+        final int length)
+    {
+        if (0 == conflatedUpdates.size())
+        {
+            conflatedFlushDeadline = 0 == conflationIntervalNs ? timestamp : conflationIntervalEnd();
+        }
+        conflatedUpdates.onUpdate(auctionId, buffer, offset, length);
+        if (0 != conflationIntervalNs && subscriptions.hasConflatedSessions())
+        {
+            scheduleEgressTimer();
+        }
+    }
+
+    /**
+     * Schedules the timer which ends the current conflation interval, at most once per interval. It is scheduled only
+     * for sessions subscribed for conflated updates, which are replicated, so every node replaying the log schedules
+     * the same timers. Intervals are aligned to cluster time and each has a timer id of its own, so a node which has
+     * just loaded a snapshot and schedules the timer of an interval again only replaces it with itself.
+     */
+    private void scheduleEgressTimer()
+    {
+        final long deadline = conflationIntervalEnd();
+        if (deadline != egressTimerDeadline)
+        {
+            egressTimerDeadline = deadline;
+            scheduleTimer(EGRESS_TIMER_CORRELATION_ID - (deadline / conflationIntervalMs() - 1), deadline);
+        }
+    }
+
+    private long conflationIntervalMs()
+    {
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(conflationIntervalNs));
+    }
+
+    private long conflationIntervalEnd()
+    {
+        final long intervalMs = conflationIntervalMs();
+        return (timestamp / intervalMs + 1) * intervalMs;
+    }
+
+    private void scheduleTimer(final long correlationId, final long deadline)
+    {
+        cluster.idleStrategy().reset();
+        while (!cluster.scheduleTimer(correlationId, deadline))
+        {
+            cluster.idleStrategy().idle();
+        }
+    }
+
+    private int sendConflatedUpdates()
+    {
+        final int size = conflatedUpdates.size();
+        final DirectBuffer buffer = conflatedUpdates.buffer();
+        for (int slot = 0; slot < size; slot++)
+        {
+            offerToAuctionSubscribers(conflatedUpdates.auctionId(slot), true, buffer,
+                conflatedUpdates.offset(slot), conflatedUpdates.length(slot), null);
+        }
+        conflatedUpdates.clear();
+        return size;
+    }
+
+    private boolean isMarketDataEnabled()
+    {
+        return null != marketDataPublisher && marketDataPublisher.isEnabled();
+    }
+
+    private void publishMarketData(final DirectBuffer buffer, final int offset, final int length)
+    {
+        if (isMarketDataEnabled())
+        {
+            marketDataPublisher.publish(buffer, offset, length);
+        }
+    }
+
+    private void offerToSessions(
+        final LongArrayList sessionIds,
+        final DirectBuffer buffer,
+        final int offset,
+        final int length)
+    {
+        for (int i = 0; i < sessionIds.size(); i++)
+        {
+            offerToSessionId(sessionIds.getLong(i), false, buffer, offset, length, null);
+        }
+    }
+
+    /**
+     * Offers an auction's update to the sessions subscribed to it or to every auction, once to each, choosing either
+     * the sessions that receive every update or those that receive conflated updates
+     * @param auctionId the auction id
+     * @param conflated true to offer to the sessions that receive conflated updates, false for the others
+     * @param buffer    the buffer to read data from
+     * @param offset    the offset to read from
+     * @param length    the length to read
+     * @param encoder   writes the message into each session's claimed egress, or null to offer the buffer
+     */
+    private void offerToAuctionSubscribers(
+        final long auctionId,
+        final boolean conflated,
+        final DirectBuffer buffer,
+        final int offset,
+        final int length,
+        final MessageEncoder encoder)
+    {
+        //an update which is not yet conflated can be left to the conflated flush if its session is switched to it
+        final boolean conflatable = !conflated && length <= ConflatedUpdates.MAX_MESSAGE_LENGTH;
+        final LongArrayList allAuctionsSessionIds = subscriptions.getAllAuctionsSubscribers();
+        for (int i = 0; i < allAuctionsSessionIds.size(); i++)
+        {
+            final long sessionId = allAuctionsSessionIds.getLong(i);
+            if (isConflated(sessionId) == conflated)
+            {
+                offerToSessionId(sessionId, conflatable, buffer, offset, length, encoder);
+            }
+        }
+
+        final LongArrayList sessionIds = subscriptions.getSubscribers(auctionId);
+        if (null == sessionIds)
+        {
+            return;
+        }
+        for (int i = 0; i < sessionIds.size(); i++)
+        {
+            final long sessionId = sessionIds.getLong(i);
+            if (!subscriptions.isSubscribedToAll(sessionId) && isConflated(sessionId) == conflated)
+            {
+                offerToSessionId(sessionId, conflatable, buffer, offset, length, encoder);
+            }
+        }
+    }
+
+    /**
+     * Adds an update to the batch of each session subscribed to its auction alone which receives every update
+     * @param auctionId the auction id
+     * @param index     the index of the update in the batch
+     */
+    private void addToSessionBatches(final long auctionId, final int index)
+    {
+        final LongArrayList sessionIds = subscriptions.getSubscribers(auctionId);
+        if (null == sessionIds)
+        {
+            return;
+        }
+        for (int i = 0; i < sessionIds.size(); i++)
+        {
+            final long sessionId = sessionIds.getLong(i);
+            if (subscriptions.isSubscribedToAll(sessionId) || isConflated(sessionId))
+            {
+                continue;
+            }
+            IntArrayList indexes = batchIndexesBySessionId.get(sessionId);
+            if (null == indexes)
+            {
+                indexes = freeBatchIndexes.isEmpty() ?
+                    new IntArrayList() : freeBatchIndexes.remove(freeBatchIndexes.size() - 1);
+                batchIndexesBySessionId.put(sessionId, indexes);
+                batchSessionIds.addLong(sessionId);
+            }
+            indexes.addInt(index);
+        }
+    }
+
+    private void offerToSessionId(
+        final long sessionId,
+        final boolean conflatable,
+        final DirectBuffer buffer,
+        final int offset,
+        final int length,
+        final MessageEncoder encoder)
+    {
+        final ClientSession targetSession = clientSessions.getSession(sessionId);
+        if (null == targetSession)
+        {
+            return;
+        }
+        if (null == encoder)
+        {
+            offerToSession(targetSession, conflatable, buffer, offset, length);
+        }
+        else
+        {
+            claimToSession(targetSession, conflatable, length, encoder);
+        }
+    }
+
+    /**
+     * Encodes a message straight into a session's egress publication without waiting. A message too long to claim, or
+     * for a session which already has messages queued, is encoded once into a buffer and offered as usual; if the
+     * session is back pressured the encoded message is queued.
+     * @param targetSession the session to send to
+     * @param conflatable   true if the message is an auction update which the conflated flush will carry if the
+     *                      session is switched to conflated updates
+     * @param length        the encoded length of the message
+     * @param encoder       writes the message
+     */
+    private void claimToSession(
+        final ClientSession targetSession,
+        final boolean conflatable,
+        final int length,
+        final MessageEncoder encoder)
+    {
+        if (targetSession.isClosing())
+        {
+            return;
+        }
+
+        final SessionEgressQueue queue = egressQueuesBySessionId.get(targetSession.id());
+        if (length > maxClaimLength || (null != queue && 0 != queue.queueDepth()))
+        {
+            offerToSession(targetSession, conflatable, encodedMessage(encoder), 0, length);
+            return;
+        }
+
+        final long result = targetSession.tryClaim(length, bufferClaim);
+        if (result > 0L)
+        {
+            try
+            {
+                encoder.encode(bufferClaim.buffer(), bufferClaim.offset() + AeronCluster.SESSION_HEADER_LENGTH);
+            }
+            catch (final RuntimeException ex)
+            {
+                bufferClaim.abort();
+                throw ex;
+            }
+            bufferClaim.commit();
+            claimedCount++;
+        }
+        else if (result == Publication.ADMIN_ACTION || result == Publication.BACK_PRESSURED)
+        {
+            queue(targetSession, null == queue ? newEgressQueue(targetSession.id()) : queue, conflatable,
+                encodedMessage(encoder), 0, length);
+        }
+        else
+        {
+            LOGGER.error("unexpected state on session claim: {}", result);
+        }
+    }
+
+    /**
+     * Encodes the current message into a buffer the first time it is needed there
+     * @param encoder writes the message
+     * @return the buffer holding the message at offset zero
+     */
+    private DirectBuffer encodedMessage(final MessageEncoder encoder)
+    {
+        if (!encoded)
+        {
+            encoder.encode(encodedBuffer, 0);
+            encoded = true;
+        }
+        return encodedBuffer;
+    }
+
+    /**
+     * Offers a message to a session without waiting. If the session is back pressured, or already has messages queued,
+     * the message is queued behind them to be sent by {@link #flushEgress()}.
      * @param targetSession the session to offer to
-     * @param buffer the buffer to read data from
-     * @param offset the offset to read from
-     * @param length the length to read
+     * @param conflatable   true if the message is an auction update which the conflated flush will carry if the
+     *                      session is switched to conflated updates
+     * @param buffer        the buffer to read data from
+     * @param offset        the offset to read from
+     * @param length        the length to read
      */
     private void offerToSession(
         final ClientSession targetSession,
+        final boolean conflatable,
         final DirectBuffer buffer,
         final int offset,
         final int length)
     {
-        Objects.requireNonNull(idleStrategy, "idleStrategy must be set");
-        int retries = 0;
-        do
+        if (targetSession.isClosing())
+        {
+            return;
+        }
+
+        final SessionEgressQueue queue = egressQueuesBySessionId.get(targetSession.id());
+        if (null == queue || 0 == queue.queueDepth())
         {
             final long result = targetSession.offer(buffer, offset, length);
             if (result > 0L)
             {
                 return;
             }
-            else if (result == Publication.ADMIN_ACTION || result == Publication.BACK_PRESSURED)
-            {
-                LOGGER.warn("backpressure or admin action on session offer");
-            }
-            else if (result == Publication.NOT_CONNECTED || result == Publication.MAX_POSITION_EXCEEDED)
+            else if (result != Publication.ADMIN_ACTION && result != Publication.BACK_PRESSURED)
             {
                 LOGGER.error("unexpected state on session offer: {}", result);
                 return;
             }
+        }
+
+        queue(targetSession, null == queue ? newEgressQueue(targetSession.id()) : queue, conflatable, buffer, offset,
+            length);
+    }
+
+    /**
+     * Queues a message for a back pressured session, applying the slow consumer policy if its queue is full
+     * @param targetSession the session
+     * @param queue         the egress queue of the session
+     * @param conflatable   true if the message is an auction update which the conflated flush will carry if the
+     *                      session is switched to conflated updates
+     * @param buffer        the buffer to read data from
+     * @param offset        the offset to read from
+     * @param length        the length to read
+     */
+    private void queue(
+        final ClientSession targetSession,
+        final SessionEgressQueue queue,
+        final boolean conflatable,
+        final DirectBuffer buffer,
+        final int offset,
+        final int length)
+    {
+        if (queue.offer(buffer, offset, length))
+        {
+            return;
+        }
+
+        final long sessionId = targetSession.id();
+        switch (slowConsumerPolicy)
+        {
+            case DISCONNECT ->
+            {
+                LOGGER.warn("egress queue full for session {}; closing it", sessionId);
+                queue.dropAll();
+                queue.onDropped();
+                targetSession.close();
+            }
+            case CONFLATE ->
+            {
+                //the subscriptions are replicated state, so the switch is kept with the queue on this node instead
+                if (!queue.isConflated())
+                {
+                    LOGGER.warn("egress queue full for session {}; switching it to conflated updates", sessionId);
+                    queue.conflate();
+                    conflatedQueueCount++;
+                }
+                if (conflatable)
+                {
+                    queue.onDropped();
+                }
+                else
+                {
+                    dropOldestAndQueue(queue, buffer, offset, length);
+                }
+            }
+            default -> dropOldestAndQueue(queue, buffer, offset, length);
+        }
+    }
 
-            idleStrategy.idle();
-            retries += 1;
+    private void dropOldestAndQueue(
+        final SessionEgressQueue queue,
+        final DirectBuffer buffer,
+        final int offset,
+        final int length)
+    {
+        if (!queue.canHold(length))
+        {
+            queue.onDropped();
+            return;
+        }
+        while (!queue.offer(buffer, offset, length))
+        {
+            queue.dropOldest();
         }
-        while (retries < RETRY_COUNT);
+    }
 
-        LOGGER.error("failed to offer snapshot within {} retries. Closing client session.", RETRY_COUNT);
-        session.close();
+    private SessionEgressQueue newEgressQueue(final long sessionId)
+    {
+        LOGGER.warn("session {} is back pressured; queueing its egress", sessionId);
+        AtomicCounter queueDepthCounter = null;
+        AtomicCounter droppedCounter = null;
+        if (null != aeron)
+        {
+            queueDepthCounter = aeron.addCounter(SessionEgressQueue.QUEUE_DEPTH_COUNTER_TYPE_ID,
+                "Egress queue depth: clusterSessionId=" + sessionId);
+            droppedCounter = aeron.addCounter(SessionEgressQueue.DROPPED_COUNTER_TYPE_ID,
+                "Egress dropped messages: clusterSessionId=" + sessionId);
+        }
+        final SessionEgressQueue queue =
+            new SessionEgressQueue(sessionId, egressQueueCapacity, queueDepthCounter, droppedCounter);
+        egressQueuesBySessionId.put(sessionId, queue);
+        return queue;
     }
 }
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.aeron.samples.infra;
+
+/**
+ * What is done with a session whose egress queue is full because it is not keeping up with the messages sent to it
+ */
+public enum SlowConsumerPolicy
+{
+    /**
+     * Switch the session to conflated auction updates, and make room for other messages by dropping the oldest
+     */
+    CONFLATE,
+    /**
+     * Drop the oldest queued messages to make room for the new one
+     */
+    DROP_OLDEST,
+    /**
+     * Close the session, discarding its queued messages
+     */
+    DISCONNECT
+}
@@ -17,68 +17,179 @@
 package io.aeron.samples.infra;
 
 import io.aeron.ExclusivePublication;
+import io.aeron.FragmentAssembler;
 import io.aeron.Image;
-import io.aeron.Publication;
 import io.aeron.logbuffer.FragmentHandler;
 import io.aeron.logbuffer.Header;
+import io.aeron.samples.cluster.protocol.AuctionBatchSnapshotDecoder;
+import io.aeron.samples.cluster.protocol.AuctionBatchSnapshotEncoder;
 import io.aeron.samples.cluster.protocol.AuctionIdSnapshotDecoder;
 import io.aeron.samples.cluster.protocol.AuctionIdSnapshotEncoder;
 import io.aeron.samples.cluster.protocol.AuctionSnapshotDecoder;
-import io.aeron.samples.cluster.protocol.AuctionSnapshotEncoder;
+import io.aeron.samples.cluster.protocol.AuctionSubscriptionSnapshotDecoder;
+import io.aeron.samples.cluster.protocol.AuctionSubscriptionSnapshotEncoder;
+import io.aeron.samples.cluster.protocol.BidHistorySnapshotDecoder;
+import io.aeron.samples.cluster.protocol.BidHistorySnapshotEncoder;
+import io.aeron.samples.cluster.protocol.BooleanType;
 import io.aeron.samples.cluster.protocol.EndOfSnapshotDecoder;
 import io.aeron.samples.cluster.protocol.EndOfSnapshotEncoder;
 import io.aeron.samples.cluster.protocol.MessageHeaderDecoder;
 import io.aeron.samples.cluster.protocol.MessageHeaderEncoder;
+import io.aeron.samples.cluster.protocol.ParticipantBatchSnapshotDecoder;
+import io.aeron.samples.cluster.protocol.ParticipantBatchSnapshotEncoder;
 import io.aeron.samples.cluster.protocol.ParticipantSnapshotDecoder;
-import io.aeron.samples.cluster.protocol.ParticipantSnapshotEncoder;
+import io.aeron.samples.cluster.protocol.ProxyBidSnapshotDecoder;
+import io.aeron.samples.cluster.protocol.ProxyBidSnapshotEncoder;
+import io.aeron.samples.cluster.protocol.SnapshotHeaderDecoder;
+import io.aeron.samples.cluster.protocol.SnapshotHeaderEncoder;
+import io.aeron.samples.cluster.protocol.StateVersionSnapshotDecoder;
+import io.aeron.samples.cluster.protocol.StateVersionSnapshotEncoder;
+import io.aeron.samples.cluster.protocol.TimerBatchSnapshotDecoder;
+import io.aeron.samples.cluster.protocol.TimerBatchSnapshotEncoder;
+import io.aeron.samples.cluster.protocol.TimerBucketSnapshotDecoder;
+import io.aeron.samples.cluster.protocol.TimerBucketSnapshotEncoder;
+import io.aeron.samples.cluster.protocol.TimerIdSnapshotDecoder;
+import io.aeron.samples.cluster.protocol.TimerIdSnapshotEncoder;
+import io.aeron.samples.cluster.protocol.TimerSnapshotDecoder;
+import io.aeron.samples.domain.auctions.Auction;
+import io.aeron.samples.domain.auctions.AuctionStatus;
 import io.aeron.samples.domain.auctions.Auctions;
+import io.aeron.samples.domain.auctions.BidHistory;
+import io.aeron.samples.domain.auctions.ProxyBids;
+import io.aeron.samples.domain.participants.Participant;
 import io.aeron.samples.domain.participants.Participants;
 import org.agrona.DirectBuffer;
 import org.agrona.ExpandableDirectByteBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.collections.LongArrayList;
 import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.UnsafeBuffer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Manages the loading and writing of domain data snapshots within the cluster
+ * Manages the loading and writing of domain data snapshots within the cluster.
+ * <p>
+ * Auctions and participants are written many to a message, as repeating groups packed to fill a fragment of the
+ * snapshot publication, and every message is written without giving up under back pressure.
+ * <p>
+ * Snapshots open with a header giving their format. From format 2, each auction is written with its complete state,
+ * including its status and bidding, and is restored exactly whether or not it has started. Snapshots of format 1 have
+ * no header and hold only what an auction is created with, so only auctions which have not yet started are restored
+ * from them. The single auction and participant messages of the earliest snapshots can still be loaded.
+ * <p>
+ * From format 3, the header also gives the number of participants, auctions, bid histories and pending timers, so the
+ * stores are sized once before loading rather than grown as entities arrive, and pending timers are packed into
+ * fragments like auctions. Auction names and descriptions are copied from the snapshot into the auction store without
+ * being decoded to strings.
  */
 public class SnapshotManager implements FragmentHandler
 {
+    /**
+     * The format snapshots are written in
+     */
+    static final int FORMAT_VERSION = 3;
+    /**
+     * The first format to hold the complete state of each auction
+     */
+    static final int AUCTION_STATE_FORMAT_VERSION = 2;
+    /**
+     * The format of snapshots written without a header, which hold only what each auction was created with
+     */
+    static final int LEGACY_FORMAT_VERSION = 1;
     private static final Logger LOGGER = LoggerFactory.getLogger(SnapshotManager.class);
-    private static final int RETRY_COUNT = 3;
+    /**
+     * The most fragments read from the snapshot image in one poll. Loading is the only work the service has to do, so
+     * this is set well above the cluster's usual limits to keep polling overhead small.
+     */
+    private static final int LOAD_FRAGMENT_LIMIT = 1_000;
+    private static final int AUCTION_BATCH_BASE_LENGTH = MessageHeaderEncoder.ENCODED_LENGTH +
+        AuctionBatchSnapshotEncoder.BLOCK_LENGTH + AuctionBatchSnapshotEncoder.AuctionsEncoder.sbeHeaderSize();
+    private static final int PARTICIPANT_BATCH_BASE_LENGTH = MessageHeaderEncoder.ENCODED_LENGTH +
+        ParticipantBatchSnapshotEncoder.BLOCK_LENGTH +
+        ParticipantBatchSnapshotEncoder.ParticipantsEncoder.sbeHeaderSize();
+    private static final int TIMER_BATCH_BASE_LENGTH = MessageHeaderEncoder.ENCODED_LENGTH +
+        TimerBatchSnapshotEncoder.BLOCK_LENGTH + TimerBatchSnapshotEncoder.TimersEncoder.sbeHeaderSize();
     private boolean snapshotFullyLoaded = false;
+    private int snapshotFormatVersion = LEGACY_FORMAT_VERSION;
+    private boolean timerIdRestored = false;
+    private long legacyTimerCorrelationId = 0;
     private final Auctions auctions;
     private final Participants participants;
+    private final TimerManager timerManager;
+    private final AuctionSubscriptions subscriptions;
     private final SessionMessageContext context;
     private IdleStrategy idleStrategy;
 
     private final ExpandableDirectByteBuffer buffer = new ExpandableDirectByteBuffer(1024);
+    private final SnapshotWriter snapshotWriter = new SnapshotWriter();
+    private final FragmentAssembler snapshotAssembler = new FragmentAssembler(this);
     private final MessageHeaderDecoder headerDecoder = new MessageHeaderDecoder();
     private final MessageHeaderEncoder headerEncoder = new MessageHeaderEncoder();
+    private final SnapshotHeaderDecoder snapshotHeaderDecoder = new SnapshotHeaderDecoder();
+    private final SnapshotHeaderEncoder snapshotHeaderEncoder = new SnapshotHeaderEncoder();
     private final AuctionSnapshotDecoder auctionDecoder = new AuctionSnapshotDecoder();
-    private final AuctionSnapshotEncoder auctionEncoder = new AuctionSnapshotEncoder();
+    private final AuctionBatchSnapshotDecoder auctionBatchDecoder = new AuctionBatchSnapshotDecoder();
+    private final AuctionBatchSnapshotEncoder auctionBatchEncoder = new AuctionBatchSnapshotEncoder();
     private final AuctionIdSnapshotEncoder auctionIdEncoder = new AuctionIdSnapshotEncoder();
+    private final StateVersionSnapshotEncoder stateVersionEncoder = new StateVersionSnapshotEncoder();
+    private final BidHistorySnapshotDecoder bidHistoryDecoder = new BidHistorySnapshotDecoder();
+    private final BidHistorySnapshotEncoder bidHistoryEncoder = new BidHistorySnapshotEncoder();
+    private final ProxyBidSnapshotDecoder proxyBidDecoder = new ProxyBidSnapshotDecoder();
+    private final ProxyBidSnapshotEncoder proxyBidEncoder = new ProxyBidSnapshotEncoder();
     private final AuctionIdSnapshotDecoder auctionIdDecoder = new AuctionIdSnapshotDecoder();
+    private final StateVersionSnapshotDecoder stateVersionDecoder = new StateVersionSnapshotDecoder();
     private final ParticipantSnapshotDecoder participantDecoder = new ParticipantSnapshotDecoder();
-    private final ParticipantSnapshotEncoder participantEncoder = new ParticipantSnapshotEncoder();
+    private final ParticipantBatchSnapshotDecoder participantBatchDecoder = new ParticipantBatchSnapshotDecoder();
+    private final ParticipantBatchSnapshotEncoder participantBatchEncoder = new ParticipantBatchSnapshotEncoder();
+    private final TimerSnapshotDecoder timerDecoder = new TimerSnapshotDecoder();
+    private final TimerBatchSnapshotDecoder timerBatchDecoder = new TimerBatchSnapshotDecoder();
+    private final TimerBatchSnapshotEncoder timerBatchEncoder = new TimerBatchSnapshotEncoder();
+    private final TimerBucketSnapshotDecoder timerBucketDecoder = new TimerBucketSnapshotDecoder();
+    private final TimerBucketSnapshotEncoder timerBucketEncoder = new TimerBucketSnapshotEncoder();
+    private final TimerIdSnapshotDecoder timerIdDecoder = new TimerIdSnapshotDecoder();
+    private final TimerIdSnapshotEncoder timerIdEncoder = new TimerIdSnapshotEncoder();
+    private final AuctionSubscriptionSnapshotDecoder subscriptionDecoder = new AuctionSubscriptionSnapshotDecoder();
+    private final AuctionSubscriptionSnapshotEncoder subscriptionEncoder = new AuctionSubscriptionSnapshotEncoder();
     private final EndOfSnapshotEncoder endOfSnapshotEncoder = new EndOfSnapshotEncoder();
+    private final SessionMessageContext.MessageEncoder auctionBatchWriter = this::encodeAuctionBatch;
+    private final SessionMessageContext.MessageEncoder participantBatchWriter = this::encodeParticipantBatch;
+    private final TimerManager.TimerWriter timerBatchWriter = this::writeTimer;
+    private final TimerManager.BucketTimerWriter timerBucketWriter = this::writeTimerBucket;
+    private final AuctionSubscriptions.SessionSubscriptionsConsumer subscriptionWriter = this::writeSubscriptions;
+    private final UnsafeBuffer nameBuffer = new UnsafeBuffer(0, 0);
+    private final UnsafeBuffer descriptionBuffer = new UnsafeBuffer(0, 0);
+    private TimerBatchSnapshotEncoder.TimersEncoder timersEncoder;
+    private int batchStart;
+    private int batchEnd;
+    private int timerCount;
+    private int timerBatchCapacity;
 
     /**
      * Constructor
      *
      * @param auctions     the auction domain model to read and write with snapshot interactions
      * @param participants the participant domain model to read and write with snapshot interactions
-     * @param context      the session message context to use for snapshot interactions
+     * @param timerManager  the timer manager whose pending timers are read and written with snapshot interactions
+     * @param subscriptions the auction subscriptions of the client sessions, read and written with snapshot
+     *                      interactions
+     * @param context       the session message context to use for snapshot interactions
      */
     public SnapshotManager(
         final Auctions auctions,
         final Participants participants,
+        final TimerManager timerManager,
+        final AuctionSubscriptions subscriptions,
         final SessionMessageContext context)
     {
         this.auctions = auctions;
         this.participants = participants;
+        this.timerManager = timerManager;
+        this.subscriptions = subscriptions;
         this.context = context;
     }
 
@@ -89,11 +200,23 @@ public class SnapshotManager implements FragmentHandler
     public void takeSnapshot(final ExclusivePublication snapshotPublication)
     {
         LOGGER.info("Starting snapshot...");
-        offerParticipants(snapshotPublication);
-        offerAuctions(snapshotPublication);
-        offerAuctionIdGenerator(snapshotPublication);
-        offerEndOfSnapshotMarker(snapshotPublication);
-        LOGGER.info("Snapshot complete");
+        Objects.requireNonNull(idleStrategy, "Idle strategy must be set before taking snapshot");
+        final long startNs = System.nanoTime();
+        snapshotWriter.begin(snapshotPublication, idleStrategy);
+        offerSnapshotHeader();
+        offerStateVersion();
+        offerParticipants();
+        offerAuctions();
+        offerBidHistories();
+        offerProxyBids();
+        offerTimers();
+        offerTimerBuckets();
+        offerAuctionIdGenerator();
+        offerTimerIdGenerator();
+        offerSubscriptions();
+        offerEndOfSnapshotMarker();
+        LOGGER.info("Snapshot complete: {} messages, {} bytes in {} ms", snapshotWriter.messageCount(),
+            snapshotWriter.frameLength(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNs));
     }
 
     /**
@@ -104,18 +227,25 @@ public class SnapshotManager implements FragmentHandler
     {
         LOGGER.info("Loading snapshot...");
         snapshotFullyLoaded = false;
+        snapshotFormatVersion = LEGACY_FORMAT_VERSION;
+        timerIdRestored = false;
+        legacyTimerCorrelationId = 0;
         Objects.requireNonNull(idleStrategy, "Idle strategy must be set before loading snapshot");
+        final long startNs = System.nanoTime();
+        final long startPosition = snapshotImage.position();
         idleStrategy.reset();
         while (!snapshotImage.isEndOfStream())
         {
-            idleStrategy.idle(snapshotImage.poll(this, 20));
+            idleStrategy.idle(snapshotImage.poll(snapshotAssembler, LOAD_FRAGMENT_LIMIT));
         }
 
         if (!snapshotFullyLoaded)
         {
             LOGGER.warn("Snapshot load not completed; no end of snapshot marker found");
         }
-        LOGGER.info("Snapshot load complete.");
+        LOGGER.info("Snapshot load complete: {} auctions, {} participants, {} timers, {} bytes in {} ms",
+            auctions.getAuctionList().size(), participants.getParticipantList().size(), timerManager.getTimerCount(),
+            snapshotImage.position() - startPosition, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNs));
     }
 
     /**
@@ -146,25 +276,89 @@ public class SnapshotManager implements FragmentHandler
 
         switch (headerDecoder.templateId())
         {
+            case SnapshotHeaderDecoder.TEMPLATE_ID ->
+            {
+                snapshotHeaderDecoder.wrapAndApplyHeader(buffer, offset, headerDecoder);
+                snapshotFormatVersion = snapshotHeaderDecoder.formatVersion();
+                if (snapshotFormatVersion > FORMAT_VERSION)
+                {
+                    throw new IllegalStateException("Snapshot format " + snapshotFormatVersion +
+                        " is newer than the latest known format " + FORMAT_VERSION);
+                }
+                if (snapshotFormatVersion >= FORMAT_VERSION)
+                {
+                    participants.ensureCapacity(snapshotHeaderDecoder.participantCount());
+                    auctions.ensureCapacity(snapshotHeaderDecoder.auctionCount(),
+                        snapshotHeaderDecoder.auctionStringLength(), snapshotHeaderDecoder.bidHistoryCount());
+                    timerManager.ensureCapacity(snapshotHeaderDecoder.timerCount());
+                }
+            }
             case ParticipantSnapshotDecoder.TEMPLATE_ID ->
             {
                 participantDecoder.wrapAndApplyHeader(buffer, offset, headerDecoder);
                 participants.restoreParticipant(participantDecoder.participantId(), participantDecoder.name());
             }
+            case ParticipantBatchSnapshotDecoder.TEMPLATE_ID ->
+            {
+                participantBatchDecoder.wrapAndApplyHeader(buffer, offset, headerDecoder);
+                final ParticipantBatchSnapshotDecoder.ParticipantsDecoder participantsDecoder =
+                    participantBatchDecoder.participants();
+                while (participantsDecoder.hasNext())
+                {
+                    participantsDecoder.next();
+                    participants.restoreParticipant(participantsDecoder.participantId(), participantsDecoder.name());
+                }
+            }
+            case AuctionBatchSnapshotDecoder.TEMPLATE_ID ->
+            {
+                auctionBatchDecoder.wrapAndApplyHeader(buffer, offset, headerDecoder);
+                final AuctionBatchSnapshotDecoder.AuctionsDecoder auctionsDecoder = auctionBatchDecoder.auctions();
+                while (auctionsDecoder.hasNext())
+                {
+                    auctionsDecoder.next();
+                    if (snapshotFormatVersion >= AUCTION_STATE_FORMAT_VERSION)
+                    {
+                        restoreAuctionState(auctionsDecoder);
+                    }
+                    else
+                    {
+                        restoreAuction(auctionsDecoder.auctionId(), auctionsDecoder.createdByParticipantId(),
+                            auctionsDecoder.startTime(), auctionsDecoder.startTimeTimerCorrelation(),
+                            auctionsDecoder.endTime(), auctionsDecoder.endTimeTimerCorrelation(),
+                            auctionsDecoder.removalTimeTimerCorrelation(), auctionsDecoder.winningParticipantId(),
+                            auctionsDecoder.name(), auctionsDecoder.description());
+                    }
+                }
+            }
             case AuctionSnapshotDecoder.TEMPLATE_ID ->
             {
                 auctionDecoder.wrapAndApplyHeader(buffer, offset, headerDecoder);
-                if (auctionDecoder.startTime() > context.getClusterTime())
+                restoreAuction(auctionDecoder.auctionId(), auctionDecoder.createdByParticipantId(),
+                    auctionDecoder.startTime(), auctionDecoder.startTimeTimerCorrelation(),
+                    auctionDecoder.endTime(), auctionDecoder.endTimeTimerCorrelation(),
+                    auctionDecoder.removalTimeTimerCorrelation(), auctionDecoder.winningParticipantId(),
+                    auctionDecoder.name(), auctionDecoder.description());
+            }
+            case BidHistorySnapshotDecoder.TEMPLATE_ID ->
+            {
+                bidHistoryDecoder.wrapAndApplyHeader(buffer, offset, headerDecoder);
+                final long auctionId = bidHistoryDecoder.auctionId();
+                final BidHistorySnapshotDecoder.BidsDecoder bids = bidHistoryDecoder.bids();
+                while (bids.hasNext())
                 {
-                    auctions.restoreAuction(auctionDecoder.auctionId(), auctionDecoder.createdByParticipantId(),
-                        auctionDecoder.startTime(), auctionDecoder.startTimeTimerCorrelation(),
-                        auctionDecoder.endTime(), auctionDecoder.endTimeTimerCorrelation(),
-                        auctionDecoder.removalTimeTimerCorrelation(), auctionDecoder.winningParticipantId(),
-                        auctionDecoder.name(), auctionDecoder.description());
+                    bids.next();
+                    auctions.restoreBid(auctionId, bids.participantId(), bids.price(), bids.time());
                 }
-                else
+            }
+            case ProxyBidSnapshotDecoder.TEMPLATE_ID ->
+            {
+                proxyBidDecoder.wrapAndApplyHeader(buffer, offset, headerDecoder);
+                final long auctionId = proxyBidDecoder.auctionId();
+                final ProxyBidSnapshotDecoder.ProxyBidsDecoder proxyBids = proxyBidDecoder.proxyBids();
+                while (proxyBids.hasNext())
                 {
-                    LOGGER.warn("Auction {} has already started; not restoring", auctionDecoder.auctionId());
+                    proxyBids.next();
+                    auctions.restoreProxyBid(auctionId, proxyBids.participantId(), proxyBids.maxPrice());
                 }
             }
             case AuctionIdSnapshotDecoder.TEMPLATE_ID ->
@@ -172,102 +366,554 @@ public class SnapshotManager implements FragmentHandler
                 auctionIdDecoder.wrapAndApplyHeader(buffer, offset, headerDecoder);
                 auctions.restoreAuctionId(auctionIdDecoder.lastId());
             }
-            case EndOfSnapshotDecoder.TEMPLATE_ID -> snapshotFullyLoaded = true;
+            case StateVersionSnapshotDecoder.TEMPLATE_ID ->
+            {
+                stateVersionDecoder.wrapAndApplyHeader(buffer, offset, headerDecoder);
+                auctions.restoreStateVersion(stateVersionDecoder.version());
+            }
+            case TimerBatchSnapshotDecoder.TEMPLATE_ID ->
+            {
+                timerBatchDecoder.wrapAndApplyHeader(buffer, offset, headerDecoder);
+                final TimerBatchSnapshotDecoder.TimersDecoder timersDecoder = timerBatchDecoder.timers();
+                while (timersDecoder.hasNext())
+                {
+                    timersDecoder.next();
+                    restoreTimer(timersDecoder.correlationId(), timersDecoder.deadline(), timersDecoder.action(),
+                        timersDecoder.auctionId());
+                }
+            }
+            case TimerSnapshotDecoder.TEMPLATE_ID ->
+            {
+                timerDecoder.wrapAndApplyHeader(buffer, offset, headerDecoder);
+                restoreTimer(timerDecoder.correlationId(), timerDecoder.deadline(), timerDecoder.action(),
+                    timerDecoder.auctionId());
+            }
+            case TimerBucketSnapshotDecoder.TEMPLATE_ID ->
+            {
+                timerBucketDecoder.wrapAndApplyHeader(buffer, offset, headerDecoder);
+                timerManager.restoreBucketTimer(timerBucketDecoder.correlationId(), timerBucketDecoder.deadline());
+            }
+            case TimerIdSnapshotDecoder.TEMPLATE_ID ->
+            {
+                timerIdDecoder.wrapAndApplyHeader(buffer, offset, headerDecoder);
+                timerManager.restoreCorrelationId(timerIdDecoder.lastId());
+                timerIdRestored = true;
+            }
+            case AuctionSubscriptionSnapshotDecoder.TEMPLATE_ID ->
+            {
+                subscriptionDecoder.wrapAndApplyHeader(buffer, offset, headerDecoder);
+                final long clusterSessionId = subscriptionDecoder.clusterSessionId();
+                final boolean conflated = BooleanType.TRUE == subscriptionDecoder.conflated();
+                final AuctionSubscriptionSnapshotDecoder.AuctionsDecoder auctionIds = subscriptionDecoder.auctions();
+                while (auctionIds.hasNext())
+                {
+                    auctionIds.next();
+                    final long auctionId = auctionIds.auctionId();
+                    if (AuctionSubscriptions.ALL_AUCTIONS == auctionId || auctions.isKnownAuction(auctionId))
+                    {
+                        subscriptions.subscribe(clusterSessionId, auctionId);
+                    }
+                }
+                subscriptions.setConflated(clusterSessionId, conflated);
+            }
+            case EndOfSnapshotDecoder.TEMPLATE_ID ->
+            {
+                if (!timerIdRestored)
+                {
+                    restoreLegacyTimers();
+                }
+                snapshotFullyLoaded = true;
+            }
             default -> LOGGER.warn("Unknown snapshot message template id: {}", headerDecoder.templateId());
         }
     }
 
     /**
-     * Offers the participants to the snapshot publication using the ParticipantSnapshotEncoder
-     * @param snapshotPublication the publication to offer the snapshot data to
+     * Restores an auction with its complete state, as written from snapshot format 2, whether or not it has started.
+     * The name and description are copied straight from the snapshot message.
+     * @param auctionsDecoder the decoder positioned at the auction
+     */
+    private void restoreAuctionState(final AuctionBatchSnapshotDecoder.AuctionsDecoder auctionsDecoder)
+    {
+        final long auctionId = auctionsDecoder.auctionId();
+        final AuctionStatus status = toDomainStatus(auctionsDecoder.status());
+        final long currentPrice = auctionsDecoder.currentPrice();
+        final int bidCount = auctionsDecoder.bidCount();
+        final long lastUpdateTime = auctionsDecoder.lastUpdateTime();
+        final long lastModifiedVersion = auctionsDecoder.lastModifiedVersion();
+        auctionsDecoder.wrapName(nameBuffer);
+        auctionsDecoder.wrapDescription(descriptionBuffer);
+        auctions.restoreAuction(auctionId, auctionsDecoder.createdByParticipantId(), auctionsDecoder.startTime(),
+            auctionsDecoder.startTimeTimerCorrelation(), auctionsDecoder.endTime(),
+            auctionsDecoder.endTimeTimerCorrelation(), auctionsDecoder.removalTimeTimerCorrelation(),
+            auctionsDecoder.winningParticipantId(), nameBuffer, descriptionBuffer);
+        auctions.restoreAuctionState(auctionId, status, currentPrice, bidCount, lastUpdateTime, lastModifiedVersion);
+    }
+
+    /**
+     * Restores a pending timer if its auction was restored
+     * @param correlationId the correlation id of the timer
+     * @param deadline      the deadline of the timer
+     * @param action        the action to perform when the timer fires
+     * @param auctionId     the auction to perform the action on
      */
-    private void offerParticipants(final ExclusivePublication snapshotPublication)
+    private void restoreTimer(
+        final long correlationId,
+        final long deadline,
+        final io.aeron.samples.cluster.protocol.TimerAction action,
+        final long auctionId)
     {
-        participants.getParticipantList().forEach(participant ->
+        if (auctions.isKnownAuction(auctionId))
         {
-            participantEncoder.wrapAndApplyHeader(buffer, 0, headerEncoder);
-            participantEncoder.participantId(participant.participantId());
-            participantEncoder.name(participant.name());
-            retryingOffer(snapshotPublication, buffer,
-                headerEncoder.encodedLength() + participantEncoder.encodedLength());
-        });
+            timerManager.restoreTimer(correlationId, deadline, toDomainAction(action), auctionId);
+        }
+        else
+        {
+            LOGGER.warn("Auction {} was not restored; not restoring timer {}", auctionId, correlationId);
+        }
+    }
+
+    /**
+     * Restores an auction from a snapshot of format 1 if it has not yet started. These snapshots do not hold the
+     * status or bidding of an auction, so one which has started cannot be restored as it was.
+     * @param auctionId                   the auction id
+     * @param createdByParticipantId      the participant who created the auction
+     * @param startTime                   the start time of the auction
+     * @param startTimeTimerCorrelation   the timer correlation id for the start timer
+     * @param endTime                     the end time of the auction
+     * @param endTimeTimerCorrelation     the timer correlation id for the end timer
+     * @param removalTimeTimerCorrelation the timer correlation id for the removal timer
+     * @param winningParticipantId        the winning participant id
+     * @param name                        the name of the auction
+     * @param description                 the description
+     */
+    private void restoreAuction(
+        final long auctionId,
+        final long createdByParticipantId,
+        final long startTime,
+        final long startTimeTimerCorrelation,
+        final long endTime,
+        final long endTimeTimerCorrelation,
+        final long removalTimeTimerCorrelation,
+        final long winningParticipantId,
+        final String name,
+        final String description)
+    {
+        legacyTimerCorrelationId = Math.max(legacyTimerCorrelationId, Math.max(startTimeTimerCorrelation,
+            Math.max(endTimeTimerCorrelation, removalTimeTimerCorrelation)));
+        if (startTime > context.getClusterTime())
+        {
+            auctions.restoreAuction(auctionId, createdByParticipantId, startTime, startTimeTimerCorrelation, endTime,
+                endTimeTimerCorrelation, removalTimeTimerCorrelation, winningParticipantId, name, description);
+        }
+        else
+        {
+            LOGGER.warn("Auction {} has already started; not restoring", auctionId);
+        }
+    }
+
+    /**
+     * Restores the timers of a snapshot written before the timer manager was snapshotted, when each auction had a
+     * cluster timer of its own to open, close and remove it. The cluster still holds these timers, so each restored
+     * auction has its actions queued under their correlation ids. The correlation id generator is moved past every id
+     * in the snapshot, including those of auctions not restored, so no new timer reuses the id of a pending one.
+     */
+    private void restoreLegacyTimers()
+    {
+        final List<Auction> auctionList = auctions.getAuctionList();
+        for (int i = 0; i < auctionList.size(); i++)
+        {
+            final Auction auction = auctionList.get(i);
+            final long auctionId = auction.getAuctionId();
+            timerManager.restoreClusterTimer(auction.getStartTimerCorrelationId(), auction.getStartTime(),
+                TimerAction.OPEN_AUCTION, auctionId);
+            timerManager.restoreClusterTimer(auction.getEndTimerCorrelationId(), auction.getEndTime(),
+                TimerAction.CLOSE_AUCTION, auctionId);
+            timerManager.restoreClusterTimer(auction.getRemovalTimerCorrelationId(),
+                auction.getEndTime() + Auctions.REMOVAL_TIMER_DURATION, TimerAction.REMOVE_AUCTION, auctionId);
+        }
+        timerManager.restoreCorrelationId(Math.max(timerManager.getCorrelationId(), legacyTimerCorrelationId));
+    }
+
+    /**
+     * Offers the participants to the snapshot publication using the ParticipantBatchSnapshotEncoder, as many to a
+     * message as fit in one fragment
+     */
+    private void offerParticipants()
+    {
+        final List<Participant> participantList = participants.getParticipantList();
+        final int maxLength = snapshotWriter.maxPayloadLength();
+        batchEnd = 0;
+        while (batchEnd < participantList.size())
+        {
+            batchStart = batchEnd;
+            int length = PARTICIPANT_BATCH_BASE_LENGTH + participantEntryLength(participantList.get(batchEnd++));
+            while (batchEnd < participantList.size())
+            {
+                final int entryLength = participantEntryLength(participantList.get(batchEnd));
+                if (length + entryLength > maxLength)
+                {
+                    break;
+                }
+                length += entryLength;
+                batchEnd++;
+            }
+            snapshotWriter.write(length, participantBatchWriter);
+        }
+    }
+
+    private static int participantEntryLength(final Participant participant)
+    {
+        return ParticipantBatchSnapshotEncoder.ParticipantsEncoder.sbeBlockLength() +
+            ParticipantBatchSnapshotEncoder.ParticipantsEncoder.nameHeaderLength() +
+            participant.nameLength();
+    }
+
+    private void encodeParticipantBatch(final MutableDirectBuffer target, final int offset)
+    {
+        final List<Participant> participantList = participants.getParticipantList();
+        final ParticipantBatchSnapshotEncoder.ParticipantsEncoder participantsEncoder =
+            participantBatchEncoder.wrapAndApplyHeader(target, offset, headerEncoder)
+                .participantsCount(batchEnd - batchStart);
+        for (int i = batchStart; i < batchEnd; i++)
+        {
+            final Participant participant = participantList.get(i);
+            participantsEncoder.next().participantId(participant.participantId()).name(participant.name());
+        }
     }
 
     /**
      * Offers the auction id generator's last id to the snapshot publication using the AuctionIdSnapshotEncoder
-     * @param snapshotPublication the publication to offer the snapshot data to
      */
-    private void offerAuctionIdGenerator(final ExclusivePublication snapshotPublication)
+    private void offerAuctionIdGenerator()
     {
         auctionIdEncoder.wrapAndApplyHeader(buffer, 0, headerEncoder);
         auctionIdEncoder.lastId(auctions.getAuctionId());
-        retryingOffer(snapshotPublication, buffer, headerEncoder.encodedLength() + auctionIdEncoder.encodedLength());
+        snapshotWriter.write(buffer, 0, headerEncoder.encodedLength() + auctionIdEncoder.encodedLength());
+    }
+
+    /**
+     * Offers the snapshot header, giving the format the snapshot is written in and the number of each entity to size
+     * the stores for on load, using the SnapshotHeaderEncoder
+     */
+    private void offerSnapshotHeader()
+    {
+        snapshotHeaderEncoder.wrapAndApplyHeader(buffer, 0, headerEncoder)
+            .formatVersion(FORMAT_VERSION)
+            .participantCount(participants.getParticipantList().size())
+            .auctionCount(auctions.getAuctionList().size())
+            .auctionStringLength(auctions.getAuctionStringLength())
+            .bidHistoryCount(auctions.getBidHistoryCount())
+            .timerCount(timerManager.getTimerCount());
+        snapshotWriter.write(buffer, 0, headerEncoder.encodedLength() + snapshotHeaderEncoder.encodedLength());
+    }
+
+    /**
+     * Offers the auction state version to the snapshot publication using the StateVersionSnapshotEncoder. This is
+     * offered ahead of the auctions, which each carry the version at which they were last changed, so restoring it
+     * does not overwrite theirs.
+     */
+    private void offerStateVersion()
+    {
+        stateVersionEncoder.wrapAndApplyHeader(buffer, 0, headerEncoder);
+        stateVersionEncoder.version(auctions.getStateVersion());
+        snapshotWriter.write(buffer, 0, headerEncoder.encodedLength() + stateVersionEncoder.encodedLength());
+    }
+
+    /**
+     * Offers the auctions to the snapshot publication using the AuctionBatchSnapshotEncoder, as many to a message as
+     * fit in one fragment
+     */
+    private void offerAuctions()
+    {
+        final List<Auction> auctionList = auctions.getAuctionList();
+        final int maxLength = snapshotWriter.maxPayloadLength();
+        batchEnd = 0;
+        while (batchEnd < auctionList.size())
+        {
+            batchStart = batchEnd;
+            int length = AUCTION_BATCH_BASE_LENGTH + auctionEntryLength(auctionList.get(batchEnd++));
+            while (batchEnd < auctionList.size())
+            {
+                final int entryLength = auctionEntryLength(auctionList.get(batchEnd));
+                if (length + entryLength > maxLength)
+                {
+                    break;
+                }
+                length += entryLength;
+                batchEnd++;
+            }
+            snapshotWriter.write(length, auctionBatchWriter);
+        }
+    }
+
+    private static int auctionEntryLength(final Auction auction)
+    {
+        return AuctionBatchSnapshotEncoder.AuctionsEncoder.sbeBlockLength() +
+            AuctionBatchSnapshotEncoder.AuctionsEncoder.nameHeaderLength() + auction.getNameLength() +
+            AuctionBatchSnapshotEncoder.AuctionsEncoder.descriptionHeaderLength() + auction.getDescriptionLength();
+    }
+
+    private void encodeAuctionBatch(final MutableDirectBuffer target, final int offset)
+    {
+        final List<Auction> auctionList = auctions.getAuctionList();
+        final AuctionBatchSnapshotEncoder.AuctionsEncoder auctionsEncoder =
+            auctionBatchEncoder.wrapAndApplyHeader(target, offset, headerEncoder).auctionsCount(batchEnd - batchStart);
+        for (int i = batchStart; i < batchEnd; i++)
+        {
+            final Auction auction = auctionList.get(i);
+            auctionsEncoder.next()
+                .auctionId(auction.getAuctionId())
+                .createdByParticipantId(auction.getCreatedByParticipantId())
+                .startTime(auction.getStartTime())
+                .startTimeTimerCorrelation(auction.getStartTimerCorrelationId())
+                .endTime(auction.getEndTime())
+                .endTimeTimerCorrelation(auction.getEndTimerCorrelationId())
+                .removalTimeTimerCorrelation(auction.getRemovalTimerCorrelationId())
+                .winningParticipantId(auction.getWinningParticipantId())
+                .status(toProtocolStatus(auction.getAuctionStatus()))
+                .currentPrice(auction.getCurrentPrice())
+                .bidCount(auction.getBidCount())
+                .lastUpdateTime(auction.getLastUpdateTime())
+                .lastModifiedVersion(auction.getLastModifiedVersion());
+            auctionsEncoder.putName(auction.getStringBuffer(), auction.getNameOffset(), auction.getNameLength());
+            auctionsEncoder.putDescription(
+                auction.getStringBuffer(), auction.getDescriptionOffset(), auction.getDescriptionLength());
+        }
     }
 
     /**
-     * Offers the auctions to the snapshot publication using the AuctionSnapshotEncoder
-     * @param snapshotPublication the publication to offer the snapshot data to
+     * Offers the retained bid history of each auction with bids to the snapshot publication using the
+     * BidHistorySnapshotEncoder, as one message per auction with the bids oldest first
      */
-    private void offerAuctions(final ExclusivePublication snapshotPublication)
+    private void offerBidHistories()
     {
-        auctions.getAuctionList().forEach(auction ->
+        final List<Auction> auctionList = auctions.getAuctionList();
+        for (int i = 0; i < auctionList.size(); i++)
         {
-            auctionEncoder.wrapAndApplyHeader(buffer, 0, headerEncoder);
-            auctionEncoder.auctionId(auction.getAuctionId());
-            auctionEncoder.createdByParticipantId(auction.getCreatedByParticipantId());
-            auctionEncoder.startTime(auction.getStartTime());
-            auctionEncoder.startTimeTimerCorrelation(auction.getStartTimerCorrelationId());
-            auctionEncoder.endTime(auction.getEndTime());
-            auctionEncoder.endTimeTimerCorrelation(auction.getEndTimerCorrelationId());
-            auctionEncoder.removalTimeTimerCorrelation(auction.getRemovalTimerCorrelationId());
-            auctionEncoder.winningParticipantId(auction.getWinningParticipantId());
-            auctionEncoder.name(auction.getName());
-            auctionEncoder.description(auction.getDescription());
-            retryingOffer(snapshotPublication, buffer,
-                headerEncoder.encodedLength() + auctionEncoder.encodedLength());
-        });
+            final Auction auction = auctionList.get(i);
+            final BidHistory bidHistory = auctions.getBidHistory(auction);
+            final int size = bidHistory.size();
+            if (0 == size)
+            {
+                continue;
+            }
+
+            bidHistoryEncoder.wrapAndApplyHeader(buffer, 0, headerEncoder);
+            bidHistoryEncoder.auctionId(auction.getAuctionId());
+            final BidHistorySnapshotEncoder.BidsEncoder bidsEncoder = bidHistoryEncoder.bidsCount(size);
+            for (int bid = size - 1; bid >= 0; bid--)
+            {
+                bidsEncoder.next()
+                    .participantId(bidHistory.participantId(bid))
+                    .price(bidHistory.price(bid))
+                    .time(bidHistory.time(bid));
+            }
+            snapshotWriter.write(buffer, 0, headerEncoder.encodedLength() + bidHistoryEncoder.encodedLength());
+        }
     }
 
+    /**
+     * Offers the standing proxy bids of each auction with any to the snapshot publication using the
+     * ProxyBidSnapshotEncoder, as one message per auction with the proxy bids in registration order
+     */
+    private void offerProxyBids()
+    {
+        final List<Auction> auctionList = auctions.getAuctionList();
+        for (int i = 0; i < auctionList.size(); i++)
+        {
+            final long auctionId = auctionList.get(i).getAuctionId();
+            final ProxyBids proxyBids = auctions.getProxyBids(auctionId);
+            if (null == proxyBids)
+            {
+                continue;
+            }
 
-    private void offerEndOfSnapshotMarker(final ExclusivePublication snapshotPublication)
+            proxyBidEncoder.wrapAndApplyHeader(buffer, 0, headerEncoder);
+            proxyBidEncoder.auctionId(auctionId);
+            final ProxyBidSnapshotEncoder.ProxyBidsEncoder proxyBidsEncoder =
+                proxyBidEncoder.proxyBidsCount(proxyBids.size());
+            for (int proxyBid = 0; proxyBid < proxyBids.size(); proxyBid++)
+            {
+                proxyBidsEncoder.next()
+                    .participantId(proxyBids.participantId(proxyBid))
+                    .maxPrice(proxyBids.maxPrice(proxyBid));
+            }
+            snapshotWriter.write(buffer, 0, headerEncoder.encodedLength() + proxyBidEncoder.encodedLength());
+        }
+    }
+
+    /**
+     * Offers the pending timers to the snapshot publication using the TimerBatchSnapshotEncoder, in deadline queue
+     * order and as many to a message as fit in one fragment
+     */
+    private void offerTimers()
     {
-        endOfSnapshotEncoder.wrapAndApplyHeader(buffer, 0, headerEncoder);
-        retryingOffer(snapshotPublication, buffer,
-            headerEncoder.encodedLength() + endOfSnapshotEncoder.encodedLength());
+        timerCount = timerManager.getTimerCount();
+        timerBatchCapacity = (snapshotWriter.maxPayloadLength() - TIMER_BATCH_BASE_LENGTH) /
+            TimerBatchSnapshotEncoder.TimersEncoder.sbeBlockLength();
+        batchStart = 0;
+        batchEnd = 0;
+        timerManager.forEachTimer(timerBatchWriter);
+    }
+
+    private void writeTimer(
+        final long correlationId,
+        final long deadline,
+        final TimerAction action,
+        final long auctionId)
+    {
+        if (batchStart == batchEnd)
+        {
+            batchEnd = Math.min(timerCount, batchStart + timerBatchCapacity);
+            timersEncoder = timerBatchEncoder.wrapAndApplyHeader(buffer, 0, headerEncoder)
+                .timersCount(batchEnd - batchStart);
+        }
+        timersEncoder.next()
+            .correlationId(correlationId)
+            .action(toProtocolAction(action))
+            .auctionId(auctionId)
+            .deadline(deadline);
+        if (++batchStart == batchEnd)
+        {
+            snapshotWriter.write(buffer, 0, headerEncoder.encodedLength() + timerBatchEncoder.encodedLength());
+        }
     }
 
     /**
-     * Retries the offer to the publication if it fails on back pressure or admin action.
-     * Buffer is assumed to always start at offset 0
-     * @param publication the publication to offer data to
-     * @param buffer the buffer holding the source data
-     * @param length the length to write
+     * Offers the scheduled bucket timers to the snapshot publication using the TimerBucketSnapshotEncoder
      */
-    private void retryingOffer(final ExclusivePublication publication, final DirectBuffer buffer, final int length)
+    private void offerTimerBuckets()
+    {
+        timerManager.forEachBucketTimer(timerBucketWriter);
+    }
+
+    private void writeTimerBucket(final long correlationId, final long bucket)
     {
-        final int offset = 0;
-        int retries = 0;
-        do
+        timerBucketEncoder.wrapAndApplyHeader(buffer, 0, headerEncoder);
+        timerBucketEncoder.correlationId(correlationId);
+        timerBucketEncoder.deadline(bucket);
+        snapshotWriter.write(buffer, 0, headerEncoder.encodedLength() + timerBucketEncoder.encodedLength());
+    }
+
+    /**
+     * Offers the timer correlation id generator's last id to the snapshot publication using the
+     * TimerIdSnapshotEncoder
+     */
+    private void offerTimerIdGenerator()
+    {
+        timerIdEncoder.wrapAndApplyHeader(buffer, 0, headerEncoder);
+        timerIdEncoder.lastId(timerManager.getCorrelationId());
+        snapshotWriter.write(buffer, 0, headerEncoder.encodedLength() + timerIdEncoder.encodedLength());
+    }
+
+    /**
+     * Offers the auction subscriptions of each client session to the snapshot publication using the
+     * AuctionSubscriptionSnapshotEncoder. These follow the auctions, so subscriptions to auctions which were not
+     * restored are dropped on load.
+     */
+    private void offerSubscriptions()
+    {
+        subscriptions.forEachSession(subscriptionWriter);
+    }
+
+    private void writeSubscriptions(final long sessionId, final LongArrayList auctionIds)
+    {
+        subscriptionEncoder.wrapAndApplyHeader(buffer, 0, headerEncoder);
+        subscriptionEncoder.clusterSessionId(sessionId);
+        subscriptionEncoder.conflated(subscriptions.isConflated(sessionId) ? BooleanType.TRUE : BooleanType.FALSE);
+        final AuctionSubscriptionSnapshotEncoder.AuctionsEncoder auctionsEncoder =
+            subscriptionEncoder.auctionsCount(auctionIds.size());
+        for (int i = 0; i < auctionIds.size(); i++)
+        {
+            auctionsEncoder.next().auctionId(auctionIds.getLong(i));
+        }
+        snapshotWriter.write(buffer, 0, headerEncoder.encodedLength() + subscriptionEncoder.encodedLength());
+    }
+
+    private void offerEndOfSnapshotMarker()
+    {
+        endOfSnapshotEncoder.wrapAndApplyHeader(buffer, 0, headerEncoder);
+        snapshotWriter.write(buffer, 0, headerEncoder.encodedLength() + endOfSnapshotEncoder.encodedLength());
+    }
+
+    private static io.aeron.samples.cluster.protocol.AuctionStatus toProtocolStatus(final AuctionStatus status)
+    {
+        switch (status)
+        {
+            case PRE_OPEN ->
+            {
+                return io.aeron.samples.cluster.protocol.AuctionStatus.PRE_OPEN;
+            }
+            case OPEN ->
+            {
+                return io.aeron.samples.cluster.protocol.AuctionStatus.OPEN;
+            }
+            case CLOSED ->
+            {
+                return io.aeron.samples.cluster.protocol.AuctionStatus.CLOSED;
+            }
+            default -> throw new IllegalArgumentException("Auction status cannot be snapshot: " + status);
+        }
+    }
+
+    private static AuctionStatus toDomainStatus(final io.aeron.samples.cluster.protocol.AuctionStatus status)
+    {
+        switch (status)
         {
-            final long result = publication.offer(buffer, offset, length);
-            if (result > 0L)
+            case PRE_OPEN ->
             {
-                return;
+                return AuctionStatus.PRE_OPEN;
             }
-            else if (result == Publication.ADMIN_ACTION || result == Publication.BACK_PRESSURED)
+            case OPEN ->
             {
-                LOGGER.warn("backpressure or admin action on snapshot");
+                return AuctionStatus.OPEN;
             }
-            else if (result == Publication.NOT_CONNECTED || result == Publication.MAX_POSITION_EXCEEDED)
+            case CLOSED ->
             {
-                LOGGER.error("unexpected publication state on snapshot: {}", result);
-                return;
+                return AuctionStatus.CLOSED;
             }
-            idleStrategy.idle();
-            retries += 1;
+            default -> throw new IllegalArgumentException("Unknown auction status: " + status);
         }
-        while (retries < RETRY_COUNT);
+    }
 
-        LOGGER.error("failed to offer snapshot within {} retries", RETRY_COUNT);
+    private static io.aeron.samples.cluster.protocol.TimerAction toProtocolAction(final TimerAction action)
+    {
+        switch (action)
+        {
+            case OPEN_AUCTION ->
+            {
+                return io.aeron.samples.cluster.protocol.TimerAction.OPEN_AUCTION;
+            }
+            case CLOSE_AUCTION ->
+            {
+                return io.aeron.samples.cluster.protocol.TimerAction.CLOSE_AUCTION;
+            }
+            case REMOVE_AUCTION ->
+            {
+                return io.aeron.samples.cluster.protocol.TimerAction.REMOVE_AUCTION;
+            }
+            default -> throw new IllegalArgumentException("Unknown timer action: " + action);
+        }
+    }
+
+    private static TimerAction toDomainAction(final io.aeron.samples.cluster.protocol.TimerAction action)
+    {
+        switch (action)
+        {
+            case OPEN_AUCTION ->
+            {
+                return TimerAction.OPEN_AUCTION;
+            }
+            case CLOSE_AUCTION ->
+            {
+                return TimerAction.CLOSE_AUCTION;
+            }
+            case REMOVE_AUCTION ->
+            {
+                return TimerAction.REMOVE_AUCTION;
+            }
+            default -> throw new IllegalArgumentException("Unknown timer action: " + action);
+        }
     }
 }
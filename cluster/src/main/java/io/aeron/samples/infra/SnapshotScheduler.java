@@ -0,0 +1,237 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.aeron.samples.infra;
+
+import io.aeron.Aeron;
+import io.aeron.cluster.service.Cluster;
+import io.aeron.cluster.service.ClusterControl;
+import org.agrona.CloseHelper;
+import org.agrona.concurrent.status.AtomicCounter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Takes a snapshot once the log has grown by a number of bytes, or once an interval has passed with the log grown at
+ * all, since the last snapshot. This bounds how much log a node restarted from the latest snapshot must replay.
+ * <p>
+ * The leader requests the snapshot through the cluster control toggle, as {@code ClusterTool snapshot} does, and the
+ * snapshot is then taken by every node at the same log position. Snapshots requested by an operator reset the
+ * thresholds as well. The log position of the latest snapshot and the time the service took to write it are kept in
+ * Aeron counters, where they can be read with AeronStat.
+ */
+public final class SnapshotScheduler
+{
+    /**
+     * The counter type id of the log position of the latest snapshot
+     */
+    static final int LAST_SNAPSHOT_POSITION_COUNTER_TYPE_ID = 1003;
+    /**
+     * The counter type id of the time in nanoseconds the service took to write the latest snapshot
+     */
+    static final int LAST_SNAPSHOT_DURATION_COUNTER_TYPE_ID = 1004;
+    /**
+     * The time after requesting a snapshot within which it is expected to be taken. A request still not taken after
+     * this, with the control toggle back to neutral, was aborted or reset, so another may be requested.
+     */
+    static final long SNAPSHOT_REQUEST_TIMEOUT_NS = TimeUnit.SECONDS.toNanos(10);
+    private static final Logger LOGGER = LoggerFactory.getLogger(SnapshotScheduler.class);
+    private static final long NULL_TIME = Long.MIN_VALUE;
+
+    private final long logThresholdBytes;
+    private final long intervalNs;
+    private Cluster cluster;
+    private Cluster.Role role = Cluster.Role.FOLLOWER;
+    private AtomicCounter controlToggle;
+    private AtomicCounter lastSnapshotPositionCounter;
+    private AtomicCounter lastSnapshotDurationCounter;
+    private long lastSnapshotPosition;
+    private long lastSnapshotTimeNs = NULL_TIME;
+    private boolean snapshotPending;
+    private long snapshotRequestTimeNs;
+
+    /**
+     * Constructor
+     * @param logThresholdBytes the log growth in bytes since the last snapshot which triggers another, or zero for none
+     * @param intervalNs        the time since the last snapshot after which another is triggered if the log has grown,
+     *                          or zero for none
+     */
+    public SnapshotScheduler(final long logThresholdBytes, final long intervalNs)
+    {
+        if (logThresholdBytes < 0 || intervalNs < 0)
+        {
+            throw new IllegalArgumentException("snapshot thresholds must not be negative: logThresholdBytes=" +
+                logThresholdBytes + " intervalNs=" + intervalNs);
+        }
+        this.logThresholdBytes = logThresholdBytes;
+        this.intervalNs = intervalNs;
+    }
+
+    /**
+     * Whether either threshold is set, so snapshots are triggered
+     * @return true if snapshots are triggered
+     */
+    public boolean isEnabled()
+    {
+        return logThresholdBytes > 0 || intervalNs > 0;
+    }
+
+    /**
+     * Sets the cluster, whose log position is watched from the position it has started or been restored at. Finds the
+     * cluster control toggle, unless one has been set, and adds the last snapshot counters.
+     * @param cluster the cluster
+     */
+    public void setCluster(final Cluster cluster)
+    {
+        this.cluster = cluster;
+        role = cluster.role();
+        lastSnapshotPosition = cluster.logPosition();
+
+        final Aeron aeron = cluster.aeron();
+        if (null == aeron)
+        {
+            return;
+        }
+        if (isEnabled() && null == controlToggle)
+        {
+            controlToggle = ClusterControl.findControlToggle(aeron.countersReader(), cluster.context().clusterId());
+            if (null == controlToggle)
+            {
+                LOGGER.warn("cluster control toggle not found; snapshots will not be scheduled");
+            }
+        }
+        lastSnapshotPositionCounter = aeron.addCounter(LAST_SNAPSHOT_POSITION_COUNTER_TYPE_ID,
+            "Last snapshot position: clusterId=" + cluster.context().clusterId());
+        lastSnapshotDurationCounter = aeron.addCounter(LAST_SNAPSHOT_DURATION_COUNTER_TYPE_ID,
+            "Last snapshot duration ns: clusterId=" + cluster.context().clusterId());
+        lastSnapshotPositionCounter.setRelease(lastSnapshotPosition);
+    }
+
+    /**
+     * Sets the cluster control toggle the snapshot is requested through, rather than finding it from the cluster
+     * @param controlToggle the cluster control toggle
+     */
+    void setControlToggle(final AtomicCounter controlToggle)
+    {
+        this.controlToggle = controlToggle;
+    }
+
+    /**
+     * Called once the role of this node changes; only the leader requests snapshots
+     * @param newRole the new role
+     */
+    public void onRoleChange(final Cluster.Role newRole)
+    {
+        role = newRole;
+        snapshotPending = false;
+    }
+
+    /**
+     * Requests a snapshot if this node leads and a threshold has been crossed since the last snapshot. Only one is
+     * requested at a time, until it is taken or has timed out.
+     * @param nowNs the current time in nanoseconds
+     * @return 1 if a snapshot was requested, otherwise 0
+     */
+    public int doWork(final long nowNs)
+    {
+        if (null == controlToggle)
+        {
+            return 0;
+        }
+        if (NULL_TIME == lastSnapshotTimeNs)
+        {
+            lastSnapshotTimeNs = nowNs;
+        }
+        if (Cluster.Role.LEADER != role || (snapshotPending && !hasSnapshotRequestTimedOut(nowNs)))
+        {
+            return 0;
+        }
+
+        final long logGrowth = cluster.logPosition() - lastSnapshotPosition;
+        final boolean logThresholdCrossed = logThresholdBytes > 0 && logGrowth >= logThresholdBytes;
+        final boolean intervalElapsed = intervalNs > 0 && logGrowth > 0 && nowNs - lastSnapshotTimeNs >= intervalNs;
+        if (!logThresholdCrossed && !intervalElapsed)
+        {
+            return 0;
+        }
+
+        //fails while an earlier request is still in hand or the cluster is suspended, so is tried again later
+        if (!ClusterControl.ToggleState.SNAPSHOT.toggle(controlToggle))
+        {
+            return 0;
+        }
+        snapshotPending = true;
+        snapshotRequestTimeNs = nowNs;
+        LOGGER.info("Requested snapshot: log grown by {} bytes in {} ms", logGrowth,
+            (nowNs - lastSnapshotTimeNs) / 1_000_000);
+        return 1;
+    }
+
+    /**
+     * Determines if the pending snapshot request was dropped. The consensus module resets the control toggle to
+     * neutral once it starts the snapshot, before the service takes it, so a neutral toggle alone does not show that
+     * the request was dropped; only one which stays unanswered for longer than the timeout.
+     * @param nowNs the current time in nanoseconds
+     * @return true if the request timed out and another may be made
+     */
+    private boolean hasSnapshotRequestTimedOut(final long nowNs)
+    {
+        if (nowNs - snapshotRequestTimeNs < SNAPSHOT_REQUEST_TIMEOUT_NS ||
+            ClusterControl.ToggleState.NEUTRAL != ClusterControl.ToggleState.get(controlToggle))
+        {
+            return false;
+        }
+        LOGGER.warn("Requested snapshot not taken within {} ms; requesting again once due",
+            TimeUnit.NANOSECONDS.toMillis(SNAPSHOT_REQUEST_TIMEOUT_NS));
+        snapshotPending = false;
+        return true;
+    }
+
+    /**
+     * Called on every node once the service has written a snapshot, however it was requested
+     * @param durationNs the time in nanoseconds the service took to write the snapshot
+     */
+    public void onSnapshotTaken(final long durationNs)
+    {
+        lastSnapshotPosition = cluster.logPosition();
+        lastSnapshotTimeNs = NULL_TIME;
+        snapshotPending = false;
+        if (null != lastSnapshotPositionCounter)
+        {
+            lastSnapshotPositionCounter.setRelease(lastSnapshotPosition);
+            lastSnapshotDurationCounter.setRelease(durationNs);
+        }
+    }
+
+    /**
+     * Gets the log position of the latest snapshot, or of the start of the log this node has replayed from
+     * @return the last snapshot position
+     */
+    public long getLastSnapshotPosition()
+    {
+        return lastSnapshotPosition;
+    }
+
+    /**
+     * Closes the counters, once the service is terminating
+     */
+    public void close()
+    {
+        CloseHelper.quietCloseAll(lastSnapshotPositionCounter, lastSnapshotDurationCounter);
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.aeron.samples.infra;
+
+import io.aeron.ExclusivePublication;
+import io.aeron.Publication;
+import io.aeron.logbuffer.BufferClaim;
+import io.aeron.logbuffer.FrameDescriptor;
+import io.aeron.protocol.DataHeaderFlyweight;
+import org.agrona.BitUtil;
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableDirectByteBuffer;
+import org.agrona.concurrent.AgentTerminationException;
+import org.agrona.concurrent.IdleStrategy;
+
+/**
+ * Writes snapshot messages to the snapshot publication, never giving up on one while the publication is open.
+ * <p>
+ * A message which fits in a single fragment is encoded straight into space claimed in the publication; a longer one is
+ * encoded into a buffer and offered, to be fragmented by the publication. Back pressure and admin actions are retried
+ * without limit, idling between attempts with the cluster's idle strategy, so a slow archive delays the snapshot rather
+ * than truncating it. Any other failure means the snapshot cannot be completed and is thrown.
+ */
+final class SnapshotWriter
+{
+    private final BufferClaim bufferClaim = new BufferClaim();
+    private final ExpandableDirectByteBuffer buffer = new ExpandableDirectByteBuffer(1024);
+    private ExclusivePublication publication;
+    private IdleStrategy idleStrategy;
+    private long messageCount;
+    private long frameLength;
+
+    /**
+     * Starts writing a snapshot, resetting the message and length counts
+     * @param publication  the snapshot publication
+     * @param idleStrategy the idle strategy to use between attempts
+     */
+    void begin(final ExclusivePublication publication, final IdleStrategy idleStrategy)
+    {
+        this.publication = publication;
+        this.idleStrategy = idleStrategy;
+        messageCount = 0;
+        frameLength = 0;
+    }
+
+    /**
+     * Gets the longest message which fits in a single fragment of the snapshot publication
+     * @return the max payload length of the publication
+     */
+    int maxPayloadLength()
+    {
+        return publication.maxPayloadLength();
+    }
+
+    /**
+     * Writes a message of a known length, encoding it into claimed space if it fits in a single fragment
+     * @param length  the encoded length of the message, including the message header
+     * @param encoder writes the message
+     */
+    void write(final int length, final SessionMessageContext.MessageEncoder encoder)
+    {
+        if (length > publication.maxPayloadLength())
+        {
+            encoder.encode(buffer, 0);
+            write(buffer, 0, length);
+            return;
+        }
+
+        idleStrategy.reset();
+        long result;
+        while ((result = publication.tryClaim(length, bufferClaim)) <= 0L)
+        {
+            awaitRetry(result);
+        }
+        try
+        {
+            encoder.encode(bufferClaim.buffer(), bufferClaim.offset());
+        }
+        catch (final RuntimeException ex)
+        {
+            bufferClaim.abort();
+            throw ex;
+        }
+        bufferClaim.commit();
+        onWritten(length);
+    }
+
+    /**
+     * Writes an encoded message, which is fragmented by the publication if it is longer than a single fragment
+     * @param buffer the buffer to read data from
+     * @param offset the offset to read from
+     * @param length the length to read
+     */
+    void write(final DirectBuffer buffer, final int offset, final int length)
+    {
+        idleStrategy.reset();
+        long result;
+        while ((result = publication.offer(buffer, offset, length)) <= 0L)
+        {
+            awaitRetry(result);
+        }
+        onWritten(length);
+    }
+
+    /**
+     * Gets the number of messages written since the snapshot began
+     * @return the message count
+     */
+    long messageCount()
+    {
+        return messageCount;
+    }
+
+    /**
+     * Gets the length written since the snapshot began, including frame headers and padding to frame alignment
+     * @return the length in bytes
+     */
+    long frameLength()
+    {
+        return frameLength;
+    }
+
+    private void awaitRetry(final long result)
+    {
+        if (result != Publication.BACK_PRESSURED && result != Publication.ADMIN_ACTION)
+        {
+            throw new IllegalStateException("unexpected publication state on snapshot: " + result);
+        }
+        if (Thread.currentThread().isInterrupted())
+        {
+            throw new AgentTerminationException("interrupted while writing snapshot");
+        }
+        idleStrategy.idle();
+    }
+
+    private void onWritten(final int length)
+    {
+        final int maxPayloadLength = publication.maxPayloadLength();
+        final int fragments = Math.max(1, (length + maxPayloadLength - 1) / maxPayloadLength);
+        messageCount++;
+        frameLength += BitUtil.align(length + fragments * DataHeaderFlyweight.HEADER_LENGTH,
+            FrameDescriptor.FRAME_ALIGNMENT);
+    }
+}
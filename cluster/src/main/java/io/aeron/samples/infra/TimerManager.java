@@ -17,22 +17,45 @@
 package io.aeron.samples.infra;
 
 import io.aeron.cluster.service.Cluster;
-import org.agrona.collections.Long2ObjectHashMap;
+import io.aeron.samples.domain.auctions.Auctions;
+import org.agrona.collections.Long2LongHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Objects;
 
 /**
- * Manages timers within the cluster
+ * Manages timers within the cluster.
+ * <p>
+ * Timers are coalesced into deadline buckets. Each pending timer is held in an in-service deadline queue as the action
+ * to take and the auction to take it on, and only one cluster timer is scheduled per bucket, with a deadline at the end
+ * of the bucket. When a bucket timer fires every pending timer due by the end of the bucket is taken in deadline order,
+ * so a catalog of auctions opening or closing together costs a handful of cluster timers rather than one per auction.
+ * Timers may fire up to one bucket width after their deadline, but never before it.
+ * <p>
+ * The deadline queue, the bucket timers and the correlation id generator are written to and read from the snapshot,
+ * so no closures need to be rebuilt on restore and new timers never reuse the correlation id of a restored one.
  */
 public class TimerManager
 {
+    /**
+     * The default width of a deadline bucket, in cluster time units (milliseconds by default)
+     */
+    public static final long DEFAULT_BUCKET_WIDTH = 100;
+
     private static final Logger LOGGER = LoggerFactory.getLogger(TimerManager.class);
+    private static final long NULL_TIMER = -1;
+    private static final int ACTION_BITS = 8;
+    private static final long ACTION_MASK = (1L << ACTION_BITS) - 1;
+    private static final TimerAction[] ACTIONS = TimerAction.values();
     private final SessionMessageContextImpl context;
+    private final long bucketWidth;
     private Cluster cluster;
+    private Auctions auctions;
 
-    private final Long2ObjectHashMap<Runnable> correlationIdToRunnable = new Long2ObjectHashMap<>();
+    private final DeadlineQueue timerQueue = new DeadlineQueue();
+    private final Long2LongHashMap bucketByTimerCorrelationId = new Long2LongHashMap(NULL_TIMER);
+    private final Long2LongHashMap timerCorrelationIdByBucket = new Long2LongHashMap(NULL_TIMER);
 
     private long correlationId = 0;
 
@@ -42,56 +65,207 @@ public class TimerManager
      */
     public TimerManager(final SessionMessageContextImpl context)
     {
+        this(context, DEFAULT_BUCKET_WIDTH);
+    }
+
+    /**
+     * Constructor, accepting the context to update the cluster timestamp and the deadline bucket width. The width
+     * must be the same on every cluster member.
+     * @param context     the context to update the cluster timestamp
+     * @param bucketWidth the width of a deadline bucket in cluster time units; 1 schedules a cluster timer for each
+     *                    distinct deadline
+     */
+    public TimerManager(final SessionMessageContextImpl context, final long bucketWidth)
+    {
+        if (bucketWidth < 1)
+        {
+            throw new IllegalArgumentException("Bucket width must be positive: " + bucketWidth);
+        }
         this.context = context;
+        this.bucketWidth = bucketWidth;
     }
 
     /**
-     * Schedules a timer
+     * Schedules a timer, scheduling a cluster timer only if none is already scheduled for the deadline's bucket
      *
-     * @param deadline the deadline of the timer
-     * @param timerRunnable the timerRunnable to perform when the timer fires
+     * @param deadline  the deadline of the timer
+     * @param action    the action to perform when the timer fires
+     * @param auctionId the auction to perform the action on
      * @return the correlation id of the timer
      */
-    public long scheduleTimer(final long deadline, final Runnable timerRunnable)
+    public long scheduleTimer(final long deadline, final TimerAction action, final long auctionId)
     {
-        correlationId++;
         Objects.requireNonNull(cluster, "Cluster must be set before scheduling timers");
-        correlationIdToRunnable.put(correlationId, timerRunnable);
+        final long timerCorrelationId = ++correlationId;
+        timerQueue.add(deadline, timerCorrelationId, pack(action, auctionId));
 
-        cluster.idleStrategy().reset();
-        while (!cluster.scheduleTimer(correlationId, deadline))
+        final long bucket = bucketOf(deadline);
+        if (!timerCorrelationIdByBucket.containsKey(bucket))
         {
-            cluster.idleStrategy().idle();
+            final long bucketCorrelationId = ++correlationId;
+            timerCorrelationIdByBucket.put(bucket, bucketCorrelationId);
+            bucketByTimerCorrelationId.put(bucketCorrelationId, bucket);
+
+            cluster.idleStrategy().reset();
+            while (!cluster.scheduleTimer(bucketCorrelationId, bucket))
+            {
+                cluster.idleStrategy().idle();
+            }
         }
-        return correlationId;
+        return timerCorrelationId;
     }
 
     /**
-     * Restores a timer that the cluster has snapshotted the timer state, but not the timer manager internal state
+     * Restores a timer from the snapshot. Timers are snapshot in deadline queue order, so each restored in the order
+     * written is placed without being moved.
      * @param timerCorrelationId the correlation id of the timer
-     * @param task the task to perform when the timer fires
+     * @param deadline           the deadline of the timer
+     * @param action             the action to perform when the timer fires
+     * @param auctionId          the auction to perform the action on
      */
-    public void restoreTimer(final long timerCorrelationId, final Runnable task)
+    public void restoreTimer(
+        final long timerCorrelationId,
+        final long deadline,
+        final TimerAction action,
+        final long auctionId)
     {
-        correlationIdToRunnable.put(timerCorrelationId, task);
+        timerQueue.add(deadline, timerCorrelationId, pack(action, auctionId));
     }
 
     /**
-     * Called when a timer cluster event occurs
+     * Restores a timer which was scheduled as a cluster timer of its own, as every timer was before timers were
+     * coalesced into buckets. The cluster still holds that timer, so it is taken as the bucket timer of its deadline,
+     * and the pending timer is queued under the same correlation id for it to take.
+     * @param timerCorrelationId the correlation id of the cluster timer
+     * @param deadline           the deadline of the timer
+     * @param action             the action to perform when the timer fires
+     * @param auctionId          the auction to perform the action on
+     */
+    public void restoreClusterTimer(
+        final long timerCorrelationId,
+        final long deadline,
+        final TimerAction action,
+        final long auctionId)
+    {
+        restoreTimer(timerCorrelationId, deadline, action, auctionId);
+        restoreBucketTimer(timerCorrelationId, deadline);
+    }
+
+    /**
+     * Grows the deadline queue so that the given number of pending timers can be restored without growing it again
+     * @param timerCount the number of pending timers
+     */
+    public void ensureCapacity(final int timerCount)
+    {
+        timerQueue.ensureCapacity(timerCount);
+    }
+
+    /**
+     * Restores a bucket timer from the snapshot; the cluster has snapshotted the timer itself, but not the bucket
+     * @param bucketCorrelationId the correlation id of the cluster timer
+     * @param bucket              the deadline of the bucket
+     */
+    public void restoreBucketTimer(final long bucketCorrelationId, final long bucket)
+    {
+        timerCorrelationIdByBucket.put(bucket, bucketCorrelationId);
+        bucketByTimerCorrelationId.put(bucketCorrelationId, bucket);
+    }
+
+    /**
+     * Restores the timer correlation id generator from snapshot
+     * @param lastCorrelationId the last correlation id issued
+     */
+    public void restoreCorrelationId(final long lastCorrelationId)
+    {
+        correlationId = lastCorrelationId;
+    }
+
+    /**
+     * Gets the last correlation id issued; used for snapshotting
+     * @return the last correlation id
+     */
+    public long getCorrelationId()
+    {
+        return correlationId;
+    }
+
+    /**
+     * Gets the number of pending timers
+     * @return the number of pending timers
+     */
+    public int getTimerCount()
+    {
+        return timerQueue.size();
+    }
+
+    /**
+     * Gets the number of cluster timers scheduled for deadline buckets
+     * @return the number of bucket timers
+     */
+    public int getBucketTimerCount()
+    {
+        return bucketByTimerCorrelationId.size();
+    }
+
+    /**
+     * Offers each pending timer to the writer, in deadline queue order rather than deadline order; used for
+     * snapshotting
+     * @param writer the writer to offer the timers to
+     */
+    public void forEachTimer(final TimerWriter writer)
+    {
+        for (int i = 0; i < timerQueue.size(); i++)
+        {
+            final long timer = timerQueue.valueAt(i);
+            writer.onTimer(timerQueue.idAt(i), timerQueue.deadlineAt(i), unpackAction(timer), unpackAuctionId(timer));
+        }
+    }
+
+    /**
+     * Offers each scheduled bucket timer to the writer, in no particular order; used for snapshotting
+     * @param writer the writer to offer the bucket timers to
+     */
+    public void forEachBucketTimer(final BucketTimerWriter writer)
+    {
+        final Long2LongHashMap.EntryIterator iterator = bucketByTimerCorrelationId.entrySet().iterator();
+        while (iterator.hasNext())
+        {
+            iterator.next();
+            writer.onBucketTimer(iterator.getLongKey(), iterator.getLongValue());
+        }
+    }
+
+    /**
+     * Called when a timer cluster event occurs; performs the action of every pending timer due by the end of the
+     * bucket, in deadline order
      * @param correlationId the cluster timer id
      * @param timestamp     the timestamp the timer was fired at
      */
     public void onTimerEvent(final long correlationId, final long timestamp)
     {
         context.setClusterTime(timestamp);
-        if (correlationIdToRunnable.containsKey(correlationId))
+        final long bucket = bucketByTimerCorrelationId.remove(correlationId);
+        if (NULL_TIMER == bucket)
         {
-            correlationIdToRunnable.get(correlationId).run();
-            correlationIdToRunnable.remove(correlationId);
+            LOGGER.warn("Timer fired for unknown correlation id {}", correlationId);
+            return;
         }
-        else
+        timerCorrelationIdByBucket.remove(bucket);
+
+        while (!timerQueue.isEmpty() && timerQueue.peekDeadline() <= bucket)
         {
-            LOGGER.warn("Timer fired for unknown correlation id {}", correlationId);
+            final long timerCorrelationId = timerQueue.peekId();
+            final long timer = timerQueue.peekValue();
+            timerQueue.removeFirst();
+
+            final long auctionId = unpackAuctionId(timer);
+            switch (unpackAction(timer))
+            {
+                case OPEN_AUCTION -> auctions.openAuction(auctionId);
+                case CLOSE_AUCTION -> auctions.closeAuction(auctionId);
+                case REMOVE_AUCTION -> auctions.removeAuction(auctionId);
+                default -> LOGGER.error("Unknown timer action for correlation id {}", timerCorrelationId);
+            }
         }
     }
 
@@ -104,5 +278,66 @@ public class TimerManager
         this.cluster = cluster;
     }
 
+    /**
+     * Sets the auctions on which timer actions are performed
+     * @param auctions the auctions
+     */
+    public void setAuctions(final Auctions auctions)
+    {
+        this.auctions = auctions;
+    }
+
+    private long bucketOf(final long deadline)
+    {
+        if (deadline > Long.MAX_VALUE - bucketWidth)
+        {
+            return deadline;
+        }
+        return Math.ceilDiv(deadline, bucketWidth) * bucketWidth;
+    }
+
+    private static long pack(final TimerAction action, final long auctionId)
+    {
+        return (auctionId << ACTION_BITS) | action.ordinal();
+    }
+
+    private static TimerAction unpackAction(final long timer)
+    {
+        return ACTIONS[(int)(timer & ACTION_MASK)];
+    }
 
+    private static long unpackAuctionId(final long timer)
+    {
+        return timer >>> ACTION_BITS;
+    }
+
+    /**
+     * Receives pending timers when they are iterated for snapshotting
+     */
+    @FunctionalInterface
+    public interface TimerWriter
+    {
+        /**
+         * Called for each pending timer
+         * @param correlationId the correlation id of the timer
+         * @param deadline      the deadline of the timer
+         * @param action        the action to perform when the timer fires
+         * @param auctionId     the auction to perform the action on
+         */
+        void onTimer(long correlationId, long deadline, TimerAction action, long auctionId);
+    }
+
+    /**
+     * Receives scheduled bucket timers when they are iterated for snapshotting
+     */
+    @FunctionalInterface
+    public interface BucketTimerWriter
+    {
+        /**
+         * Called for each scheduled bucket timer
+         * @param correlationId the correlation id of the cluster timer
+         * @param bucket        the deadline of the bucket
+         */
+        void onBucketTimer(long correlationId, long bucket);
+    }
 }
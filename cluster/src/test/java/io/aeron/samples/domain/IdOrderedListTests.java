@@ -0,0 +1,100 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.aeron.samples.domain;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdOrderedListTests
+{
+    @Test
+    void testEntitiesAreHeldInIdOrder()
+    {
+        final IdOrderedList<String> list = new IdOrderedList<>();
+        list.put(5L, "five");
+        list.put(2L, "two");
+        list.put(9L, "nine");
+        list.put(1L, "one");
+
+        assertEquals(4, list.size());
+        assertEquals("one", list.get(0));
+        assertEquals("two", list.get(1));
+        assertEquals("five", list.get(2));
+        assertEquals("nine", list.get(3));
+    }
+
+    @Test
+    void testPutReplacesExistingId()
+    {
+        final IdOrderedList<String> list = new IdOrderedList<>();
+        list.put(1L, "one");
+        list.put(2L, "two");
+        list.put(1L, "uno");
+
+        assertEquals(2, list.size());
+        assertEquals("uno", list.get(0));
+        assertEquals("two", list.get(1));
+    }
+
+    @Test
+    void testRemovedEntitiesAreSkippedAndCanBeReAdded()
+    {
+        final IdOrderedList<String> list = new IdOrderedList<>();
+        for (long id = 1; id <= 100; id++)
+        {
+            list.put(id, Long.toString(id));
+        }
+
+        for (long id = 1; id <= 100; id += 2)
+        {
+            assertEquals(Long.toString(id), list.removeById(id));
+        }
+        assertNull(list.removeById(1L));
+        assertNull(list.removeById(1000L));
+
+        assertEquals(50, list.size());
+        for (int i = 0; i < list.size(); i++)
+        {
+            assertEquals(Long.toString((i + 1) * 2L), list.get(i));
+        }
+
+        list.put(3L, "three");
+        list.put(101L, "101");
+        assertEquals(52, list.size());
+        assertEquals("2", list.get(0));
+        assertEquals("three", list.get(1));
+        assertEquals("4", list.get(2));
+        assertEquals("101", list.get(51));
+    }
+
+    @Test
+    void testRemovingEverythingLeavesEmptyList()
+    {
+        final IdOrderedList<String> list = new IdOrderedList<>(1);
+        list.put(1L, "one");
+        list.put(2L, "two");
+        list.removeById(2L);
+        list.removeById(1L);
+
+        assertTrue(list.isEmpty());
+        list.put(7L, "seven");
+        assertEquals("seven", list.get(0));
+    }
+}
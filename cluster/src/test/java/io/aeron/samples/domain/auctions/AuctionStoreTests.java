@@ -0,0 +1,179 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.aeron.samples.domain.auctions;
+
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuctionStoreTests
+{
+    private final Auction auction = new Auction();
+
+    @Test
+    void testFieldsAreReadAndWrittenThroughTheFlyweight()
+    {
+        final AuctionStore store = new AuctionStore();
+        store.add(1L, 500L, 1_000L, 2_000L, "name", "description", -1L, auction);
+
+        auction.setAuctionStatus(AuctionStatus.OPEN);
+        auction.setWinningBid(501L, 150L, 1_500L);
+        auction.setStartTimerCorrelationId(10L);
+        auction.setEndTimerCorrelationId(11L);
+        auction.setRemovalTimerCorrelationId(12L);
+
+        final Auction other = new Auction();
+        assertTrue(store.wrap(1L, other));
+        assertEquals(1L, other.getAuctionId());
+        assertEquals(500L, other.getCreatedByParticipantId());
+        assertEquals(1_000L, other.getStartTime());
+        assertEquals(2_000L, other.getEndTime());
+        assertEquals("name", other.getName());
+        assertEquals("description", other.getDescription());
+        assertEquals(AuctionStatus.OPEN, other.getAuctionStatus());
+        assertEquals(501L, other.getWinningParticipantId());
+        assertEquals(150L, other.getCurrentPrice());
+        assertEquals(1_500L, other.getLastUpdateTime());
+        assertEquals(1, other.getBidCount());
+        assertEquals(10L, other.getStartTimerCorrelationId());
+        assertEquals(11L, other.getEndTimerCorrelationId());
+        assertEquals(12L, other.getRemovalTimerCorrelationId());
+        assertEquals("description".length(), other.getDescriptionLength());
+        assertEquals("name", other.getStringBuffer().getStringWithoutLengthUtf8(
+            other.getNameOffset(), other.getNameLength()));
+    }
+
+    @Test
+    void testRemovedAuctionsAreTombstonedThenCompactedAway()
+    {
+        final AuctionStore store = new AuctionStore();
+        for (long auctionId = 1; auctionId <= 6; auctionId++)
+        {
+            store.add(auctionId, 500L, 1_000L, 2_000L, "auction " + auctionId, "description", -1L, auction);
+        }
+
+        assertTrue(store.remove(2L));
+        assertFalse(store.remove(2L));
+        assertFalse(store.contains(2L));
+        assertFalse(store.wrap(2L, auction));
+        assertEquals(5, store.size());
+
+        assertEquals(3L, store.get(1).getAuctionId());
+        assertTrue(store.remove(1L));
+        assertTrue(store.remove(4L));
+        assertTrue(store.remove(5L));
+        assertEquals(2, store.size());
+        assertEquals(3L, store.get(0).getAuctionId());
+        assertEquals(6L, store.get(1).getAuctionId());
+        assertTrue(store.wrap(6L, auction));
+        assertEquals("auction 6", auction.getName());
+        assertEquals("auction 3".length() + "auction 6".length() + 2 * "description".length(), store.stringLength());
+    }
+
+    @Test
+    void testStringArenaGrowsAndKeepsOnlyLiveStringsWhenReallocated()
+    {
+        final AuctionStore store = new AuctionStore(1, 16);
+        final String description = "d".repeat(100);
+        for (long auctionId = 1; auctionId <= 100; auctionId++)
+        {
+            store.add(auctionId, 500L, 1_000L, 2_000L, "auction " + auctionId, description, -1L, auction);
+        }
+        assertTrue(store.strings().capacity() > 16);
+        assertNamesAreIntact(store, description);
+
+        for (long auctionId = 1; auctionId <= 90; auctionId++)
+        {
+            store.remove(auctionId);
+        }
+        final int liveLength = store.stringLength();
+        final int grownCapacity = 2 * store.strings().capacity();
+        store.ensureCapacity(store.size(), grownCapacity);
+
+        assertEquals(grownCapacity, store.strings().capacity());
+        assertEquals(liveLength, store.stringLength());
+        for (int index = 0; index < store.size(); index++)
+        {
+            final Auction listed = store.get(index);
+            assertTrue(listed.getDescriptionOffset() + listed.getDescriptionLength() <= liveLength);
+        }
+        assertNamesAreIntact(store, description);
+
+        for (long auctionId = 101; auctionId <= 190; auctionId++)
+        {
+            store.add(auctionId, 500L, 1_000L, 2_000L, "auction " + auctionId, description, -1L, auction);
+        }
+        assertEquals(100, store.size());
+        assertEquals(grownCapacity, store.strings().capacity());
+        assertNamesAreIntact(store, description);
+    }
+
+    @Test
+    void testOutOfOrderInsertsAreHeldInAuctionIdOrder()
+    {
+        final AuctionStore store = new AuctionStore(2, 64);
+        store.add(5L, 500L, 1_000L, 2_000L, "five", "", -1L, auction);
+        store.add(1L, 500L, 1_000L, 2_000L, "one", "", -1L, auction);
+        store.add(3L, 500L, 1_000L, 2_000L, "three", "", -1L, auction);
+        store.add(2L, 500L, 1_000L, 2_000L, utf8("two"), utf8(""), -1L, auction);
+
+        assertEquals(4, store.size());
+        final long[] auctionIds = {1L, 2L, 3L, 5L};
+        final String[] names = {"one", "two", "three", "five"};
+        for (int index = 0; index < auctionIds.length; index++)
+        {
+            assertEquals(auctionIds[index], store.get(index).getAuctionId());
+            assertTrue(store.wrap(auctionIds[index], auction));
+            assertEquals(names[index], auction.getName());
+        }
+        assertEquals(2, store.indexAfter(2L));
+        assertEquals(3, store.indexAfter(4L));
+        assertEquals(4, store.indexAfter(5L));
+        assertFalse(store.contains(4L));
+    }
+
+    @Test
+    void testRecordCapacityBeyondOneDirectBufferIsRejected()
+    {
+        assertThrows(IllegalStateException.class, () -> new AuctionStore(AuctionStore.MAX_RECORD_CAPACITY + 1, 1));
+
+        final AuctionStore store = new AuctionStore(1, 1);
+        assertThrows(IllegalStateException.class,
+            () -> store.ensureCapacity(AuctionStore.MAX_RECORD_CAPACITY + 1, 0));
+    }
+
+    private static void assertNamesAreIntact(final AuctionStore store, final String description)
+    {
+        for (int index = 0; index < store.size(); index++)
+        {
+            final Auction listed = store.get(index);
+            assertEquals("auction " + listed.getAuctionId(), listed.getName());
+            assertEquals(description, listed.getDescription());
+        }
+    }
+
+    private static UnsafeBuffer utf8(final String value)
+    {
+        return new UnsafeBuffer(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -19,22 +19,37 @@ package io.aeron.samples.domain.auctions;
 import io.aeron.samples.domain.participants.Participants;
 import io.aeron.samples.infra.ClusterClientResponder;
 import io.aeron.samples.infra.SessionMessageContext;
+import io.aeron.samples.infra.TimerAction;
 import io.aeron.samples.infra.TimerManager;
+import org.agrona.DirectBuffer;
+import org.agrona.collections.LongArrayList;
+import org.agrona.concurrent.UnsafeBuffer;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 
+import java.nio.charset.StandardCharsets;
 import java.util.UUID;
 
+import static org.agrona.BitUtil.SIZE_OF_LONG;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 class AuctionsTests
 {
+    private static final DirectBuffer NAME = utf8("name");
+    private static final DirectBuffer DESCRIPTION = utf8("description");
     private final SessionMessageContext sessionMessageContext = mock(SessionMessageContext.class);
     private final ClusterClientResponder clientResponder = mock(ClusterClientResponder.class);
     private final Participants participants = mock(Participants.class);
@@ -43,18 +58,18 @@ class AuctionsTests
     @Test
     void testAuctionsCanBeAdded()
     {
-        final String correlationId = UUID.randomUUID().toString();
+        final DirectBuffer correlationId = newCorrelationId();
         when(sessionMessageContext.getClusterTime()).thenReturn(1000L);
         when(participants.isKnownParticipant(1000L)).thenReturn(true);
 
         final Auctions auctions =
             new Auctions(sessionMessageContext, participants, clientResponder, timerManager);
-        auctions.addAuction(1000L, 1002L, 31003L, correlationId, "name", "description");
+        auctions.addAuction(1000L, 1002L, 31003L, correlationId, NAME, DESCRIPTION);
 
         verify(clientResponder).onAuctionAdded(correlationId, 1L, AddAuctionResult.SUCCESS, 1002L, 31003L,
-            "name", "description");
-        verify(timerManager).scheduleTimer(eq(1002L), any());
-        verify(timerManager).scheduleTimer(eq(31003L), any());
+            NAME, DESCRIPTION);
+        verify(timerManager).scheduleTimer(eq(1002L), eq(TimerAction.OPEN_AUCTION), eq(1L));
+        verify(timerManager).scheduleTimer(eq(31003L), eq(TimerAction.CLOSE_AUCTION), eq(1L));
 
         assertFalse(auctions.getAuctionList().isEmpty());
         assertEquals(1L, auctions.getAuctionList().get(0).getAuctionId());
@@ -72,20 +87,20 @@ class AuctionsTests
     @Test
     void testAuctionBidCanBeAdded()
     {
-        final String correlationId1 = UUID.randomUUID().toString();
-        final String correlationId2 = UUID.randomUUID().toString();
+        final DirectBuffer correlationId1 = newCorrelationId();
+        final DirectBuffer correlationId2 = newCorrelationId();
         when(sessionMessageContext.getClusterTime()).thenReturn(1000L);
         when(participants.isKnownParticipant(1000L)).thenReturn(true);
         when(participants.isKnownParticipant(1001L)).thenReturn(true);
 
         final Auctions auctions =
             new Auctions(sessionMessageContext, participants, clientResponder, timerManager);
-        auctions.addAuction(1000L, 1002L, 31004L, correlationId1, "name", "description");
+        auctions.addAuction(1000L, 1002L, 31004L, correlationId1, NAME, DESCRIPTION);
 
         verify(clientResponder).onAuctionAdded(correlationId1, 1L, AddAuctionResult.SUCCESS, 1002L, 31004L,
-            "name", "description");
-        verify(timerManager).scheduleTimer(eq(1002L), any());
-        verify(timerManager).scheduleTimer(eq(31004L), any());
+            NAME, DESCRIPTION);
+        verify(timerManager).scheduleTimer(eq(1002L), eq(TimerAction.OPEN_AUCTION), eq(1L));
+        verify(timerManager).scheduleTimer(eq(31004L), eq(TimerAction.CLOSE_AUCTION), eq(1L));
 
         when(sessionMessageContext.getClusterTime()).thenReturn(31003L);
         auctions.addBid(1L, 1001L, 99L, correlationId2);
@@ -109,12 +124,7 @@ class AuctionsTests
             5L, 6L, -1L, "name0", "description0");
 
         verifyNoInteractions(clientResponder);
-        verify(timerManager).restoreTimer(eq(1L), any());
-        verify(timerManager).restoreTimer(eq(2L), any());
-        verify(timerManager).restoreTimer(eq(3L), any());
-        verify(timerManager).restoreTimer(eq(4L), any());
-        verify(timerManager).restoreTimer(eq(5L), any());
-        verify(timerManager).restoreTimer(eq(6L), any());
+        verifyNoInteractions(timerManager);
 
         assertFalse(auctions.getAuctionList().isEmpty());
         assertEquals(2L, auctions.getAuctionList().size());
@@ -125,6 +135,9 @@ class AuctionsTests
         assertEquals(31003L, auctions.getAuctionList().get(0).getEndTime());
         assertEquals("name0", auctions.getAuctionList().get(0).getName());
         assertEquals("description0", auctions.getAuctionList().get(0).getDescription());
+        assertEquals(4L, auctions.getAuctionList().get(0).getStartTimerCorrelationId());
+        assertEquals(5L, auctions.getAuctionList().get(0).getEndTimerCorrelationId());
+        assertEquals(6L, auctions.getAuctionList().get(0).getRemovalTimerCorrelationId());
 
         assertEquals(2L, auctions.getAuctionList().get(1).getAuctionId());
         assertEquals(1000L, auctions.getAuctionList().get(1).getCreatedByParticipantId());
@@ -137,13 +150,13 @@ class AuctionsTests
     @Test
     void testThatParticipantMustBeKnown()
     {
-        final String correlationId = UUID.randomUUID().toString();
+        final DirectBuffer correlationId = newCorrelationId();
         when(sessionMessageContext.getClusterTime()).thenReturn(1000L);
         when(participants.isKnownParticipant(1000L)).thenReturn(false);
 
         final Auctions auctions =
             new Auctions(sessionMessageContext, participants, clientResponder, timerManager);
-        auctions.addAuction(1000L, 1001L, 31002L, correlationId, "name", "description");
+        auctions.addAuction(1000L, 1001L, 31002L, correlationId, NAME, DESCRIPTION);
 
         verify(clientResponder).rejectAddAuction(correlationId, AddAuctionResult.UNKNOWN_PARTICIPANT);
     }
@@ -151,13 +164,13 @@ class AuctionsTests
     @Test
     void testThatStartTimeMustBeAfterClusterTime()
     {
-        final String correlationId = UUID.randomUUID().toString();
+        final DirectBuffer correlationId = newCorrelationId();
         when(sessionMessageContext.getClusterTime()).thenReturn(1000L);
         when(participants.isKnownParticipant(1000L)).thenReturn(true);
 
         final Auctions auctions =
             new Auctions(sessionMessageContext, participants, clientResponder, timerManager);
-        auctions.addAuction(1000L, 999L, 31002L, correlationId, "name", "description");
+        auctions.addAuction(1000L, 999L, 31002L, correlationId, NAME, DESCRIPTION);
 
         verify(clientResponder).rejectAddAuction(correlationId, AddAuctionResult.INVALID_START_TIME);
     }
@@ -165,13 +178,13 @@ class AuctionsTests
     @Test
     void testThatEndTimeMustBeAfterStartTime()
     {
-        final String correlationId = UUID.randomUUID().toString();
+        final DirectBuffer correlationId = newCorrelationId();
         when(sessionMessageContext.getClusterTime()).thenReturn(1000L);
         when(participants.isKnownParticipant(1000L)).thenReturn(true);
 
         final Auctions auctions =
             new Auctions(sessionMessageContext, participants, clientResponder, timerManager);
-        auctions.addAuction(1000L, 1002L, 999L, correlationId, "name", "description");
+        auctions.addAuction(1000L, 1002L, 999L, correlationId, NAME, DESCRIPTION);
 
         verify(clientResponder).rejectAddAuction(correlationId, AddAuctionResult.INVALID_END_TIME);
     }
@@ -179,13 +192,13 @@ class AuctionsTests
     @Test
     void testThatNameCannotBeNull()
     {
-        final String correlationId = UUID.randomUUID().toString();
+        final DirectBuffer correlationId = newCorrelationId();
         when(sessionMessageContext.getClusterTime()).thenReturn(1000L);
         when(participants.isKnownParticipant(1000L)).thenReturn(true);
 
         final Auctions auctions =
             new Auctions(sessionMessageContext, participants, clientResponder, timerManager);
-        auctions.addAuction(1000L, 1002L, 31003L, correlationId, null, "description");
+        auctions.addAuction(1000L, 1002L, 31003L, correlationId, null, DESCRIPTION);
 
         verify(clientResponder).rejectAddAuction(correlationId, AddAuctionResult.INVALID_NAME);
     }
@@ -193,13 +206,13 @@ class AuctionsTests
     @Test
     void testThatDescriptionCannotBeNull()
     {
-        final String correlationId = UUID.randomUUID().toString();
+        final DirectBuffer correlationId = newCorrelationId();
         when(sessionMessageContext.getClusterTime()).thenReturn(1000L);
         when(participants.isKnownParticipant(1000L)).thenReturn(true);
 
         final Auctions auctions =
             new Auctions(sessionMessageContext, participants, clientResponder, timerManager);
-        auctions.addAuction(1000L, 1002L, 31003L, correlationId, "name", null);
+        auctions.addAuction(1000L, 1002L, 31003L, correlationId, NAME, null);
 
         verify(clientResponder).rejectAddAuction(correlationId, AddAuctionResult.INVALID_DESCRIPTION);
     }
@@ -207,13 +220,13 @@ class AuctionsTests
     @Test
     void testThatNameCannotBeBlank()
     {
-        final String correlationId = UUID.randomUUID().toString();
+        final DirectBuffer correlationId = newCorrelationId();
         when(sessionMessageContext.getClusterTime()).thenReturn(1000L);
         when(participants.isKnownParticipant(1000L)).thenReturn(true);
 
         final Auctions auctions =
             new Auctions(sessionMessageContext, participants, clientResponder, timerManager);
-        auctions.addAuction(1000L, 1002L, 31003L, correlationId, "", "description");
+        auctions.addAuction(1000L, 1002L, 31003L, correlationId, utf8(""), DESCRIPTION);
 
         verify(clientResponder).rejectAddAuction(correlationId, AddAuctionResult.INVALID_NAME);
     }
@@ -221,13 +234,13 @@ class AuctionsTests
     @Test
     void testThatDescriptionCannotBeBlank()
     {
-        final String correlationId = UUID.randomUUID().toString();
+        final DirectBuffer correlationId = newCorrelationId();
         when(sessionMessageContext.getClusterTime()).thenReturn(1000L);
         when(participants.isKnownParticipant(1000L)).thenReturn(true);
 
         final Auctions auctions =
             new Auctions(sessionMessageContext, participants, clientResponder, timerManager);
-        auctions.addAuction(1000L, 1002L, 31003L, correlationId, "name", "");
+        auctions.addAuction(1000L, 1002L, 31003L, correlationId, NAME, utf8(""));
 
         verify(clientResponder).rejectAddAuction(correlationId, AddAuctionResult.INVALID_DESCRIPTION);
     }
@@ -235,18 +248,18 @@ class AuctionsTests
     @Test
     void testAuctionRejectedIfAuctionNotOpenYet()
     {
-        final String correlationId1 = UUID.randomUUID().toString();
-        final String correlationId2 = UUID.randomUUID().toString();
+        final DirectBuffer correlationId1 = newCorrelationId();
+        final DirectBuffer correlationId2 = newCorrelationId();
         when(sessionMessageContext.getClusterTime()).thenReturn(1000L);
         when(participants.isKnownParticipant(1000L)).thenReturn(true);
         when(participants.isKnownParticipant(1001L)).thenReturn(true);
 
         final Auctions auctions =
             new Auctions(sessionMessageContext, participants, clientResponder, timerManager);
-        auctions.addAuction(1000L, 1002L, 31004L, correlationId1, "name", "description");
+        auctions.addAuction(1000L, 1002L, 31004L, correlationId1, NAME, DESCRIPTION);
 
         verify(clientResponder).onAuctionAdded(correlationId1, 1L, AddAuctionResult.SUCCESS, 1002L, 31004L,
-            "name", "description");
+            NAME, DESCRIPTION);
 
         auctions.addBid(1L, 1001L, 99L, correlationId2);
 
@@ -256,18 +269,18 @@ class AuctionsTests
     @Test
     void testAuctionRejectedIfTimeAfterAuctionEnd()
     {
-        final String correlationId1 = UUID.randomUUID().toString();
-        final String correlationId2 = UUID.randomUUID().toString();
+        final DirectBuffer correlationId1 = newCorrelationId();
+        final DirectBuffer correlationId2 = newCorrelationId();
         when(sessionMessageContext.getClusterTime()).thenReturn(1000L);
         when(participants.isKnownParticipant(1000L)).thenReturn(true);
         when(participants.isKnownParticipant(1001L)).thenReturn(true);
 
         final Auctions auctions =
             new Auctions(sessionMessageContext, participants, clientResponder, timerManager);
-        auctions.addAuction(1000L, 1002L, 31004L, correlationId1, "name", "description");
+        auctions.addAuction(1000L, 1002L, 31004L, correlationId1, NAME, DESCRIPTION);
 
         verify(clientResponder).onAuctionAdded(correlationId1, 1L, AddAuctionResult.SUCCESS, 1002L, 31004L,
-            "name", "description");
+            NAME, DESCRIPTION);
 
         when(sessionMessageContext.getClusterTime()).thenReturn(31011L);
         auctions.addBid(1L, 31011L, 99L, correlationId2);
@@ -278,7 +291,7 @@ class AuctionsTests
     @Test
     void testAuctionRejectedIfAuctionUnknown()
     {
-        final String correlationId1 = UUID.randomUUID().toString();
+        final DirectBuffer correlationId1 = newCorrelationId();
         when(sessionMessageContext.getClusterTime()).thenReturn(1000L);
 
         final Auctions auctions =
@@ -292,18 +305,18 @@ class AuctionsTests
     @Test
     void testAuctionRejectedIfBidderUnknown()
     {
-        final String correlationId1 = UUID.randomUUID().toString();
-        final String correlationId2 = UUID.randomUUID().toString();
+        final DirectBuffer correlationId1 = newCorrelationId();
+        final DirectBuffer correlationId2 = newCorrelationId();
         when(sessionMessageContext.getClusterTime()).thenReturn(1000L);
         when(participants.isKnownParticipant(1000L)).thenReturn(true);
         when(participants.isKnownParticipant(1001L)).thenReturn(false);
 
         final Auctions auctions =
             new Auctions(sessionMessageContext, participants, clientResponder, timerManager);
-        auctions.addAuction(1000L, 1002L, 31004L, correlationId1, "name", "description");
+        auctions.addAuction(1000L, 1002L, 31004L, correlationId1, NAME, DESCRIPTION);
 
         verify(clientResponder).onAuctionAdded(correlationId1, 1L, AddAuctionResult.SUCCESS, 1002L, 31004L,
-            "name", "description");
+            NAME, DESCRIPTION);
 
         when(sessionMessageContext.getClusterTime()).thenReturn(31003L);
         auctions.addBid(1L, 1001L, 99L, correlationId2);
@@ -314,17 +327,17 @@ class AuctionsTests
     @Test
     void testAuctionRejectedIfSelfBidding()
     {
-        final String correlationId1 = UUID.randomUUID().toString();
-        final String correlationId2 = UUID.randomUUID().toString();
+        final DirectBuffer correlationId1 = newCorrelationId();
+        final DirectBuffer correlationId2 = newCorrelationId();
         when(sessionMessageContext.getClusterTime()).thenReturn(1000L);
         when(participants.isKnownParticipant(1000L)).thenReturn(true);
 
         final Auctions auctions =
             new Auctions(sessionMessageContext, participants, clientResponder, timerManager);
-        auctions.addAuction(1000L, 1002L, 31004L, correlationId1, "name", "description");
+        auctions.addAuction(1000L, 1002L, 31004L, correlationId1, NAME, DESCRIPTION);
 
         verify(clientResponder).onAuctionAdded(correlationId1, 1L, AddAuctionResult.SUCCESS, 1002L, 31004L,
-            "name", "description");
+            NAME, DESCRIPTION);
 
         when(sessionMessageContext.getClusterTime()).thenReturn(31003L);
         auctions.addBid(1L, 1000L, 99L, correlationId2);
@@ -335,20 +348,20 @@ class AuctionsTests
     @Test
     void testAuctionRejectedIfNoPriceImprovement()
     {
-        final String correlationId1 = UUID.randomUUID().toString();
-        final String correlationId2 = UUID.randomUUID().toString();
-        final String correlationId3 = UUID.randomUUID().toString();
+        final DirectBuffer correlationId1 = newCorrelationId();
+        final DirectBuffer correlationId2 = newCorrelationId();
+        final DirectBuffer correlationId3 = newCorrelationId();
         when(sessionMessageContext.getClusterTime()).thenReturn(1000L);
         when(participants.isKnownParticipant(1000L)).thenReturn(true);
         when(participants.isKnownParticipant(1001L)).thenReturn(true);
 
         final Auctions auctions =
             new Auctions(sessionMessageContext, participants, clientResponder, timerManager);
-        auctions.addAuction(1000L, 1002L, 31005L, correlationId1, "name", "description");
+        auctions.addAuction(1000L, 1002L, 31005L, correlationId1, NAME, DESCRIPTION);
 
         //add first bid at 99L
         verify(clientResponder).onAuctionAdded(correlationId1, 1L, AddAuctionResult.SUCCESS, 1002L, 31005L,
-            "name", "description");
+            NAME, DESCRIPTION);
 
         when(sessionMessageContext.getClusterTime()).thenReturn(31003L);
         auctions.addBid(1L, 1001L, 99L, correlationId2);
@@ -366,18 +379,18 @@ class AuctionsTests
     @Test
     void testAuctionMovesThroughStatesCorrectly()
     {
-        final String correlationId = UUID.randomUUID().toString();
+        final DirectBuffer correlationId = newCorrelationId();
         when(sessionMessageContext.getClusterTime()).thenReturn(1000L);
         when(participants.isKnownParticipant(1000L)).thenReturn(true);
 
         final Auctions auctions =
             new Auctions(sessionMessageContext, participants, clientResponder, timerManager);
-        auctions.addAuction(1000L, 1002L, 31003L, correlationId, "name", "description");
+        auctions.addAuction(1000L, 1002L, 31003L, correlationId, NAME, DESCRIPTION);
 
         verify(clientResponder).onAuctionAdded(correlationId, 1L, AddAuctionResult.SUCCESS, 1002L, 31003L,
-            "name", "description");
-        verify(timerManager).scheduleTimer(eq(1002L), any());
-        verify(timerManager).scheduleTimer(eq(31003L), any());
+            NAME, DESCRIPTION);
+        verify(timerManager).scheduleTimer(eq(1002L), eq(TimerAction.OPEN_AUCTION), eq(1L));
+        verify(timerManager).scheduleTimer(eq(31003L), eq(TimerAction.CLOSE_AUCTION), eq(1L));
 
         assertFalse(auctions.getAuctionList().isEmpty());
         assertEquals(1L, auctions.getAuctionList().get(0).getAuctionId());
@@ -402,18 +415,18 @@ class AuctionsTests
     @Test
     void testAuctionDoesNotMoveStateIfNotTimeToOpenYet()
     {
-        final String correlationId = UUID.randomUUID().toString();
+        final DirectBuffer correlationId = newCorrelationId();
         when(sessionMessageContext.getClusterTime()).thenReturn(1000L);
         when(participants.isKnownParticipant(1000L)).thenReturn(true);
 
         final Auctions auctions =
             new Auctions(sessionMessageContext, participants, clientResponder, timerManager);
-        auctions.addAuction(1000L, 1002L, 31003L, correlationId, "name", "description");
+        auctions.addAuction(1000L, 1002L, 31003L, correlationId, NAME, DESCRIPTION);
 
         verify(clientResponder).onAuctionAdded(correlationId, 1L, AddAuctionResult.SUCCESS, 1002L, 31003L,
-            "name", "description");
-        verify(timerManager).scheduleTimer(eq(1002L), any());
-        verify(timerManager).scheduleTimer(eq(31003L), any());
+            NAME, DESCRIPTION);
+        verify(timerManager).scheduleTimer(eq(1002L), eq(TimerAction.OPEN_AUCTION), eq(1L));
+        verify(timerManager).scheduleTimer(eq(31003L), eq(TimerAction.CLOSE_AUCTION), eq(1L));
 
         assertFalse(auctions.getAuctionList().isEmpty());
         assertEquals(1L, auctions.getAuctionList().get(0).getAuctionId());
@@ -438,18 +451,18 @@ class AuctionsTests
     @Test
     void testAuctionDoesNotMoveStateIfNotLegal()
     {
-        final String correlationId = UUID.randomUUID().toString();
+        final DirectBuffer correlationId = newCorrelationId();
         when(sessionMessageContext.getClusterTime()).thenReturn(1000L);
         when(participants.isKnownParticipant(1000L)).thenReturn(true);
 
         final Auctions auctions =
             new Auctions(sessionMessageContext, participants, clientResponder, timerManager);
-        auctions.addAuction(1000L, 1002L, 31003L, correlationId, "name", "description");
+        auctions.addAuction(1000L, 1002L, 31003L, correlationId, NAME, DESCRIPTION);
 
         verify(clientResponder).onAuctionAdded(correlationId, 1L, AddAuctionResult.SUCCESS, 1002L, 31003L,
-            "name", "description");
-        verify(timerManager).scheduleTimer(eq(1002L), any());
-        verify(timerManager).scheduleTimer(eq(31003L), any());
+            NAME, DESCRIPTION);
+        verify(timerManager).scheduleTimer(eq(1002L), eq(TimerAction.OPEN_AUCTION), eq(1L));
+        verify(timerManager).scheduleTimer(eq(31003L), eq(TimerAction.CLOSE_AUCTION), eq(1L));
 
         assertFalse(auctions.getAuctionList().isEmpty());
         assertEquals(1L, auctions.getAuctionList().get(0).getAuctionId());
@@ -464,4 +477,296 @@ class AuctionsTests
         assertEquals(1, auctions.getAuctionList().size());
         assertEquals(AuctionStatus.PRE_OPEN, auctions.getAuctionList().get(0).getAuctionStatus());
     }
+
+    @Test
+    void testBidHistoryKeepsMostRecentBidsHighestFirst()
+    {
+        final DirectBuffer correlationId = newCorrelationId();
+        when(sessionMessageContext.getClusterTime()).thenReturn(2000L);
+        when(participants.isKnownParticipant(anyLong())).thenReturn(true);
+
+        final Auctions auctions =
+            new Auctions(sessionMessageContext, participants, clientResponder, timerManager);
+        auctions.restoreAuction(1L, 1000L, 1000L, 4L, 100_000L, 5L, 6L, -1L, "name", "description");
+        auctions.restoreAuction(2L, 1000L, 1000L, 7L, 100_000L, 8L, 9L, -1L, "name", "description");
+        assertEquals(0, auctions.getBidHistory(auctions.getAuctionList().get(0)).size());
+
+        final int bidCount = BidHistoryStore.DEFAULT_BIDS_PER_AUCTION + 4;
+        for (int i = 1; i <= bidCount; i++)
+        {
+            auctions.addBid(1L, 2000L + (i % 2), i * 10L, correlationId);
+        }
+        auctions.addBid(2L, 2001L, 5L, correlationId);
+
+        final BidHistory bidHistory = auctions.getBidHistory(auctions.getAuctionList().get(0));
+        assertEquals(BidHistoryStore.DEFAULT_BIDS_PER_AUCTION, bidHistory.size());
+        for (int i = 0; i < bidHistory.size(); i++)
+        {
+            assertEquals((bidCount - i) * 10L, bidHistory.price(i));
+            assertEquals(2000L + ((bidCount - i) % 2), bidHistory.participantId(i));
+            assertEquals(2000L, bidHistory.time(i));
+        }
+        assertEquals(1, auctions.getBidHistory(auctions.getAuctionList().get(1)).size());
+        assertEquals(5L, auctions.getBidHistory(auctions.getAuctionList().get(1)).price(0));
+
+        auctions.returnBidHistory(1L, 3, correlationId);
+        verify(clientResponder).returnAuctionBidHistory(eq(correlationId), any(Auction.class),
+            any(BidHistory.class), eq(3));
+
+        auctions.returnBidHistory(3L, 3, correlationId);
+        verify(clientResponder).rejectAuctionBidHistory(correlationId, 3L);
+    }
+
+    @Test
+    void testProxyBidsResolveAtSecondHighestMaximumPlusIncrement()
+    {
+        final DirectBuffer correlationId = newCorrelationId();
+        when(sessionMessageContext.getClusterTime()).thenReturn(2000L);
+        when(participants.isKnownParticipant(anyLong())).thenReturn(true);
+
+        final Auctions auctions =
+            new Auctions(sessionMessageContext, participants, clientResponder, timerManager);
+        auctions.restoreAuction(1L, 1000L, 1000L, 4L, 100_000L, 5L, 6L, -1L, "name", "description");
+        final Auction auction = auctions.getAuctionList().get(0);
+
+        auctions.registerProxyBid(1L, 2001L, 500L, correlationId);
+        assertEquals(1L, auction.getCurrentPrice());
+        assertEquals(2001L, auction.getWinningParticipantId());
+
+        auctions.registerProxyBid(1L, 2002L, 300L, correlationId);
+        assertEquals(301L, auction.getCurrentPrice());
+        assertEquals(2001L, auction.getWinningParticipantId());
+        assertEquals(1, auctions.getProxyBids(1L).size());
+        verify(clientResponder, times(2)).onProxyBidRegistered(correlationId, 1L, AddAuctionBidResult.SUCCESS);
+
+        auctions.cancelProxyBid(1L, 2002L, correlationId);
+        verify(clientResponder).onProxyBidCancelled(correlationId, 1L, AddAuctionBidResult.NO_PROXY_BID);
+
+        auctions.addBid(1L, 2003L, 400L, correlationId);
+        assertEquals(401L, auction.getCurrentPrice());
+        assertEquals(2001L, auction.getWinningParticipantId());
+
+        auctions.addBid(1L, 2003L, 600L, correlationId);
+        assertEquals(600L, auction.getCurrentPrice());
+        assertEquals(2003L, auction.getWinningParticipantId());
+        assertNull(auctions.getProxyBids(1L));
+
+        final long[] expectedPrices = {600L, 401L, 400L, 301L, 300L, 1L};
+        final long[] expectedParticipants = {2003L, 2001L, 2003L, 2001L, 2002L, 2001L};
+        final BidHistory bidHistory = auctions.getBidHistory(auction);
+        assertEquals(expectedPrices.length, bidHistory.size());
+        for (int i = 0; i < bidHistory.size(); i++)
+        {
+            assertEquals(expectedPrices[i], bidHistory.price(i));
+            assertEquals(expectedParticipants[i], bidHistory.participantId(i));
+        }
+
+        auctions.registerProxyBid(2L, 2001L, 500L, correlationId);
+        verify(clientResponder).onProxyBidRegistered(correlationId, 2L, AddAuctionBidResult.UNKNOWN_AUCTION);
+    }
+
+    @Test
+    void testProxyBidTiesAreWonByEarliestRegistration()
+    {
+        final DirectBuffer correlationId = newCorrelationId();
+        when(sessionMessageContext.getClusterTime()).thenReturn(2000L);
+        when(participants.isKnownParticipant(anyLong())).thenReturn(true);
+
+        final Auctions auctions =
+            new Auctions(sessionMessageContext, participants, clientResponder, timerManager);
+        auctions.restoreAuction(1L, 1000L, 1000L, 4L, 100_000L, 5L, 6L, -1L, "name", "description");
+        final Auction auction = auctions.getAuctionList().get(0);
+
+        auctions.registerProxyBid(1L, 2001L, 500L, correlationId);
+        auctions.registerProxyBid(1L, 2002L, 500L, correlationId);
+
+        assertEquals(500L, auction.getCurrentPrice());
+        assertEquals(2001L, auction.getWinningParticipantId());
+        assertEquals(1, auctions.getProxyBids(1L).size());
+        assertEquals(2001L, auctions.getProxyBids(1L).participantId(0));
+    }
+
+    @Test
+    void testBidBatchRepliesOnceAndBroadcastsFinalStatePerAuction()
+    {
+        final DirectBuffer correlationId = newCorrelationId();
+        when(sessionMessageContext.getClusterTime()).thenReturn(2000L);
+        when(participants.isKnownParticipant(anyLong())).thenReturn(true);
+
+        final Auctions auctions =
+            new Auctions(sessionMessageContext, participants, clientResponder, timerManager);
+        auctions.restoreAuction(1L, 1000L, 1000L, 4L, 100_000L, 5L, 6L, -1L, "name", "description");
+        auctions.restoreAuction(2L, 1000L, 1000L, 7L, 100_000L, 8L, 9L, -1L, "name", "description");
+
+        auctions.beginBidBatch(correlationId, 5);
+        auctions.addBatchedBid(1L, 2001L, 10L);
+        auctions.addBatchedBid(2L, 2001L, 20L);
+        auctions.addBatchedBid(1L, 2001L, 30L);
+        auctions.addBatchedBid(1L, 2001L, 25L);
+        auctions.addBatchedBid(3L, 2001L, 5L);
+        auctions.endBidBatch();
+
+        final InOrder inOrder = inOrder(clientResponder);
+        inOrder.verify(clientResponder).beginAddBidBatch(correlationId, 5);
+        inOrder.verify(clientResponder).onBatchedBidResult(1L, AddAuctionBidResult.SUCCESS);
+        inOrder.verify(clientResponder).onBatchedBidResult(2L, AddAuctionBidResult.SUCCESS);
+        inOrder.verify(clientResponder).onBatchedBidResult(1L, AddAuctionBidResult.SUCCESS);
+        inOrder.verify(clientResponder).onBatchedBidResult(1L, AddAuctionBidResult.INVALID_PRICE);
+        inOrder.verify(clientResponder).onBatchedBidResult(3L, AddAuctionBidResult.UNKNOWN_AUCTION);
+        inOrder.verify(clientResponder).endAddBidBatch();
+        inOrder.verify(clientResponder).onAuctionStateUpdate(
+            eq(1L), any(AuctionStatus.class), eq(30L), eq(2), eq(2000L), eq(2001L));
+        inOrder.verify(clientResponder).onAuctionStateUpdate(
+            eq(2L), any(AuctionStatus.class), eq(20L), eq(1), eq(2000L), eq(2001L));
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    void testAuctionBatchRepliesOnceAndBroadcastsAddedAuctionsTogether()
+    {
+        final DirectBuffer correlationId = newCorrelationId();
+        when(sessionMessageContext.getClusterTime()).thenReturn(1000L);
+        when(participants.isKnownParticipant(1000L)).thenReturn(true);
+
+        final Auctions auctions =
+            new Auctions(sessionMessageContext, participants, clientResponder, timerManager);
+        auctions.beginAuctionBatch(correlationId, 3);
+        auctions.addBatchedAuction(1000L, 1002L, 31003L, NAME, DESCRIPTION);
+        auctions.addBatchedAuction(1000L, 1002L, 1003L, NAME, DESCRIPTION);
+        auctions.addBatchedAuction(1000L, 1002L, 31003L, utf8("second"), DESCRIPTION);
+        auctions.endAuctionBatch();
+
+        final InOrder inOrder = inOrder(clientResponder);
+        inOrder.verify(clientResponder).beginAddAuctionBatch(correlationId, 3);
+        inOrder.verify(clientResponder).onBatchedAuctionResult(1L, AddAuctionResult.SUCCESS);
+        inOrder.verify(clientResponder).onBatchedAuctionResult(-1L, AddAuctionResult.INVALID_DURATION);
+        inOrder.verify(clientResponder).onBatchedAuctionResult(2L, AddAuctionResult.SUCCESS);
+        inOrder.verify(clientResponder).endAddAuctionBatch();
+        inOrder.verify(clientResponder).beginNewAuctionBatch(2);
+        inOrder.verify(clientResponder, times(2)).onBatchedNewAuction(any(Auction.class));
+        inOrder.verify(clientResponder).endNewAuctionBatch();
+        inOrder.verifyNoMoreInteractions();
+
+        verify(timerManager).scheduleTimer(eq(1002L), eq(TimerAction.OPEN_AUCTION), eq(2L));
+        verify(timerManager).scheduleTimer(eq(31003L), eq(TimerAction.CLOSE_AUCTION), eq(2L));
+        assertEquals(2, auctions.getAuctionList().size());
+        assertEquals("second", auctions.getAuctionList().get(1).getName());
+    }
+
+    @Test
+    void testAuctionPagesAreFilteredAndResumeAfterCursor()
+    {
+        final DirectBuffer correlationId = newCorrelationId();
+        final Auctions auctions =
+            new Auctions(sessionMessageContext, participants, clientResponder, timerManager);
+        for (long auctionId = 1; auctionId <= 5; auctionId++)
+        {
+            final long createdBy = 0 == (auctionId & 1) ? 2000L : 1000L;
+            auctions.restoreAuction(auctionId, createdBy, 1002L, -1L, 31003L,
+                -1L, -1L, -1L, "name" + auctionId, "description");
+        }
+        final LongArrayList pagedAuctionIds = new LongArrayList();
+        doAnswer(invocation ->
+        {
+            pagedAuctionIds.addLong(invocation.getArgument(0, Auction.class).getAuctionId());
+            return null;
+        }).when(clientResponder).onPagedAuction(any(Auction.class));
+
+        auctions.listAuctionPage(0L, 2, null, 1000L, correlationId);
+
+        verify(clientResponder).beginAuctionPage(correlationId, 2, 3L);
+        assertEquals(new LongArrayList(new long[]{ 1L, 3L }, 2, -1L), pagedAuctionIds);
+
+        pagedAuctionIds.clear();
+        auctions.listAuctionPage(3L, 2, null, 1000L, correlationId);
+
+        verify(clientResponder).beginAuctionPage(correlationId, 1, -1L);
+        assertEquals(new LongArrayList(new long[]{ 5L }, 1, -1L), pagedAuctionIds);
+
+        pagedAuctionIds.clear();
+        auctions.listAuctionPage(0L, 10, AuctionStatus.OPEN, -1L, correlationId);
+
+        verify(clientResponder).beginAuctionPage(correlationId, 0, -1L);
+        assertEquals(0, pagedAuctionIds.size());
+        verify(clientResponder, times(3)).endAuctionPage();
+    }
+
+    @Test
+    void testAuctionChangesSinceVersionHoldOnlyLatestChangesAndRemovals()
+    {
+        final DirectBuffer correlationId = newCorrelationId();
+        when(sessionMessageContext.getClusterTime()).thenReturn(1000L);
+        when(participants.isKnownParticipant(1000L)).thenReturn(true);
+        when(participants.isKnownParticipant(1001L)).thenReturn(true);
+
+        final Auctions auctions =
+            new Auctions(sessionMessageContext, participants, clientResponder, timerManager);
+        auctions.addAuction(1000L, 1002L, 31003L, newCorrelationId(), NAME, DESCRIPTION);
+        auctions.addAuction(1000L, 1002L, 31003L, newCorrelationId(), NAME, DESCRIPTION);
+        assertEquals(2L, auctions.getStateVersion());
+
+        when(sessionMessageContext.getClusterTime()).thenReturn(2000L);
+        auctions.openAuction(1L);
+        auctions.addBid(1L, 1001L, 10L, newCorrelationId());
+        auctions.removeAuction(2L);
+        assertEquals(5L, auctions.getStateVersion());
+
+        final LongArrayList changedVersions = new LongArrayList();
+        doAnswer(invocation ->
+        {
+            changedVersions.addLong(invocation.getArgument(0, Auction.class).getLastModifiedVersion());
+            return null;
+        }).when(clientResponder).onChangedAuction(any(Auction.class));
+
+        auctions.listAuctionChanges(2L, correlationId);
+
+        final InOrder inOrder = inOrder(clientResponder);
+        inOrder.verify(clientResponder).beginAuctionChanges(correlationId, 5L, false, 1, 1);
+        inOrder.verify(clientResponder).onChangedAuction(any(Auction.class));
+        inOrder.verify(clientResponder).onRemovedAuction(2L, 5L);
+        inOrder.verify(clientResponder).endAuctionChanges();
+        assertEquals(1, changedVersions.size());
+        assertEquals(4L, changedVersions.getLong(0));
+
+        auctions.listAuctionChanges(5L, correlationId);
+
+        verify(clientResponder).beginAuctionChanges(correlationId, 5L, false, 0, 0);
+    }
+
+    @Test
+    void testSubscriptionsAreValidatedAndEndWhenAuctionIsRemoved()
+    {
+        final DirectBuffer correlationId = newCorrelationId();
+        when(sessionMessageContext.getClusterTime()).thenReturn(1000L);
+        final Auctions auctions =
+            new Auctions(sessionMessageContext, participants, clientResponder, timerManager);
+        auctions.restoreAuction(1L, 1000L, 1003L, 1L, 31004L, 2L, 3L, -1L, "name", "description");
+
+        auctions.subscribe(2L, false, correlationId);
+        verify(clientResponder).onSubscriptionChanged(correlationId, 2L, false, AddAuctionBidResult.UNKNOWN_AUCTION);
+        verify(sessionMessageContext, times(0)).subscribe(anyLong(), anyBoolean());
+
+        auctions.subscribe(1L, false, correlationId);
+        auctions.subscribe(-1L, true, correlationId);
+        verify(sessionMessageContext).subscribe(1L, false);
+        verify(sessionMessageContext).subscribe(-1L, true);
+        verify(clientResponder).onSubscriptionChanged(correlationId, 1L, true, AddAuctionBidResult.SUCCESS);
+
+        auctions.removeAuction(1L);
+        verify(sessionMessageContext).removeSubscriptions(1L);
+    }
+
+    private static DirectBuffer newCorrelationId()
+    {
+        final UUID uuid = UUID.randomUUID();
+        final UnsafeBuffer correlationId = new UnsafeBuffer(new byte[2 * SIZE_OF_LONG]);
+        correlationId.putLong(0, uuid.getMostSignificantBits());
+        correlationId.putLong(SIZE_OF_LONG, uuid.getLeastSignificantBits());
+        return correlationId;
+    }
+
+    private static DirectBuffer utf8(final String text)
+    {
+        return new UnsafeBuffer(text.getBytes(StandardCharsets.UTF_8));
+    }
 }
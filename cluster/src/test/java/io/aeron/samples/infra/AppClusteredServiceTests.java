@@ -0,0 +1,373 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.aeron.samples.infra;
+
+import io.aeron.Aeron;
+import io.aeron.Publication;
+import io.aeron.cluster.client.AeronCluster;
+import io.aeron.cluster.service.ClientSession;
+import io.aeron.cluster.service.Cluster;
+import io.aeron.logbuffer.BufferClaim;
+import io.aeron.protocol.DataHeaderFlyweight;
+import io.aeron.samples.cluster.protocol.AddAuctionBidCommandEncoder;
+import io.aeron.samples.cluster.protocol.AddParticipantCommandEncoder;
+import io.aeron.samples.cluster.protocol.BooleanType;
+import io.aeron.samples.cluster.protocol.CreateAuctionCommandEncoder;
+import io.aeron.samples.cluster.protocol.MessageHeaderEncoder;
+import io.aeron.samples.cluster.protocol.SubscribeAuctionCommandEncoder;
+import org.agrona.DirectBuffer;
+import org.agrona.collections.Long2LongHashMap;
+import org.agrona.collections.Long2ObjectHashMap;
+import org.agrona.collections.LongArrayList;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AppClusteredServiceTests
+{
+    private static final long CREATOR_SESSION_ID = 1L;
+    private static final long BIDDER_SESSION_ID = 2L;
+    private static final long WATCHER_SESSION_ID = 3L;
+    private static final long CREATOR_PARTICIPANT_ID = 500L;
+    private static final long BIDDER_PARTICIPANT_ID = 501L;
+    private static final long AUCTION_ID = 1L;
+    private static final long START_TIME = 1_000L;
+    private static final long END_TIME = 30_000L;
+    private static final int UNKNOWN_TEMPLATE_ID = 999;
+    private static final long CONFLATION_INTERVAL_MS = 100L;
+    private static final int EGRESS_QUEUE_CAPACITY = 1024;
+    private static final int BIDS = 40;
+
+    private final List<Consumer<Member>> log = new ArrayList<>();
+    private Member follower = new Member(new AppClusteredService());
+    private Member leader = new Member(new AppClusteredService());
+
+    @Test
+    void testFollowerReplayingTheLogSchedulesTheTimersOfTheBackPressuredLeader()
+    {
+        openAuctionWithCreatorBackPressured();
+
+        leader.relieveBackPressure();
+        final long deliveredBeforeIgnoredMessage = leader.delivered(CREATOR_SESSION_ID);
+        appendMessage(BIDDER_SESSION_ID, START_TIME + 2, AppClusteredServiceTests::unknownMessage);
+        assertTrue(leader.delivered(CREATOR_SESSION_ID) > deliveredBeforeIgnoredMessage);
+        appendTimersDueBy(END_TIME);
+
+        catchUp(follower);
+
+        assertEquals(leader.scheduledTimers, follower.scheduledTimers);
+        assertEquals(leader.pendingTimers, follower.pendingTimers);
+        assertEquals(follower.delivered(CREATOR_SESSION_ID), leader.delivered(CREATOR_SESSION_ID));
+        assertEquals(follower.delivered(BIDDER_SESSION_ID), leader.delivered(BIDDER_SESSION_ID));
+    }
+
+    @Test
+    void testFollowerTakingOverFiresTheTimersScheduledUnderTheFailedLeader()
+    {
+        openAuctionWithCreatorBackPressured();
+        final Member failedLeader = leader;
+
+        failOverTo(follower);
+        follower.backPressure(CREATOR_SESSION_ID);
+        appendTimersDueBy(END_TIME);
+        final long deliveredBeforeBackPressureEnds = follower.delivered(CREATOR_SESSION_ID);
+
+        follower.relieveBackPressure();
+        appendMessage(BIDDER_SESSION_ID, END_TIME + 1, AppClusteredServiceTests::unknownMessage);
+
+        assertTrue(follower.delivered(CREATOR_SESSION_ID) > deliveredBeforeBackPressureEnds);
+        assertEquals(failedLeader.scheduledTimers, follower.scheduledTimers);
+        assertTrue(follower.pendingTimers.values().stream().allMatch(deadline -> deadline > END_TIME));
+    }
+
+    @Test
+    void testFollowerSchedulesTheConflationTimersOfTheLeaderWhichSwitchedASlowSessionToConflation()
+    {
+        leader = new Member(newConflatingService());
+        follower = new Member(newConflatingService());
+        appendSessionOpen(WATCHER_SESSION_ID, 0L);
+        appendMessage(WATCHER_SESSION_ID, 0L, buffer -> subscribeToAllAuctions(buffer, BooleanType.TRUE));
+        openAuctionWithCreatorBackPressured();
+
+        //enough updates to fill the creator's queue, so the leader alone switches it to conflated updates
+        for (int i = 1; i <= BIDS; i++)
+        {
+            final long time = START_TIME + 10L * i;
+            final long price = 10L + i;
+            appendMessage(BIDDER_SESSION_ID, time, buffer -> addBid(buffer, price));
+            appendTimersDueBy(time);
+        }
+        leader.relieveBackPressure();
+        final long deliveredBeforeIntervalEnds = leader.delivered(CREATOR_SESSION_ID);
+        appendMessage(BIDDER_SESSION_ID, START_TIME + 10L * BIDS + CONFLATION_INTERVAL_MS,
+            AppClusteredServiceTests::unknownMessage);
+        assertTrue(leader.delivered(CREATOR_SESSION_ID) > deliveredBeforeIntervalEnds);
+
+        catchUp(follower);
+
+        assertTrue(leader.hasScheduledEgressTimer());
+        assertEquals(leader.scheduledTimers, follower.scheduledTimers);
+        assertEquals(leader.pendingTimers, follower.pendingTimers);
+    }
+
+    /**
+     * Opens the sessions of a creator subscribed to every auction and a bidder, then creates an auction, opens it and
+     * bids on it while the leader's egress to the creator is back pressured
+     */
+    private void openAuctionWithCreatorBackPressured()
+    {
+        appendSessionOpen(CREATOR_SESSION_ID, 0L);
+        appendSessionOpen(BIDDER_SESSION_ID, 0L);
+        appendMessage(CREATOR_SESSION_ID, 1L, buffer -> addParticipant(buffer, CREATOR_PARTICIPANT_ID));
+        appendMessage(BIDDER_SESSION_ID, 2L, buffer -> addParticipant(buffer, BIDDER_PARTICIPANT_ID));
+        appendMessage(CREATOR_SESSION_ID, 3L, buffer -> subscribeToAllAuctions(buffer, BooleanType.FALSE));
+
+        leader.backPressure(CREATOR_SESSION_ID);
+        appendMessage(CREATOR_SESSION_ID, 10L, AppClusteredServiceTests::createAuction);
+        appendTimersDueBy(START_TIME);
+        appendMessage(BIDDER_SESSION_ID, START_TIME + 1, buffer -> addBid(buffer, 10L));
+    }
+
+    private void append(final Consumer<Member> entry)
+    {
+        log.add(entry);
+        catchUp(leader);
+    }
+
+    private void appendSessionOpen(final long sessionId, final long timestamp)
+    {
+        append(member -> member.openSession(sessionId, timestamp));
+    }
+
+    private void appendMessage(final long sessionId, final long timestamp, final ToIntFunction<UnsafeBuffer> encoder)
+    {
+        final UnsafeBuffer buffer = new UnsafeBuffer(new byte[256]);
+        final int length = encoder.applyAsInt(buffer);
+        append(member -> member.service.onSessionMessage(
+            member.sessions.get(sessionId), timestamp, buffer, 0, length, null));
+    }
+
+    /**
+     * Appends an event for each timer of the leader due by a time, in deadline order, as the consensus module does
+     * @param time the cluster time
+     */
+    private void appendTimersDueBy(final long time)
+    {
+        final List<Map.Entry<Long, Long>> dueTimers = leader.pendingTimers.entrySet().stream()
+            .filter(timer -> timer.getValue() <= time)
+            .sorted(Map.Entry.comparingByValue())
+            .toList();
+        for (final Map.Entry<Long, Long> timer : dueTimers)
+        {
+            final long correlationId = timer.getKey();
+            final long deadline = timer.getValue();
+            append(member -> member.onTimerEvent(correlationId, deadline));
+        }
+    }
+
+    private void catchUp(final Member member)
+    {
+        while (member.logIndex < log.size())
+        {
+            log.get(member.logIndex++).accept(member);
+        }
+    }
+
+    private void failOverTo(final Member newLeader)
+    {
+        catchUp(newLeader);
+        newLeader.service.onRoleChange(Cluster.Role.LEADER);
+        leader = newLeader;
+    }
+
+    private static AppClusteredService newConflatingService()
+    {
+        return new AppClusteredService(TimeUnit.MILLISECONDS.toNanos(CONFLATION_INTERVAL_MS), null, 0,
+            SlowConsumerPolicy.CONFLATE, EGRESS_QUEUE_CAPACITY);
+    }
+
+    private static int addParticipant(final UnsafeBuffer buffer, final long participantId)
+    {
+        final AddParticipantCommandEncoder encoder = new AddParticipantCommandEncoder()
+            .wrapAndApplyHeader(buffer, 0, new MessageHeaderEncoder())
+            .participantId(participantId);
+        encoder.correlationId().mostSignificantBits(participantId).leastSignificantBits(1L);
+        encoder.name("participant " + participantId);
+        return MessageHeaderEncoder.ENCODED_LENGTH + encoder.encodedLength();
+    }
+
+    private static int subscribeToAllAuctions(final UnsafeBuffer buffer, final BooleanType conflated)
+    {
+        final SubscribeAuctionCommandEncoder encoder = new SubscribeAuctionCommandEncoder()
+            .wrapAndApplyHeader(buffer, 0, new MessageHeaderEncoder());
+        encoder.correlationId().mostSignificantBits(2L).leastSignificantBits(2L);
+        encoder.auctionId(AuctionSubscriptions.ALL_AUCTIONS).conflated(conflated);
+        return MessageHeaderEncoder.ENCODED_LENGTH + encoder.encodedLength();
+    }
+
+    private static int createAuction(final UnsafeBuffer buffer)
+    {
+        final CreateAuctionCommandEncoder encoder = new CreateAuctionCommandEncoder()
+            .wrapAndApplyHeader(buffer, 0, new MessageHeaderEncoder())
+            .createdByParticipantId(CREATOR_PARTICIPANT_ID)
+            .startTime(START_TIME)
+            .endTime(END_TIME);
+        encoder.correlationId().mostSignificantBits(3L).leastSignificantBits(3L);
+        encoder.name("auction").description("description");
+        return MessageHeaderEncoder.ENCODED_LENGTH + encoder.encodedLength();
+    }
+
+    private static int addBid(final UnsafeBuffer buffer, final long price)
+    {
+        final AddAuctionBidCommandEncoder encoder = new AddAuctionBidCommandEncoder()
+            .wrapAndApplyHeader(buffer, 0, new MessageHeaderEncoder())
+            .auctionId(AUCTION_ID)
+            .addedByParticipantId(BIDDER_PARTICIPANT_ID)
+            .price(price);
+        encoder.correlationId().mostSignificantBits(4L).leastSignificantBits(4L);
+        return MessageHeaderEncoder.ENCODED_LENGTH + encoder.encodedLength();
+    }
+
+    private static int unknownMessage(final UnsafeBuffer buffer)
+    {
+        new MessageHeaderEncoder().wrap(buffer, 0)
+            .blockLength(0)
+            .templateId(UNKNOWN_TEMPLATE_ID)
+            .schemaId(MessageHeaderEncoder.SCHEMA_ID)
+            .version(MessageHeaderEncoder.SCHEMA_VERSION);
+        return MessageHeaderEncoder.ENCODED_LENGTH;
+    }
+
+    /**
+     * A cluster member, recording the cluster timers its service schedules and the messages its sessions are sent.
+     * Sessions accept every message unless back pressured, as a follower's sessions do.
+     */
+    private static final class Member
+    {
+        private final AppClusteredService service;
+        private final Cluster cluster = mock(Cluster.class);
+        private final Long2ObjectHashMap<ClientSession> sessions = new Long2ObjectHashMap<>();
+        private final Long2LongHashMap deliveredBySessionId = new Long2LongHashMap(0L);
+        private final LongArrayList scheduledTimers = new LongArrayList();
+        private final Map<Long, Long> pendingTimers = new HashMap<>();
+        private final UnsafeBuffer term = new UnsafeBuffer(new byte[2048]);
+        private long backPressuredSessionId = Aeron.NULL_VALUE;
+        private int logIndex;
+
+        Member(final AppClusteredService service)
+        {
+            this.service = service;
+            when(cluster.idleStrategy()).thenReturn(mock(IdleStrategy.class));
+            when(cluster.scheduleTimer(anyLong(), anyLong())).thenAnswer(invocation ->
+            {
+                final long correlationId = invocation.getArgument(0);
+                final long deadline = invocation.getArgument(1);
+                scheduledTimers.addLong(correlationId);
+                scheduledTimers.addLong(deadline);
+                pendingTimers.put(correlationId, deadline);
+                return true;
+            });
+            service.onStart(cluster, null);
+        }
+
+        void openSession(final long sessionId, final long timestamp)
+        {
+            final ClientSession session = mock(ClientSession.class);
+            when(session.id()).thenReturn(sessionId);
+            when(session.offer(any(DirectBuffer.class), anyInt(), anyInt())).thenAnswer(invocation -> send(sessionId));
+            when(session.tryClaim(anyInt(), any(BufferClaim.class))).thenAnswer(invocation ->
+            {
+                final long result = send(sessionId);
+                if (result > 0)
+                {
+                    final int length = invocation.getArgument(0);
+                    final BufferClaim claim = invocation.getArgument(1);
+                    claim.wrap(term, 0,
+                        DataHeaderFlyweight.HEADER_LENGTH + AeronCluster.SESSION_HEADER_LENGTH + length);
+                }
+                return result;
+            });
+            sessions.put(sessionId, session);
+            service.onSessionOpen(session, timestamp);
+        }
+
+        /**
+         * Fires a timer as the consensus module does, which only fires timers it was asked to schedule
+         * @param correlationId the correlation id of the timer
+         * @param timestamp     the cluster time it fires at
+         */
+        void onTimerEvent(final long correlationId, final long timestamp)
+        {
+            assertNotNull(pendingTimers.remove(correlationId), "timer " + correlationId + " was not scheduled");
+            service.onTimerEvent(correlationId, timestamp);
+        }
+
+        void backPressure(final long sessionId)
+        {
+            backPressuredSessionId = sessionId;
+        }
+
+        void relieveBackPressure()
+        {
+            backPressuredSessionId = Aeron.NULL_VALUE;
+        }
+
+        boolean hasScheduledEgressTimer()
+        {
+            for (int i = 0; i < scheduledTimers.size(); i += 2)
+            {
+                if (SessionMessageContextImpl.isEgressTimer(scheduledTimers.getLong(i)))
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        long delivered(final long sessionId)
+        {
+            return deliveredBySessionId.get(sessionId);
+        }
+
+        private long send(final long sessionId)
+        {
+            if (backPressuredSessionId == sessionId)
+            {
+                return Publication.BACK_PRESSURED;
+            }
+            deliveredBySessionId.put(sessionId, deliveredBySessionId.get(sessionId) + 1);
+            return 1L;
+        }
+    }
+}
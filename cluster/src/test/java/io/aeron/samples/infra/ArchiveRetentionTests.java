@@ -0,0 +1,85 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.aeron.samples.infra;
+
+import io.aeron.archive.client.AeronArchive;
+import io.aeron.cluster.ConsensusModule;
+import io.aeron.cluster.RecordingLog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArchiveRetentionTests
+{
+    private static final long LOG_RECORDING_ID = 1L;
+    private static final int TERM_LENGTH = 64 * 1024;
+    private static final int SEGMENT_LENGTH = 2 * TERM_LENGTH;
+
+    @TempDir
+    File clusterDir;
+
+    @Test
+    void testLogIsRetainedFromTheOldestValidRetainedSnapshot()
+    {
+        try (RecordingLog recordingLog = new RecordingLog(clusterDir, true))
+        {
+            recordingLog.appendTerm(LOG_RECORDING_ID, 0L, 0L, 0L);
+            appendSnapshot(recordingLog, 10L, 1_000L);
+            appendSnapshot(recordingLog, 12L, 2_000L);
+            appendSnapshot(recordingLog, 14L, 3_000L);
+            appendSnapshot(recordingLog, 16L, 4_000L);
+            assertTrue(recordingLog.invalidateLatestSnapshot());
+
+            assertEquals(3_000L, newArchiveRetention(1).retainedLogPosition(recordingLog));
+            assertEquals(2_000L, newArchiveRetention(2).retainedLogPosition(recordingLog));
+            assertEquals(1_000L, newArchiveRetention(3).retainedLogPosition(recordingLog));
+            assertEquals(AeronArchive.NULL_POSITION, newArchiveRetention(4).retainedLogPosition(recordingLog));
+        }
+    }
+
+    @Test
+    void testLogIsPurgedUpToTheSegmentHoldingTheRetainedPosition()
+    {
+        final long retainedPosition = 2L * SEGMENT_LENGTH + 100L;
+
+        assertEquals(2L * SEGMENT_LENGTH,
+            ArchiveRetention.purgePosition(0L, retainedPosition, TERM_LENGTH, SEGMENT_LENGTH));
+        assertEquals(2L * SEGMENT_LENGTH,
+            ArchiveRetention.purgePosition(SEGMENT_LENGTH, retainedPosition, TERM_LENGTH, SEGMENT_LENGTH));
+        assertEquals(AeronArchive.NULL_POSITION,
+            ArchiveRetention.purgePosition(2L * SEGMENT_LENGTH, retainedPosition, TERM_LENGTH, SEGMENT_LENGTH));
+        assertEquals(AeronArchive.NULL_POSITION,
+            ArchiveRetention.purgePosition(0L, SEGMENT_LENGTH - 1L, TERM_LENGTH, SEGMENT_LENGTH));
+    }
+
+    private static void appendSnapshot(final RecordingLog recordingLog, final long recordingId, final long logPosition)
+    {
+        //the service's snapshot is recorded first, then the consensus module's
+        recordingLog.appendSnapshot(recordingId, 0L, 0L, logPosition, logPosition, 0);
+        recordingLog.appendSnapshot(
+            recordingId + 1, 0L, 0L, logPosition, logPosition, ConsensusModule.Configuration.SERVICE_ID);
+    }
+
+    private ArchiveRetention newArchiveRetention(final int retainedSnapshots)
+    {
+        return new ArchiveRetention(clusterDir, clusterDir, null, null, retainedSnapshots);
+    }
+}
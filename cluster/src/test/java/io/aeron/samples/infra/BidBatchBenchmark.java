@@ -0,0 +1,226 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.aeron.samples.infra;
+
+import io.aeron.samples.cluster.protocol.AddAuctionBidBatchCommandEncoder;
+import io.aeron.samples.cluster.protocol.AddAuctionBidCommandEncoder;
+import io.aeron.samples.cluster.protocol.MessageHeaderEncoder;
+import io.aeron.samples.domain.auctions.Auctions;
+import io.aeron.samples.domain.participants.Participants;
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableDirectByteBuffer;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Compares submitting bids as one {@code AddAuctionBidCommand} each against submitting the same bids as a single
+ * {@code AddAuctionBidBatchCommand}, for a market maker bidding across a set of auctions. Run with {@code main} and
+ * {@code -DLOG_LEVEL=warn}; it is not part of the test suite.
+ * <p>
+ * Reports the ingress messages, the egress messages and bytes, and the in-service time to dispatch each round of
+ * bids. Each ingress message is also a log entry which must be replicated and sequenced before it is dispatched, a
+ * cost not included here, so the difference in a running cluster is larger than reported.
+ */
+final class BidBatchBenchmark
+{
+    private static final int AUCTION_COUNT = 100;
+    private static final int BIDS_PER_ROUND = 200;
+    private static final int ROUNDS = 2_000;
+    private static final int RUNS = 5;
+    private static final long PARTICIPANT_ID = 2001L;
+    private static final long CLUSTER_TIME = 2_000L;
+
+    private BidBatchBenchmark()
+    {
+    }
+
+    /**
+     * Runs the benchmark
+     * @param args ignored
+     */
+    public static void main(final String[] args)
+    {
+        for (int run = 1; run <= RUNS; run++)
+        {
+            runSingle(run);
+            runBatched(run);
+        }
+    }
+
+    private static void runSingle(final int run)
+    {
+        final CountingContext context = new CountingContext();
+        final SbeDemuxer demuxer = newDemuxer(context);
+        final ExpandableDirectByteBuffer buffer = new ExpandableDirectByteBuffer(1024);
+        final MessageHeaderEncoder headerEncoder = new MessageHeaderEncoder();
+        final AddAuctionBidCommandEncoder encoder = new AddAuctionBidCommandEncoder();
+        final int messageLength = MessageHeaderEncoder.ENCODED_LENGTH + AddAuctionBidCommandEncoder.BLOCK_LENGTH;
+
+        long price = 0;
+        long durationNs = 0;
+        for (int round = 0; round < ROUNDS; round++)
+        {
+            for (int bid = 0; bid < BIDS_PER_ROUND; bid++)
+            {
+                encoder.wrapAndApplyHeader(buffer, bid * messageLength, headerEncoder)
+                    .auctionId(1 + (bid % AUCTION_COUNT))
+                    .addedByParticipantId(PARTICIPANT_ID)
+                    .price(++price);
+            }
+
+            final long startNs = System.nanoTime();
+            for (int bid = 0; bid < BIDS_PER_ROUND; bid++)
+            {
+                demuxer.dispatch(buffer, bid * messageLength, messageLength);
+            }
+            durationNs += System.nanoTime() - startNs;
+        }
+
+        report(run, "single", ROUNDS * BIDS_PER_ROUND, context, durationNs);
+    }
+
+    private static void runBatched(final int run)
+    {
+        final CountingContext context = new CountingContext();
+        final SbeDemuxer demuxer = newDemuxer(context);
+        final ExpandableDirectByteBuffer buffer = new ExpandableDirectByteBuffer(1024);
+        final MessageHeaderEncoder headerEncoder = new MessageHeaderEncoder();
+        final AddAuctionBidBatchCommandEncoder encoder = new AddAuctionBidBatchCommandEncoder();
+
+        long price = 0;
+        long durationNs = 0;
+        for (int round = 0; round < ROUNDS; round++)
+        {
+            encoder.wrapAndApplyHeader(buffer, 0, headerEncoder).addedByParticipantId(PARTICIPANT_ID);
+            final AddAuctionBidBatchCommandEncoder.BidsEncoder bids = encoder.bidsCount(BIDS_PER_ROUND);
+            for (int bid = 0; bid < BIDS_PER_ROUND; bid++)
+            {
+                bids.next()
+                    .auctionId(1 + (bid % AUCTION_COUNT))
+                    .price(++price);
+            }
+            final int messageLength = MessageHeaderEncoder.ENCODED_LENGTH + encoder.encodedLength();
+
+            final long startNs = System.nanoTime();
+            demuxer.dispatch(buffer, 0, messageLength);
+            durationNs += System.nanoTime() - startNs;
+        }
+
+        report(run, "batched", ROUNDS, context, durationNs);
+    }
+
+    private static SbeDemuxer newDemuxer(final CountingContext context)
+    {
+        final ClusterClientResponder responder = new ClusterClientResponderImpl(context);
+        final Participants participants = new Participants(responder);
+        participants.restoreParticipant(PARTICIPANT_ID, "market maker");
+        final Auctions auctions = new Auctions(context, participants, responder, mock(TimerManager.class));
+        for (long auctionId = 1; auctionId <= AUCTION_COUNT; auctionId++)
+        {
+            auctions.restoreAuction(
+                auctionId, 1L, CLUSTER_TIME - 1, -1L, Long.MAX_VALUE, -1L, -1L, -1L, "name", "description");
+        }
+        return new SbeDemuxer(participants, auctions, responder);
+    }
+
+    private static void report(
+        final int run,
+        final String name,
+        final int ingressMessages,
+        final CountingContext context,
+        final long durationNs)
+    {
+        System.out.printf(
+            "run %d %-7s: %,d bids in %,d ingress messages, %,d egress messages (%,d bytes) in %,d us%n",
+            run, name, ROUNDS * BIDS_PER_ROUND, ingressMessages, context.messages, context.bytes, durationNs / 1000);
+    }
+
+    /**
+     * Counts the egress messages rather than offering them, with every broadcast going to a single session
+     */
+    private static final class CountingContext implements SessionMessageContext
+    {
+        private long messages;
+        private long bytes;
+        private final ExpandableDirectByteBuffer batchBuffer = new ExpandableDirectByteBuffer(1024);
+
+        @Override
+        public long getClusterTime()
+        {
+            return CLUSTER_TIME;
+        }
+
+        @Override
+        public void reply(final DirectBuffer buffer, final int offset, final int length)
+        {
+            messages++;
+            bytes += length;
+        }
+
+        @Override
+        public void reply(final int length, final MessageEncoder encoder)
+        {
+            encoder.encode(batchBuffer, 0);
+            messages++;
+            bytes += length;
+        }
+
+        @Override
+        public void broadcast(final DirectBuffer buffer, final int offset, final int length)
+        {
+            messages++;
+            bytes += length;
+        }
+
+        @Override
+        public void broadcast(final long auctionId, final DirectBuffer buffer, final int offset, final int length)
+        {
+            messages++;
+            bytes += length;
+        }
+
+        @Override
+        public void broadcast(final long auctionId, final int length, final MessageEncoder encoder)
+        {
+            encoder.encode(batchBuffer, 0);
+            messages++;
+            bytes += length;
+        }
+
+        @Override
+        public void broadcast(final AuctionUpdateBatch batch)
+        {
+            messages++;
+            bytes += batch.encodeBatch(batchBuffer, 0);
+        }
+
+        @Override
+        public void subscribe(final long auctionId, final boolean conflated)
+        {
+        }
+
+        @Override
+        public void unsubscribe(final long auctionId)
+        {
+        }
+
+        @Override
+        public void removeSubscriptions(final long auctionId)
+        {
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.aeron.samples.infra;
+
+import io.aeron.cluster.service.ClientSession;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ClientSessionsTests
+{
+    private final ClientSessions clientSessions = new ClientSessions();
+
+    @Test
+    void testRemovedSessionIsReplacedByTheLastSession()
+    {
+        final ClientSession first = addSession(1L);
+        final ClientSession second = addSession(2L);
+        final ClientSession third = addSession(3L);
+
+        clientSessions.removeSession(first);
+
+        assertEquals(2, clientSessions.getSessionCount());
+        assertSame(third, clientSessions.getSessionAt(0));
+        assertSame(second, clientSessions.getSessionAt(1));
+        assertSame(third, clientSessions.getSession(3L));
+        assertNull(clientSessions.getSession(1L));
+        assertFalse(clientSessions.containsSession(1L));
+        assertNull(clientSessions.removeSession(1L));
+        assertThrows(IndexOutOfBoundsException.class, () -> clientSessions.getSessionAt(2));
+    }
+
+    @Test
+    void testSessionsGrowBeyondInitialCapacityAndStayAddressable()
+    {
+        for (long sessionId = 1; sessionId <= 100; sessionId++)
+        {
+            addSession(sessionId);
+        }
+        for (long sessionId = 1; sessionId <= 100; sessionId += 2)
+        {
+            clientSessions.removeSession(sessionId);
+        }
+
+        assertEquals(50, clientSessions.getSessionCount());
+        for (int i = 0; i < clientSessions.getSessionCount(); i++)
+        {
+            final ClientSession session = clientSessions.getSessionAt(i);
+            assertEquals(0, session.id() % 2);
+            assertSame(session, clientSessions.getSession(session.id()));
+        }
+    }
+
+    private ClientSession addSession(final long sessionId)
+    {
+        final ClientSession session = mock(ClientSession.class);
+        when(session.id()).thenReturn(sessionId);
+        clientSessions.addSession(session);
+        return session;
+    }
+}
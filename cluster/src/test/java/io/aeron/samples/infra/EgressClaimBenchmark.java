@@ -0,0 +1,153 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.aeron.samples.infra;
+
+import io.aeron.cluster.client.AeronCluster;
+import io.aeron.cluster.service.ClientSession;
+import io.aeron.logbuffer.BufferClaim;
+import io.aeron.protocol.DataHeaderFlyweight;
+import io.aeron.samples.cluster.protocol.AddAuctionBidCommandEncoder;
+import io.aeron.samples.cluster.protocol.MessageHeaderEncoder;
+import io.aeron.samples.domain.auctions.Auctions;
+import io.aeron.samples.domain.participants.Participants;
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableDirectByteBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Compares sending the bid results and auction updates of a stream of bids by offering them, which copies each message
+ * from the responder's buffer into the egress publication of every session it goes to, against claiming space in each
+ * publication and encoding the message there. Run with {@code main} and {@code -DLOG_LEVEL=warn}; it is not part of
+ * the test suite.
+ * <p>
+ * Each session is a stub only mock whose offer copies the message into a term buffer of its own, as a publication
+ * would, and whose claim wraps the same term buffer. The bytes copied by offers on the service thread are the figure to
+ * compare; the throughput includes the cost of a mock call per message on both sides.
+ */
+final class EgressClaimBenchmark
+{
+    private static final int[] SESSION_COUNTS = {1, 100, 1_000};
+    private static final int AUCTION_COUNT = 100;
+    private static final int BIDS = 20_000;
+    private static final int RUNS = 3;
+    private static final long PARTICIPANT_ID = 2001L;
+    private static final long CLUSTER_TIME = 2_000L;
+
+    private EgressClaimBenchmark()
+    {
+    }
+
+    /**
+     * Runs the benchmark
+     * @param args ignored
+     */
+    public static void main(final String[] args)
+    {
+        for (int run = 1; run <= RUNS; run++)
+        {
+            for (final int sessionCount : SESSION_COUNTS)
+            {
+                runBids(run, sessionCount, false);
+                runBids(run, sessionCount, true);
+            }
+        }
+    }
+
+    private static void runBids(final int run, final int sessionCount, final boolean claim)
+    {
+        final AtomicLong copiedBytes = new AtomicLong();
+        final ClientSessions clientSessions = new ClientSessions();
+        final AuctionSubscriptions subscriptions = new AuctionSubscriptions();
+        for (long sessionId = 1; sessionId <= sessionCount; sessionId++)
+        {
+            clientSessions.addSession(termSession(sessionId, copiedBytes));
+            subscriptions.subscribe(sessionId, AuctionSubscriptions.ALL_AUCTIONS);
+        }
+
+        final SessionMessageContextImpl context = new SessionMessageContextImpl(clientSessions, subscriptions);
+        context.setMaxClaimLength(claim ? SessionMessageContextImpl.DEFAULT_MAX_CLAIM_LENGTH : 0);
+        context.setSessionContext(termSession(0, copiedBytes), CLUSTER_TIME);
+        final SbeDemuxer demuxer = newDemuxer(context);
+
+        final ExpandableDirectByteBuffer buffer = new ExpandableDirectByteBuffer(256);
+        final AddAuctionBidCommandEncoder encoder = new AddAuctionBidCommandEncoder();
+        encoder.wrapAndApplyHeader(buffer, 0, new MessageHeaderEncoder()).addedByParticipantId(PARTICIPANT_ID);
+        final int length = MessageHeaderEncoder.ENCODED_LENGTH + AddAuctionBidCommandEncoder.BLOCK_LENGTH;
+
+        final long startNs = System.nanoTime();
+        for (int bid = 0; bid < BIDS; bid++)
+        {
+            encoder.auctionId(1 + (bid % AUCTION_COUNT)).price(bid + 1);
+            demuxer.dispatch(buffer, 0, length);
+        }
+        final long durationNs = System.nanoTime() - startNs;
+
+        System.out.printf("run %d %,5d sessions %-5s: %,8.1f claims and %,10.1f bytes copied per bid, %,12.0f bids " +
+            "per second%n", run, sessionCount, claim ? "claim" : "offer", (double)context.getClaimedCount() / BIDS,
+            (double)copiedBytes.get() / BIDS, BIDS * 1_000_000_000.0 / durationNs);
+    }
+
+    private static SbeDemuxer newDemuxer(final SessionMessageContext context)
+    {
+        final ClusterClientResponder responder = new ClusterClientResponderImpl(context);
+        final Participants participants = new Participants(responder);
+        participants.restoreParticipant(PARTICIPANT_ID, "bidder");
+        final Auctions auctions = new Auctions(context, participants, responder, mock(TimerManager.class));
+        for (long auctionId = 1; auctionId <= AUCTION_COUNT; auctionId++)
+        {
+            auctions.restoreAuction(
+                auctionId, 1L, CLUSTER_TIME - 1, -1L, Long.MAX_VALUE, -1L, -1L, -1L, "name", "description");
+        }
+        return new SbeDemuxer(participants, auctions, responder);
+    }
+
+    /**
+     * Creates a session whose offers copy into a term buffer, counting the bytes copied, and whose claims wrap it
+     * @param sessionId   the cluster session id
+     * @param copiedBytes the count of bytes copied by offers
+     * @return the session
+     */
+    private static ClientSession termSession(final long sessionId, final AtomicLong copiedBytes)
+    {
+        final UnsafeBuffer term = new UnsafeBuffer(new byte[2048]);
+        final int messageOffset = DataHeaderFlyweight.HEADER_LENGTH + AeronCluster.SESSION_HEADER_LENGTH;
+        final ClientSession session = mock(ClientSession.class, withSettings().stubOnly());
+        when(session.id()).thenReturn(sessionId);
+        when(session.offer(any(DirectBuffer.class), anyInt(), anyInt())).thenAnswer(invocation ->
+        {
+            final int length = invocation.getArgument(2);
+            term.putBytes(messageOffset, (DirectBuffer)invocation.getArgument(0), invocation.getArgument(1), length);
+            return copiedBytes.addAndGet(length);
+        });
+        when(session.tryClaim(anyInt(), any(BufferClaim.class))).thenAnswer(invocation ->
+        {
+            final int length = invocation.getArgument(0);
+            final BufferClaim claim = invocation.getArgument(1);
+            claim.wrap(term, 0, messageOffset + length);
+            return 1L;
+        });
+        return session;
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.aeron.samples.infra;
+
+import io.aeron.ExclusivePublication;
+import io.aeron.cluster.client.AeronCluster;
+import io.aeron.cluster.service.ClientSession;
+import io.aeron.cluster.service.Cluster;
+import io.aeron.logbuffer.BufferClaim;
+import io.aeron.protocol.DataHeaderFlyweight;
+import io.aeron.samples.cluster.protocol.AddAuctionBidCommandEncoder;
+import io.aeron.samples.cluster.protocol.MessageHeaderEncoder;
+import io.aeron.samples.domain.auctions.Auctions;
+import io.aeron.samples.domain.participants.Participants;
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableDirectByteBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Compares the bid throughput of the service thread when every session subscribes to every auction over egress, so
+ * each update is offered once per session, against publishing each update once to the market data channel which the
+ * sessions read instead. Run with {@code main} and {@code -DLOG_LEVEL=warn}; it is not part of the test suite.
+ * <p>
+ * Sessions and the market data publication are stub only mocks whose offer and claim succeed, so the reported
+ * throughput includes the cost of a mock call per offer or claim rather than the cost of writing to a real publication,
+ * and leaves out the delivery work the media driver does for the market data channel on its own threads. The offers
+ * and claims per bid made on the service thread are the figure to compare.
+ */
+final class MarketDataBenchmark
+{
+    private static final int[] SESSION_COUNTS = {1, 100, 1_000};
+    private static final int AUCTION_COUNT = 100;
+    private static final int BIDS = 20_000;
+    private static final int RUNS = 3;
+    private static final long PARTICIPANT_ID = 2001L;
+    private static final long CLUSTER_TIME = 2_000L;
+
+    private MarketDataBenchmark()
+    {
+    }
+
+    /**
+     * Runs the benchmark
+     * @param args ignored
+     */
+    public static void main(final String[] args)
+    {
+        for (int run = 1; run <= RUNS; run++)
+        {
+            for (final int sessionCount : SESSION_COUNTS)
+            {
+                runBids(run, sessionCount, false);
+                runBids(run, sessionCount, true);
+            }
+        }
+    }
+
+    private static void runBids(final int run, final int sessionCount, final boolean marketData)
+    {
+        final AtomicLong offers = new AtomicLong();
+        final ClientSessions clientSessions = new ClientSessions();
+        final AuctionSubscriptions subscriptions = new AuctionSubscriptions();
+        for (long sessionId = 1; sessionId <= sessionCount; sessionId++)
+        {
+            clientSessions.addSession(countingSession(sessionId, offers));
+            if (!marketData)
+            {
+                subscriptions.subscribe(sessionId, AuctionSubscriptions.ALL_AUCTIONS);
+            }
+        }
+
+        final SessionMessageContextImpl context = new SessionMessageContextImpl(clientSessions, subscriptions);
+        context.setSessionContext(countingSession(0, new AtomicLong()), CLUSTER_TIME);
+        if (marketData)
+        {
+            final MarketDataPublisher publisher = new MarketDataPublisher();
+            publisher.setPublication(countingPublication(offers));
+            publisher.onRoleChange(Cluster.Role.LEADER);
+            context.setMarketDataPublisher(publisher);
+        }
+        final SbeDemuxer demuxer = newDemuxer(context);
+
+        final ExpandableDirectByteBuffer buffer = new ExpandableDirectByteBuffer(256);
+        final AddAuctionBidCommandEncoder encoder = new AddAuctionBidCommandEncoder();
+        encoder.wrapAndApplyHeader(buffer, 0, new MessageHeaderEncoder()).addedByParticipantId(PARTICIPANT_ID);
+        final int length = MessageHeaderEncoder.ENCODED_LENGTH + AddAuctionBidCommandEncoder.BLOCK_LENGTH;
+
+        final long startNs = System.nanoTime();
+        for (int bid = 0; bid < BIDS; bid++)
+        {
+            encoder.auctionId(1 + (bid % AUCTION_COUNT)).price(bid + 1);
+            demuxer.dispatch(buffer, 0, length);
+        }
+        final long durationNs = System.nanoTime() - startNs;
+
+        System.out.printf("run %d %,5d sessions %-11s: %,8.1f offers per bid, %,12.0f bids per second%n",
+            run, sessionCount, marketData ? "market data" : "egress", (double)offers.get() / BIDS,
+            BIDS * 1_000_000_000.0 / durationNs);
+    }
+
+    private static SbeDemuxer newDemuxer(final SessionMessageContext context)
+    {
+        final ClusterClientResponder responder = new ClusterClientResponderImpl(context);
+        final Participants participants = new Participants(responder);
+        participants.restoreParticipant(PARTICIPANT_ID, "bidder");
+        final Auctions auctions = new Auctions(context, participants, responder, mock(TimerManager.class));
+        for (long auctionId = 1; auctionId <= AUCTION_COUNT; auctionId++)
+        {
+            auctions.restoreAuction(
+                auctionId, 1L, CLUSTER_TIME - 1, -1L, Long.MAX_VALUE, -1L, -1L, -1L, "name", "description");
+        }
+        return new SbeDemuxer(participants, auctions, responder);
+    }
+
+    private static ClientSession countingSession(final long sessionId, final AtomicLong offers)
+    {
+        final ClientSession session = mock(ClientSession.class, withSettings().stubOnly());
+        when(session.id()).thenReturn(sessionId);
+        when(session.offer(any(DirectBuffer.class), anyInt(), anyInt()))
+            .thenAnswer(invocation -> offers.incrementAndGet());
+        final UnsafeBuffer term = new UnsafeBuffer(new byte[2048]);
+        when(session.tryClaim(anyInt(), any(BufferClaim.class))).thenAnswer(invocation ->
+        {
+            final int length = invocation.getArgument(0);
+            final BufferClaim claim = invocation.getArgument(1);
+            claim.wrap(term, 0, DataHeaderFlyweight.HEADER_LENGTH + AeronCluster.SESSION_HEADER_LENGTH + length);
+            return offers.incrementAndGet();
+        });
+        return session;
+    }
+
+    private static ExclusivePublication countingPublication(final AtomicLong offers)
+    {
+        final ExclusivePublication publication = mock(ExclusivePublication.class, withSettings().stubOnly());
+        when(publication.offer(any(DirectBuffer.class), anyInt(), anyInt()))
+            .thenAnswer(invocation -> offers.incrementAndGet());
+        return publication;
+    }
+}
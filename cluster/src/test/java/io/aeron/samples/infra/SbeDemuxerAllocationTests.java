@@ -0,0 +1,288 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.aeron.samples.infra;
+
+import com.sun.management.ThreadMXBean;
+import io.aeron.DirectBufferVector;
+import io.aeron.cluster.client.AeronCluster;
+import io.aeron.cluster.service.ClientSession;
+import io.aeron.logbuffer.BufferClaim;
+import io.aeron.protocol.DataHeaderFlyweight;
+import io.aeron.samples.cluster.protocol.AddAuctionBidCommandEncoder;
+import io.aeron.samples.cluster.protocol.MessageHeaderEncoder;
+import io.aeron.samples.domain.auctions.Auctions;
+import io.aeron.samples.domain.participants.Participants;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class SbeDemuxerAllocationTests
+{
+    private static final int WARMUP_BIDS = 20_000;
+    private static final int MEASURED_BIDS = 10_000;
+    private static final long AUCTION_ID = 1L;
+    private static final long CREATOR_PARTICIPANT_ID = 500L;
+    private static final long BIDDER_PARTICIPANT_ID = 501L;
+    private static final long CLUSTER_TIME = 1000L;
+
+    @Test
+    void testSuccessfulBidDoesNotAllocate()
+    {
+        final ThreadMXBean threadBean = allocationMXBean();
+        final CountingContext context = new CountingContext();
+        final ClusterClientResponder responder = new ClusterClientResponderImpl(context);
+
+        final long allocated = allocatedByMeasuredBids(threadBean, context, responder);
+
+        assertEquals(WARMUP_BIDS + MEASURED_BIDS, context.replies);
+        assertEquals(WARMUP_BIDS + MEASURED_BIDS, context.broadcasts);
+        assertEquals(0L, allocated);
+    }
+
+    @Test
+    void testSuccessfulBidThroughTheSessionContextDoesNotAllocate()
+    {
+        final ThreadMXBean threadBean = allocationMXBean();
+        final ClientSessions clientSessions = new ClientSessions();
+        final SessionMessageContextImpl context =
+            new SessionMessageContextImpl(clientSessions, new AuctionSubscriptions());
+        final ClaimingClientSession session = new ClaimingClientSession(1L);
+        clientSessions.addSession(session);
+        context.setSessionContext(session, CLUSTER_TIME);
+        context.subscribe(AuctionSubscriptions.ALL_AUCTIONS, false);
+        final ClusterClientResponder responder = new ClusterClientResponderImpl(context);
+
+        final long allocated = allocatedByMeasuredBids(threadBean, context, responder);
+
+        //each bid claims its reply and the update broadcast to the subscribed session
+        assertEquals(2L * (WARMUP_BIDS + MEASURED_BIDS), context.getClaimedCount());
+        assertEquals(2L * (WARMUP_BIDS + MEASURED_BIDS), session.claims);
+        assertEquals(0L, allocated);
+    }
+
+    private static ThreadMXBean allocationMXBean()
+    {
+        final ThreadMXBean threadBean = (ThreadMXBean)ManagementFactory.getThreadMXBean();
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        threadBean.getCurrentThreadAllocatedBytes();
+        return threadBean;
+    }
+
+    /**
+     * Applies bids to an open auction as the clustered service does, with the state updates of each sent once it
+     * completes, warming up before measuring
+     * @param threadBean the bean to read the allocations of the current thread from
+     * @param context    the session message context the bids reply and broadcast through
+     * @param responder  the responder writing to the context
+     * @return the bytes allocated by the measured bids
+     */
+    private static long allocatedByMeasuredBids(
+        final ThreadMXBean threadBean,
+        final SessionMessageContext context,
+        final ClusterClientResponder responder)
+    {
+        final Participants participants = new Participants(responder);
+        final TimerManager timerManager =
+            new TimerManager(new SessionMessageContextImpl(new ClientSessions(), new AuctionSubscriptions()));
+        final Auctions auctions = new Auctions(context, participants, responder, timerManager);
+        final SbeDemuxer demuxer = new SbeDemuxer(participants, auctions, responder);
+
+        auctions.restoreAuction(AUCTION_ID, CREATOR_PARTICIPANT_ID, 0L, 1L, Long.MAX_VALUE, 2L, 3L, -1L,
+            "name", "description");
+
+        final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(256));
+        final AddAuctionBidCommandEncoder bidEncoder = new AddAuctionBidCommandEncoder();
+        final UUID correlationId = UUID.randomUUID();
+        bidEncoder.wrapAndApplyHeader(buffer, 0, new MessageHeaderEncoder())
+            .auctionId(AUCTION_ID)
+            .addedByParticipantId(BIDDER_PARTICIPANT_ID)
+            .correlationId()
+            .mostSignificantBits(correlationId.getMostSignificantBits())
+            .leastSignificantBits(correlationId.getLeastSignificantBits());
+        final int length = MessageHeaderEncoder.ENCODED_LENGTH + bidEncoder.encodedLength();
+
+        long price = 0;
+        for (int i = 0; i < WARMUP_BIDS; i++)
+        {
+            bidEncoder.price(++price);
+            dispatch(demuxer, responder, buffer, length);
+        }
+
+        final long allocatedBefore = threadBean.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < MEASURED_BIDS; i++)
+        {
+            bidEncoder.price(++price);
+            dispatch(demuxer, responder, buffer, length);
+        }
+        return threadBean.getCurrentThreadAllocatedBytes() - allocatedBefore;
+    }
+
+    private static void dispatch(
+        final SbeDemuxer demuxer,
+        final ClusterClientResponder responder,
+        final DirectBuffer buffer,
+        final int length)
+    {
+        responder.beginStateUpdates();
+        demuxer.dispatch(buffer, 0, length);
+        responder.endStateUpdates();
+    }
+
+    /**
+     * A session whose egress publication always has room, claiming each message into the same term buffer
+     */
+    private static final class ClaimingClientSession implements ClientSession
+    {
+        private final long id;
+        private final UnsafeBuffer term = new UnsafeBuffer(ByteBuffer.allocateDirect(1024));
+        private long claims;
+
+        ClaimingClientSession(final long id)
+        {
+            this.id = id;
+        }
+
+        @Override
+        public long id()
+        {
+            return id;
+        }
+
+        @Override
+        public int responseStreamId()
+        {
+            return 0;
+        }
+
+        @Override
+        public String responseChannel()
+        {
+            return "aeron:ipc";
+        }
+
+        @Override
+        public byte[] encodedPrincipal()
+        {
+            return new byte[0];
+        }
+
+        @Override
+        public void close()
+        {
+        }
+
+        @Override
+        public boolean isClosing()
+        {
+            return false;
+        }
+
+        @Override
+        public long offer(final DirectBuffer buffer, final int offset, final int length)
+        {
+            return 1L;
+        }
+
+        @Override
+        public long offer(final DirectBufferVector[] vector)
+        {
+            return 1L;
+        }
+
+        @Override
+        public long tryClaim(final int length, final BufferClaim bufferClaim)
+        {
+            bufferClaim.wrap(term, 0, DataHeaderFlyweight.HEADER_LENGTH + AeronCluster.SESSION_HEADER_LENGTH + length);
+            claims++;
+            return 1L;
+        }
+    }
+
+    private static final class CountingContext implements SessionMessageContext
+    {
+        private int replies;
+        private int broadcasts;
+        private final UnsafeBuffer encodedBuffer = new UnsafeBuffer(new byte[1024]);
+
+        @Override
+        public long getClusterTime()
+        {
+            return CLUSTER_TIME;
+        }
+
+        @Override
+        public void reply(final DirectBuffer buffer, final int offset, final int length)
+        {
+            replies++;
+        }
+
+        @Override
+        public void reply(final int length, final MessageEncoder encoder)
+        {
+            encoder.encode(encodedBuffer, 0);
+            replies++;
+        }
+
+        @Override
+        public void broadcast(final DirectBuffer buffer, final int offset, final int length)
+        {
+            broadcasts++;
+        }
+
+        @Override
+        public void broadcast(final long auctionId, final DirectBuffer buffer, final int offset, final int length)
+        {
+            broadcasts++;
+        }
+
+        @Override
+        public void broadcast(final long auctionId, final int length, final MessageEncoder encoder)
+        {
+            encoder.encode(encodedBuffer, 0);
+            broadcasts++;
+        }
+
+        @Override
+        public void broadcast(final AuctionUpdateBatch batch)
+        {
+            broadcasts++;
+        }
+
+        @Override
+        public void subscribe(final long auctionId, final boolean conflated)
+        {
+        }
+
+        @Override
+        public void unsubscribe(final long auctionId)
+        {
+        }
+
+        @Override
+        public void removeSubscriptions(final long auctionId)
+        {
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.aeron.samples.infra;
+
+import io.aeron.samples.cluster.protocol.AddAuctionBidCommandDecoder;
+import io.aeron.samples.cluster.protocol.AddParticipantCommandDecoder;
+import io.aeron.samples.cluster.protocol.CreateAuctionCommandDecoder;
+import io.aeron.samples.cluster.protocol.ListAuctionsCommandDecoder;
+import io.aeron.samples.cluster.protocol.MessageHeaderEncoder;
+import io.aeron.samples.domain.auctions.Auctions;
+import io.aeron.samples.domain.participants.Participants;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatcher;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class SbeDemuxerTests
+{
+    private static final UUID CORRELATION_ID = UUID.fromString("0f1e2d3c-4b5a-6978-8796-a5b4c3d2e1f0");
+
+    private final Participants participants = mock(Participants.class);
+    private final Auctions auctions = mock(Auctions.class);
+    private final ClusterClientResponder responder = mock(ClusterClientResponder.class);
+    private final SbeDemuxer demuxer = new SbeDemuxer(participants, auctions, responder);
+    private final UnsafeBuffer buffer = new UnsafeBuffer(new byte[256]);
+
+    @Test
+    void testVersion1CommandsInTheLogAreStillApplied()
+    {
+        int length = putHeader(AddParticipantCommandDecoder.TEMPLATE_ID, 44);
+        buffer.putLong(length, 500L, LITTLE_ENDIAN);
+        buffer.putStringWithoutLengthAscii(length + 8, CORRELATION_ID.toString());
+        length = putVarData(length + 44, "bidder");
+        demuxer.dispatch(buffer, 0, length);
+        verify(participants).addParticipant(eq(500L), argThat(this::isCorrelationId), argThat(utf8("bidder")));
+
+        length = putHeader(CreateAuctionCommandDecoder.TEMPLATE_ID, 60);
+        buffer.putLong(length, 500L, LITTLE_ENDIAN);
+        buffer.putLong(length + 8, 1_000L, LITTLE_ENDIAN);
+        buffer.putLong(length + 16, 2_000L, LITTLE_ENDIAN);
+        buffer.putStringWithoutLengthAscii(length + 24, CORRELATION_ID.toString());
+        length = putVarData(putVarData(length + 60, "name"), "description");
+        demuxer.dispatch(buffer, 0, length);
+        verify(auctions).addAuction(eq(500L), eq(1_000L), eq(2_000L), argThat(this::isCorrelationId),
+            argThat(utf8("name")), argThat(utf8("description")));
+
+        length = putHeader(AddAuctionBidCommandDecoder.TEMPLATE_ID, 60);
+        buffer.putLong(length, 1L, LITTLE_ENDIAN);
+        buffer.putLong(length + 8, 501L, LITTLE_ENDIAN);
+        buffer.putLong(length + 16, 150L, LITTLE_ENDIAN);
+        buffer.putStringWithoutLengthAscii(length + 24, CORRELATION_ID.toString());
+        demuxer.dispatch(buffer, 0, length + 60);
+        verify(auctions).addBid(eq(1L), eq(501L), eq(150L), argThat(this::isCorrelationId));
+    }
+
+    @Test
+    void testVersion1QueriesAreIgnored()
+    {
+        final int length = putHeader(ListAuctionsCommandDecoder.TEMPLATE_ID, 36);
+        buffer.putStringWithoutLengthAscii(length, CORRELATION_ID.toString());
+        demuxer.dispatch(buffer, 0, length + 36);
+
+        verifyNoInteractions(participants, auctions, responder);
+    }
+
+    private int putHeader(final int templateId, final int blockLength)
+    {
+        new MessageHeaderEncoder().wrap(buffer, 0)
+            .blockLength(blockLength)
+            .templateId(templateId)
+            .schemaId(MessageHeaderEncoder.SCHEMA_ID)
+            .version(SbeDemuxer.LEGACY_SCHEMA_VERSION);
+        return MessageHeaderEncoder.ENCODED_LENGTH;
+    }
+
+    private int putVarData(final int offset, final String value)
+    {
+        final int length = buffer.putStringWithoutLengthUtf8(offset + 4, value);
+        buffer.putInt(offset, length, LITTLE_ENDIAN);
+        return offset + 4 + length;
+    }
+
+    private boolean isCorrelationId(final DirectBuffer correlationId)
+    {
+        return 16 == correlationId.capacity() &&
+            CORRELATION_ID.getMostSignificantBits() == correlationId.getLong(0, LITTLE_ENDIAN) &&
+            CORRELATION_ID.getLeastSignificantBits() == correlationId.getLong(8, LITTLE_ENDIAN);
+    }
+
+    private static ArgumentMatcher<DirectBuffer> utf8(final String expected)
+    {
+        return buffer -> expected.equals(buffer.getStringWithoutLengthUtf8(0, buffer.capacity())) &&
+            expected.getBytes(StandardCharsets.UTF_8).length == buffer.capacity();
+    }
+}
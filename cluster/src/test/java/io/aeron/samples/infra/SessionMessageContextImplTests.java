@@ -0,0 +1,467 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.aeron.samples.infra;
+
+import io.aeron.ExclusivePublication;
+import io.aeron.Publication;
+import io.aeron.cluster.client.AeronCluster;
+import io.aeron.cluster.service.ClientSession;
+import io.aeron.cluster.service.Cluster;
+import io.aeron.logbuffer.BufferClaim;
+import io.aeron.protocol.DataHeaderFlyweight;
+import io.aeron.samples.cluster.protocol.AuctionStatus;
+import io.aeron.samples.cluster.protocol.AuctionUpdateBatchEventDecoder;
+import io.aeron.samples.cluster.protocol.AuctionUpdateEventDecoder;
+import io.aeron.samples.cluster.protocol.MessageHeaderDecoder;
+import org.agrona.DirectBuffer;
+import org.agrona.collections.LongArrayList;
+import org.agrona.collections.MutableInteger;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SessionMessageContextImplTests
+{
+    private static final long AUCTION_ID = 10L;
+    private static final long OTHER_AUCTION_ID = 11L;
+
+    private final ClientSessions clientSessions = new ClientSessions();
+    private final AuctionSubscriptions subscriptions = new AuctionSubscriptions();
+    private final SessionMessageContextImpl context = new SessionMessageContextImpl(clientSessions, subscriptions);
+    private final DirectBuffer buffer = new UnsafeBuffer(new byte[64]);
+    private ClientSession auctionSession;
+    private ClientSession allAuctionsSession;
+    private ClientSession otherSession;
+
+    @BeforeEach
+    void setUp()
+    {
+        auctionSession = addSession(1L);
+        allAuctionsSession = addSession(2L);
+        otherSession = addSession(3L);
+
+        subscribeAs(auctionSession, AUCTION_ID);
+        subscribeAs(allAuctionsSession, AUCTION_ID);
+        subscribeAs(allAuctionsSession, AuctionSubscriptions.ALL_AUCTIONS);
+        subscribeAs(otherSession, OTHER_AUCTION_ID);
+    }
+
+    @Test
+    void testAuctionUpdateGoesOnceToEachSubscriberOnly()
+    {
+        context.broadcast(AUCTION_ID, buffer, 0, 8);
+
+        verify(auctionSession).offer(buffer, 0, 8);
+        verify(allAuctionsSession, times(1)).offer(buffer, 0, 8);
+        verify(otherSession, never()).offer(any(DirectBuffer.class), anyInt(), anyInt());
+    }
+
+    @Test
+    void testNewAuctionGoesToAllAuctionsSubscribersOnly()
+    {
+        context.broadcast(buffer, 0, 8);
+
+        verify(allAuctionsSession).offer(buffer, 0, 8);
+        verify(auctionSession, never()).offer(any(DirectBuffer.class), anyInt(), anyInt());
+        verify(otherSession, never()).offer(any(DirectBuffer.class), anyInt(), anyInt());
+    }
+
+    @Test
+    void testClosedSessionAndRemovedAuctionAreCleanedUp()
+    {
+        subscriptions.removeSession(allAuctionsSession.id());
+        assertFalse(subscriptions.isSubscribedToAll(allAuctionsSession.id()));
+        assertTrue(subscriptions.getAllAuctionsSubscribers().isEmpty());
+
+        context.removeSubscriptions(AUCTION_ID);
+        assertNull(subscriptions.getSubscribers(AUCTION_ID));
+        assertFalse(subscriptions.unsubscribe(auctionSession.id(), AUCTION_ID));
+
+        context.broadcast(AUCTION_ID, buffer, 0, 8);
+        verify(auctionSession, never()).offer(any(DirectBuffer.class), anyInt(), anyInt());
+        verify(allAuctionsSession, never()).offer(any(DirectBuffer.class), anyInt(), anyInt());
+    }
+
+    @Test
+    void testConflatedSessionReceivesLatestUpdateOncePerInterval()
+    {
+        final ClientSession conflatedSession = addSession(4L);
+        context.setSessionContext(conflatedSession, 0L);
+        context.subscribe(AUCTION_ID, true);
+        context.setConflationInterval(TimeUnit.MILLISECONDS.toNanos(1_000L));
+        final Cluster cluster = newCluster();
+        final UnsafeBuffer update = new UnsafeBuffer(new byte[8]);
+        final ArgumentCaptor<DirectBuffer> flushed = ArgumentCaptor.forClass(DirectBuffer.class);
+        final ArgumentCaptor<Integer> flushedOffset = ArgumentCaptor.forClass(Integer.class);
+
+        update.putLong(0, 1L);
+        context.broadcast(AUCTION_ID, update, 0, 8);
+        update.putLong(0, 2L);
+        context.broadcast(AUCTION_ID, update, 0, 8);
+
+        verify(auctionSession, times(2)).offer(update, 0, 8);
+        verify(conflatedSession, never()).offer(any(DirectBuffer.class), anyInt(), anyInt());
+        verify(cluster, times(1)).scheduleTimer(SessionMessageContextImpl.EGRESS_TIMER_CORRELATION_ID, 1_000L);
+        assertEquals(0, context.flushConflatedUpdates());
+
+        assertEquals(1, context.onEgressTimer(1_000L));
+        verify(conflatedSession).offer(flushed.capture(), flushedOffset.capture(), eq(8));
+        assertEquals(2L, flushed.getValue().getLong(flushedOffset.getValue()));
+        verify(auctionSession, times(2)).offer(any(DirectBuffer.class), anyInt(), anyInt());
+        assertEquals(0, context.onEgressTimer(2_000L));
+
+        context.broadcast(AUCTION_ID, update, 0, 8);
+        verify(cluster).scheduleTimer(SessionMessageContextImpl.EGRESS_TIMER_CORRELATION_ID - 2, 3_000L);
+        assertTrue(SessionMessageContextImpl.isEgressTimer(SessionMessageContextImpl.EGRESS_TIMER_CORRELATION_ID - 2));
+        assertFalse(SessionMessageContextImpl.isEgressTimer(1L));
+    }
+
+    @Test
+    void testConflatedUpdatesWithoutIntervalAreFlushedAtTheEndOfTheCallback()
+    {
+        final ClientSession conflatedSession = addSession(4L);
+        context.setSessionContext(conflatedSession, 0L);
+        context.subscribe(AUCTION_ID, true);
+
+        context.broadcast(AUCTION_ID, buffer, 0, 8);
+        context.broadcast(AUCTION_ID, buffer, 0, 8);
+        verify(conflatedSession, never()).offer(any(DirectBuffer.class), anyInt(), anyInt());
+
+        assertEquals(1, context.flushConflatedUpdates());
+        verify(conflatedSession, times(1)).offer(any(DirectBuffer.class), anyInt(), eq(8));
+        assertEquals(0, context.flushConflatedUpdates());
+    }
+
+    @Test
+    void testBatchSendsEachSessionOneMessageHoldingItsUpdates()
+    {
+        final ClientSession bothAuctionsSession = addSession(4L);
+        subscribeAs(bothAuctionsSession, AUCTION_ID);
+        subscribeAs(bothAuctionsSession, OTHER_AUCTION_ID);
+        final LongArrayList auctionUpdates = recordUpdates(auctionSession);
+        final LongArrayList allAuctionsUpdates = recordUpdates(allAuctionsSession);
+        final LongArrayList bothAuctionsUpdates = recordUpdates(bothAuctionsSession);
+        final AuctionUpdateBatch batch = new AuctionUpdateBatch();
+        batch.add(AUCTION_ID, AuctionStatus.OPEN, 0L, 0, 1L, -1L);
+        batch.add(OTHER_AUCTION_ID, AuctionStatus.OPEN, 0L, 0, 1L, -1L);
+        batch.add(12L, AuctionStatus.OPEN, 0L, 0, 1L, -1L);
+
+        context.broadcast(batch);
+
+        assertEquals(new LongArrayList(new long[]{AUCTION_ID}, 1, -1L), auctionUpdates);
+        assertEquals(new LongArrayList(new long[]{AUCTION_ID, OTHER_AUCTION_ID, 12L}, 3, -1L), allAuctionsUpdates);
+        assertEquals(new LongArrayList(new long[]{AUCTION_ID, OTHER_AUCTION_ID}, 2, -1L), bothAuctionsUpdates);
+        verify(auctionSession, times(1)).offer(any(DirectBuffer.class), anyInt(), anyInt());
+        verify(allAuctionsSession, times(1)).offer(any(DirectBuffer.class), anyInt(), anyInt());
+        verify(bothAuctionsSession, times(1)).offer(any(DirectBuffer.class), anyInt(), anyInt());
+        verify(otherSession, times(1)).offer(any(DirectBuffer.class), anyInt(), anyInt());
+    }
+
+    @Test
+    void testBroadcastIsPublishedOnceToMarketDataWhileLeader()
+    {
+        final ExclusivePublication publication = mock(ExclusivePublication.class);
+        when(publication.offer(any(DirectBuffer.class), anyInt(), anyInt())).thenReturn(1L);
+        final MarketDataPublisher publisher = new MarketDataPublisher();
+        publisher.setPublication(publication);
+        context.setMarketDataPublisher(publisher);
+
+        context.broadcast(AUCTION_ID, buffer, 0, 8);
+        verify(publication, never()).offer(any(DirectBuffer.class), anyInt(), anyInt());
+
+        publisher.onRoleChange(Cluster.Role.LEADER);
+        context.broadcast(AUCTION_ID, buffer, 0, 8);
+        context.broadcast(buffer, 0, 8);
+        verify(publication, times(2)).offer(buffer, 0, 8);
+        assertEquals(2, publisher.getPublishedCount());
+        verify(auctionSession, times(2)).offer(buffer, 0, 8);
+
+        when(publication.offer(any(DirectBuffer.class), anyInt(), anyInt()))
+            .thenReturn(ExclusivePublication.BACK_PRESSURED);
+        context.broadcast(buffer, 0, 8);
+        assertEquals(1, publisher.getDroppedCount());
+    }
+
+    @Test
+    void testBackPressuredSessionIsQueuedAndDrainedInOrder()
+    {
+        final LongArrayList delivered = new LongArrayList();
+        when(auctionSession.offer(any(DirectBuffer.class), anyInt(), anyInt()))
+            .thenReturn(Publication.BACK_PRESSURED)
+            .thenAnswer(invocation -> deliver(invocation.getArgument(0), invocation.getArgument(1), delivered));
+        context.setSessionContext(otherSession, 0L);
+        final UnsafeBuffer update = new UnsafeBuffer(new byte[8]);
+
+        update.putLong(0, 1L);
+        context.broadcast(AUCTION_ID, update, 0, 8);
+        update.putLong(0, 2L);
+        context.broadcast(AUCTION_ID, update, 0, 8);
+
+        verify(auctionSession, times(1)).offer(any(DirectBuffer.class), anyInt(), anyInt());
+        assertEquals(2, context.getEgressQueueDepth(auctionSession.id()));
+        assertEquals(2, context.drainEgressQueues());
+        assertEquals(0, context.getEgressQueueDepth(auctionSession.id()));
+        assertEquals(new LongArrayList(new long[]{1L, 2L}, 2, -1L), delivered);
+        verify(otherSession, never()).close();
+    }
+
+    @Test
+    void testQueueLeftAfterTheCallbackIsDrainedByLaterCallbacksWithoutATimer()
+    {
+        final Cluster cluster = newCluster();
+        when(auctionSession.offer(any(DirectBuffer.class), anyInt(), anyInt()))
+            .thenReturn(Publication.BACK_PRESSURED);
+        context.setSessionContext(otherSession, 100L);
+
+        context.broadcast(AUCTION_ID, buffer, 0, 8);
+        assertEquals(0, context.flushEgress());
+        assertEquals(0, context.drainEgressQueues());
+        assertEquals(1, context.getEgressQueueDepth(auctionSession.id()));
+
+        when(auctionSession.offer(any(DirectBuffer.class), anyInt(), anyInt())).thenReturn(1L);
+        assertEquals(1, context.drainEgressQueues());
+        assertEquals(0, context.getEgressQueueDepth(auctionSession.id()));
+        verify(cluster, never()).scheduleTimer(anyLong(), anyLong());
+    }
+
+    @Test
+    void testFullQueueDropsOldestMessages()
+    {
+        context.setSlowConsumerPolicy(SlowConsumerPolicy.DROP_OLDEST);
+        fillQueueOfAuctionSession(100);
+
+        assertEquals(64, context.getEgressQueueDepth(auctionSession.id()));
+        assertEquals(36, context.getEgressDroppedCount(auctionSession.id()));
+        verify(auctionSession, never()).close();
+    }
+
+    @Test
+    void testFullQueueClosesTheSlowSessionOnly()
+    {
+        context.setSlowConsumerPolicy(SlowConsumerPolicy.DISCONNECT);
+        context.setSessionContext(otherSession, 0L);
+        fillQueueOfAuctionSession(65);
+
+        verify(auctionSession).close();
+        verify(otherSession, never()).close();
+        assertEquals(0, context.getEgressQueueDepth(auctionSession.id()));
+        assertEquals(65, context.getEgressDroppedCount(auctionSession.id()));
+    }
+
+    @Test
+    void testFullQueueSwitchesSessionToConflatedUpdates()
+    {
+        context.setSlowConsumerPolicy(SlowConsumerPolicy.CONFLATE);
+        fillQueueOfAuctionSession(65);
+
+        assertFalse(subscriptions.isConflated(auctionSession.id()));
+        assertFalse(subscriptions.hasConflatedSessions());
+        assertEquals(64, context.getEgressQueueDepth(auctionSession.id()));
+        verify(auctionSession, never()).close();
+
+        context.broadcast(AUCTION_ID, buffer, 0, 8);
+        assertEquals(64, context.getEgressQueueDepth(auctionSession.id()));
+        assertEquals(1, context.flushConflatedUpdates());
+
+        context.onSessionClosed(auctionSession.id());
+        context.broadcast(AUCTION_ID, buffer, 0, 8);
+        assertEquals(0, context.flushConflatedUpdates());
+    }
+
+    @Test
+    void testSessionSwitchedToConflatedUpdatesIsFlushedByCallbacksWithoutATimer()
+    {
+        final Cluster cluster = newCluster();
+        context.setConflationInterval(TimeUnit.MILLISECONDS.toNanos(1_000L));
+        context.setSlowConsumerPolicy(SlowConsumerPolicy.CONFLATE);
+        fillQueueOfAuctionSession(65);
+        when(auctionSession.offer(any(DirectBuffer.class), anyInt(), anyInt())).thenReturn(1L);
+        context.drainEgressQueues();
+        assertEquals(0, context.flushConflatedUpdates());
+        context.setClusterTime(1_000L);
+        assertEquals(1, context.flushConflatedUpdates());
+
+        context.setClusterTime(1_500L);
+        context.broadcast(AUCTION_ID, buffer, 0, 8);
+        assertEquals(0, context.flushConflatedUpdates());
+        context.setClusterTime(1_999L);
+        assertEquals(0, context.flushConflatedUpdates());
+        context.setClusterTime(2_000L);
+        assertEquals(1, context.flushConflatedUpdates());
+        verify(cluster, never()).scheduleTimer(anyLong(), anyLong());
+    }
+
+    @Test
+    void testUpdateIsEncodedIntoEachClaimedEgress()
+    {
+        final UnsafeBuffer auctionTerm = claimInto(auctionSession);
+        final UnsafeBuffer allAuctionsTerm = claimInto(allAuctionsSession);
+
+        context.broadcast(AUCTION_ID, 8, (target, offset) -> target.putLong(offset, 42L));
+
+        assertEquals(42L, auctionTerm.getLong(DataHeaderFlyweight.HEADER_LENGTH + AeronCluster.SESSION_HEADER_LENGTH));
+        assertEquals(
+            42L, allAuctionsTerm.getLong(DataHeaderFlyweight.HEADER_LENGTH + AeronCluster.SESSION_HEADER_LENGTH));
+        assertEquals(2, context.getClaimedCount());
+        verify(auctionSession, never()).offer(any(DirectBuffer.class), anyInt(), anyInt());
+        verify(otherSession, never()).tryClaim(anyInt(), any(BufferClaim.class));
+    }
+
+    @Test
+    void testBackPressuredClaimIsEncodedOnceAndQueued()
+    {
+        when(auctionSession.tryClaim(anyInt(), any(BufferClaim.class))).thenReturn(Publication.BACK_PRESSURED);
+        when(allAuctionsSession.tryClaim(anyInt(), any(BufferClaim.class))).thenReturn(Publication.ADMIN_ACTION);
+        final MutableInteger encodings = new MutableInteger();
+
+        context.broadcast(AUCTION_ID, 8, (target, offset) ->
+        {
+            encodings.increment();
+            target.putLong(offset, 42L);
+        });
+
+        assertEquals(1, encodings.get());
+        assertEquals(1, context.getEgressQueueDepth(auctionSession.id()));
+        assertEquals(1, context.getEgressQueueDepth(allAuctionsSession.id()));
+        assertEquals(0, context.getClaimedCount());
+    }
+
+    @Test
+    void testMessageLongerThanTheClaimLimitIsOffered()
+    {
+        context.setMaxClaimLength(4);
+        context.setSessionContext(auctionSession, 0L);
+
+        context.reply(8, (target, offset) -> target.putLong(offset, 42L));
+
+        verify(auctionSession, never()).tryClaim(anyInt(), any(BufferClaim.class));
+        verify(auctionSession).offer(any(DirectBuffer.class), eq(0), eq(8));
+    }
+
+    /**
+     * Makes each claim of a session wrap the start of a term buffer of its own
+     * @param session the session
+     * @return the term buffer
+     */
+    private static UnsafeBuffer claimInto(final ClientSession session)
+    {
+        final UnsafeBuffer term = new UnsafeBuffer(new byte[256]);
+        when(session.tryClaim(anyInt(), any(BufferClaim.class))).thenAnswer(invocation ->
+        {
+            final int length = invocation.getArgument(0);
+            final BufferClaim claim = invocation.getArgument(1);
+            claim.wrap(term, 0, DataHeaderFlyweight.HEADER_LENGTH + AeronCluster.SESSION_HEADER_LENGTH + length);
+            return 1L;
+        });
+        return term;
+    }
+
+    /**
+     * Broadcasts updates to a session which is always back pressured, with a queue which holds 64 of them
+     * @param updates the number of updates to broadcast
+     */
+    private void fillQueueOfAuctionSession(final int updates)
+    {
+        when(auctionSession.offer(any(DirectBuffer.class), anyInt(), anyInt())).thenReturn(Publication.BACK_PRESSURED);
+        context.setEgressQueueCapacity(1024);
+        for (int i = 0; i < updates; i++)
+        {
+            context.broadcast(AUCTION_ID, buffer, 0, 8);
+        }
+    }
+
+    private static long deliver(final DirectBuffer offered, final int offset, final LongArrayList delivered)
+    {
+        delivered.addLong(offered.getLong(offset));
+        return 1L;
+    }
+
+    /**
+     * Decodes each message offered to a session as it is offered, since the batch buffer is reused between sessions
+     * @param session the session
+     * @return the auction ids of the updates offered, in order
+     */
+    private static LongArrayList recordUpdates(final ClientSession session)
+    {
+        final LongArrayList auctionIds = new LongArrayList();
+        final MessageHeaderDecoder headerDecoder = new MessageHeaderDecoder();
+        final AuctionUpdateEventDecoder updateDecoder = new AuctionUpdateEventDecoder();
+        final AuctionUpdateBatchEventDecoder batchDecoder = new AuctionUpdateBatchEventDecoder();
+        when(session.offer(any(DirectBuffer.class), anyInt(), anyInt())).thenAnswer(invocation ->
+        {
+            final DirectBuffer offered = invocation.getArgument(0);
+            final int offset = invocation.getArgument(1);
+            headerDecoder.wrap(offered, offset);
+            if (AuctionUpdateEventDecoder.TEMPLATE_ID == headerDecoder.templateId())
+            {
+                auctionIds.addLong(updateDecoder.wrapAndApplyHeader(offered, offset, headerDecoder).auctionId());
+            }
+            else
+            {
+                for (final AuctionUpdateBatchEventDecoder.UpdatesDecoder update :
+                    batchDecoder.wrapAndApplyHeader(offered, offset, headerDecoder).updates())
+                {
+                    auctionIds.addLong(update.auctionId());
+                }
+            }
+            return 1L;
+        });
+        return auctionIds;
+    }
+
+    private Cluster newCluster()
+    {
+        final Cluster cluster = mock(Cluster.class);
+        when(cluster.idleStrategy()).thenReturn(mock(IdleStrategy.class));
+        when(cluster.scheduleTimer(anyLong(), anyLong())).thenReturn(true);
+        context.setCluster(cluster);
+        return cluster;
+    }
+
+    private ClientSession addSession(final long sessionId)
+    {
+        final ClientSession session = mock(ClientSession.class);
+        when(session.id()).thenReturn(sessionId);
+        when(session.offer(any(DirectBuffer.class), anyInt(), anyInt())).thenReturn(1L);
+        clientSessions.addSession(session);
+        return session;
+    }
+
+    private void subscribeAs(final ClientSession session, final long auctionId)
+    {
+        context.setSessionContext(session, 0L);
+        context.subscribe(auctionId, false);
+    }
+}
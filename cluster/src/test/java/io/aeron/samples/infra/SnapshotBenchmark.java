@@ -0,0 +1,186 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.aeron.samples.infra;
+
+import io.aeron.ExclusivePublication;
+import io.aeron.samples.cluster.protocol.AuctionSnapshotEncoder;
+import io.aeron.samples.cluster.protocol.EndOfSnapshotEncoder;
+import io.aeron.samples.cluster.protocol.MessageHeaderEncoder;
+import io.aeron.samples.cluster.protocol.TimerSnapshotEncoder;
+import io.aeron.samples.domain.auctions.Auction;
+import io.aeron.samples.domain.auctions.Auctions;
+import io.aeron.samples.domain.participants.Participants;
+import org.agrona.ExpandableDirectByteBuffer;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.NoOpIdleStrategy;
+
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Compares writing and loading a snapshot of auctions and their open, close and removal timers as one message per
+ * auction and per timer, as snapshots were written before, against packing them into batch messages which fill a
+ * fragment and loading them into stores sized from the snapshot header. Run with {@code main} and
+ * {@code -DLOG_LEVEL=warn}, giving it {@code -Xmx2g -XX:MaxDirectMemorySize=1g} for the million auctions; it is not
+ * part of the test suite.
+ * <p>
+ * Both are written to a stub publication which lays the messages out in frames in memory, and loaded by replaying those
+ * frames to the snapshot manager, so the figures leave out the archive and the media driver. The frame counts and
+ * lengths are the figures to compare; the times show the cost on the service thread.
+ */
+final class SnapshotBenchmark
+{
+    private static final int[] AUCTION_COUNTS = {10_000, 100_000, 1_000_000};
+    private static final int RUNS = 3;
+    private static final long CLUSTER_TIME = 1_000L;
+
+    private SnapshotBenchmark()
+    {
+    }
+
+    /**
+     * Runs the benchmark
+     * @param args ignored
+     */
+    public static void main(final String[] args)
+    {
+        for (int run = 1; run <= RUNS; run++)
+        {
+            for (final int auctionCount : AUCTION_COUNTS)
+            {
+                final TimerManager timerManager = newTimerManager();
+                final Auctions auctions = newAuctions(auctionCount, timerManager);
+                runSnapshot(run, auctions, timerManager, false);
+                runSnapshot(run, auctions, timerManager, true);
+            }
+        }
+    }
+
+    private static void runSnapshot(
+        final int run,
+        final Auctions auctions,
+        final TimerManager timerManager,
+        final boolean batched)
+    {
+        final SnapshotRecording recording = new SnapshotRecording();
+        final long writeStartNs = System.nanoTime();
+        if (batched)
+        {
+            newSnapshotManager(auctions, timerManager).takeSnapshot(recording.publication());
+        }
+        else
+        {
+            writeSingleMessages(auctions.getAuctionList(), timerManager, recording.publication());
+        }
+        final long writeNs = System.nanoTime() - writeStartNs;
+
+        final TimerManager restoredTimerManager = newTimerManager();
+        final Auctions restored = newAuctions(0, restoredTimerManager);
+        final long loadStartNs = System.nanoTime();
+        recording.replay(newSnapshotManager(restored, restoredTimerManager));
+        final long loadNs = System.nanoTime() - loadStartNs;
+
+        System.out.printf("run %d %,9d auctions %-7s: %,9d frames, %,13d bytes, written in %,6d ms, " +
+            "loaded %,9d auctions and %,9d timers in %,6d ms%n", run, auctions.getAuctionList().size(),
+            batched ? "batched" : "single", recording.messageCount(), recording.length(), writeNs / 1_000_000,
+            restored.getAuctionList().size(), restoredTimerManager.getTimerCount(), loadNs / 1_000_000);
+    }
+
+    /**
+     * Writes one AuctionSnapshot message per auction and one TimerSnapshot message per timer, as snapshots were written
+     * before auctions and timers were batched
+     * @param auctionList  the auctions
+     * @param timerManager the timer manager holding the pending timers
+     * @param publication  the publication to write to
+     */
+    private static void writeSingleMessages(
+        final List<Auction> auctionList,
+        final TimerManager timerManager,
+        final ExclusivePublication publication)
+    {
+        final ExpandableDirectByteBuffer buffer = new ExpandableDirectByteBuffer(1024);
+        final MessageHeaderEncoder headerEncoder = new MessageHeaderEncoder();
+        final AuctionSnapshotEncoder auctionEncoder = new AuctionSnapshotEncoder();
+        for (int i = 0; i < auctionList.size(); i++)
+        {
+            final Auction auction = auctionList.get(i);
+            auctionEncoder.wrapAndApplyHeader(buffer, 0, headerEncoder)
+                .auctionId(auction.getAuctionId())
+                .createdByParticipantId(auction.getCreatedByParticipantId())
+                .startTime(auction.getStartTime())
+                .startTimeTimerCorrelation(auction.getStartTimerCorrelationId())
+                .endTime(auction.getEndTime())
+                .endTimeTimerCorrelation(auction.getEndTimerCorrelationId())
+                .removalTimeTimerCorrelation(auction.getRemovalTimerCorrelationId())
+                .winningParticipantId(auction.getWinningParticipantId());
+            auctionEncoder.putName(auction.getStringBuffer(), auction.getNameOffset(), auction.getNameLength());
+            auctionEncoder.putDescription(
+                auction.getStringBuffer(), auction.getDescriptionOffset(), auction.getDescriptionLength());
+            publication.offer(buffer, 0, MessageHeaderEncoder.ENCODED_LENGTH + auctionEncoder.encodedLength());
+        }
+        final TimerSnapshotEncoder timerEncoder = new TimerSnapshotEncoder();
+        timerManager.forEachTimer((correlationId, deadline, action, auctionId) ->
+        {
+            timerEncoder.wrapAndApplyHeader(buffer, 0, headerEncoder)
+                .correlationId(correlationId)
+                .deadline(deadline)
+                .action(io.aeron.samples.cluster.protocol.TimerAction.get(action.ordinal()))
+                .auctionId(auctionId);
+            publication.offer(buffer, 0, MessageHeaderEncoder.ENCODED_LENGTH + TimerSnapshotEncoder.BLOCK_LENGTH);
+        });
+        new EndOfSnapshotEncoder().wrapAndApplyHeader(buffer, 0, headerEncoder);
+        publication.offer(buffer, 0, MessageHeaderEncoder.ENCODED_LENGTH + EndOfSnapshotEncoder.BLOCK_LENGTH);
+    }
+
+    private static Auctions newAuctions(final int auctionCount, final TimerManager timerManager)
+    {
+        final SessionMessageContext context = mock(SessionMessageContext.class, withSettings().stubOnly());
+        when(context.getClusterTime()).thenReturn(CLUSTER_TIME);
+        final ClusterClientResponder responder = mock(ClusterClientResponder.class, withSettings().stubOnly());
+        final Auctions auctions = new Auctions(context, new Participants(responder), responder, timerManager);
+        for (long auctionId = 1; auctionId <= auctionCount; auctionId++)
+        {
+            auctions.restoreAuction(auctionId, 500L, CLUSTER_TIME + auctionId, 3 * auctionId, CLUSTER_TIME + 10_000L,
+                3 * auctionId + 1, 3 * auctionId + 2, -1L, "auction " + auctionId,
+                "description of auction " + auctionId);
+            timerManager.restoreTimer(3 * auctionId, CLUSTER_TIME + auctionId, TimerAction.OPEN_AUCTION, auctionId);
+            timerManager.restoreTimer(3 * auctionId + 1, CLUSTER_TIME + 10_000L, TimerAction.CLOSE_AUCTION, auctionId);
+            timerManager.restoreTimer(3 * auctionId + 2, CLUSTER_TIME + 70_000L, TimerAction.REMOVE_AUCTION, auctionId);
+        }
+        return auctions;
+    }
+
+    private static TimerManager newTimerManager()
+    {
+        return new TimerManager(new SessionMessageContextImpl(new ClientSessions(), new AuctionSubscriptions()));
+    }
+
+    private static SnapshotManager newSnapshotManager(final Auctions auctions, final TimerManager timerManager)
+    {
+        final SessionMessageContext context = mock(SessionMessageContext.class, withSettings().stubOnly());
+        when(context.getClusterTime()).thenReturn(CLUSTER_TIME);
+        final ClusterClientResponder responder = mock(ClusterClientResponder.class, withSettings().stubOnly());
+        final IdleStrategy idleStrategy = NoOpIdleStrategy.INSTANCE;
+        final SnapshotManager snapshotManager = new SnapshotManager(auctions, new Participants(responder),
+            timerManager, new AuctionSubscriptions(), context);
+        snapshotManager.setIdleStrategy(idleStrategy);
+        return snapshotManager;
+    }
+}
@@ -0,0 +1,347 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.aeron.samples.infra;
+
+import io.aeron.cluster.service.Cluster;
+import io.aeron.samples.cluster.protocol.AuctionSnapshotEncoder;
+import io.aeron.samples.cluster.protocol.EndOfSnapshotDecoder;
+import io.aeron.samples.cluster.protocol.EndOfSnapshotEncoder;
+import io.aeron.samples.cluster.protocol.MessageHeaderDecoder;
+import io.aeron.samples.cluster.protocol.MessageHeaderEncoder;
+import io.aeron.samples.domain.auctions.Auction;
+import io.aeron.samples.domain.auctions.AuctionStatus;
+import io.aeron.samples.domain.auctions.Auctions;
+import io.aeron.samples.domain.auctions.BidHistory;
+import io.aeron.samples.domain.auctions.ProxyBids;
+import io.aeron.samples.domain.participants.Participants;
+import org.agrona.DirectBuffer;
+import org.agrona.collections.LongArrayList;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SnapshotManagerTests
+{
+    private static final int AUCTION_COUNT = 200;
+    private static final long CLUSTER_TIME = 1_000L;
+
+    private final SessionMessageContext context = mock(SessionMessageContext.class);
+    private final IdleStrategy idleStrategy = mock(IdleStrategy.class);
+    private final SnapshotRecording recording = new SnapshotRecording();
+
+    @Test
+    void testAuctionsArePackedIntoFragmentsAndRestored()
+    {
+        final Auctions auctions = newAuctions();
+        for (long auctionId = 1; auctionId <= AUCTION_COUNT; auctionId++)
+        {
+            final String description = 100 == auctionId ? "long".repeat(1_000) : "description " + auctionId;
+            auctions.restoreAuction(auctionId, 500L, CLUSTER_TIME + auctionId, 3 * auctionId, CLUSTER_TIME + 10_000L,
+                3 * auctionId + 1, 3 * auctionId + 2, -1L, "auction " + auctionId, description);
+        }
+
+        newSnapshotManager(auctions).takeSnapshot(recording.publication());
+
+        assertTrue(recording.messageCount() < AUCTION_COUNT / 5);
+        int longMessages = 0;
+        for (int i = 0; i < recording.messageCount(); i++)
+        {
+            if (recording.messageLength(i) > SnapshotRecording.MAX_PAYLOAD_LENGTH)
+            {
+                longMessages++;
+            }
+        }
+        assertEquals(1, longMessages);
+
+        final Auctions restored = newAuctions();
+        recording.replay(newSnapshotManager(restored));
+        final List<Auction> auctionList = auctions.getAuctionList();
+        final List<Auction> restoredList = restored.getAuctionList();
+        assertEquals(AUCTION_COUNT, restoredList.size());
+        for (int i = 0; i < AUCTION_COUNT; i++)
+        {
+            final Auction auction = auctionList.get(i);
+            final Auction restoredAuction = restoredList.get(i);
+            assertEquals(auction.getAuctionId(), restoredAuction.getAuctionId());
+            assertEquals(auction.getStartTime(), restoredAuction.getStartTime());
+            assertEquals(auction.getRemovalTimerCorrelationId(), restoredAuction.getRemovalTimerCorrelationId());
+            assertEquals(auction.getName(), restoredAuction.getName());
+            assertEquals(auction.getDescription(), restoredAuction.getDescription());
+        }
+    }
+
+    @Test
+    void testTimersArePackedIntoFragmentsAndRestoredInQueueOrder()
+    {
+        final Auctions auctions = newAuctions();
+        final TimerManager timerManager = newTimerManager();
+        for (long auctionId = 1; auctionId <= AUCTION_COUNT; auctionId++)
+        {
+            auctions.restoreAuction(auctionId, 500L, CLUSTER_TIME + auctionId, 3 * auctionId, CLUSTER_TIME + 10_000L,
+                3 * auctionId + 1, 3 * auctionId + 2, -1L, "auction " + auctionId, "description " + auctionId);
+            timerManager.scheduleTimer(CLUSTER_TIME + auctionId, TimerAction.OPEN_AUCTION, auctionId);
+            timerManager.scheduleTimer(CLUSTER_TIME + 10_000L, TimerAction.CLOSE_AUCTION, auctionId);
+        }
+
+        newSnapshotManager(auctions, timerManager).takeSnapshot(recording.publication());
+
+        assertTrue(recording.messageCount() < AUCTION_COUNT / 4);
+        final TimerManager restoredTimerManager = newTimerManager();
+        recording.replay(newSnapshotManager(newAuctions(), restoredTimerManager));
+        assertEquals(2 * AUCTION_COUNT, restoredTimerManager.getTimerCount());
+        assertEquals(timerIds(timerManager), timerIds(restoredTimerManager));
+    }
+
+    @Test
+    void testParticipantsWithMultiByteNamesArePackedIntoFragmentsAndRestored()
+    {
+        final Participants participants = new Participants(mock(ClusterClientResponder.class));
+        for (long participantId = 1; participantId <= AUCTION_COUNT; participantId++)
+        {
+            participants.addParticipant(participantId, utf8("correlation"), utf8("participant \u00e9\u20ac " + participantId));
+        }
+
+        newSnapshotManager(newAuctions(), mock(TimerManager.class), participants)
+            .takeSnapshot(recording.publication());
+
+        for (int i = 0; i < recording.messageCount(); i++)
+        {
+            assertTrue(recording.messageLength(i) <= SnapshotRecording.MAX_PAYLOAD_LENGTH);
+        }
+        final Participants restored = new Participants(mock(ClusterClientResponder.class));
+        recording.replay(newSnapshotManager(newAuctions(), mock(TimerManager.class), restored));
+        assertEquals(participants.getParticipantList(), restored.getParticipantList());
+    }
+
+    @Test
+    void testBackPressuredSnapshotIsRetriedUntilComplete()
+    {
+        recording.backPressure(10);
+
+        newSnapshotManager(newAuctions()).takeSnapshot(recording.publication());
+
+        verify(idleStrategy, times(10)).idle();
+        final MessageHeaderDecoder headerDecoder = new MessageHeaderDecoder();
+        recording.replay((buffer, offset, length, header) -> headerDecoder.wrap(buffer, offset));
+        assertEquals(EndOfSnapshotDecoder.TEMPLATE_ID, headerDecoder.templateId());
+    }
+
+    @Test
+    void testStartedAuctionsAreRestoredWithTheirCompleteState()
+    {
+        final ClusterClientResponder responder = mock(ClusterClientResponder.class);
+        final Participants participants = new Participants(responder);
+        participants.restoreParticipant(502L, "proxy bidder");
+        final TimerManager timerManager = newTimerManager();
+        final Auctions auctions = new Auctions(context, participants, responder, timerManager);
+        final DirectBuffer correlationId = new UnsafeBuffer(new byte[16]);
+        when(context.getClusterTime()).thenReturn(CLUSTER_TIME);
+        auctions.addAuction(500L, 2_000L, 60_000L, correlationId, utf8("open"), utf8("bid on and proxy bid"));
+        auctions.addAuction(500L, 2_000L, 30_000L, correlationId, utf8("closed"), utf8("bid on and closed"));
+        auctions.addAuction(500L, 100_000L, 200_000L, correlationId, utf8("pre open"), utf8("not yet started"));
+        when(context.getClusterTime()).thenReturn(2_000L);
+        auctions.openAuction(1L);
+        auctions.openAuction(2L);
+        when(context.getClusterTime()).thenReturn(3_000L);
+        auctions.addBid(1L, 501L, 100L, correlationId);
+        auctions.registerProxyBid(1L, 502L, 500L, correlationId);
+        auctions.addBid(2L, 501L, 50L, correlationId);
+        when(context.getClusterTime()).thenReturn(30_000L);
+        auctions.closeAuction(2L);
+
+        final SnapshotManager source =
+            new SnapshotManager(auctions, participants, timerManager, new AuctionSubscriptions(), context);
+        source.setIdleStrategy(idleStrategy);
+        source.takeSnapshot(recording.publication());
+
+        final Participants restoredParticipants = new Participants(responder);
+        final TimerManager restoredTimerManager = newTimerManager();
+        final Auctions restored = new Auctions(context, restoredParticipants, responder, restoredTimerManager);
+        final SnapshotManager snapshotManager = new SnapshotManager(
+            restored, restoredParticipants, restoredTimerManager, new AuctionSubscriptions(), context);
+        snapshotManager.setIdleStrategy(idleStrategy);
+        recording.replay(snapshotManager);
+
+        assertEquals(auctions.getStateVersion(), restored.getStateVersion());
+        assertEquals(auctions.getAuctionId(), restored.getAuctionId());
+        assertTrue(restoredParticipants.isKnownParticipant(502L));
+        assertEquals(timerManager.getCorrelationId(), restoredTimerManager.getCorrelationId());
+        assertEquals(timerManager.getTimerCount(), restoredTimerManager.getTimerCount());
+        assertEquals(timerManager.getBucketTimerCount(), restoredTimerManager.getBucketTimerCount());
+
+        final List<Auction> auctionList = auctions.getAuctionList();
+        final List<Auction> restoredList = restored.getAuctionList();
+        assertEquals(3, restoredList.size());
+        assertEquals(AuctionStatus.OPEN, restoredList.get(0).getAuctionStatus());
+        assertEquals(AuctionStatus.CLOSED, restoredList.get(1).getAuctionStatus());
+        assertEquals(AuctionStatus.PRE_OPEN, restoredList.get(2).getAuctionStatus());
+        for (int i = 0; i < auctionList.size(); i++)
+        {
+            final Auction auction = auctionList.get(i);
+            final Auction restoredAuction = restoredList.get(i);
+            assertEquals(auction.getAuctionId(), restoredAuction.getAuctionId());
+            assertEquals(auction.getAuctionStatus(), restoredAuction.getAuctionStatus());
+            assertEquals(auction.getCurrentPrice(), restoredAuction.getCurrentPrice());
+            assertEquals(auction.getWinningParticipantId(), restoredAuction.getWinningParticipantId());
+            assertEquals(auction.getBidCount(), restoredAuction.getBidCount());
+            assertEquals(auction.getLastUpdateTime(), restoredAuction.getLastUpdateTime());
+            assertEquals(auction.getLastModifiedVersion(), restoredAuction.getLastModifiedVersion());
+            assertEquals(auction.getEndTimerCorrelationId(), restoredAuction.getEndTimerCorrelationId());
+            assertEquals(auction.getName(), restoredAuction.getName());
+            assertEquals(auction.getDescription(), restoredAuction.getDescription());
+
+            final BidHistory bidHistory = auctions.getBidHistory(auction);
+            final BidHistory restoredBidHistory = restored.getBidHistory(restoredAuction);
+            assertEquals(bidHistory.size(), restoredBidHistory.size());
+            for (int bid = 0; bid < bidHistory.size(); bid++)
+            {
+                assertEquals(bidHistory.participantId(bid), restoredBidHistory.participantId(bid));
+                assertEquals(bidHistory.price(bid), restoredBidHistory.price(bid));
+                assertEquals(bidHistory.time(bid), restoredBidHistory.time(bid));
+            }
+        }
+
+        final ProxyBids proxyBids = auctions.getProxyBids(1L);
+        final ProxyBids restoredProxyBids = restored.getProxyBids(1L);
+        assertEquals(proxyBids.size(), restoredProxyBids.size());
+        assertEquals(proxyBids.participantId(0), restoredProxyBids.participantId(0));
+        assertEquals(proxyBids.maxPrice(0), restoredProxyBids.maxPrice(0));
+        assertNull(restored.getProxyBids(2L));
+    }
+
+    @Test
+    void testLegacyAuctionTimersAreQueuedUnderTheirClusterTimerIds()
+    {
+        final TimerManager timerManager = newTimerManager();
+        final Auctions timerAuctions = mock(Auctions.class);
+        timerManager.setAuctions(timerAuctions);
+        final Auctions restored = newAuctions();
+        final SnapshotManager snapshotManager = newSnapshotManager(restored, timerManager);
+
+        final long startTime = CLUSTER_TIME + 1_000L;
+        final long endTime = startTime + 30_000L;
+        final UnsafeBuffer buffer = new UnsafeBuffer(new byte[256]);
+        snapshotManager.onFragment(buffer, 0,
+            encodeLegacyAuction(buffer, 1L, startTime, endTime, 10L), null);
+        snapshotManager.onFragment(buffer, 0,
+            encodeLegacyAuction(buffer, 2L, CLUSTER_TIME - 1L, endTime, 13L), null);
+        new EndOfSnapshotEncoder().wrapAndApplyHeader(buffer, 0, new MessageHeaderEncoder());
+        snapshotManager.onFragment(buffer, 0,
+            MessageHeaderEncoder.ENCODED_LENGTH + EndOfSnapshotEncoder.BLOCK_LENGTH, null);
+
+        assertEquals(1, restored.getAuctionList().size());
+        assertEquals(3, timerManager.getTimerCount());
+        assertEquals(15L, timerManager.getCorrelationId());
+
+        timerManager.onTimerEvent(10L, startTime);
+        verify(timerAuctions).openAuction(1L);
+        verify(timerAuctions, never()).closeAuction(anyLong());
+
+        timerManager.onTimerEvent(11L, endTime);
+        verify(timerAuctions).closeAuction(1L);
+        timerManager.onTimerEvent(12L, endTime + Auctions.REMOVAL_TIMER_DURATION);
+        verify(timerAuctions).removeAuction(1L);
+        assertEquals(0, timerManager.getTimerCount());
+        assertTrue(timerManager.scheduleTimer(endTime, TimerAction.CLOSE_AUCTION, 1L) > 15L);
+    }
+
+    private static int encodeLegacyAuction(
+        final UnsafeBuffer buffer,
+        final long auctionId,
+        final long startTime,
+        final long endTime,
+        final long firstTimerCorrelationId)
+    {
+        final AuctionSnapshotEncoder encoder = new AuctionSnapshotEncoder()
+            .wrapAndApplyHeader(buffer, 0, new MessageHeaderEncoder())
+            .auctionId(auctionId)
+            .createdByParticipantId(500L)
+            .startTime(startTime)
+            .startTimeTimerCorrelation(firstTimerCorrelationId)
+            .endTime(endTime)
+            .endTimeTimerCorrelation(firstTimerCorrelationId + 1)
+            .removalTimeTimerCorrelation(firstTimerCorrelationId + 2)
+            .winningParticipantId(-1L)
+            .name("auction " + auctionId)
+            .description("description " + auctionId);
+        return MessageHeaderEncoder.ENCODED_LENGTH + encoder.encodedLength();
+    }
+
+    private Auctions newAuctions()
+    {
+        when(context.getClusterTime()).thenReturn(CLUSTER_TIME);
+        final ClusterClientResponder responder = mock(ClusterClientResponder.class);
+        return new Auctions(context, new Participants(responder), responder, mock(TimerManager.class));
+    }
+
+    private SnapshotManager newSnapshotManager(final Auctions auctions)
+    {
+        return newSnapshotManager(auctions, mock(TimerManager.class));
+    }
+
+    private SnapshotManager newSnapshotManager(final Auctions auctions, final TimerManager timerManager)
+    {
+        return newSnapshotManager(auctions, timerManager, new Participants(mock(ClusterClientResponder.class)));
+    }
+
+    private SnapshotManager newSnapshotManager(
+        final Auctions auctions,
+        final TimerManager timerManager,
+        final Participants participants)
+    {
+        final SnapshotManager snapshotManager =
+            new SnapshotManager(auctions, participants, timerManager, new AuctionSubscriptions(), context);
+        snapshotManager.setIdleStrategy(idleStrategy);
+        return snapshotManager;
+    }
+
+    private static TimerManager newTimerManager()
+    {
+        final Cluster cluster = mock(Cluster.class);
+        when(cluster.idleStrategy()).thenReturn(mock(IdleStrategy.class));
+        when(cluster.scheduleTimer(anyLong(), anyLong())).thenReturn(true);
+        final TimerManager timerManager =
+            new TimerManager(new SessionMessageContextImpl(new ClientSessions(), new AuctionSubscriptions()));
+        timerManager.setCluster(cluster);
+        return timerManager;
+    }
+
+    private static LongArrayList timerIds(final TimerManager timerManager)
+    {
+        final LongArrayList timerIds = new LongArrayList();
+        timerManager.forEachTimer((correlationId, deadline, action, auctionId) -> timerIds.addLong(correlationId));
+        return timerIds;
+    }
+
+    private static DirectBuffer utf8(final String value)
+    {
+        return new UnsafeBuffer(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.aeron.samples.infra;
+
+import io.aeron.ExclusivePublication;
+import io.aeron.Publication;
+import io.aeron.logbuffer.BufferClaim;
+import io.aeron.logbuffer.FragmentHandler;
+import io.aeron.logbuffer.FrameDescriptor;
+import io.aeron.protocol.DataHeaderFlyweight;
+import org.agrona.BitUtil;
+import org.agrona.DirectBuffer;
+import org.agrona.collections.IntArrayList;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Records the messages written to a stub snapshot publication, laid out in frames as a publication would, so they can
+ * be replayed to a snapshot loader and measured
+ */
+final class SnapshotRecording
+{
+    /**
+     * The max payload length of the publication, as for the default MTU
+     */
+    static final int MAX_PAYLOAD_LENGTH = 1408 - DataHeaderFlyweight.HEADER_LENGTH;
+
+    private final ExclusivePublication publication = mock(ExclusivePublication.class, withSettings().stubOnly());
+    private final IntArrayList offsets = new IntArrayList();
+    private final IntArrayList lengths = new IntArrayList();
+    private UnsafeBuffer log = new UnsafeBuffer(new byte[64 * 1024]);
+    private int position;
+    private int backPressuredAttempts;
+
+    SnapshotRecording()
+    {
+        when(publication.maxPayloadLength()).thenReturn(MAX_PAYLOAD_LENGTH);
+        when(publication.tryClaim(anyInt(), any(BufferClaim.class))).thenAnswer(invocation ->
+        {
+            final int length = invocation.getArgument(0);
+            if (backPressuredAttempts > 0)
+            {
+                backPressuredAttempts--;
+                return Publication.BACK_PRESSURED;
+            }
+            final BufferClaim claim = invocation.getArgument(1);
+            final int frameOffset = append(length);
+            claim.wrap(log, frameOffset, DataHeaderFlyweight.HEADER_LENGTH + length);
+            return (long)position;
+        });
+        when(publication.offer(any(DirectBuffer.class), anyInt(), anyInt())).thenAnswer(invocation ->
+        {
+            final int length = invocation.getArgument(2);
+            if (backPressuredAttempts > 0)
+            {
+                backPressuredAttempts--;
+                return Publication.BACK_PRESSURED;
+            }
+            final int frameOffset = append(length);
+            log.putBytes(frameOffset + DataHeaderFlyweight.HEADER_LENGTH, (DirectBuffer)invocation.getArgument(0),
+                invocation.getArgument(1), length);
+            return (long)position;
+        });
+    }
+
+    /**
+     * Gets the stub publication
+     * @return the publication which records what is written to it
+     */
+    ExclusivePublication publication()
+    {
+        return publication;
+    }
+
+    /**
+     * Makes the next attempts to write to the publication fail with back pressure
+     * @param attempts the number of attempts to fail
+     */
+    void backPressure(final int attempts)
+    {
+        backPressuredAttempts = attempts;
+    }
+
+    /**
+     * Gets the number of messages recorded
+     * @return the message count
+     */
+    int messageCount()
+    {
+        return offsets.size();
+    }
+
+    /**
+     * Gets the length of a recorded message
+     * @param index the index of the message, in the order written
+     * @return the length of the message
+     */
+    int messageLength(final int index)
+    {
+        return lengths.getInt(index);
+    }
+
+    /**
+     * Gets the length of the recording as frames, one per message since longer messages are not fragmented here
+     * @return the length in bytes
+     */
+    int length()
+    {
+        return position;
+    }
+
+    /**
+     * Delivers each recorded message to a handler, as reassembled fragments would be
+     * @param handler the handler to deliver to
+     */
+    void replay(final FragmentHandler handler)
+    {
+        for (int i = 0; i < offsets.size(); i++)
+        {
+            handler.onFragment(log, offsets.getInt(i), lengths.getInt(i), null);
+        }
+    }
+
+    private int append(final int length)
+    {
+        final int frameLength =
+            BitUtil.align(DataHeaderFlyweight.HEADER_LENGTH + length, FrameDescriptor.FRAME_ALIGNMENT);
+        if (position + frameLength > log.capacity())
+        {
+            final UnsafeBuffer grown = new UnsafeBuffer(new byte[Math.max(log.capacity() * 2, position + frameLength)]);
+            grown.putBytes(0, log, 0, position);
+            log = grown;
+        }
+        final int frameOffset = position;
+        offsets.addInt(frameOffset + DataHeaderFlyweight.HEADER_LENGTH);
+        lengths.addInt(length);
+        position += frameLength;
+        return frameOffset;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.aeron.samples.infra;
+
+import io.aeron.cluster.service.Cluster;
+import io.aeron.cluster.service.ClusterControl;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.status.AtomicCounter;
+import org.agrona.concurrent.status.CountersReader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SnapshotSchedulerTests
+{
+    private static final long LOG_THRESHOLD_BYTES = 1_000L;
+    private static final long INTERVAL_NS = 60_000_000_000L;
+
+    private final Cluster cluster = mock(Cluster.class);
+    private final AtomicCounter controlToggle =
+        new AtomicCounter(new UnsafeBuffer(ByteBuffer.allocateDirect(CountersReader.COUNTER_LENGTH)), 0);
+
+    @BeforeEach
+    void setUp()
+    {
+        when(cluster.role()).thenReturn(Cluster.Role.LEADER);
+        when(cluster.logPosition()).thenReturn(0L);
+    }
+
+    @Test
+    void testLeaderRequestsOneSnapshotOnceTheLogHasGrownByTheThreshold()
+    {
+        final SnapshotScheduler scheduler = newScheduler(LOG_THRESHOLD_BYTES, 0);
+
+        when(cluster.logPosition()).thenReturn(LOG_THRESHOLD_BYTES - 1);
+        assertEquals(0, scheduler.doWork(1L));
+        assertEquals(ClusterControl.ToggleState.NEUTRAL, ClusterControl.ToggleState.get(controlToggle));
+
+        when(cluster.logPosition()).thenReturn(LOG_THRESHOLD_BYTES);
+        assertEquals(1, scheduler.doWork(2L));
+        assertEquals(ClusterControl.ToggleState.SNAPSHOT, ClusterControl.ToggleState.get(controlToggle));
+
+        //the consensus module resets the toggle once it starts the snapshot, before the service has taken it
+        controlToggle.set(ClusterControl.ToggleState.NEUTRAL.code());
+        assertEquals(0, scheduler.doWork(3L));
+
+        scheduler.onSnapshotTaken(1_000L);
+        assertEquals(LOG_THRESHOLD_BYTES, scheduler.getLastSnapshotPosition());
+        assertEquals(0, scheduler.doWork(4L));
+        assertEquals(ClusterControl.ToggleState.NEUTRAL, ClusterControl.ToggleState.get(controlToggle));
+    }
+
+    @Test
+    void testRequestNotAnsweredWithASnapshotIsMadeAgainAfterTheTimeout()
+    {
+        final SnapshotScheduler scheduler = newScheduler(LOG_THRESHOLD_BYTES, 0);
+        final long requestTimeNs = 10L;
+        when(cluster.logPosition()).thenReturn(LOG_THRESHOLD_BYTES);
+        assertEquals(1, scheduler.doWork(requestTimeNs));
+
+        //still toggled, so the consensus module has not yet taken up the request
+        assertEquals(0, scheduler.doWork(requestTimeNs + SnapshotScheduler.SNAPSHOT_REQUEST_TIMEOUT_NS));
+
+        //reset without a snapshot being taken, as when the snapshot is aborted
+        controlToggle.set(ClusterControl.ToggleState.NEUTRAL.code());
+        assertEquals(0, scheduler.doWork(requestTimeNs + SnapshotScheduler.SNAPSHOT_REQUEST_TIMEOUT_NS - 1));
+        assertEquals(1, scheduler.doWork(requestTimeNs + SnapshotScheduler.SNAPSHOT_REQUEST_TIMEOUT_NS));
+        assertEquals(ClusterControl.ToggleState.SNAPSHOT, ClusterControl.ToggleState.get(controlToggle));
+    }
+
+    @Test
+    void testIntervalOnlyRequestsSnapshotOnceTheLogHasGrown()
+    {
+        final SnapshotScheduler scheduler = newScheduler(0, INTERVAL_NS);
+
+        assertEquals(0, scheduler.doWork(0L));
+        assertEquals(0, scheduler.doWork(INTERVAL_NS));
+
+        when(cluster.logPosition()).thenReturn(64L);
+        assertEquals(0, scheduler.doWork(INTERVAL_NS - 1));
+        assertEquals(1, scheduler.doWork(INTERVAL_NS));
+    }
+
+    @Test
+    void testFollowerNeverRequestsSnapshot()
+    {
+        final SnapshotScheduler scheduler = newScheduler(LOG_THRESHOLD_BYTES, INTERVAL_NS);
+        scheduler.onRoleChange(Cluster.Role.FOLLOWER);
+
+        when(cluster.logPosition()).thenReturn(10 * LOG_THRESHOLD_BYTES);
+        assertEquals(0, scheduler.doWork(0L));
+        assertEquals(0, scheduler.doWork(INTERVAL_NS));
+        assertEquals(ClusterControl.ToggleState.NEUTRAL, ClusterControl.ToggleState.get(controlToggle));
+
+        scheduler.onRoleChange(Cluster.Role.LEADER);
+        assertEquals(1, scheduler.doWork(INTERVAL_NS + 1));
+    }
+
+    private SnapshotScheduler newScheduler(final long logThresholdBytes, final long intervalNs)
+    {
+        final SnapshotScheduler scheduler = new SnapshotScheduler(logThresholdBytes, intervalNs);
+        scheduler.setControlToggle(controlToggle);
+        scheduler.setCluster(cluster);
+        return scheduler;
+    }
+}
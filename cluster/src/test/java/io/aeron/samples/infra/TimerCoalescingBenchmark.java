@@ -0,0 +1,153 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.aeron.samples.infra;
+
+import io.aeron.cluster.service.Cluster;
+import io.aeron.samples.domain.auctions.Auctions;
+import io.aeron.samples.domain.participants.Participants;
+import org.agrona.collections.Long2LongHashMap;
+import org.agrona.collections.LongArrayList;
+import org.agrona.concurrent.IdleStrategy;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compares the coalescing {@link TimerManager} against one cluster timer per auction action for a catalog of auctions
+ * which all open and close at the same time. Run with {@code main} and {@code -DLOG_LEVEL=warn}, so the per-auction
+ * logging does not dominate; it is not part of the test suite.
+ * <p>
+ * Reports the number of cluster timers each approach schedules and the in-service time to close every auction once
+ * the close deadline is reached. The per-timer figure excludes the cost of sequencing each timer event through the
+ * cluster log, so the difference in a running cluster is larger than reported here.
+ */
+final class TimerCoalescingBenchmark
+{
+    private static final int AUCTION_COUNT = 100_000;
+    private static final int RUNS = 5;
+    private static final long START_TIME = 60_000L;
+    private static final long END_TIME = 120_000L;
+
+    private TimerCoalescingBenchmark()
+    {
+    }
+
+    /**
+     * Runs the benchmark
+     * @param args ignored
+     */
+    public static void main(final String[] args)
+    {
+        for (int run = 1; run <= RUNS; run++)
+        {
+            runCoalesced(run);
+            runPerTimer(run);
+        }
+    }
+
+    private static void runCoalesced(final int run)
+    {
+        final SessionMessageContextImpl context =
+            new SessionMessageContextImpl(new ClientSessions(), new AuctionSubscriptions());
+        final LongArrayList timerIds = new LongArrayList();
+        final LongArrayList deadlines = new LongArrayList();
+        final TimerManager timerManager = new TimerManager(context);
+        timerManager.setCluster(recordingCluster(timerIds, deadlines));
+        final Auctions auctions = newAuctions(context, timerManager);
+        timerManager.setAuctions(auctions);
+
+        for (long auctionId = 1; auctionId <= AUCTION_COUNT; auctionId++)
+        {
+            restoreAuction(auctions, auctionId);
+            timerManager.scheduleTimer(START_TIME, TimerAction.OPEN_AUCTION, auctionId);
+            timerManager.scheduleTimer(END_TIME, TimerAction.CLOSE_AUCTION, auctionId);
+        }
+
+        timerManager.onTimerEvent(timerIds.getLong(0), deadlines.getLong(0));
+        final long startNs = System.nanoTime();
+        timerManager.onTimerEvent(timerIds.getLong(1), deadlines.getLong(1));
+        final long durationNs = System.nanoTime() - startNs;
+
+        report(run, "coalesced", timerIds.size(), 1, durationNs);
+    }
+
+    private static void runPerTimer(final int run)
+    {
+        final SessionMessageContextImpl context =
+            new SessionMessageContextImpl(new ClientSessions(), new AuctionSubscriptions());
+        final Auctions auctions = newAuctions(context, mock(TimerManager.class));
+        final Long2LongHashMap closeTimers = new Long2LongHashMap(-1);
+
+        for (long auctionId = 1; auctionId <= AUCTION_COUNT; auctionId++)
+        {
+            restoreAuction(auctions, auctionId);
+            closeTimers.put(auctionId, auctionId);
+        }
+
+        context.setClusterTime(START_TIME);
+        for (long auctionId = 1; auctionId <= AUCTION_COUNT; auctionId++)
+        {
+            auctions.openAuction(auctionId);
+        }
+
+        final long startNs = System.nanoTime();
+        for (long timerId = 1; timerId <= AUCTION_COUNT; timerId++)
+        {
+            context.setClusterTime(END_TIME);
+            auctions.closeAuction(closeTimers.remove(timerId));
+        }
+        final long durationNs = System.nanoTime() - startNs;
+
+        report(run, "per-timer", 2 * AUCTION_COUNT, AUCTION_COUNT, durationNs);
+    }
+
+    private static Cluster recordingCluster(final LongArrayList timerIds, final LongArrayList deadlines)
+    {
+        final Cluster cluster = mock(Cluster.class);
+        when(cluster.idleStrategy()).thenReturn(mock(IdleStrategy.class));
+        when(cluster.scheduleTimer(anyLong(), anyLong())).thenAnswer(invocation ->
+        {
+            timerIds.addLong(invocation.getArgument(0));
+            deadlines.addLong(invocation.getArgument(1));
+            return true;
+        });
+        return cluster;
+    }
+
+    private static Auctions newAuctions(final SessionMessageContextImpl context, final TimerManager timerManager)
+    {
+        final ClusterClientResponder responder = new ClusterClientResponderImpl(context);
+        return new Auctions(context, new Participants(responder), responder, timerManager);
+    }
+
+    private static void restoreAuction(final Auctions auctions, final long auctionId)
+    {
+        auctions.restoreAuction(auctionId, 1L, START_TIME, -1L, END_TIME, -1L, -1L, -1L, "name", "description");
+    }
+
+    private static void report(
+        final int run,
+        final String name,
+        final int clusterTimers,
+        final int closeTimerEvents,
+        final long durationNs)
+    {
+        System.out.printf("run %d %-9s: %,d cluster timers, %,d timer events to close %,d auctions in %,d us%n",
+            run, name, clusterTimers, closeTimerEvents, AUCTION_COUNT, durationNs / 1000);
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.aeron.samples.infra;
+
+import io.aeron.cluster.service.Cluster;
+import io.aeron.samples.domain.auctions.Auctions;
+import org.agrona.concurrent.IdleStrategy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class TimerManagerTests
+{
+    private static final int AUCTION_COUNT = 10_000;
+    private static final long START_TIME = 60_000L;
+    private static final long END_TIME = 120_000L;
+
+    private final Cluster cluster = mock(Cluster.class);
+    private final Auctions auctions = mock(Auctions.class);
+    private final SessionMessageContextImpl context =
+        new SessionMessageContextImpl(new ClientSessions(), new AuctionSubscriptions());
+
+    @BeforeEach
+    void setUp()
+    {
+        when(cluster.idleStrategy()).thenReturn(mock(IdleStrategy.class));
+        when(cluster.scheduleTimer(anyLong(), anyLong())).thenReturn(true);
+    }
+
+    @Test
+    void testAuctionsDueTogetherShareClusterTimers()
+    {
+        final TimerManager timerManager = newTimerManager(TimerManager.DEFAULT_BUCKET_WIDTH);
+        for (long auctionId = 1; auctionId <= AUCTION_COUNT; auctionId++)
+        {
+            timerManager.scheduleTimer(START_TIME, TimerAction.OPEN_AUCTION, auctionId);
+            timerManager.scheduleTimer(END_TIME, TimerAction.CLOSE_AUCTION, auctionId);
+        }
+
+        assertEquals(2 * AUCTION_COUNT, timerManager.getTimerCount());
+        assertEquals(2, timerManager.getBucketTimerCount());
+        verify(cluster, times(2)).scheduleTimer(anyLong(), anyLong());
+
+        final ArgumentCaptor<Long> correlationIds = ArgumentCaptor.forClass(Long.class);
+        verify(cluster).scheduleTimer(correlationIds.capture(), eq(END_TIME));
+        timerManager.onTimerEvent(correlationIds.getValue(), END_TIME);
+
+        verify(auctions, times(AUCTION_COUNT)).openAuction(anyLong());
+        verify(auctions, times(AUCTION_COUNT)).closeAuction(anyLong());
+        assertEquals(0, timerManager.getTimerCount());
+        assertEquals(1, timerManager.getBucketTimerCount());
+    }
+
+    @Test
+    void testBucketFiresDueTimersInDeadlineOrderAndNoLaterTimers()
+    {
+        final TimerManager timerManager = newTimerManager(100);
+        timerManager.scheduleTimer(1050L, TimerAction.CLOSE_AUCTION, 3L);
+        timerManager.scheduleTimer(1001L, TimerAction.OPEN_AUCTION, 1L);
+        timerManager.scheduleTimer(1100L, TimerAction.REMOVE_AUCTION, 4L);
+        timerManager.scheduleTimer(1050L, TimerAction.OPEN_AUCTION, 2L);
+        timerManager.scheduleTimer(1101L, TimerAction.OPEN_AUCTION, 5L);
+
+        final ArgumentCaptor<Long> correlationIds = ArgumentCaptor.forClass(Long.class);
+        verify(cluster).scheduleTimer(correlationIds.capture(), eq(1100L));
+        verify(cluster).scheduleTimer(anyLong(), eq(1200L));
+
+        timerManager.onTimerEvent(correlationIds.getValue(), 1100L);
+
+        final InOrder inOrder = inOrder(auctions);
+        inOrder.verify(auctions).openAuction(1L);
+        inOrder.verify(auctions).closeAuction(3L);
+        inOrder.verify(auctions).openAuction(2L);
+        inOrder.verify(auctions).removeAuction(4L);
+        inOrder.verifyNoMoreInteractions();
+        assertEquals(1, timerManager.getTimerCount());
+        assertEquals(1100L, context.getClusterTime());
+    }
+
+    @Test
+    void testRestoredTimersFireFromRestoredBucket()
+    {
+        final TimerManager timerManager = newTimerManager(100);
+        timerManager.scheduleTimer(1001L, TimerAction.OPEN_AUCTION, 1L);
+        timerManager.scheduleTimer(1002L, TimerAction.CLOSE_AUCTION, 1L);
+
+        final TimerManager restored = newTimerManager(100);
+        timerManager.forEachTimer(restored::restoreTimer);
+        timerManager.forEachBucketTimer(restored::restoreBucketTimer);
+        restored.restoreCorrelationId(timerManager.getCorrelationId());
+        verifyNoInteractions(auctions);
+
+        final ArgumentCaptor<Long> correlationIds = ArgumentCaptor.forClass(Long.class);
+        verify(cluster).scheduleTimer(correlationIds.capture(), eq(1100L));
+        restored.onTimerEvent(correlationIds.getValue(), 1100L);
+
+        final InOrder inOrder = inOrder(auctions);
+        inOrder.verify(auctions).openAuction(1L);
+        inOrder.verify(auctions).closeAuction(1L);
+        assertEquals(timerManager.getCorrelationId() + 1,
+            restored.scheduleTimer(2000L, TimerAction.REMOVE_AUCTION, 1L));
+    }
+
+    @Test
+    void testUnknownTimerIsIgnored()
+    {
+        final TimerManager timerManager = newTimerManager(100);
+        timerManager.scheduleTimer(1001L, TimerAction.OPEN_AUCTION, 1L);
+
+        timerManager.onTimerEvent(999L, 1100L);
+
+        verifyNoInteractions(auctions);
+        assertEquals(1, timerManager.getTimerCount());
+    }
+
+    private TimerManager newTimerManager(final long bucketWidth)
+    {
+        final TimerManager timerManager = new TimerManager(context, bucketWidth);
+        timerManager.setCluster(cluster);
+        timerManager.setAuctions(auctions);
+        return timerManager;
+    }
+}